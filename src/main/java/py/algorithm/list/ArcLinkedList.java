@@ -15,33 +15,30 @@
 package py.algorithm.list;
 
 import java.nio.ByteBuffer;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang.Validate;
 import py.algorithm.QueueType;
 
 public class ArcLinkedList {
   private final QueueType queueType;
   private final ArrayLinkedListBase origin;
+  private final MemoryAllocator memoryAllocator;
 
   private final int bufferSize;
-  private final LinkedBlockingQueue<ByteBuffer> bufferPoll = new LinkedBlockingQueue<>();
+  // the list is not thread safe, so a single scratch buffer is enough to stage node payloads
+  private final ByteBuffer scratch;
 
   public ArcLinkedList(QueueType queueType, MemoryAllocator memoryAllocator, int bufferSize) {
     this.queueType = queueType;
     this.origin = new ArrayLinkedListBase(memoryAllocator);
+    this.memoryAllocator = memoryAllocator;
     this.bufferSize = bufferSize;
-    for (int i = 0; i < 1000; i++) {
-      ByteBuffer buffer = ByteBuffer.allocate(bufferSize + 1);
-      bufferPoll.add(buffer);
-    }
+    this.scratch = ByteBuffer.allocate(bufferSize + 1);
   }
 
   public int addMru(ByteBuffer buffer) {
     validateBuffer(buffer.remaining());
     ByteBuffer tmpBuffer = generateBuffer(buffer);
     int index = origin.addFirst(tmpBuffer);
-    bufferPoll.offer(tmpBuffer);
     return index;
   }
 
@@ -49,10 +46,31 @@ public class ArcLinkedList {
     validateBuffer(buffer.remaining());
     ByteBuffer tmpBuffer = generateBuffer(buffer);
     int index = origin.addLast(tmpBuffer);
-    bufferPoll.offer(tmpBuffer);
     return index;
   }
 
+  /**
+   * Links a new node at the mru end and returns its index; the first {@code bufferSize} bytes of
+   * the payload are left to the caller.
+   */
+  public int addMru() {
+    int index = origin.addFirst();
+    memoryAllocator.putByte(index, bufferSize, (byte) queueType.index());
+    return index;
+  }
+
+  /**
+   * Moves a node of this list to the mru end of {@code target} without copying its payload.
+   */
+  public void moveToMru(int arrayIndex, ArcLinkedList target) {
+    origin.moveToFirst(arrayIndex, target.origin);
+    memoryAllocator.putByte(arrayIndex, bufferSize, (byte) target.queueType.index());
+  }
+
+  public int getLruIndex() {
+    return origin.getLastIndex();
+  }
+
   public int removeMru(ByteBuffer buffer) {
     validateBuffer(buffer.remaining());
     ByteBuffer tmpBuffer = allocateBuffer();
@@ -113,17 +131,12 @@ public class ArcLinkedList {
   }
 
   private ByteBuffer allocateBuffer() {
-    try {
-      ByteBuffer byteBuffer = bufferPoll.poll(1, TimeUnit.DAYS);
-      byteBuffer.clear();
-      return byteBuffer;
-    } catch (InterruptedException e) {
-      return null;
-    }
+    scratch.clear();
+    return scratch;
   }
 
   private void releaseBuffer(ByteBuffer buffer) {
-    bufferPoll.offer(buffer);
+    buffer.clear();
   }
 
   private void validateBuffer(int inputBufferSize) {
@@ -15,6 +15,7 @@
 package py.algorithm.list;
 
 import java.nio.ByteBuffer;
+import org.apache.commons.lang.Validate;
 
 public class ArrayLinkedListBase {
   public static final int EXTRA_NODE_COUNT = 2;
@@ -47,6 +48,50 @@ public class ArrayLinkedListBase {
     return index;
   }
 
+  /**
+   * Links a new node at the head and returns its index; the caller fills in the payload through
+   * the allocator's field accessors.
+   */
+  public int addFirst() {
+    int index = memoryAllocator.allocate();
+    link(index, head, memoryAllocator.getNext(head));
+    return index;
+  }
+
+  /**
+   * Links a new node at the tail, see {@link #addFirst()}.
+   */
+  public int addLast() {
+    int index = memoryAllocator.allocate();
+    link(index, memoryAllocator.getPrev(tail), tail);
+    return index;
+  }
+
+  /**
+   * Returns the index of the head node or {@link #INVALID_ARRAY_INDEX} if the list is empty.
+   */
+  public int getFirstIndex() {
+    return empty() ? INVALID_ARRAY_INDEX : memoryAllocator.getNext(head);
+  }
+
+  /**
+   * Returns the index of the tail node or {@link #INVALID_ARRAY_INDEX} if the list is empty.
+   */
+  public int getLastIndex() {
+    return empty() ? INVALID_ARRAY_INDEX : memoryAllocator.getPrev(tail);
+  }
+
+  /**
+   * Unlinks a node of this list and links it at the head of {@code target}, which must share this
+   * list's allocator. The node keeps its index and payload.
+   */
+  public void moveToFirst(int index, ArrayLinkedListBase target) {
+    Validate.isTrue(target.memoryAllocator == memoryAllocator);
+    unlink(index);
+    --size;
+    target.link(index, target.head, memoryAllocator.getNext(target.head));
+  }
+
   public int removeFirst(ByteBuffer buffer) {
     if (empty()) {
       return INVALID_ARRAY_INDEX;
@@ -94,21 +139,27 @@ public class ArrayLinkedListBase {
   private int insert(ByteBuffer buffer, int left, int right) {
     int index = memoryAllocator.allocate();
     memoryAllocator.setValue(index, buffer);
+    link(index, left, right);
+
+    return index;
+  }
 
+  private void link(int index, int left, int right) {
     memoryAllocator.updateRelationship(left, index);
     memoryAllocator.updateRelationship(index, right);
 
     ++size;
-
-    return index;
   }
 
-  public void remove(int index) {
+  private void unlink(int index) {
     int left = memoryAllocator.getPrev(index);
     int right = memoryAllocator.getNext(index);
+    memoryAllocator.updateRelationship(left, right);
+  }
 
+  public void remove(int index) {
+    unlink(index);
     memoryAllocator.release(index);
-    memoryAllocator.updateRelationship(left, right);
 
     --size;
   }
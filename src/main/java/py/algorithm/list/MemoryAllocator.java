@@ -15,11 +15,18 @@
 package py.algorithm.list;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
 import java.util.Arrays;
 import org.apache.commons.lang.Validate;
 import py.algorithm.SimpleBitmap;
 
+/**
+ * A fixed size arena of list nodes.
+ *
+ * <p>Every node has a prev and a next link and {@code nodeInfoSize} bytes of payload. Released
+ * nodes are chained into a free list through their next links, and nodes that were never used are
+ * handed out from a high-water mark, so allocation and release are O(1) and create no garbage.
+ * Payload fields are read and written in place with the fixed-width accessors.
+ */
 public class MemoryAllocator {
   private static final int INVALID_INDEX = -1;
   private final int[] prevs;
@@ -30,10 +37,20 @@ public class MemoryAllocator {
 
   private final ByteBuffer nodeInfo;
   private final int capacity;
-  private final ArrayDeque<Integer> releasedSpace = new ArrayDeque<>();
-  private int searchPos = 0;
+  // head of the free list threaded through nexts
+  private int freeHead = INVALID_INDEX;
+  private int highWaterMark = 0;
 
   public MemoryAllocator(int capacity, int nodeInfoSize) {
+    this(capacity, nodeInfoSize, false);
+  }
+
+  /**
+   * Creates an allocator whose node payloads live in a direct buffer when {@code offHeap} is set,
+   * so that large indexes do not add to the heap the collector has to scan.
+   */
+  public MemoryAllocator(int capacity, int nodeInfoSize, boolean offHeap) {
+    Validate.isTrue((long) capacity * nodeInfoSize <= Integer.MAX_VALUE);
     this.capacity = capacity;
 
     this.nodeInfoSize = nodeInfoSize;
@@ -41,7 +58,11 @@ public class MemoryAllocator {
     this.positionTakenBitMap = new SimpleBitmap(capacity);
     this.nexts = new int[capacity];
 
-    this.nodeInfo = ByteBuffer.allocate(capacity * nodeInfoSize);
+    // big endian like any fresh ByteBuffer, so that fields written through the accessors read
+    // back the same through getNode
+    this.nodeInfo = offHeap
+        ? ByteBuffer.allocateDirect(capacity * nodeInfoSize)
+        : ByteBuffer.allocate(capacity * nodeInfoSize);
     Arrays.fill(this.prevs, INVALID_INDEX);
     Arrays.fill(this.nexts, INVALID_INDEX);
   }
@@ -72,30 +93,65 @@ public class MemoryAllocator {
     prevs[right] = left;
   }
 
+  /**
+   * Copies the remaining bytes of the buffer to the start of the node's payload, then clears the
+   * buffer.
+   */
   public void setValue(int index, ByteBuffer buffer) {
     validateIndex(index);
 
-    validateBufferSize(buffer.remaining());
-    ByteBuffer inPutBuffer = findBuffer(index);
-    inPutBuffer.put(buffer);
+    int length = buffer.remaining();
+    validateBufferSize(length);
+    int offset = offsetOf(index);
+    int position = buffer.position();
+    for (int i = 0; i < length; i++) {
+      nodeInfo.put(offset + i, buffer.get(position + i));
+    }
     buffer.clear();
   }
 
+  /**
+   * Copies the node's payload into the buffer, as much as fits, then clears the buffer.
+   */
   public void getNode(int index, ByteBuffer buffer) {
     validateIndex(index);
 
     validateBufferSize(buffer.remaining());
-    ByteBuffer inPutBuffer = findBuffer(index);
-    buffer.put(inPutBuffer);
+    int offset = offsetOf(index);
+    int length = Math.min(buffer.remaining(), nodeInfoSize);
+    int position = buffer.position();
+    for (int i = 0; i < length; i++) {
+      buffer.put(position + i, nodeInfo.get(offset + i));
+    }
     buffer.clear();
   }
 
-  private ByteBuffer findBuffer(int index) {
-    ByteBuffer inPutBuffer = nodeInfo.duplicate();
-    inPutBuffer.position(index * nodeInfoSize);
-    inPutBuffer.limit((index + 1) * nodeInfoSize);
-    validateBufferSize(inPutBuffer.remaining());
-    return inPutBuffer;
+  public long getLong(int index, int fieldOffset) {
+    return nodeInfo.getLong(fieldAddress(index, fieldOffset, Long.BYTES));
+  }
+
+  public void putLong(int index, int fieldOffset, long value) {
+    nodeInfo.putLong(fieldAddress(index, fieldOffset, Long.BYTES), value);
+  }
+
+  public int getInt(int index, int fieldOffset) {
+    return nodeInfo.getInt(fieldAddress(index, fieldOffset, Integer.BYTES));
+  }
+
+  public void putInt(int index, int fieldOffset, int value) {
+    nodeInfo.putInt(fieldAddress(index, fieldOffset, Integer.BYTES), value);
+  }
+
+  public byte getByte(int index, int fieldOffset) {
+    return nodeInfo.get(fieldAddress(index, fieldOffset, Byte.BYTES));
+  }
+
+  public void putByte(int index, int fieldOffset, byte value) {
+    nodeInfo.put(fieldAddress(index, fieldOffset, Byte.BYTES), value);
+  }
+
+  public int getNodeInfoSize() {
+    return nodeInfoSize;
   }
 
   public void release(int index) {
@@ -103,27 +159,36 @@ public class MemoryAllocator {
 
     prevs[index] = INVALID_INDEX;
     positionTakenBitMap.clear(index);
-    nexts[index] = INVALID_INDEX;
-    releasedSpace.offerLast(index);
-
+    nexts[index] = freeHead;
+    freeHead = index;
   }
 
   private int searchFreePos() {
-    Integer releasedPos = releasedSpace.pollFirst();
-    if (releasedPos != null) {
-      return releasedPos;
+    if (freeHead != INVALID_INDEX) {
+      int pos = freeHead;
+      freeHead = nexts[pos];
+      nexts[pos] = INVALID_INDEX;
+      return pos;
     }
 
-    for (; searchPos < capacity; ++searchPos) {
-      if (!positionTakenBitMap.get(searchPos)) {
-        return searchPos++;
-      }
+    if (highWaterMark < capacity) {
+      return highWaterMark++;
     }
 
     throw new OutOfMemoryError(
         String.format("class:[%s] run out of memory", MemoryAllocator.class.getName()));
   }
 
+  private int offsetOf(int index) {
+    return index * nodeInfoSize;
+  }
+
+  private int fieldAddress(int index, int fieldOffset, int width) {
+    validateIndex(index);
+    Validate.isTrue(fieldOffset >= 0 && fieldOffset + width <= nodeInfoSize);
+    return offsetOf(index) + fieldOffset;
+  }
+
   private void validateIndex(int index) {
     Validate.isTrue(positionTakenBitMap.get(index));
   }
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.algorithm.policy;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.lang.Validate;
+import py.algorithm.QueueType;
+import py.algorithm.list.ArcLinkedList;
+import py.algorithm.list.ArrayLinkedListBase;
+import py.algorithm.list.MemoryAllocator;
+
+/**
+ * An adaptive replacement cache from long page keys to int page indexes.
+ *
+ * <p>The key space is striped over a power-of-two number of segments, each one a complete ARC
+ * instance (T1/T2 for resident entries, B1/B2 for ghosts, and its own target size p) guarded by
+ * its own lock. Entries of a segment are kept in {@link ArcLinkedList}s sharing one off-heap
+ * {@link MemoryAllocator}, and located through a {@link CacheMap}, so holding a large number of
+ * entries creates no per-entry objects.
+ */
+public class ArcCache implements CachePolicy {
+  public static final int DEFAULT_SEGMENT_COUNT = 64;
+
+  // key + value, ArcLinkedList appends one byte for the queue type
+  private static final int KEY_OFFSET = 0;
+  private static final int VALUE_OFFSET = KEY_OFFSET + Long.BYTES;
+  private static final int PAYLOAD_SIZE = VALUE_OFFSET + Integer.BYTES;
+  private static final int NODE_SIZE = PAYLOAD_SIZE + Byte.BYTES;
+  private static final int QUEUE_COUNT = 4;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder ghostHitCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  public ArcCache(int capacity) {
+    this(capacity, DEFAULT_SEGMENT_COUNT);
+  }
+
+  /**
+   * Creates a cache holding up to {@code capacity} resident entries, plus as many ghost entries.
+   * The segment count is rounded up to a power of two.
+   */
+  public ArcCache(int capacity, int segmentCount) {
+    Validate.isTrue(capacity > 0);
+    Validate.isTrue(segmentCount > 0);
+    int count = HashCommon.nextPowerOfTwo(Math.min(segmentCount, capacity));
+    this.segments = new Segment[count];
+    this.segmentMask = count - 1;
+
+    for (int i = 0; i < count; i++) {
+      int segmentCapacity = capacity / count + (i < capacity % count ? 1 : 0);
+      segments[i] = new Segment(Math.max(segmentCapacity, 1));
+    }
+  }
+
+  /**
+   * Looks up the value of a key, promoting the entry to the frequently used list on a hit.
+   */
+  @Override
+  public int get(long key) {
+    return segmentFor(key).get(key);
+  }
+
+  /**
+   * Inserts or updates a key. Resident entries may be evicted to make room; when the key is
+   * remembered in a ghost list the segment's target size is adapted first.
+   */
+  @Override
+  public void put(long key, int value) {
+    Validate.isTrue(value != NO_VALUE);
+    segmentFor(key).put(key, value);
+  }
+
+  /**
+   * Drops a key, resident or ghost.
+   */
+  @Override
+  public void remove(long key) {
+    segmentFor(key).remove(key);
+  }
+
+  @Override
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.residentSize();
+    }
+    return size;
+  }
+
+  public int getSegmentCount() {
+    return segments.length;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Misses on keys that were still remembered by a ghost list, i.e. entries the cache evicted
+   * too early. These are counted as misses as well.
+   */
+  public long getGhostHitCount() {
+    return ghostHitCount.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  private Segment segmentFor(long key) {
+    return segments[(int) HashCommon.mix(key) & segmentMask];
+  }
+
+  private class Segment {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int capacity;
+    private final MemoryAllocator allocator;
+    private final CacheMap index;
+    private final ArcLinkedList t1;
+    private final ArcLinkedList t2;
+    private final ArcLinkedList b1;
+    private final ArcLinkedList b2;
+
+    // target size of t1
+    private int p;
+
+    Segment(int capacity) {
+      this.capacity = capacity;
+      this.allocator = new MemoryAllocator(
+          2 * capacity + QUEUE_COUNT * ArrayLinkedListBase.EXTRA_NODE_COUNT, NODE_SIZE, true);
+      this.index = new CacheMap(2 * capacity, true);
+      this.t1 = new ArcLinkedList(QueueType.T1, allocator, PAYLOAD_SIZE);
+      this.t2 = new ArcLinkedList(QueueType.T2, allocator, PAYLOAD_SIZE);
+      this.b1 = new ArcLinkedList(QueueType.B1, allocator, PAYLOAD_SIZE);
+      this.b2 = new ArcLinkedList(QueueType.B2, allocator, PAYLOAD_SIZE);
+    }
+
+    int get(long key) {
+      lock.lock();
+      try {
+        int arrayIndex = index.get(key);
+        if (arrayIndex == index.getEmptyValue()) {
+          missCount.increment();
+          return NO_VALUE;
+        }
+
+        QueueType queueType = queueTypeOf(arrayIndex);
+        if (queueType.isBxQueue()) {
+          ghostHitCount.increment();
+          missCount.increment();
+          return NO_VALUE;
+        }
+
+        listOf(queueType).moveToMru(arrayIndex, t2);
+        hitCount.increment();
+        return allocator.getInt(arrayIndex, VALUE_OFFSET);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void put(long key, int value) {
+      lock.lock();
+      try {
+        int arrayIndex = index.get(key);
+        if (arrayIndex == index.getEmptyValue()) {
+          insert(key, value);
+          return;
+        }
+
+        QueueType queueType = queueTypeOf(arrayIndex);
+        if (queueType == QueueType.B1) {
+          p = Math.min(capacity, p + Math.max(b2.size() / b1.size(), 1));
+          replace(false);
+        } else if (queueType == QueueType.B2) {
+          p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+          replace(true);
+        }
+
+        allocator.putInt(arrayIndex, VALUE_OFFSET, value);
+        listOf(queueType).moveToMru(arrayIndex, t2);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void remove(long key) {
+      lock.lock();
+      try {
+        int arrayIndex = index.get(key);
+        if (arrayIndex == index.getEmptyValue()) {
+          return;
+        }
+        listOf(queueTypeOf(arrayIndex)).remove(arrayIndex);
+        index.remove(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int residentSize() {
+      lock.lock();
+      try {
+        return t1.size() + t2.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void insert(long key, int value) {
+      int t1AndB1 = t1.size() + b1.size();
+      if (t1AndB1 >= capacity) {
+        if (t1.size() < capacity) {
+          dropLru(b1);
+          replace(false);
+        } else {
+          dropLru(t1);
+          evictionCount.increment();
+        }
+      } else {
+        int total = t1AndB1 + t2.size() + b2.size();
+        if (total >= 2 * capacity) {
+          dropLru(b2);
+        }
+        replace(false);
+      }
+
+      int arrayIndex = t1.addMru();
+      allocator.putLong(arrayIndex, KEY_OFFSET, key);
+      allocator.putInt(arrayIndex, VALUE_OFFSET, value);
+      index.put(key, arrayIndex);
+    }
+
+    /**
+     * Demotes the lru entry of t1 or t2 to its ghost list if the resident lists are full.
+     */
+    private void replace(boolean hitInB2) {
+      if (t1.size() + t2.size() < capacity) {
+        return;
+      }
+
+      boolean fromT1 = t1.size() > 0 && (t1.size() > p || (hitInB2 && t1.size() == p));
+      ArcLinkedList source = fromT1 ? t1 : t2;
+      source.moveToMru(source.getLruIndex(), fromT1 ? b1 : b2);
+      evictionCount.increment();
+    }
+
+    private void dropLru(ArcLinkedList list) {
+      int arrayIndex = list.getLruIndex();
+      if (arrayIndex == ArrayLinkedListBase.INVALID_ARRAY_INDEX) {
+        return;
+      }
+      index.remove(allocator.getLong(arrayIndex, KEY_OFFSET));
+      list.remove(arrayIndex);
+    }
+
+    private QueueType queueTypeOf(int arrayIndex) {
+      return QueueType.valueOf(allocator.getByte(arrayIndex, PAYLOAD_SIZE));
+    }
+
+    private ArcLinkedList listOf(QueueType queueType) {
+      switch (queueType) {
+        case T1:
+          return t1;
+        case T2:
+          return t2;
+        case B1:
+          return b1;
+        case B2:
+          return b2;
+        default:
+          throw new IllegalStateException("unexpected queue type " + queueType);
+      }
+    }
+  }
+}
@@ -15,54 +15,61 @@
 package py.algorithm.policy;
 
 import it.unimi.dsi.fastutil.HashCommon;
-import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
-import it.unimi.dsi.fastutil.longs.LongIterator;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 import org.apache.commons.lang.Validate;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import py.netty.client.AsyncResponseHandler;
 
 public class CacheMap implements ObjectKeyToArrayIndexMap<java.lang.Long> {
-  private static final Logger logger = LoggerFactory.getLogger(CacheMap.class);
-
-  private static final int MAX_HASH_CAPACITY = 1 << 30;
+  private static final int MAX_HASH_CAPACITY = LongIntHashMap.MAX_CAPACITY;
   private static final float LOAD_FACTOR = 0.5f;
 
-  protected final List<Long2IntOpenHashMap> originList;
+  protected final List<LongIntHashMap> originList;
   private final int mapCount;
 
   public CacheMap(int capacity) {
     this(capacity, MAX_HASH_CAPACITY);
   }
 
+  public CacheMap(int capacity, boolean offHeap) {
+    this(capacity, MAX_HASH_CAPACITY, offHeap);
+  }
+
   public CacheMap(int capacity, int maxCapacity) {
+    this(capacity, maxCapacity, false);
+  }
+
+  public CacheMap(int capacity, int maxCapacity, boolean offHeap) {
     Validate.isTrue(maxCapacity <= MAX_HASH_CAPACITY);
     long capacitySize = HashCommon.bigArraySize(capacity, LOAD_FACTOR);
     mapCount = (int) Math.ceil((double) capacitySize / maxCapacity);
     originList = new ArrayList<>(mapCount);
     for (int i = 0; i < mapCount; i++) {
-      Long2IntOpenHashMap origin = new Long2IntOpenHashMap(capacity / mapCount, LOAD_FACTOR);
+      LongIntHashMap origin = new LongIntHashMap(capacity / mapCount, LOAD_FACTOR, offHeap, 0);
       originList.add(origin);
     }
-   
-   
-   
   }
 
-  private Long2IntOpenHashMap getOrigin(long key) {
-    return originList.get((int) (key % mapCount));
+  private LongIntHashMap getOrigin(long key) {
+    return originList.get((int) Math.floorMod(key, (long) mapCount));
+  }
+
+  public int get(long key) {
+    return getOrigin(key).get(key);
+  }
+
+  public void put(long key, int value) {
+    getOrigin(key).put(key, value);
+  }
+
+  public void remove(long key) {
+    getOrigin(key).remove(key);
   }
 
   @Override
   public int get(Long key) {
-    try {
-      return getOrigin(key).get(key.longValue());
-    } finally {
-      logger.info("nothing need to do here");
-    }
+    return get(key.longValue());
   }
 
   public int getEmptyValue() {
@@ -71,19 +78,20 @@ public class CacheMap implements ObjectKeyToArrayIndexMap<java.lang.Long> {
 
   @Override
   public void put(Long key, int value) {
-    try {
-      getOrigin(key).put(key.longValue(), value);
-    } finally {
-      logger.info("nothing need to do here");
-    }
+    put(key.longValue(), value);
   }
 
   @Override
   public void remove(Long key) {
-    try {
-      getOrigin(key).remove(key.longValue());
-    } finally {
-      logger.info("nothing need to do here");
+    remove(key.longValue());
+  }
+
+  /**
+   * Visits every entry in place, shard by shard.
+   */
+  public void forEach(LongIntHashMap.LongIntConsumer consumer) {
+    for (LongIntHashMap origin : originList) {
+      origin.forEach(consumer);
     }
   }
 
@@ -94,7 +102,7 @@ public class CacheMap implements ObjectKeyToArrayIndexMap<java.lang.Long> {
 
   private class CacheIterator implements Iterator<Long> {
     private int startIndex = 0;
-    private LongIterator startIterator = originList.get(0).keySet().iterator();
+    private PrimitiveIterator.OfLong startIterator = originList.get(0).keyIterator();
 
     @Override
     public boolean hasNext() {
@@ -104,7 +112,7 @@ public class CacheMap implements ObjectKeyToArrayIndexMap<java.lang.Long> {
 
       int maxIndex = originList.size() - 1;
       while (++startIndex <= maxIndex) {
-        startIterator = originList.get(startIndex).keySet().iterator();
+        startIterator = originList.get(startIndex).keyIterator();
         if (startIterator.hasNext()) {
           return true;
         }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.algorithm.policy;
+
+/**
+ * A bounded cache from long page keys to int page indexes, as used by the page index caches.
+ */
+public interface CachePolicy {
+  int NO_VALUE = -1;
+
+  /**
+   * Looks up the value of a key, counting the access towards the policy's recency and frequency
+   * bookkeeping.
+   *
+   * @return the value or {@link #NO_VALUE} when the key is not resident
+   */
+  int get(long key);
+
+  /**
+   * Inserts or updates a key, evicting other entries if the cache is full. A policy may decide
+   * not to admit the new key at all.
+   */
+  void put(long key, int value);
+
+  void remove(long key);
+
+  long size();
+
+  long getHitCount();
+
+  long getMissCount();
+
+  long getEvictionCount();
+
+  default double getHitRatio() {
+    long hits = getHitCount();
+    long total = hits + getMissCount();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+}
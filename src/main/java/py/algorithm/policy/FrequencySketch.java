@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.algorithm.policy;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.apache.commons.lang.Validate;
+
+/**
+ * A count-min sketch of 4-bit counters estimating how often a key has been seen recently.
+ *
+ * <p>Each key maps to one counter in each of four rows, and its frequency is the smallest of
+ * them. Sixteen counters are packed into every long. Once the number of increments reaches the
+ * sample size all counters are halved, so the estimate follows the recent workload rather than
+ * the whole history. Not thread safe.
+ */
+public class FrequencySketch {
+  public static final int MAX_FREQUENCY = 15;
+
+  private static final int DEPTH = 4;
+  private static final long[] SEEDS = new long[]{
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * Creates a sketch sized for a cache of {@code capacity} entries.
+   */
+  public FrequencySketch(int capacity) {
+    Validate.isTrue(capacity > 0);
+    int length = HashCommon.nextPowerOfTwo(Math.max(capacity, 8));
+    this.table = new long[length];
+    this.tableMask = length - 1;
+    this.sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+  }
+
+  public int frequency(long key) {
+    long hash = HashCommon.mix(key);
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < DEPTH; i++) {
+      long rowHash = rowHash(hash, i);
+      long counters = table[(int) rowHash & tableMask];
+      frequency = Math.min(frequency, (int) (counters >>> shiftOf(rowHash)) & 0xf);
+    }
+    return frequency;
+  }
+
+  public void increment(long key) {
+    long hash = HashCommon.mix(key);
+    boolean added = false;
+    for (int i = 0; i < DEPTH; i++) {
+      long rowHash = rowHash(hash, i);
+      int tableIndex = (int) rowHash & tableMask;
+      int shift = shiftOf(rowHash);
+      if (((table[tableIndex] >>> shift) & 0xf) < MAX_FREQUENCY) {
+        table[tableIndex] += 1L << shift;
+        added = true;
+      }
+    }
+
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  private static long rowHash(long hash, int row) {
+    // murmur3 finalizer, so that the rows of one key are independent of each other
+    long rowHash = hash ^ SEEDS[row];
+    rowHash = (rowHash ^ (rowHash >>> 33)) * 0xff51afd7ed558ccdL;
+    rowHash = (rowHash ^ (rowHash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return rowHash ^ (rowHash >>> 33);
+  }
+
+  private static int shiftOf(long rowHash) {
+    return ((int) (rowHash >>> 40) & 0xf) << 2;
+  }
+}
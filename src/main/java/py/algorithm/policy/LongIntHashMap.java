@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.algorithm.policy;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.locks.StampedLock;
+import org.apache.commons.lang.Validate;
+
+/**
+ * An open addressing hash map from long to int with linear probing and no boxing.
+ *
+ * <p>Keys and values are kept in two parallel buffers which may be allocated off heap. Writers
+ * are serialized by a {@link StampedLock}; readers first try an optimistic read and only take the
+ * read lock if a writer got in the way, so lookups from many threads do not contend.
+ */
+public class LongIntHashMap {
+  public static final int MAX_CAPACITY = 1 << 27;
+
+  private final float loadFactor;
+  private final boolean offHeap;
+  private final int defaultReturnValue;
+  private final StampedLock lock = new StampedLock();
+
+  // published as one object so that optimistic readers never mix buffers of different sizes
+  private volatile Table table;
+  // key 0 marks free slots, so its entry is kept aside
+  private boolean containsZeroKey;
+  private int zeroValue;
+  private int size;
+
+  public LongIntHashMap(int expected, float loadFactor) {
+    this(expected, loadFactor, false, 0);
+  }
+
+  public LongIntHashMap(int expected, float loadFactor, boolean offHeap, int defaultReturnValue) {
+    Validate.isTrue(expected >= 0);
+    Validate.isTrue(loadFactor > 0 && loadFactor < 1);
+    this.loadFactor = loadFactor;
+    this.offHeap = offHeap;
+    this.defaultReturnValue = defaultReturnValue;
+    this.table = new Table(HashCommon.arraySize(Math.max(expected, 1), loadFactor));
+  }
+
+  public int defaultReturnValue() {
+    return defaultReturnValue;
+  }
+
+  public int get(long key) {
+    long stamp = lock.tryOptimisticRead();
+    int value = find(key);
+    if (lock.validate(stamp)) {
+      return value;
+    }
+
+    stamp = lock.readLock();
+    try {
+      return find(key);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public boolean containsKey(long key) {
+    long stamp = lock.readLock();
+    try {
+      if (key == 0) {
+        return containsZeroKey;
+      }
+      return slotOf(table, key) >= 0;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Associates a value with a key.
+   *
+   * @return the previous value or the default return value
+   */
+  public int put(long key, int value) {
+    long stamp = lock.writeLock();
+    try {
+      if (key == 0) {
+        int previous = containsZeroKey ? zeroValue : defaultReturnValue;
+        if (!containsZeroKey) {
+          containsZeroKey = true;
+          size++;
+        }
+        zeroValue = value;
+        return previous;
+      }
+
+      Table current = table;
+      int slot = (int) HashCommon.mix(key) & current.mask;
+      long slotKey;
+      while ((slotKey = current.keys.get(slot)) != 0) {
+        if (slotKey == key) {
+          int previous = current.values.get(slot);
+          current.values.put(slot, value);
+          return previous;
+        }
+        slot = (slot + 1) & current.mask;
+      }
+
+      current.values.put(slot, value);
+      current.keys.put(slot, key);
+      if (++size >= current.maxFill) {
+        rehash(current);
+      }
+      return defaultReturnValue;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes a key.
+   *
+   * @return the removed value or the default return value
+   */
+  public int remove(long key) {
+    long stamp = lock.writeLock();
+    try {
+      if (key == 0) {
+        if (!containsZeroKey) {
+          return defaultReturnValue;
+        }
+        containsZeroKey = false;
+        size--;
+        return zeroValue;
+      }
+
+      Table current = table;
+      int slot = slotOf(current, key);
+      if (slot < 0) {
+        return defaultReturnValue;
+      }
+
+      int previous = current.values.get(slot);
+      shiftKeys(current, slot);
+      size--;
+      return previous;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public int size() {
+    long stamp = lock.readLock();
+    try {
+      return size;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Visits every entry in place under the read lock, so writers wait until the visit is done.
+   */
+  public void forEach(LongIntConsumer consumer) {
+    long stamp = lock.readLock();
+    try {
+      if (containsZeroKey) {
+        consumer.accept(0, zeroValue);
+      }
+      Table current = table;
+      for (int slot = 0; slot <= current.mask; slot++) {
+        long key = current.keys.get(slot);
+        if (key != 0) {
+          consumer.accept(key, current.values.get(slot));
+        }
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns an iterator over the keys. It walks the table in place without locking and is only
+   * reliable while there are no concurrent writers.
+   */
+  public PrimitiveIterator.OfLong keyIterator() {
+    return new KeyIterator(table, containsZeroKey);
+  }
+
+  private int find(long key) {
+    if (key == 0) {
+      return containsZeroKey ? zeroValue : defaultReturnValue;
+    }
+
+    Table current = table;
+    int slot = slotOf(current, key);
+    return slot < 0 ? defaultReturnValue : current.values.get(slot);
+  }
+
+  /**
+   * Probes for a non-zero key. The probe is bounded by the table size, so an optimistic reader
+   * racing with a writer terminates; its result is then discarded by the stamp validation.
+   */
+  private static int slotOf(Table current, long key) {
+    int slot = (int) HashCommon.mix(key) & current.mask;
+    for (int probes = 0; probes <= current.mask; probes++) {
+      long slotKey = current.keys.get(slot);
+      if (slotKey == key) {
+        return slot;
+      }
+      if (slotKey == 0) {
+        return -1;
+      }
+      slot = (slot + 1) & current.mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Closes the gap left at {@code slot} by moving back entries of the following cluster.
+   */
+  private static void shiftKeys(Table current, int slot) {
+    int mask = current.mask;
+    int last;
+    long key;
+    while (true) {
+      last = slot;
+      slot = (slot + 1) & mask;
+      while (true) {
+        key = current.keys.get(slot);
+        if (key == 0) {
+          current.keys.put(last, 0);
+          return;
+        }
+        int home = (int) HashCommon.mix(key) & mask;
+        if (last <= slot ? last >= home || home > slot : last >= home && home > slot) {
+          break;
+        }
+        slot = (slot + 1) & mask;
+      }
+      current.keys.put(last, key);
+      current.values.put(last, current.values.get(slot));
+    }
+  }
+
+  private void rehash(Table current) {
+    int newSize = (current.mask + 1) * 2;
+    if (newSize > MAX_CAPACITY) {
+      throw new IllegalStateException("hash map can not grow beyond " + MAX_CAPACITY + " slots");
+    }
+
+    Table newTable = new Table(newSize);
+    for (int slot = 0; slot <= current.mask; slot++) {
+      long key = current.keys.get(slot);
+      if (key == 0) {
+        continue;
+      }
+      int newSlot = (int) HashCommon.mix(key) & newTable.mask;
+      while (newTable.keys.get(newSlot) != 0) {
+        newSlot = (newSlot + 1) & newTable.mask;
+      }
+      newTable.keys.put(newSlot, key);
+      newTable.values.put(newSlot, current.values.get(slot));
+    }
+    table = newTable;
+  }
+
+  public interface LongIntConsumer {
+    void accept(long key, int value);
+  }
+
+  private final class Table {
+    private final LongBuffer keys;
+    private final IntBuffer values;
+    private final int mask;
+    private final int maxFill;
+
+    private Table(int capacity) {
+      Validate.isTrue(capacity <= MAX_CAPACITY);
+      if (offHeap) {
+        this.keys = ByteBuffer.allocateDirect(capacity * Long.BYTES)
+            .order(ByteOrder.nativeOrder()).asLongBuffer();
+        this.values = ByteBuffer.allocateDirect(capacity * Integer.BYTES)
+            .order(ByteOrder.nativeOrder()).asIntBuffer();
+      } else {
+        this.keys = LongBuffer.allocate(capacity);
+        this.values = IntBuffer.allocate(capacity);
+      }
+      this.mask = capacity - 1;
+      this.maxFill = Math.min(HashCommon.maxFill(capacity, loadFactor), capacity - 1);
+    }
+  }
+
+  private static final class KeyIterator implements PrimitiveIterator.OfLong {
+    private final Table table;
+    private boolean pendingZeroKey;
+    private int slot = -1;
+
+    private KeyIterator(Table table, boolean containsZeroKey) {
+      this.table = table;
+      this.pendingZeroKey = containsZeroKey;
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return pendingZeroKey || slot <= table.mask;
+    }
+
+    @Override
+    public long nextLong() {
+      if (pendingZeroKey) {
+        pendingZeroKey = false;
+        return 0;
+      }
+      if (slot > table.mask) {
+        throw new NoSuchElementException();
+      }
+      long key = table.keys.get(slot);
+      advance();
+      return key;
+    }
+
+    private void advance() {
+      do {
+        slot++;
+      } while (slot <= table.mask && table.keys.get(slot) == 0);
+    }
+  }
+}
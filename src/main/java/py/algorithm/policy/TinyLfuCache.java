@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.algorithm.policy;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.lang.Validate;
+import py.algorithm.list.ArrayLinkedListBase;
+import py.algorithm.list.MemoryAllocator;
+
+/**
+ * A W-TinyLFU cache from long page keys to int page indexes, resistant to sequential scans.
+ *
+ * <p>New entries go to a small lru window. Entries leaving the window compete with the lru entry
+ * of the main area and are only admitted when a {@link FrequencySketch} says they have been
+ * accessed more often, so a scan touching every page once cannot push out the hot set. The main
+ * area is a segmented lru: entries are admitted to probation and promoted to protected when hit
+ * again.
+ *
+ * <p>As in {@link ArcCache}, keys are striped over segments with their own lock, and entries are
+ * kept in off-heap {@link MemoryAllocator} lists located through a {@link CacheMap}.
+ */
+public class TinyLfuCache implements CachePolicy {
+  public static final int DEFAULT_SEGMENT_COUNT = 64;
+
+  private static final int WINDOW_PERCENT = 1;
+  private static final int PROTECTED_PERCENT = 80;
+
+  private static final byte WINDOW = 0;
+  private static final byte PROBATION = 1;
+  private static final byte PROTECTED = 2;
+  private static final int REGION_COUNT = 3;
+
+  // key + value + region
+  private static final int KEY_OFFSET = 0;
+  private static final int VALUE_OFFSET = KEY_OFFSET + Long.BYTES;
+  private static final int REGION_OFFSET = VALUE_OFFSET + Integer.BYTES;
+  private static final int NODE_SIZE = REGION_OFFSET + Byte.BYTES;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder rejectionCount = new LongAdder();
+
+  public TinyLfuCache(int capacity) {
+    this(capacity, DEFAULT_SEGMENT_COUNT);
+  }
+
+  /**
+   * Creates a cache holding up to {@code capacity} entries. The segment count is rounded up to a
+   * power of two.
+   */
+  public TinyLfuCache(int capacity, int segmentCount) {
+    Validate.isTrue(capacity > 0);
+    Validate.isTrue(segmentCount > 0);
+    int count = HashCommon.nextPowerOfTwo(Math.min(segmentCount, capacity));
+    this.segments = new Segment[count];
+    this.segmentMask = count - 1;
+
+    for (int i = 0; i < count; i++) {
+      int segmentCapacity = capacity / count + (i < capacity % count ? 1 : 0);
+      segments[i] = new Segment(Math.max(segmentCapacity, 1));
+    }
+  }
+
+  @Override
+  public int get(long key) {
+    return segmentFor(key).get(key);
+  }
+
+  @Override
+  public void put(long key, int value) {
+    Validate.isTrue(value != NO_VALUE);
+    segmentFor(key).put(key, value);
+  }
+
+  @Override
+  public void remove(long key) {
+    segmentFor(key).remove(key);
+  }
+
+  @Override
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public int getSegmentCount() {
+    return segments.length;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Entries dropped to make room, including window entries that were refused admission.
+   */
+  @Override
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * Window entries dropped because they were accessed less often than the main area's victim.
+   */
+  public long getRejectionCount() {
+    return rejectionCount.sum();
+  }
+
+  private Segment segmentFor(long key) {
+    return segments[(int) HashCommon.mix(key) & segmentMask];
+  }
+
+  private class Segment {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+
+    private final MemoryAllocator allocator;
+    private final CacheMap index;
+    private final FrequencySketch sketch;
+    private final ArrayLinkedListBase window;
+    private final ArrayLinkedListBase probation;
+    private final ArrayLinkedListBase protectedList;
+
+    Segment(int capacity) {
+      this.windowCapacity = Math.max(1, capacity * WINDOW_PERCENT / 100);
+      this.mainCapacity = capacity - windowCapacity;
+      this.protectedCapacity = mainCapacity * PROTECTED_PERCENT / 100;
+
+      // one spare node: a new entry enters the window before the window's lru entry leaves
+      this.allocator = new MemoryAllocator(
+          capacity + 1 + REGION_COUNT * ArrayLinkedListBase.EXTRA_NODE_COUNT, NODE_SIZE, true);
+      this.index = new CacheMap(capacity, true);
+      this.sketch = new FrequencySketch(capacity);
+      this.window = new ArrayLinkedListBase(allocator);
+      this.probation = new ArrayLinkedListBase(allocator);
+      this.protectedList = new ArrayLinkedListBase(allocator);
+    }
+
+    int get(long key) {
+      lock.lock();
+      try {
+        sketch.increment(key);
+        int arrayIndex = index.get(key);
+        if (arrayIndex == index.getEmptyValue()) {
+          missCount.increment();
+          return NO_VALUE;
+        }
+
+        onAccess(arrayIndex);
+        hitCount.increment();
+        return allocator.getInt(arrayIndex, VALUE_OFFSET);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void put(long key, int value) {
+      lock.lock();
+      try {
+        sketch.increment(key);
+        int arrayIndex = index.get(key);
+        if (arrayIndex != index.getEmptyValue()) {
+          allocator.putInt(arrayIndex, VALUE_OFFSET, value);
+          onAccess(arrayIndex);
+          return;
+        }
+
+        arrayIndex = window.addFirst();
+        allocator.putLong(arrayIndex, KEY_OFFSET, key);
+        allocator.putInt(arrayIndex, VALUE_OFFSET, value);
+        allocator.putByte(arrayIndex, REGION_OFFSET, WINDOW);
+        index.put(key, arrayIndex);
+        if (window.size() > windowCapacity) {
+          evictFromWindow();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void remove(long key) {
+      lock.lock();
+      try {
+        int arrayIndex = index.get(key);
+        if (arrayIndex == index.getEmptyValue()) {
+          return;
+        }
+        listOf(allocator.getByte(arrayIndex, REGION_OFFSET)).remove(arrayIndex);
+        index.remove(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int size() {
+      lock.lock();
+      try {
+        return window.size() + probation.size() + protectedList.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void onAccess(int arrayIndex) {
+      byte region = allocator.getByte(arrayIndex, REGION_OFFSET);
+      if (region == WINDOW) {
+        window.moveToFirst(arrayIndex, window);
+        return;
+      }
+
+      listOf(region).moveToFirst(arrayIndex, protectedList);
+      allocator.putByte(arrayIndex, REGION_OFFSET, PROTECTED);
+      if (protectedList.size() > protectedCapacity) {
+        moveLru(protectedList, probation, PROBATION);
+      }
+    }
+
+    /**
+     * Moves the window's lru entry to probation, either into free space or in place of the main
+     * area's victim when the candidate is accessed more often.
+     */
+    private void evictFromWindow() {
+      int candidate = window.getLastIndex();
+      long candidateKey = allocator.getLong(candidate, KEY_OFFSET);
+
+      if (probation.size() + protectedList.size() < mainCapacity) {
+        moveLru(window, probation, PROBATION);
+        return;
+      }
+
+      ArrayLinkedListBase victimList = probation.empty() ? protectedList : probation;
+      int victim = victimList.getLastIndex();
+      if (victim != ArrayLinkedListBase.INVALID_ARRAY_INDEX) {
+        long victimKey = allocator.getLong(victim, KEY_OFFSET);
+        if (sketch.frequency(candidateKey) > sketch.frequency(victimKey)) {
+          victimList.remove(victim);
+          index.remove(victimKey);
+          moveLru(window, probation, PROBATION);
+          evictionCount.increment();
+          return;
+        }
+      }
+
+      window.remove(candidate);
+      index.remove(candidateKey);
+      rejectionCount.increment();
+      evictionCount.increment();
+    }
+
+    private void moveLru(ArrayLinkedListBase source, ArrayLinkedListBase target, byte region) {
+      int arrayIndex = source.getLastIndex();
+      source.moveToFirst(arrayIndex, target);
+      allocator.putByte(arrayIndex, REGION_OFFSET, region);
+    }
+
+    private ArrayLinkedListBase listOf(byte region) {
+      switch (region) {
+        case WINDOW:
+          return window;
+        case PROBATION:
+          return probation;
+        case PROTECTED:
+          return protectedList;
+        default:
+          throw new IllegalStateException("unexpected region " + region);
+      }
+    }
+  }
+}
@@ -31,6 +31,16 @@ public class PrimaryTlsfFastBufferManager extends AbstractTlsfastBufferManager {
         PrimaryTlsfFastBufferManager.class.getSimpleName()));
   }
 
+  /**
+   * Constructor for this class with a per-thread magazine cache of page-sized buffers in front of
+   * the tlsf core.
+   */
+  public PrimaryTlsfFastBufferManager(int alignmentSize, long totalSize, int magazineCapacity) {
+    super(new TlsfFastBufferManager(alignmentSize, totalSize,
+        TlsfFastBufferManager.DEFAULT_RATIO_OF_AVAILABLE_SPACE,
+        PrimaryTlsfFastBufferManager.class.getSimpleName(), magazineCapacity));
+  }
+
   @Override
   public FastBuffer allocateBuffer(long size) throws NoAvailableBufferException {
     if (size <= 0) {
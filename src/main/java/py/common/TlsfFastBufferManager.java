@@ -14,10 +14,15 @@
 
 package py.common;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.MutablePair;
@@ -51,7 +56,7 @@ public class TlsfFastBufferManager implements FastBufferManager {
    * The minimum alignment is 4 bytes.
    */
   private static final int MIN_ALIGNMENT = 4;
-  private static final int DEFAULT_RATIO_OF_AVAILABLE_SPACE = 8;
+  static final int DEFAULT_RATIO_OF_AVAILABLE_SPACE = 8;
   protected final long nullBufferAddress = Long.MAX_VALUE;
   // the least accessible memory size is total size of next_free_buffer_addr,
   // pre_free_buffer_addr and pre_physical_buffer
@@ -68,6 +73,21 @@ public class TlsfFastBufferManager implements FastBufferManager {
    * it is used for synchronizing the allocation buffer and release buffer.
    */
   private final ReentrantLock lockForCreateAndRelease = new ReentrantLock(false);
+  /**
+   * capacity of each thread's magazine, zero means the magazine cache is disabled.
+   */
+  private final int magazineCapacity;
+  /**
+   * the only adjusted size cached in magazines, equal to the adjusted alignment (page) size.
+   */
+  private final long magazineBlockSize;
+  private final ThreadLocal<Magazine> magazine;
+  /**
+   * magazines of all threads, so that blocks cached by other threads can be reclaimed when the tlsf
+   * core runs out of space. Magazines of dead threads are flushed and dropped from here whenever a
+   * new magazine is created or the magazines are reclaimed.
+   */
+  private final Queue<Magazine> allMagazines = new ConcurrentLinkedQueue<>();
   protected MetadataDescriptor metadataDescriptor;
   protected Queue<FastBuffer> bufferQueue = new LinkedList<FastBuffer>();
 
@@ -110,6 +130,20 @@ public class TlsfFastBufferManager implements FastBufferManager {
 
   public TlsfFastBufferManager(int alignment, long totalSize, int ratioOfAvailableBuffer,
       String className) {
+    this(alignment, totalSize, ratioOfAvailableBuffer, className, 0);
+  }
+
+  /**
+   * Constructor for this class.
+   *
+   * @param magazineCapacity count of page-sized blocks each thread may cache in front of the tlsf
+   *                         core, zero to disable the magazine cache
+   */
+  public TlsfFastBufferManager(int alignment, long totalSize, int ratioOfAvailableBuffer,
+      String className, int magazineCapacity) {
+    Validate.isTrue(magazineCapacity >= 0);
+    this.magazineCapacity = magazineCapacity;
+    this.magazine = ThreadLocal.withInitial(this::newMagazine);
     this.ratioOfAvailableSpace = ratioOfAvailableBuffer;
     Validate.isTrue(ratioOfAvailableBuffer <= 10 && ratioOfAvailableBuffer > 0);
     this.alignment = alignment;
@@ -148,8 +182,10 @@ public class TlsfFastBufferManager implements FastBufferManager {
     Pair<Integer, Integer> fliWithSli = mapping(
         metadataDescriptor.getAccessibleMemSize(memoryBaseAddress));
     insertFreeBuffer(memoryBaseAddress, fliWithSli);
+    this.magazineBlockSize = adjustRequestSize(alignment);
 
-    logger.warn("initialize size {} successfully", totalSize);
+    logger.warn("initialize size {} successfully, magazine capacity {}", totalSize,
+        magazineCapacity);
   }
 
   private static int locateMostRightOneBit(long value) {
@@ -169,10 +205,23 @@ public class TlsfFastBufferManager implements FastBufferManager {
     // align the requested size to alignment
     long adjustedSize = adjustRequestSize(size);
 
+    if (magazineCapacity > 0 && adjustedSize == magazineBlockSize) {
+      Magazine threadMagazine = magazine.get();
+      long cachedBufferAddress = allocateFromMagazine(threadMagazine);
+      if (cachedBufferAddress != nullBufferAddress) {
+        FastBufferImpl fastBuffer = threadMagazine.pollSpare();
+        return fastBuffer == null ? new FastBufferImpl(cachedBufferAddress, size)
+            : fastBuffer.reuse(cachedBufferAddress, size);
+      }
+    }
+
     FastBuffer fastBuffer = null;
     lockForCreateAndRelease.lock();
     try {
       long targetBufferAddress = pickoutFreeBuffer(adjustedSize);
+      if (targetBufferAddress == nullBufferAddress && reclaimMagazines() > 0) {
+        targetBufferAddress = pickoutFreeBuffer(adjustedSize);
+      }
       if (targetBufferAddress == nullBufferAddress) {
         throw new NoAvailableBufferException();
       }
@@ -239,6 +288,10 @@ public class TlsfFastBufferManager implements FastBufferManager {
 
   public void releaseBuffer(FastBuffer retbuf) {
     Validate.isTrue(retbuf instanceof FastBufferImpl);
+    if (magazineCapacity > 0 && releaseToMagazine((FastBufferImpl) retbuf)) {
+      return;
+    }
+
     lockForCreateAndRelease.lock();
     try {
       long address = ((FastBufferImpl) retbuf).accessibleMemAddress
@@ -254,17 +307,168 @@ public class TlsfFastBufferManager implements FastBufferManager {
         bufferQueue.offer(retbuf);
       }
 
-      metadataDescriptor.setFree(address);
-      long nextPhysicalBufferAddress = metadataDescriptor.getNextPhysicalAddress(address);
-      if (nextPhysicalBufferAddress != nullBufferAddress && !isEndOfMem(
-          nextPhysicalBufferAddress)) {
-        metadataDescriptor.setPrePhysicalAddress(nextPhysicalBufferAddress, address);
-        metadataDescriptor.setPreFree(nextPhysicalBufferAddress);
+      freeBuffer(address);
+    } finally {
+      lockForCreateAndRelease.unlock();
+    }
+  }
+
+  /**
+   * Give the used buffer back to the two level segregated list, the caller must hold the lock.
+   */
+  private void freeBuffer(long address) {
+    metadataDescriptor.setFree(address);
+    long nextPhysicalBufferAddress = metadataDescriptor.getNextPhysicalAddress(address);
+    if (nextPhysicalBufferAddress != nullBufferAddress && !isEndOfMem(
+        nextPhysicalBufferAddress)) {
+      metadataDescriptor.setPrePhysicalAddress(nextPhysicalBufferAddress, address);
+      metadataDescriptor.setPreFree(nextPhysicalBufferAddress);
+    }
+    merge(address);
+  }
+
+  /**
+   * Take a cached page-sized buffer from current thread's magazine, refilling the magazine with a
+   * batch of buffers from the tlsf core if it is empty.
+   *
+   * @return address of the buffer, or {@link #nullBufferAddress} if tlsf core has no page left
+   */
+  private long allocateFromMagazine(Magazine threadMagazine) {
+    long address = threadMagazine.pop();
+    if (address != nullBufferAddress) {
+      return address;
+    }
+
+    long[] refilled = new long[Math.max(1, magazineCapacity / 2)];
+    int refilledCount = 0;
+    lockForCreateAndRelease.lock();
+    try {
+      while (refilledCount < refilled.length) {
+        long bufferAddress = pickoutFreeBuffer(magazineBlockSize);
+        if (bufferAddress == nullBufferAddress) {
+          break;
+        }
+        prepareBufferForUse(bufferAddress, magazineBlockSize);
+        if (metadataDescriptor.getAccessibleMemSize(bufferAddress) != magazineBlockSize) {
+          // the remaining space is too small to be split out, leave it to the tlsf core
+          freeBuffer(bufferAddress);
+          break;
+        }
+        refilled[refilledCount++] = bufferAddress;
       }
-      merge(address);
     } finally {
       lockForCreateAndRelease.unlock();
     }
+
+    if (refilledCount == 0) {
+      return nullBufferAddress;
+    }
+    for (int i = 1; i < refilledCount; i++) {
+      threadMagazine.push(refilled[i]);
+    }
+    return refilled[0];
+  }
+
+  /**
+   * Put a released page-sized buffer to current thread's magazine, flushing half of the magazine
+   * to the tlsf core if it is full.
+   *
+   * @return false if the buffer is not cacheable and should be released to the tlsf core
+   */
+  private boolean releaseToMagazine(FastBufferImpl retbuf) {
+    long address = retbuf.accessibleMemAddress - MetadataDescriptor.ACCESSIBLE_MEM_OFFESET;
+    if (address == nullBufferAddress
+        || metadataDescriptor.getAccessibleMemSize(address) != magazineBlockSize) {
+      return false;
+    }
+
+    retbuf.reuse(nullBufferAddress, 0);
+    Magazine threadMagazine = magazine.get();
+    threadMagazine.offerSpare(retbuf);
+    if (threadMagazine.push(address)) {
+      return true;
+    }
+
+    long[] flushed = new long[Math.max(1, magazineCapacity / 2)];
+    int flushedCount = threadMagazine.drain(flushed);
+    lockForCreateAndRelease.lock();
+    try {
+      for (int i = 0; i < flushedCount; i++) {
+        freeBuffer(flushed[i]);
+      }
+      if (!threadMagazine.push(address)) {
+        freeBuffer(address);
+      }
+    } finally {
+      lockForCreateAndRelease.unlock();
+    }
+    return true;
+  }
+
+  /**
+   * Give all buffers cached in magazines back to the tlsf core, the caller must hold the lock.
+   *
+   * @return count of reclaimed buffers
+   */
+  private int reclaimMagazines() {
+    if (magazineCapacity == 0) {
+      return 0;
+    }
+
+    int reclaimedCount = 0;
+    long[] reclaimed = new long[magazineCapacity];
+    Iterator<Magazine> iterator = allMagazines.iterator();
+    while (iterator.hasNext()) {
+      Magazine cachedMagazine = iterator.next();
+      int count = cachedMagazine.drain(reclaimed);
+      for (int i = 0; i < count; i++) {
+        freeBuffer(reclaimed[i]);
+      }
+      reclaimedCount += count;
+      if (cachedMagazine.isOwnerDead()) {
+        iterator.remove();
+      }
+    }
+
+    if (reclaimedCount > 0) {
+      logger.info("reclaimed {} buffers from {} magazines", reclaimedCount, allMagazines.size());
+    }
+    return reclaimedCount;
+  }
+
+  /**
+   * Create the magazine of current thread, flushing the magazines left by dead threads first so
+   * that neither they nor the blocks they cache are kept forever.
+   */
+  private Magazine newMagazine() {
+    lockForCreateAndRelease.lock();
+    try {
+      long[] flushed = new long[magazineCapacity];
+      Iterator<Magazine> iterator = allMagazines.iterator();
+      while (iterator.hasNext()) {
+        Magazine cachedMagazine = iterator.next();
+        if (cachedMagazine.isOwnerDead()) {
+          int count = cachedMagazine.drain(flushed);
+          for (int i = 0; i < count; i++) {
+            freeBuffer(flushed[i]);
+          }
+          iterator.remove();
+        }
+      }
+    } finally {
+      lockForCreateAndRelease.unlock();
+    }
+
+    Magazine newMagazine = new Magazine(magazineCapacity, Thread.currentThread());
+    allMagazines.offer(newMagazine);
+    return newMagazine;
+  }
+
+  /**
+   * Get the count of magazines not dropped yet, including the ones of dead threads not flushed.
+   */
+  public int getMagazineCount() {
+    return allMagazines.size();
   }
 
   /**
@@ -580,4 +784,60 @@ public class TlsfFastBufferManager implements FastBufferManager {
   public long getAlignmentSize() {
     return alignment;
   }
+
+  /**
+   * A per-thread stack of page-sized buffers which are used in the view of tlsf core. It is only
+   * contended when another thread reclaims it.
+   */
+  private class Magazine {
+    private final long[] addresses;
+    private int count;
+    /**
+     * released buffer objects kept for the blocks handed out by this magazine, only touched by the
+     * owner thread.
+     */
+    private final Deque<FastBufferImpl> spares = new ArrayDeque<>();
+    private final WeakReference<Thread> owner;
+
+    Magazine(int capacity, Thread owner) {
+      this.addresses = new long[capacity];
+      this.count = 0;
+      this.owner = new WeakReference<>(owner);
+    }
+
+    boolean isOwnerDead() {
+      Thread thread = owner.get();
+      return thread == null || !thread.isAlive();
+    }
+
+    FastBufferImpl pollSpare() {
+      return spares.pollFirst();
+    }
+
+    void offerSpare(FastBufferImpl buffer) {
+      if (spares.size() < addresses.length) {
+        spares.offerFirst(buffer);
+      }
+    }
+
+    synchronized long pop() {
+      return count == 0 ? nullBufferAddress : addresses[--count];
+    }
+
+    synchronized boolean push(long address) {
+      if (count == addresses.length) {
+        return false;
+      }
+      addresses[count++] = address;
+      return true;
+    }
+
+    synchronized int drain(long[] out) {
+      int drainCount = Math.min(count, out.length);
+      for (int i = 0; i < drainCount; i++) {
+        out[i] = addresses[--count];
+      }
+      return drainCount;
+    }
+  }
 }
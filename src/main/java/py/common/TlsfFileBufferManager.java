@@ -18,6 +18,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -65,6 +67,12 @@ public class TlsfFileBufferManager implements FastBufferManager {
    */
   private static final int MIN_ALIGNMENT = 4;
 
+  /**
+   * Size of each mapped window in memory mapped mode. A {@link MappedByteBuffer} can't be larger
+   * than Integer.MAX_VALUE, so a large buffer file is mapped by several windows.
+   */
+  private static final long MAPPED_WINDOW_SIZE = 1L << 30;
+
   private static final Map<Long, Long> metadataStore = new HashMap<Long, Long>();
   private final long nullBufferAddress = Long.MAX_VALUE;
   // the least accessible memory size is total size of next_free_buffer_addr,
@@ -84,6 +92,12 @@ public class TlsfFileBufferManager implements FastBufferManager {
    * manager than Integer.MAX_VALUE buffer. Therefore, we use a FileChannel instance instead.
    */
   private RandomAccessFile raf;
+  /**
+   * windows mapping the buffer file in memory mapped mode, null in random access file mode.
+   */
+  private MappedByteBuffer[] mappedWindows;
+  private long[] mappedWindowAddresses;
+  private ForcePolicy forcePolicy = ForcePolicy.NEVER;
   private MetadataDescriptor metadataDescriptor;
   private Bidder refuseController = new NonController();
   /**
@@ -114,6 +128,21 @@ public class TlsfFileBufferManager implements FastBufferManager {
   public TlsfFileBufferManager(int alignment, String fileBufferPath, long totalSize,
       long baseAddress, boolean isDisk)
       throws Exception {
+    this(alignment, fileBufferPath, totalSize, baseAddress, isDisk, false, ForcePolicy.NEVER);
+  }
+
+  /**
+   * Constructor for this class.
+   *
+   * @param memoryMapped if true, the buffer file is mapped into memory and all buffers are
+   *                     accessed by memory copy without locking the file, otherwise accesses are
+   *                     serialized on the file by seek and read/write
+   * @param forcePolicy  policy to force changes of mapped buffer file to storage, ignored if the
+   *                     buffer file is not memory mapped
+   */
+  public TlsfFileBufferManager(int alignment, String fileBufferPath, long totalSize,
+      long baseAddress, boolean isDisk, boolean memoryMapped, ForcePolicy forcePolicy)
+      throws Exception {
     this.alignment = alignment;
     this.firstLevelIndexShift = locateMostLeftOneBit(SECOND_LEVEL_INDEX_COUNT * this.alignment);
     this.memoryTotalSize = totalSize;
@@ -124,6 +153,11 @@ public class TlsfFileBufferManager implements FastBufferManager {
       this.raf = makeMemoryMappedFile(fileBufferPath, totalSize);
     }
 
+    if (memoryMapped) {
+      this.forcePolicy = forcePolicy;
+      mapBufferFile(baseAddress, totalSize);
+    }
+
     this.memoryBaseAddress = baseAddress;
     this.memoryEndAddress = this.memoryBaseAddress + totalSize - 1;
     metadataDescriptor = new MetadataDescriptor();
@@ -186,6 +220,102 @@ public class TlsfFileBufferManager implements FastBufferManager {
     }
   }
 
+  private void mapBufferFile(long baseAddress, long totalSize) throws IOException {
+    long fileEnd = baseAddress + totalSize;
+    if (raf.length() < fileEnd) {
+      raf.setLength(fileEnd);
+    }
+
+    int windowCount = (int) ((totalSize + MAPPED_WINDOW_SIZE - 1) / MAPPED_WINDOW_SIZE);
+    mappedWindows = new MappedByteBuffer[windowCount];
+    mappedWindowAddresses = new long[windowCount];
+    FileChannel channel = raf.getChannel();
+    for (int i = 0; i < windowCount; i++) {
+      long windowBegin = baseAddress + i * MAPPED_WINDOW_SIZE;
+      long windowSize = Math.min(MAPPED_WINDOW_SIZE, fileEnd - windowBegin);
+      mappedWindows[i] = channel.map(MapMode.READ_WRITE, windowBegin, windowSize);
+      mappedWindowAddresses[i] = ((DirectBuffer) mappedWindows[i]).address();
+    }
+    logger.warn("mapped buffer file with {} windows, force policy {}", windowCount, forcePolicy);
+  }
+
+  private boolean isMemoryMapped() {
+    return mappedWindows != null;
+  }
+
+  /**
+   * Copy between the mapped buffer file and native memory, the copy may cross several windows.
+   *
+   * @param fileAddress   position in buffer file
+   * @param memoryAddress native memory address
+   * @param toFile        true to copy from memory to file, false to copy from file to memory
+   */
+  private void copyMapped(long fileAddress, long memoryAddress, int length, boolean toFile) {
+    long relativeAddress = fileAddress - memoryBaseAddress;
+    while (length > 0) {
+      int windowIndex = (int) (relativeAddress / MAPPED_WINDOW_SIZE);
+      long offsetInWindow = relativeAddress % MAPPED_WINDOW_SIZE;
+      int copyLength = (int) Math.min(length, MAPPED_WINDOW_SIZE - offsetInWindow);
+      long windowAddress = mappedWindowAddresses[windowIndex] + offsetInWindow;
+      if (toFile) {
+        DirectAlignedBufferAllocator.copyMemory(memoryAddress, windowAddress, copyLength);
+      } else {
+        DirectAlignedBufferAllocator.copyMemory(windowAddress, memoryAddress, copyLength);
+      }
+      relativeAddress += copyLength;
+      memoryAddress += copyLength;
+      length -= copyLength;
+    }
+  }
+
+  /**
+   * Copy between the mapped buffer file and a heap array, the copy may cross several windows.
+   */
+  private void copyMapped(long fileAddress, byte[] array, int arrayOffset, int length,
+      boolean toFile) {
+    long relativeAddress = fileAddress - memoryBaseAddress;
+    while (length > 0) {
+      int windowIndex = (int) (relativeAddress / MAPPED_WINDOW_SIZE);
+      long offsetInWindow = relativeAddress % MAPPED_WINDOW_SIZE;
+      int copyLength = (int) Math.min(length, MAPPED_WINDOW_SIZE - offsetInWindow);
+      long windowAddress = mappedWindowAddresses[windowIndex] + offsetInWindow;
+      if (toFile) {
+        DirectAlignedBufferAllocator.copyMemory(array, arrayOffset, copyLength, windowAddress);
+      } else {
+        DirectAlignedBufferAllocator.copyMemory(windowAddress, array, arrayOffset, copyLength);
+      }
+      relativeAddress += copyLength;
+      arrayOffset += copyLength;
+      length -= copyLength;
+    }
+  }
+
+  /**
+   * Force all changes of the mapped buffer file to storage, like msync. Nothing to do if the buffer
+   * file is not memory mapped.
+   */
+  public void force() {
+    if (!isMemoryMapped()) {
+      return;
+    }
+    for (MappedByteBuffer mappedWindow : mappedWindows) {
+      mappedWindow.force();
+    }
+  }
+
+  private void forceAfterWrite(long fileAddress, int length) {
+    if (forcePolicy != ForcePolicy.EVERY_WRITE) {
+      return;
+    }
+
+    long relativeAddress = fileAddress - memoryBaseAddress;
+    int firstWindow = (int) (relativeAddress / MAPPED_WINDOW_SIZE);
+    int lastWindow = (int) ((relativeAddress + length - 1) / MAPPED_WINDOW_SIZE);
+    for (int i = firstWindow; i <= lastWindow; i++) {
+      mappedWindows[i].force();
+    }
+  }
+
   @Override
   public synchronized FastBuffer allocateBuffer(long size) throws NoAvailableBufferException {
     if (size <= 0) {
@@ -567,6 +697,9 @@ public class TlsfFileBufferManager implements FastBufferManager {
 
   @Override
   public void close() {
+    if (isMemoryMapped() && forcePolicy != ForcePolicy.NEVER) {
+      force();
+    }
     if (raf != null) {
       try {
         raf.close();
@@ -591,6 +724,24 @@ public class TlsfFileBufferManager implements FastBufferManager {
     throw new NotImplementedException("this file fast buffer");
   }
 
+  /**
+   * Policy to force changes of the memory mapped buffer file to storage.
+   */
+  public enum ForcePolicy {
+    /**
+     * never force, leave it to the operating system unless {@link #force()} is called.
+     */
+    NEVER,
+    /**
+     * force when the manager is closed.
+     */
+    ON_CLOSE,
+    /**
+     * force the touched windows after every put.
+     */
+    EVERY_WRITE
+  }
+
   /**
    * An interface to bid for determine to do next or not.
    *
@@ -883,6 +1034,11 @@ public class TlsfFileBufferManager implements FastBufferManager {
                 + accessibleMemSize + ", offset: " + srcOffset);
       }
 
+      if (isMemoryMapped()) {
+        copyMapped(accessibleMemAddress + srcOffset, dst, dstOffset, length, false);
+        return;
+      }
+
       synchronized (raf) {
         try {
           raf.seek(accessibleMemAddress + srcOffset);
@@ -912,6 +1068,12 @@ public class TlsfFileBufferManager implements FastBufferManager {
                 + accessibleMemSize + ", offset: " + srcOffset);
       }
 
+      if (isMemoryMapped() && dstBuffer.isDirect()) {
+        copyMapped(accessibleMemAddress + srcOffset,
+            ((DirectBuffer) dstBuffer).address() + dstOffset, length, false);
+        return;
+      }
+
       try {
         if (dstBuffer.isDirect()) {
           ByteBuffer srcBuffer = raf.getChannel()
@@ -947,6 +1109,12 @@ public class TlsfFileBufferManager implements FastBufferManager {
                 + this.accessibleMemSize + ", dstOffset: " + dstOffset);
       }
 
+      if (isMemoryMapped()) {
+        copyMapped(accessibleMemAddress + dstOffset, src, srcOffset, length, true);
+        forceAfterWrite(accessibleMemAddress + dstOffset, length);
+        return;
+      }
+
       synchronized (raf) {
         try {
           raf.seek(accessibleMemAddress + dstOffset);
@@ -976,6 +1144,13 @@ public class TlsfFileBufferManager implements FastBufferManager {
                 + this.accessibleMemSize + ", dstOffset: " + dstOffset);
       }
 
+      if (isMemoryMapped() && srcBuffer.isDirect()) {
+        copyMapped(accessibleMemAddress + dstOffset,
+            ((DirectBuffer) srcBuffer).address() + srcOffset, length, true);
+        forceAfterWrite(accessibleMemAddress + dstOffset, length);
+        return;
+      }
+
       try {
         if (srcBuffer.isDirect()) {
           ByteBuffer dstBuffer = raf.getChannel()
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.common.tlsf.bytebuffer.manager;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py.common.DirectAlignedBufferAllocator;
+import py.common.tlsf.OutOfSpaceException;
+
+/**
+ * A {@link TlsfByteBufferManager} which divides its direct region into several independent TLSF
+ * shards, each of them guarded by its own monitor. A thread always starts allocating from the
+ * shard picked by its id, and steals from the other shards only when that one is exhausted.
+ */
+public class ShardedTlsfByteBufferManager extends TlsfByteBufferManager {
+  private static final Logger logger = LoggerFactory.getLogger(ShardedTlsfByteBufferManager.class);
+
+  private final TlsfByteBufferManager[] shards;
+
+  private final int shardSize;
+
+  private final int maxShardCapacity;
+
+  private final AtomicInteger restAllocateAlignedBufferCount;
+
+  private final BlockingQueue<Semaphore> releasingEventListeners = new LinkedBlockingQueue<>();
+
+  /**
+   * Constructor for this class.
+   *
+   * @param sizeAlignment  alignment of each allocated size
+   * @param size           the total size of direct byte buffer in the manager
+   * @param addressAligned a flag represents if the direct byte buffer in manager is
+   *                       address-aligned
+   * @param shardCount     count of shards the direct byte buffer is divided into
+   */
+  public ShardedTlsfByteBufferManager(int sizeAlignment, int size, boolean addressAligned,
+      int shardCount) {
+    this(sizeAlignment, allocateDirectBuffer(size, addressAligned), shardCount);
+  }
+
+  private ShardedTlsfByteBufferManager(int sizeAlignment, ByteBuffer buffer, int shardCount) {
+    // the whole region is only used to locate the shard of a buffer, each shard manages its space
+    super(buffer);
+    Validate.isTrue(shardCount > 0);
+    int size = buffer.capacity();
+    // keep the beginning of each shard aligned as the whole region is
+    this.shardSize = (size / shardCount) / sizeAlignment * sizeAlignment;
+    Validate.isTrue(shardSize > 0, "size %s is too small for %s shards", size, shardCount);
+
+    this.shards = new TlsfByteBufferManager[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      int begin = i * shardSize;
+      int end = (i == shardCount - 1) ? size : begin + shardSize;
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.clear();
+      duplicate.position(begin);
+      duplicate.limit(end);
+      shards[i] = new TlsfByteBufferManager(sizeAlignment, duplicate.slice());
+    }
+    this.maxShardCapacity = shards[shardCount - 1].getCapacity();
+    this.restAllocateAlignedBufferCount = new AtomicInteger(size);
+    logger.warn("divided {} bytes into {} shards, shard size {}", size, shardCount, shardSize);
+  }
+
+  private int homeShardIndex() {
+    return (int) (Thread.currentThread().getId() % shards.length);
+  }
+
+  private TlsfByteBufferManager shardOf(ByteBuffer buffer) {
+    if (!buffer.isDirect()) {
+      logger.error("Illegal byte buffer! Expect a direct byte buffer, but it was not!");
+      throw new IllegalArgumentException();
+    }
+
+    long address = DirectAlignedBufferAllocator.getAddress(buffer) - getBaseAddress();
+    if (address < 0 || address >= getCapacity()) {
+      logger.error("Illegal byte buffer! Address of it {} is out of bound.", address);
+      throw new IllegalArgumentException("Invalid buffer");
+    }
+    return shards[Math.min((int) (address / shardSize), shards.length - 1)];
+  }
+
+  /**
+   * No shard can ever hold a buffer larger than itself, so such a request would make the blocking
+   * allocations wait forever.
+   */
+  private void checkSize(int size) {
+    if (size > maxShardCapacity) {
+      logger.error("size {} is larger than the biggest shard {}", size, maxShardCapacity);
+      throw new IllegalArgumentException(
+          "size " + size + " is larger than the biggest shard " + maxShardCapacity);
+    }
+  }
+
+  @Override
+  public ByteBuffer allocate(int size) throws OutOfSpaceException, IllegalArgumentException {
+    checkSize(size);
+    int homeIndex = homeShardIndex();
+    OutOfSpaceException outOfSpaceException = null;
+    for (int i = 0; i < shards.length; i++) {
+      try {
+        ByteBuffer buffer = shards[(homeIndex + i) % shards.length].allocate(size);
+        restAllocateAlignedBufferCount.addAndGet(-buffer.capacity());
+        return buffer;
+      } catch (OutOfSpaceException e) {
+        outOfSpaceException = e;
+      }
+    }
+    throw outOfSpaceException;
+  }
+
+  @Override
+  public ByteBuffer blockingAllocate(int size) throws IllegalArgumentException {
+    while (true) {
+      try {
+        return allocate(size);
+      } catch (OutOfSpaceException e) {
+        logger.debug("no shard can fit size {}, wait for releasing", size);
+      }
+
+      // register before trying again, so that a release between the two tries is not missed
+      Semaphore semaphore = new Semaphore(0);
+      releasingEventListeners.offer(semaphore);
+      try {
+        return allocate(size);
+      } catch (OutOfSpaceException e) {
+        semaphore.acquireUninterruptibly();
+      }
+    }
+  }
+
+  @Override
+  public void release(ByteBuffer buffer) throws IllegalArgumentException {
+    shardOf(buffer).release(buffer);
+    restAllocateAlignedBufferCount.addAndGet(buffer.capacity());
+
+    Semaphore listener;
+    while ((listener = releasingEventListeners.poll()) != null) {
+      listener.release();
+    }
+  }
+
+  @Override
+  public List<ByteBuffer> tryAllocate(int size)
+      throws OutOfSpaceException, IllegalArgumentException {
+    checkSize(size);
+    int homeIndex = homeShardIndex();
+    OutOfSpaceException outOfSpaceException = null;
+    for (int i = 0; i < shards.length; i++) {
+      try {
+        List<ByteBuffer> buffers = shards[(homeIndex + i) % shards.length].tryAllocate(size);
+        for (ByteBuffer buffer : buffers) {
+          restAllocateAlignedBufferCount.addAndGet(-buffer.capacity());
+        }
+        return buffers;
+      } catch (OutOfSpaceException e) {
+        outOfSpaceException = e;
+      }
+    }
+    throw outOfSpaceException;
+  }
+
+  @Override
+  public List<ByteBuffer> blockingTryAllocate(int size) throws IllegalArgumentException {
+    while (true) {
+      try {
+        return tryAllocate(size);
+      } catch (OutOfSpaceException e) {
+        logger.debug("no shard can fit size {}, wait for releasing", size);
+      }
+
+      Semaphore semaphore = new Semaphore(0);
+      releasingEventListeners.offer(semaphore);
+      try {
+        return tryAllocate(size);
+      } catch (OutOfSpaceException e) {
+        semaphore.acquireUninterruptibly();
+      }
+    }
+  }
+
+  /**
+   * Get the space not held by any buffer allocated from this manager, whichever method allocated
+   * it.
+   */
+  @Override
+  public Integer getSpaceCanBeUsed() {
+    return restAllocateAlignedBufferCount.get();
+  }
+
+  public int getShardCount() {
+    return shards.length;
+  }
+}
@@ -54,8 +54,18 @@ public class TlsfByteBufferManager {
    *                       address-aligned
    */
   public TlsfByteBufferManager(int sizeAlignment, int size, boolean addressAligned) {
-    this.buffer = (addressAligned) ? DirectAlignedBufferAllocator.allocateAlignedByteBuffer(size)
-        : ByteBuffer.allocateDirect(size);
+    this(sizeAlignment, allocateDirectBuffer(size, addressAligned));
+  }
+
+  /**
+   * Constructor for this class managing the given direct byte buffer.
+   *
+   * @param sizeAlignment alignment of each allocated size
+   * @param buffer        the direct byte buffer to be managed, the whole capacity of it is used
+   */
+  protected TlsfByteBufferManager(int sizeAlignment, ByteBuffer buffer) {
+    int size = buffer.capacity();
+    this.buffer = buffer;
     this.basePhysicalAddr = DirectAlignedBufferAllocator.getAddress(buffer);
     this.baseTlsfSpaceManager = new BaseTlsfSpaceManager(new SimpleTlsfMetadata(),
         new ByteBufferDivisionMetadata(),
@@ -63,6 +73,25 @@ public class TlsfByteBufferManager {
     this.restAllocateAlignedBufferCount = new AtomicInteger(size);
   }
 
+  /**
+   * Constructor for subclasses which only use the given direct byte buffer as the region their
+   * buffers are sliced from and override every allocating method, no space manager is built over
+   * the region here.
+   *
+   * @param buffer the direct byte buffer all buffers of the subclass are sliced from
+   */
+  protected TlsfByteBufferManager(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.basePhysicalAddr = DirectAlignedBufferAllocator.getAddress(buffer);
+    this.baseTlsfSpaceManager = null;
+    this.restAllocateAlignedBufferCount = new AtomicInteger(buffer.capacity());
+  }
+
+  protected static ByteBuffer allocateDirectBuffer(int size, boolean addressAligned) {
+    return (addressAligned) ? DirectAlignedBufferAllocator.allocateAlignedByteBuffer(size)
+        : ByteBuffer.allocateDirect(size);
+  }
+
   /**
    * Allocate direct byte buffer with size largger than or equal to the given size. If the size is
    * aligned, then the size of returned buffer will be equal to the desired size. Otherwise, the
@@ -222,6 +251,31 @@ public class TlsfByteBufferManager {
     }
   }
 
+  /**
+   * Get the native address of the direct region all buffers of this manager are sliced from.
+   */
+  public long getBaseAddress() {
+    return basePhysicalAddr;
+  }
+
+  /**
+   * Get the total size of the direct region all buffers of this manager are sliced from.
+   */
+  public int getCapacity() {
+    return buffer.capacity();
+  }
+
+  /**
+   * Check if the given buffer was sliced from the direct region of this manager.
+   */
+  public boolean owns(ByteBuffer buffer) {
+    if (!buffer.isDirect()) {
+      return false;
+    }
+    long address = DirectAlignedBufferAllocator.getAddress(buffer) - basePhysicalAddr;
+    return address >= 0 && address < this.buffer.capacity();
+  }
+
   /**
    * this method must be used for #link blockingAllocate().
    */
@@ -28,6 +28,15 @@ public class TlsfByteBufferManagerFactory {
   private static TlsfByteBufferManager tlsfByteBufferManager = null;
 
   public static void init(int sizeAlignment, int size, boolean addressAligned) {
+    init(sizeAlignment, size, addressAligned, 1);
+  }
+
+  /**
+   * Initialize the global manager. With more than one shard, a
+   * {@link ShardedTlsfByteBufferManager} is used so that threads allocating and releasing
+   * concurrently mostly contend on different monitors.
+   */
+  public static void init(int sizeAlignment, int size, boolean addressAligned, int shardCount) {
     if (size < 0) {
       throw new RuntimeException("size is too large, and it is overflowed");
     }
@@ -39,7 +48,12 @@ public class TlsfByteBufferManagerFactory {
       }
     }
 
-    tlsfByteBufferManager = new TlsfByteBufferManager(sizeAlignment, size, addressAligned);
+    if (shardCount > 1) {
+      tlsfByteBufferManager = new ShardedTlsfByteBufferManager(sizeAlignment, size,
+          addressAligned, shardCount);
+    } else {
+      tlsfByteBufferManager = new TlsfByteBufferManager(sizeAlignment, size, addressAligned);
+    }
   }
 
   public static TlsfByteBufferManager instance() {
@@ -52,4 +66,12 @@ public class TlsfByteBufferManagerFactory {
         true);
     return tlsfByteBufferManager;
   }
+
+  public static TlsfByteBufferManager build(int size, int sizeAlignment, int shardCount) {
+    Validate.isTrue(size > 0 && sizeAlignment > 0 && shardCount > 0);
+    if (shardCount == 1) {
+      return build(size, sizeAlignment);
+    }
+    return new ShardedTlsfByteBufferManager(sizeAlignment, size, true, shardCount);
+  }
 }
\ No newline at end of file
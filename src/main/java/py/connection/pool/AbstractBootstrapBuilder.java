@@ -16,7 +16,6 @@ package py.connection.pool;
 
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.EventLoopGroup;
-import io.netty.util.HashedWheelTimer;
 import py.netty.core.ProtocolFactory;
 import py.netty.core.TransferenceConfiguration;
 
@@ -24,7 +23,6 @@ public abstract class AbstractBootstrapBuilder implements BootstrapBuilder {
   protected TransferenceConfiguration cfg;
   protected ByteBufAllocator allocator;
 
-  protected HashedWheelTimer hashedWheelTimer;
   protected ProtocolFactory protocolFactory;
   protected EventLoopGroup ioEventGroup;
 
@@ -46,11 +44,6 @@ public abstract class AbstractBootstrapBuilder implements BootstrapBuilder {
     this.cfg = cfg;
   }
 
-  @Override
-  public void setHashedWheelTimer(HashedWheelTimer hashedWheelTimer) {
-    this.hashedWheelTimer = hashedWheelTimer;
-  }
-
   @Override
   public void setProtocolFactory(ProtocolFactory protocolFactory) {
     this.protocolFactory = protocolFactory;
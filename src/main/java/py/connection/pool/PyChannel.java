@@ -16,6 +16,7 @@ package py.connection.pool;
 
 import io.netty.channel.Channel;
 import py.common.struct.EndPoint;
+import py.netty.client.MessageTimeManager;
 
 class PyChannel {
   private final EndPoint endPoint;
@@ -40,6 +41,18 @@ class PyChannel {
     return oldChannel;
   }
 
+  /**
+   * The count of the requests pending on the channel, or {@link Integer#MAX_VALUE} if the channel
+   * is not active.
+   */
+  public int getPendingCount() {
+    Channel current = channel;
+    if (current == null || !current.isActive()) {
+      return Integer.MAX_VALUE;
+    }
+    return MessageTimeManager.getPendingMessageCount(current);
+  }
+
   public long getLastIoTime() {
     return lastIoTime;
   }
@@ -16,57 +16,110 @@ package py.connection.pool;
 
 import io.netty.channel.Channel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import py.common.struct.EndPoint;
 
+/**
+ * The channels to one end point.
+ *
+ * <p>The channels are built lazily in round robin order. Once built, a channel is selected by the
+ * power of two choices: the channel next in round robin order is compared with a random one, and
+ * the one with fewer pending requests is used, so a channel stuck behind a large transfer or being
+ * reconnected doesn't keep getting requests.
+ */
 public class PyChannelPool {
   private static final Logger logger = LoggerFactory.getLogger(PyChannelPool.class);
-  private final PyChannel[] pyChannels;
+  private final AtomicReferenceArray<PyChannel> pyChannels;
   private final EndPoint endpoint;
+  private final AtomicInteger times;
+  private final AtomicBoolean reconnectScheduled;
+  private final AtomicInteger reconnectFailures;
   private int robin;
-  private int times;
   private ReconnectionHandler reconnectionHandler;
 
   public PyChannelPool(int robin, EndPoint endPoint,
       ReconnectionHandler reconnectionHandler) {
-    this.pyChannels = new PyChannel[robin];
+    this.pyChannels = new AtomicReferenceArray<>(robin);
     this.robin = robin;
-    this.times = 0;
+    this.times = new AtomicInteger(0);
+    this.reconnectScheduled = new AtomicBoolean(false);
+    this.reconnectFailures = new AtomicInteger(0);
     this.endpoint = endPoint;
 
     this.reconnectionHandler = reconnectionHandler;
-
-    for (int i = 0; i < robin; i++) {
-      pyChannels[i] = null;
-    }
   }
 
   public EndPoint getEndpoint() {
     return endpoint;
   }
 
-  public synchronized PyChannel get(EndPoint endPoint) {
-    int index = times % robin;
+  public PyChannel get(EndPoint endPoint) {
+    int index = Math.floorMod(times.getAndIncrement(), robin);
+    PyChannel pyChannel = pyChannels.get(index);
+    if (pyChannel == null) {
+      return build(index, endPoint);
+    }
+
+    if (robin == 1) {
+      return pyChannel;
+    }
+
+    int otherIndex = (index + 1 + ThreadLocalRandom.current().nextInt(robin - 1)) % robin;
+    PyChannel other = pyChannels.get(otherIndex);
+    if (other != null && other.getPendingCount() < pyChannel.getPendingCount()) {
+      return other;
+    }
+    return pyChannel;
+  }
 
-    times = index + 1;
-    if (pyChannels[index] != null) {
-      return pyChannels[index];
+  private PyChannel build(int index, EndPoint endPoint) {
+    PyChannel pyChannel = new PyChannel(endPoint);
+    if (!pyChannels.compareAndSet(index, null, pyChannel)) {
+      return pyChannels.get(index);
     }
 
     logger.warn("build new connection with end point: {}", endPoint);
-    pyChannels[index] = new PyChannel(endPoint);
-    reconnectionHandler.reconnect(new ConnectionRequest(pyChannels[index]));
-    return pyChannels[index];
+    reconnectionHandler.reconnect(new ConnectionRequest(pyChannel));
+    return pyChannel;
+  }
+
+  /**
+   * Mark a reconnection of the end point scheduled.
+   *
+   * @return false if there is one scheduled already
+   */
+  boolean markReconnectScheduled() {
+    return reconnectScheduled.compareAndSet(false, true);
+  }
+
+  void clearReconnectScheduled() {
+    reconnectScheduled.set(false);
+  }
+
+  int getReconnectFailures() {
+    return reconnectFailures.get();
+  }
+
+  void reconnectFailed() {
+    reconnectFailures.incrementAndGet();
+  }
+
+  void reconnectSucceeded() {
+    reconnectFailures.set(0);
   }
 
   public List<PyChannel> getAll() {
     List<PyChannel> channels = new ArrayList<>();
-    for (int i = 0; i < pyChannels.length; i++) {
-      if (pyChannels[i] != null) {
-        channels.add(pyChannels[i]);
+    for (int i = 0; i < pyChannels.length(); i++) {
+      PyChannel pyChannel = pyChannels.get(i);
+      if (pyChannel != null) {
+        channels.add(pyChannel);
       }
     }
 
@@ -74,12 +127,13 @@ public class PyChannelPool {
   }
 
   public void close() {
-    for (int i = 0; i < pyChannels.length; i++) {
-      if (pyChannels[i] == null) {
+    for (int i = 0; i < pyChannels.length(); i++) {
+      PyChannel pyChannel = pyChannels.get(i);
+      if (pyChannel == null) {
         continue;
       }
 
-      Channel old = pyChannels[i].set(null);
+      Channel old = pyChannel.set(null);
       if (old != null) {
         old.close();
       }
@@ -88,7 +142,7 @@ public class PyChannelPool {
 
   @Override
   public String toString() {
-    return "PYChannelPool{" + "pyChannels=" + Arrays.toString(pyChannels) + ", robin=" + robin
+    return "PYChannelPool{" + "pyChannels=" + pyChannels + ", robin=" + robin
         + ", times=" + times
         + ", endpoint=" + endpoint + ", reconnectionHandler=" + reconnectionHandler + '}';
   }
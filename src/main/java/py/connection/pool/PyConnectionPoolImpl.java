@@ -21,19 +21,32 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import py.common.NamedThreadFactory;
 import py.common.struct.EndPoint;
 import py.connection.pool.udp.detection.NetworkIoHealthChecker;
+import py.connection.pool.udp.detection.ReachabilityListener;
 
+/**
+ * The connection pool reconnects an end point on events instead of polling all the end points: a
+ * reachability change pushed by {@link NetworkIoHealthChecker}, the close of a channel, or the
+ * failure of a connection attempt. Reconnection after a failed attempt backs off exponentially
+ * from {@link #DEFAULT_CHECK_CONNECTION_INTERVAL_MS} to {@link #MAX_RECONNECT_BACKOFF_MS}.
+ */
 public class PyConnectionPoolImpl implements PyConnectionPool, ReconnectionHandler {
   public static final int DEFAULT_CHECK_CONNECTION_INTERVAL_MS = 20;
+  public static final int MAX_RECONNECT_BACKOFF_MS = 5000;
   private static final Logger logger = LoggerFactory.getLogger(PyConnectionPoolImpl.class);
   private final Thread recycleThread;
-  private final Thread detectThread;
+  private final ScheduledExecutorService reconnectScheduler;
   private final BlockingQueue<ConnectionRequest> blockingQueue;
+  private final Map<PyChannelPool, ReachabilityListener> mapChannelPoolToReachabilityListener;
   private Map<EndPoint, PyChannelPool> mapEndPointToChannelPool;
   private int poolSizePerOneEndPoint;
   private int maxLastTimeForConnectionMs;
@@ -49,6 +62,7 @@ public class PyConnectionPoolImpl implements PyConnectionPool, ReconnectionHandl
     this.maxLastTimeForConnectionMs = maxLastTimeForConnectionMs;
     this.builder = builder;
     this.mapChannelToListener = new ConcurrentHashMap<>();
+    this.mapChannelPoolToReachabilityListener = new ConcurrentHashMap<>();
     this.stop = false;
 
     recycleThread = new Thread("recycle-thread") {
@@ -74,16 +88,8 @@ public class PyConnectionPoolImpl implements PyConnectionPool, ReconnectionHandl
     };
     recycleThread.start();
 
-    detectThread = new Thread("detect-thread") {
-      public void run() {
-        try {
-          detect();
-        } catch (Throwable t) {
-          logger.error("detect thread exit", t);
-        }
-      }
-    };
-    detectThread.start();
+    reconnectScheduler = Executors
+        .newSingleThreadScheduledExecutor(new NamedThreadFactory("reconnect-scheduler", true));
   }
 
   public void retrieveForUnitTest() {
@@ -123,22 +129,77 @@ public class PyConnectionPoolImpl implements PyConnectionPool, ReconnectionHandl
     }
   }
 
-  public void detect() throws Exception {
-    while (!stop) {
-      for (Entry<EndPoint, PyChannelPool> entry : mapEndPointToChannelPool.entrySet()) {
-        PyChannelPool pool = entry.getValue();
+  /**
+   * Check the end point of the pool now, reconnecting its inactive channels if it is reachable.
+   */
+  public void detect(PyChannelPool pool) {
+    boolean result = !NetworkIoHealthChecker.INSTANCE
+        .isUnreachable(pool.getEndpoint().getHostName());
+    processDetectResult(pool, result);
+    logger.trace(
+        "UDP-detection client just checks the status of the connection to {}. connection is {}",
+        pool.getEndpoint(), result);
+  }
 
-        NetworkIoHealthChecker.INSTANCE.keepChecking(pool.getEndpoint().getHostName());
-        boolean result = !NetworkIoHealthChecker.INSTANCE
-            .isUnreachable(pool.getEndpoint().getHostName());
+  void reachabilityChanged(PyChannelPool pool, boolean reachable) {
+    if (stop) {
+      return;
+    }
 
-        processDetectResult(pool, result);
-        logger.trace(
-            "UDP-detection client just checks the status of the connection to {}. connection is {}",
-            pool.getEndpoint(), result);
-      }
+    if (reachable) {
+      pool.reconnectSucceeded();
+      reconnectScheduler.execute(() -> detect(pool));
+    } else {
+      processDetectResult(pool, false);
+    }
+  }
 
-      Thread.sleep(DEFAULT_CHECK_CONNECTION_INTERVAL_MS);
+  private void scheduleReconnect(EndPoint endPoint) {
+    PyChannelPool pool = mapEndPointToChannelPool.get(endPoint);
+    if (stop || pool == null || !pool.markReconnectScheduled()) {
+      return;
+    }
+
+    int failures = pool.getReconnectFailures();
+    long delayMs = reconnectDelayMs(failures);
+    logger.info("reconnect {} after {}ms, failures={}", endPoint, delayMs, failures);
+    try {
+      reconnectScheduler.schedule(() -> {
+        pool.clearReconnectScheduled();
+        if (!stop) {
+          detect(pool);
+        }
+      }, delayMs, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      logger.warn("can not schedule reconnecting {}", endPoint, e);
+      pool.clearReconnectScheduled();
+    }
+  }
+
+  /**
+   * The delay before reconnecting an end point after the given count of failed attempts in a row.
+   */
+  static long reconnectDelayMs(int failures) {
+    return Math.min((long) DEFAULT_CHECK_CONNECTION_INTERVAL_MS << Math.min(failures, 16),
+        MAX_RECONNECT_BACKOFF_MS);
+  }
+
+  private void connectionDone(PyChannel pyChannel) {
+    PyChannelPool pool = mapEndPointToChannelPool.get(pyChannel.getEndPoint());
+    Channel channel = pyChannel.get();
+    if (channel != null && channel.isActive()) {
+      if (pool != null) {
+        pool.reconnectSucceeded();
+      }
+      channel.closeFuture().addListener((ChannelFutureListener) future -> {
+        logger.warn("channel={} closed, connection={}", future.channel(), pyChannel);
+        scheduleReconnect(pyChannel.getEndPoint());
+      });
+    } else {
+      if (pool != null) {
+        pool.reconnectFailed();
+      }
+      scheduleReconnect(pyChannel.getEndPoint());
     }
   }
 
@@ -152,6 +213,7 @@ public class PyConnectionPoolImpl implements PyConnectionPool, ReconnectionHandl
         manager.setConnecting(false);
       }
 
+      connectionDone(pyChannel);
       return;
     } else if (request instanceof ExitChannelRequest) {
       logger.warn("ExitChannelRequest: {}", request);
@@ -286,10 +348,18 @@ public class PyConnectionPoolImpl implements PyConnectionPool, ReconnectionHandl
   public void close() {
     try {
       stop = true;
-      detectThread.join();
+      reconnectScheduler.shutdownNow();
+      reconnectScheduler.awaitTermination(1, TimeUnit.SECONDS);
     } catch (Exception e) {
-      logger.warn("can not wait for detect thread exit", e);
+      logger.warn("can not wait for reconnect scheduler exit", e);
+    }
+
+    for (Map.Entry<PyChannelPool, ReachabilityListener> entry
+        : mapChannelPoolToReachabilityListener.entrySet()) {
+      NetworkIoHealthChecker.INSTANCE
+          .unwatch(entry.getKey().getEndpoint().getHostName(), entry.getValue());
     }
+    mapChannelPoolToReachabilityListener.clear();
 
     try {
       blockingQueue.offer(new FakeConnectionRequest());
@@ -315,6 +385,12 @@ public class PyConnectionPoolImpl implements PyConnectionPool, ReconnectionHandl
 
       if (prevAssociatedChannelPool != null) {
         channelPool = prevAssociatedChannelPool;
+      } else {
+        PyChannelPool newChannelPool = channelPool;
+        ReachabilityListener listener = (ip, reachable) -> reachabilityChanged(newChannelPool,
+            reachable);
+        mapChannelPoolToReachabilityListener.put(newChannelPool, listener);
+        NetworkIoHealthChecker.INSTANCE.watch(endPoint.getHostName(), listener);
       }
     }
 
@@ -15,9 +15,13 @@
 package py.connection.pool.udp.detection;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -39,6 +43,8 @@ public enum NetworkIoHealthChecker {
   private final AtomicBoolean started = new AtomicBoolean(false);
   private final AtomicReference<Function<String, Boolean>> resultForUnitTests
       = new AtomicReference<>(null);
+  // guarded by the monitor of the checker, only used before it is started
+  private final Map<String, List<ReachabilityListener>> pendingWatches = new HashMap<>();
   private Map<String, IpTask> mapEndPointToTasks;
   private Map<InetSocketAddress, String> mapAddressToIp;
   private UdpDetector udpDetector;
@@ -53,6 +59,13 @@ public enum NetworkIoHealthChecker {
           .newSingleThreadScheduledExecutor(
               new NamedThreadFactory("network-io-health-checker", true));
       started.set(true);
+
+      for (Map.Entry<String, List<ReachabilityListener>> entry : pendingWatches.entrySet()) {
+        for (ReachabilityListener listener : entry.getValue()) {
+          watch(entry.getKey(), listener);
+        }
+      }
+      pendingWatches.clear();
     }
   }
 
@@ -97,6 +110,58 @@ public enum NetworkIoHealthChecker {
     return CompletableFuture.completedFuture(null);
   }
 
+  /**
+   * Keep checking the ip until {@link #unwatch(String, ReachabilityListener)}, and notify the
+   * listener in the checker thread whenever the reachability of the ip changes. A watch made before
+   * the checker is started takes effect once it is started.
+   */
+  public void watch(String ip, ReachabilityListener listener) {
+    if (!started.get()) {
+      synchronized (this) {
+        if (!started.get()) {
+          logger.info("the checker is not started, watch host [{}] after it starts", ip);
+          pendingWatches.computeIfAbsent(ip, i -> new ArrayList<>()).add(listener);
+          return;
+        }
+      }
+    }
+
+    executorService.execute(() -> {
+      IpTask task = mapEndPointToTasks.computeIfAbsent(ip, i -> {
+        IpTask ipTask = new IpTask(ip);
+        executorService.execute(ipTask);
+        return ipTask;
+      });
+      task.listeners.add(listener);
+      task.active();
+    });
+  }
+
+  public void unwatch(String ip, ReachabilityListener listener) {
+    if (!started.get()) {
+      synchronized (this) {
+        if (!started.get()) {
+          List<ReachabilityListener> listeners = pendingWatches.get(ip);
+          if (listeners != null) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+              pendingWatches.remove(ip);
+            }
+          }
+          return;
+        }
+      }
+    }
+
+    executorService.execute(() -> {
+      IpTask task = mapEndPointToTasks.get(ip);
+      if (task != null) {
+        task.listeners.remove(listener);
+        task.active();
+      }
+    });
+  }
+
   public boolean blockingCheck(String ip) {
     if (resultForUnitTests.get() != null) {
       return resultForUnitTests.get().apply(ip);
@@ -143,6 +208,7 @@ public enum NetworkIoHealthChecker {
 
   private class IpTask implements Runnable {
     private final String ip;
+    private final List<ReachabilityListener> listeners = new CopyOnWriteArrayList<>();
     private AtomicBoolean reachable = new AtomicBoolean(true);
     private volatile long lastReachableTime;
     private volatile long lastActiveTime;
@@ -154,8 +220,21 @@ public enum NetworkIoHealthChecker {
     }
 
     void markReachable() {
-      reachable.set(true);
       lastReachableTime = System.currentTimeMillis();
+      if (!reachable.getAndSet(true)) {
+        logger.warn("host [{}] reachable changed from false to true", ip);
+        notifyListeners(true);
+      }
+    }
+
+    private void notifyListeners(boolean result) {
+      for (ReachabilityListener listener : listeners) {
+        try {
+          listener.reachabilityChanged(ip, result);
+        } catch (Throwable t) {
+          logger.warn("caught an exception when notifying {} of host [{}]", listener, ip, t);
+        }
+      }
     }
 
     void active() {
@@ -164,13 +243,12 @@ public enum NetworkIoHealthChecker {
 
     private CompletableFuture<Boolean> detect() {
       return udpDetector.detect(ip).thenApply(result -> {
-        if (reachable.get() != result) {
-          logger.warn("host [{}] reachable changed from {} to {}", ip,
-              reachable.get(), result);
+        boolean changed = reachable.getAndSet(result) != result;
+        if (changed) {
+          logger.warn("host [{}] reachable changed from {} to {}", ip, !result, result);
+          notifyListeners(result);
         }
 
-        reachable.set(result);
-
         int delay;
         if (result) {
           lastReachableTime = System.currentTimeMillis();
@@ -193,7 +271,7 @@ public enum NetworkIoHealthChecker {
         return;
       }
 
-      if (System.currentTimeMillis() - lastActiveTime > TIMEOUT_MS) {
+      if (listeners.isEmpty() && System.currentTimeMillis() - lastActiveTime > TIMEOUT_MS) {
         logger.warn("exit an idle checking task {}", ip);
         mapEndPointToTasks.remove(ip);
         return;
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.connection.pool.udp.detection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of the round trip times to one peer, in buckets of powers of two microseconds.
+ */
+public class RttHistogram {
+  static final int BUCKET_COUNT = 32;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+  static int bucketOf(long micros) {
+    if (micros <= 0) {
+      return 0;
+    }
+    return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+  }
+
+  /**
+   * The upper bound of the bucket in microseconds.
+   */
+  static long upperBoundOf(int bucket) {
+    return bucket == 0 ? 0 : (1L << bucket) - 1;
+  }
+
+  public void record(long rttNanos) {
+    buckets.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(rttNanos)));
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      count += buckets.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * The upper bound in microseconds of the bucket holding the given percentile, -1 if there is no
+   * sample.
+   *
+   * @param percentile in the range of (0, 100]
+   */
+  public long getPercentileMicros(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+      count += counts[i];
+    }
+    if (count == 0) {
+      return -1;
+    }
+
+    long rank = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return upperBoundOf(i);
+      }
+    }
+    return upperBoundOf(BUCKET_COUNT - 1);
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RttHistogram{" + "count=" + getCount() + ", p50=" + getPercentileMicros(50)
+        + "us, p99=" + getPercentileMicros(99) + "us}";
+  }
+}
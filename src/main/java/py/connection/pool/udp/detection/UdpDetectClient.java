@@ -15,69 +15,154 @@
 package py.connection.pool.udp.detection;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.SocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
-import java.util.function.Consumer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang.Validate;
-import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import py.common.struct.EndPoint;
 
+/**
+ * The socket of the udp detection.
+ *
+ * <p>Requests are sent in bursts by one thread through a reused direct buffer, and replies are
+ * drained in bulk by another thread whenever the socket becomes readable.
+ */
 public class UdpDetectClient {
   private static final Logger logger = LoggerFactory.getLogger(UdpDetectClient.class);
 
   private static final int UDP_DETECT_MAGIC = 0xABC312;
   private static final int RECEIVE_BUFFER_SIZE = 512;
+  private static final int HEAD_LENGTH = Integer.BYTES + Long.BYTES + Integer.BYTES;
+  private static final long PEER_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(30);
 
-  private final DatagramSocket client;
-  private final byte[] receiveBuffer;
+  private final DatagramChannel client;
+  private final ByteBuffer receiveBuffer;
+  private final ByteBuffer sendBuffer;
+  // only accessed by the sending thread
+  private final Map<EndPoint, Peer> peers;
 
   public UdpDetectClient() throws SocketException {
-    this.client = new DatagramSocket();
-    this.receiveBuffer = new byte[RECEIVE_BUFFER_SIZE];
+    try {
+      this.client = DatagramChannel.open();
+      this.client.configureBlocking(false);
+      this.client.bind(null);
+    } catch (IOException e) {
+      SocketException socketException = new SocketException("can not open the udp socket");
+      socketException.initCause(e);
+      throw socketException;
+    }
+    this.receiveBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+    this.sendBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+    this.peers = new HashMap<>();
   }
 
-  void receive(Consumer<EndPoint> consumer) throws IOException {
-    DatagramPacket packet = new DatagramPacket(receiveBuffer, receiveBuffer.length);
-
-    while (true) {
-      client.receive(packet);
-
-      try {
-        logger.debug("receive data {}", packet.getData());
-        Request request = Request.deserializeRequest(packet.getData());
-
-        logger.debug("receive request {}", request);
-
-        consumer.accept(request.endPoint);
-
-      } catch (DeserializeFailedException e) {
-        logger.warn("failed to deserialize request", e);
+  /**
+   * Receive the replies forever, the replies available each time the socket becomes readable are
+   * handled in a batch.
+   */
+  void receive(ReplyHandler handler) throws IOException {
+    try (Selector selector = Selector.open()) {
+      client.register(selector, SelectionKey.OP_READ);
+      while (true) {
+        selector.select();
+        selector.selectedKeys().clear();
+
+        receiveBuffer.clear();
+        while (client.receive(receiveBuffer) != null) {
+          receiveBuffer.flip();
+          try {
+            Request request = Request.deserializeRequest(receiveBuffer);
+            logger.debug("receive request {}", request);
+            handler.reply(request.endPoint, request.requestId);
+          } catch (DeserializeFailedException e) {
+            logger.warn("failed to deserialize request", e);
+          }
+          receiveBuffer.clear();
+        }
       }
-
     }
   }
 
   void send(EndPoint endPoint, long requestId) throws IOException {
-    Request request = new Request(requestId, endPoint);
+    Peer peer = getPeer(endPoint);
+    if (peer.address.isUnresolved()) {
+      logger.warn("can not resolve {}, request {} is dropped", endPoint, requestId);
+      return;
+    }
+    Validate.isTrue(HEAD_LENGTH + peer.data.length < RECEIVE_BUFFER_SIZE);
+
+    sendBuffer.clear();
+    sendBuffer.putInt(UDP_DETECT_MAGIC);
+    sendBuffer.putLong(requestId);
+    sendBuffer.putInt(peer.data.length);
+    sendBuffer.put(peer.data);
+    sendBuffer.flip();
+
+    logger.debug("sending request {} to {}", requestId, endPoint);
+    if (client.send(sendBuffer, peer.address) == 0) {
+      logger.info("the send buffer is full, request {} to {} is dropped", requestId, endPoint);
+    }
+  }
 
-    logger.debug("sending request {}", request);
+  /**
+   * Send a request to each of the end points in one burst, a failure of one end point does not
+   * stop the others from being sent.
+   */
+  void send(List<EndPoint> endPoints, long requestId) {
+    for (EndPoint endPoint : endPoints) {
+      try {
+        send(endPoint, requestId);
+      } catch (IOException | RuntimeException e) {
+        logger.error("fail to send to {}", endPoint, e);
+      }
+    }
+  }
 
-    byte[] sendData = request.serializeRequest();
+  /**
+   * Get the cached peer of the end point. The host name is resolved again if it could not be
+   * resolved last time, or it was resolved too long ago so that its address may have changed.
+   */
+  private Peer getPeer(EndPoint endPoint) {
+    long now = System.nanoTime();
+    Peer peer = peers.get(endPoint);
+    if (peer != null && !peer.address.isUnresolved()
+        && now - peer.resolvedTime < PEER_REFRESH_NANOS) {
+      return peer;
+    }
 
-    Validate.isTrue(sendData.length < receiveBuffer.length);
+    Peer resolved = new Peer(endPoint, now);
+    if (peer != null && !peer.address.isUnresolved()
+        && !peer.address.equals(resolved.address)) {
+      logger.warn("address of {} is changed from {} to {}", endPoint, peer.address,
+          resolved.address);
+    }
+    peers.put(endPoint, resolved);
+    return resolved;
+  }
 
-    SocketAddress address = new InetSocketAddress(endPoint.getHostName(), endPoint.getPort());
-    DatagramPacket sendPacket = new DatagramPacket(sendData, sendData.length, address);
+  interface ReplyHandler {
+    void reply(EndPoint endPoint, long requestId);
+  }
 
-    client.send(sendPacket);
+  private static class Peer {
+    private final InetSocketAddress address;
+    private final byte[] data;
+    private final long resolvedTime;
 
-    logger.debug("send data {}", sendPacket.getData());
+    private Peer(EndPoint endPoint, long resolvedTime) {
+      this.address = new InetSocketAddress(endPoint.getHostName(), endPoint.getPort());
+      this.data = endPoint.toString().getBytes();
+      this.resolvedTime = resolvedTime;
+    }
   }
 
   private static class Request {
@@ -89,10 +174,8 @@ public class UdpDetectClient {
       this.endPoint = endPoint;
     }
 
-    static Request deserializeRequest(byte[] data) throws DeserializeFailedException {
+    static Request deserializeRequest(ByteBuffer buffer) throws DeserializeFailedException {
       try {
-        ByteBuffer buffer = ByteBuffer.wrap(data);
-
         int magic = buffer.getInt();
         if (magic != UDP_DETECT_MAGIC) {
           logger.error("wrong magic {}, expected {}", magic, UDP_DETECT_MAGIC);
@@ -115,22 +198,6 @@ public class UdpDetectClient {
       }
     }
 
-    private static byte[] head(long requestId, int dataLength) {
-      ByteBuffer head = ByteBuffer.allocate(Integer.BYTES + Integer.BYTES + Long.BYTES);
-      head.putInt(UDP_DETECT_MAGIC);
-      head.putLong(requestId);
-      head.putInt(dataLength);
-      return head.array();
-    }
-
-    byte[] serializeRequest() {
-      byte[] ep = endPoint.toString().getBytes();
-      byte[] head = head(requestId, ep.length);
-
-      return ArrayUtils.addAll(head, ep);
-
-    }
-
     @Override
     public String toString() {
       return "Request{" + "requestId=" + requestId + ", endPoint=" + endPoint + '}';
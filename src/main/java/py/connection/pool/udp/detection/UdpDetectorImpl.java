@@ -14,29 +14,38 @@
 
 package py.connection.pool.udp.detection;
 
-import io.netty.util.HashedWheelTimer;
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import py.common.NamedThreadFactory;
 import py.common.struct.EndPoint;
 
+/**
+ * The udp detector sends all the probes due at the same time in one burst from a single probe
+ * thread, which also handles the timeouts of the probes in flight, and a receive thread drains the
+ * replies in bulk. The request id of a probe is the time it is sent in nanoseconds, so the round
+ * trip time of each reply is recorded into the {@link RttHistogram} of the peer without any
+ * bookkeeping.
+ */
 public enum UdpDetectorImpl implements UdpDetector {
   INSTANCE;
 
   private static final Logger logger = LoggerFactory.getLogger(UdpDetectorImpl.class);
-  private final AtomicLong requestIdGenerator = new AtomicLong(0);
+  private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
   private final AtomicBoolean started = new AtomicBoolean(false);
-  private HashedWheelTimer timer;
+  private final BlockingQueue<EndPointTask> dueTasks = new LinkedBlockingQueue<>();
   private Map<EndPoint, EndPointTask> pendingTasks;
+  private Map<EndPoint, RttHistogram> rttHistograms;
   private int defaultPort;
   private UdpDetectClient client;
   private DetectionTimeoutPolicyFactory timeoutPolicyFactory;
@@ -47,6 +56,7 @@ public enum UdpDetectorImpl implements UdpDetector {
       this.defaultPort = defaultPort;
       this.timeoutPolicyFactory = timeoutPolicyFactory;
       this.pendingTasks = new ConcurrentHashMap<>();
+      this.rttHistograms = new ConcurrentHashMap<>();
 
       try {
         this.client = new UdpDetectClient();
@@ -55,9 +65,9 @@ public enum UdpDetectorImpl implements UdpDetector {
         throw e;
       }
 
-      this.timer = new HashedWheelTimer(new NamedThreadFactory("udp-timeout-handler", true), 5,
-          TimeUnit.MILLISECONDS);
-      this.timer.start();
+      Thread probeThread = new Thread(this::probing, "udp-probe");
+      probeThread.setDaemon(true);
+      probeThread.start();
 
       Thread receiveThread = new Thread(this::receiving, "udp-receive");
       receiveThread.setDaemon(true);
@@ -84,10 +94,26 @@ public enum UdpDetectorImpl implements UdpDetector {
     return task.future;
   }
 
+  public RttHistogram getRttHistogram(String ip) {
+    return getRttHistogram(new EndPoint(ip, defaultPort));
+  }
+
+  /**
+   * The round trip times to the end point, null if it has never replied.
+   */
+  public RttHistogram getRttHistogram(EndPoint endPoint) {
+    return rttHistograms == null ? null : rttHistograms.get(endPoint);
+  }
+
   private void receiving() {
     while (true) {
       try {
-        client.receive(endPoint -> {
+        client.receive((endPoint, requestId) -> {
+          long rttNanos = System.nanoTime() - requestId;
+          if (rttNanos >= 0) {
+            rttHistograms.computeIfAbsent(endPoint, ep -> new RttHistogram()).record(rttNanos);
+          }
+
           EndPointTask task = pendingTasks.get(endPoint);
           if (task != null) {
             task.complete(true);
@@ -100,8 +126,60 @@ public enum UdpDetectorImpl implements UdpDetector {
     }
   }
 
-  private void send(EndPoint ep) throws IOException {
-    client.send(ep, requestIdGenerator.getAndIncrement());
+  private void probing() {
+    List<EndPointTask> inFlight = new ArrayList<>();
+    List<EndPointTask> due = new ArrayList<>();
+    List<EndPoint> burst = new ArrayList<>();
+    long waitNanos = IDLE_WAIT_NANOS;
+    while (true) {
+      try {
+        // park until a new probe is due or the earliest probe in flight times out
+        EndPointTask first = dueTasks.poll(waitNanos, TimeUnit.NANOSECONDS);
+        if (first != null) {
+          due.add(first);
+          dueTasks.drainTo(due);
+        }
+
+        long now = System.nanoTime();
+        long nextDeadline = now + IDLE_WAIT_NANOS;
+        int remaining = 0;
+        for (EndPointTask task : inFlight) {
+          if (task.future.isDone()) {
+            continue;
+          }
+
+          if (task.deadline - now <= 0) {
+            due.add(task);
+          } else {
+            inFlight.set(remaining++, task);
+            nextDeadline = task.deadline - nextDeadline < 0 ? task.deadline : nextDeadline;
+          }
+        }
+        inFlight.subList(remaining, inFlight.size()).clear();
+
+        for (EndPointTask task : due) {
+          if (task.prepare(now)) {
+            burst.add(task.ep);
+            inFlight.add(task);
+            nextDeadline = task.deadline - nextDeadline < 0 ? task.deadline : nextDeadline;
+          }
+        }
+
+        if (!burst.isEmpty()) {
+          client.send(burst, now);
+        }
+        waitNanos = Math.max(0, nextDeadline - System.nanoTime());
+      } catch (InterruptedException e) {
+        logger.warn("udp probe thread is interrupted, exit");
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable t) {
+        logger.error("caught an exception when probing", t);
+      } finally {
+        due.clear();
+        burst.clear();
+      }
+    }
   }
 
   class EndPointTask {
@@ -109,6 +187,8 @@ public enum UdpDetectorImpl implements UdpDetector {
     private final CompletableFuture<Boolean> future;
     private final DetectionTimeoutPolicy timeoutPolicy;
     private final AtomicBoolean started;
+    // only accessed by the probe thread
+    private long deadline;
 
     EndPointTask(EndPoint endPoint,
         DetectionTimeoutPolicy timeoutPolicy) {
@@ -120,29 +200,28 @@ public enum UdpDetectorImpl implements UdpDetector {
 
     public void start() {
       if (started.compareAndSet(false, true)) {
-        detect();
+        dueTasks.add(this);
       }
     }
 
-    public void detect() {
+    /**
+     * Prepare to send a probe at the given time.
+     *
+     * @return false if no more probe should be sent
+     */
+    private boolean prepare(long now) {
       if (future.isDone()) {
-        return;
+        return false;
       }
 
       long timeoutMs = timeoutPolicy.getTimeoutMs();
       if (timeoutMs < 0) {
         complete(false);
-        return;
-      }
-
-      try {
-        send(ep);
-      } catch (IOException e) {
-       
-        logger.error("fail to send", e);
+        return false;
       }
 
-      timer.newTimeout(t -> detect(), timeoutMs, TimeUnit.MILLISECONDS);
+      deadline = now + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+      return true;
     }
 
     private void complete(boolean success) {
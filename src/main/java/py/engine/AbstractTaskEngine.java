@@ -75,26 +75,34 @@ public abstract class AbstractTaskEngine implements TaskEngine {
           return;
         }
 
-        if (task.isCancel()) {
-          logger.warn("task: {} has been cancelled", task);
-          continue;
-        }
+        process(task);
+      }
+    }
+  }
 
-        if (tokenController != null) {
-          int token = tokenController.tryAcquireToken(task.getToken());
-          if (token == 0) {
-            logger.warn("fail to control {} engine, just going on, expect token: {}", prefix,
-                task.getToken());
-          }
-          task.setToken(token);
-        }
+  /**
+   * Runs a task unless it has been cancelled, acquiring its tokens from the token controller
+   * first if there is one.
+   */
+  protected void process(Task task) {
+    if (task.isCancel()) {
+      logger.warn("task: {} has been cancelled", task);
+      return;
+    }
 
-        try {
-          task.doWork();
-        } catch (Throwable t) {
-          logger.warn("caught an exception", t);
-        }
+    if (tokenController != null) {
+      int token = tokenController.tryAcquireToken(task.getToken());
+      if (token == 0) {
+        logger.warn("fail to control {} engine, just going on, expect token: {}", prefix,
+            task.getToken());
       }
+      task.setToken(token);
+    }
+
+    try {
+      task.doWork();
+    } catch (Throwable t) {
+      logger.warn("caught an exception", t);
     }
   }
 
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A task engine that runs tasks on several workers, each with its own queues.
+ *
+ * <p>Tasks driven from outside are spread round robin over the workers, tasks driven from a
+ * worker stay on that worker. A worker that runs out of tasks steals from the tail of the other
+ * workers' queues. {@link AffinityTask}s go to the worker selected by their affinity key and are
+ * never stolen, so the tasks of one key run one at a time in the order they were driven.
+ *
+ * <p>Stopping puts a {@link StopTask} behind the affinity tasks of every worker; a worker reaching
+ * it runs what is left in its own queue and exits. Cancelled tasks are skipped and the token
+ * controller is consulted before each task, as in {@link AbstractTaskEngine}.
+ */
+public class WorkStealingTaskEngine extends AbstractTaskEngine {
+  private static final Logger logger = LoggerFactory.getLogger(WorkStealingTaskEngine.class);
+  // upper bound of an idle worker's sleep, in case a wake up raced with it going idle
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final Worker[] workers;
+  private final AtomicInteger nextWorker = new AtomicInteger();
+  private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+
+  public WorkStealingTaskEngine(int workerCount) {
+    this(workerCount, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates an engine with {@code workerCount} workers whose queues hold up to {@code
+   * maxTaskCountPerWorker} stealable and as many affinity tasks each.
+   */
+  public WorkStealingTaskEngine(int workerCount, int maxTaskCountPerWorker) {
+    Validate.isTrue(workerCount > 0);
+    Validate.isTrue(maxTaskCountPerWorker > 0);
+    this.workers = new Worker[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new Worker(i, maxTaskCountPerWorker);
+    }
+    setPrefix("work-stealing");
+  }
+
+  @Override
+  public void start() {
+    for (Worker worker : workers) {
+      Thread thread = new Thread(worker, prefix + "-task-engine-" + worker.id);
+      thread.setDaemon(daemon);
+      worker.thread = thread;
+    }
+
+    for (Worker worker : workers) {
+      worker.thread.start();
+    }
+    logger.info("started {} workers of {} engine", workers.length, prefix);
+  }
+
+  @Override
+  public void stop() {
+    if (workers[0].thread == null) {
+      return;
+    }
+
+    try {
+      for (Worker worker : workers) {
+        worker.pinned.putLast(new StopTask());
+        LockSupport.unpark(worker.thread);
+      }
+      for (Worker worker : workers) {
+        worker.thread.join();
+      }
+    } catch (Throwable t) {
+      logger.warn("caught an exception when stopping the task engine", t);
+    }
+  }
+
+  @Override
+  public boolean drive(Task task) {
+    Worker worker = selectWorker(task);
+    try {
+      queueOf(worker, task).putLast(task);
+    } catch (InterruptedException e) {
+      logger.error("offer was blocked and now interrupted", e);
+      return false;
+    }
+
+    signal(worker);
+    return true;
+  }
+
+  @Override
+  public boolean drive(Task task, int timeout, TimeUnit timeUnit) {
+    Worker worker = selectWorker(task);
+    try {
+      if (!queueOf(worker, task).offerLast(task, timeout, timeUnit)) {
+        return false;
+      }
+    } catch (InterruptedException e) {
+      logger.error("offer was blocked and now interrupted", e);
+      return false;
+    }
+
+    signal(worker);
+    return true;
+  }
+
+  @Override
+  public int getPendingTask() {
+    int count = 0;
+    for (Worker worker : workers) {
+      count += worker.pinned.size() + worker.local.size();
+    }
+    return count;
+  }
+
+  public int getWorkerCount() {
+    return workers.length;
+  }
+
+  public long getStolenTaskCount() {
+    long count = 0;
+    for (Worker worker : workers) {
+      count += worker.stolenCount;
+    }
+    return count;
+  }
+
+  private Worker selectWorker(Task task) {
+    if (task instanceof AffinityTask) {
+      long key = ((AffinityTask) task).getAffinityKey();
+      return workers[(int) Math.floorMod(key, (long) workers.length)];
+    }
+
+    Worker worker = currentWorker.get();
+    if (worker != null) {
+      return worker;
+    }
+    return workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+  }
+
+  private BlockingDeque<Task> queueOf(Worker worker, Task task) {
+    return task instanceof AffinityTask ? worker.pinned : worker.local;
+  }
+
+  /**
+   * Wakes the worker a task was queued to, or if it is busy and the task may be stolen, some idle
+   * worker.
+   */
+  private void signal(Worker worker) {
+    if (worker.idle) {
+      LockSupport.unpark(worker.thread);
+      return;
+    }
+
+    int start = ThreadLocalRandom.current().nextInt(workers.length);
+    for (int i = 0; i < workers.length; i++) {
+      Worker other = workers[(start + i) % workers.length];
+      if (other.idle) {
+        LockSupport.unpark(other.thread);
+        return;
+      }
+    }
+  }
+
+  private class Worker implements Runnable {
+    private final int id;
+    private final BlockingDeque<Task> pinned;
+    private final BlockingDeque<Task> local;
+    private volatile Thread thread;
+    private volatile boolean idle;
+    private volatile long stolenCount;
+
+    Worker(int id, int capacity) {
+      this.id = id;
+      this.pinned = new LinkedBlockingDeque<>(capacity);
+      this.local = new LinkedBlockingDeque<>(capacity);
+    }
+
+    @Override
+    public void run() {
+      currentWorker.set(this);
+      try {
+        while (true) {
+          Task task = nextTask();
+          if (task == null) {
+            idle = true;
+            // a task driven before idle was published is seen here, a later one unparks us
+            if (pinned.isEmpty() && local.isEmpty() && !hasStealableTask()) {
+              LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            idle = false;
+            continue;
+          }
+
+          if (task instanceof StopTask) {
+            drainLocal();
+            logger.warn("exit {} worker {}", prefix, id);
+            return;
+          }
+
+          process(task);
+        }
+      } catch (Throwable t) {
+        logger.warn("caught an exception", t);
+      } finally {
+        currentWorker.remove();
+      }
+    }
+
+    private Task nextTask() {
+      Task task = pinned.pollFirst();
+      if (task == null) {
+        task = local.pollFirst();
+      }
+      if (task == null) {
+        task = steal();
+      }
+      return task;
+    }
+
+    private Task steal() {
+      int start = ThreadLocalRandom.current().nextInt(workers.length);
+      for (int i = 0; i < workers.length; i++) {
+        Worker victim = workers[(start + i) % workers.length];
+        if (victim == this) {
+          continue;
+        }
+        Task task = victim.local.pollLast();
+        if (task != null) {
+          stolenCount++;
+          return task;
+        }
+      }
+      return null;
+    }
+
+    private boolean hasStealableTask() {
+      for (Worker worker : workers) {
+        if (!worker.local.isEmpty()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void drainLocal() {
+      List<Task> tasks = new ArrayList<>();
+      local.drainTo(tasks);
+      for (Task task : tasks) {
+        process(task);
+      }
+    }
+  }
+}
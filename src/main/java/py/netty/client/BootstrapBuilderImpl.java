@@ -16,6 +16,7 @@ package py.netty.client;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
@@ -25,11 +26,12 @@ import java.net.InetSocketAddress;
 import java.util.concurrent.ExecutorService;
 import py.connection.pool.AbstractBootstrapBuilder;
 import py.connection.pool.udp.detection.NetworkIoHealthChecker;
+import py.netty.core.BatchFrameEncoder;
 import py.netty.core.ByteToMessageDecoder;
+import py.netty.core.FrameCompressionEncoder;
+import py.netty.core.IoTransportType;
 import py.netty.core.RequestTimeoutHandler;
 import py.netty.core.TransferenceOption;
-import py.netty.core.twothreads.AbstractChannel;
-import py.netty.core.twothreads.TtSocketChannel;
 
 public class BootstrapBuilderImpl extends AbstractBootstrapBuilder {
   private final ExecutorService executor;
@@ -42,11 +44,17 @@ public class BootstrapBuilderImpl extends AbstractBootstrapBuilder {
   public Bootstrap build() {
     int ioTimeout = (int) cfg.valueOf(TransferenceClientOption.IO_TIMEOUT_MS);
     int maxFrameSize = (int) cfg.valueOf(TransferenceOption.MAX_MESSAGE_LENGTH);
-    ChannelInitializer<AbstractChannel> initializer = new ChannelInitializer<AbstractChannel>() {
+    Integer maxBatchEntrySize = (Integer) cfg
+        .valueOf(TransferenceOption.BATCH_FRAME_MAX_ENTRY_SIZE);
+    Integer compressionThreshold = (Integer) cfg
+        .valueOf(TransferenceOption.FRAME_COMPRESSION_THRESHOLD);
+    IoTransportType ioTransportType = IoTransportType.of(ioEventGroup);
+    ChannelInitializer<Channel> initializer = new ChannelInitializer<Channel>() {
       @Override
-      protected void initChannel(AbstractChannel ch) throws Exception {
+      protected void initChannel(Channel ch) throws Exception {
         ChannelPipeline p = ch.pipeline();
-        MessageTimeManager messageTimeManager = new MessageTimeManager(hashedWheelTimer, ioTimeout);
+        MessageTimeManager messageTimeManager = new MessageTimeManager(ch.eventLoop(), ioTimeout);
+        MessageTimeManager.attach(ch, messageTimeManager);
 
         p.addLast(new ChannelInboundHandlerAdapter() {
           @Override
@@ -66,6 +74,13 @@ public class BootstrapBuilderImpl extends AbstractBootstrapBuilder {
         asyncResponseHandler.setExecutor(executor);
 
         p.addLast(asyncResponseHandler);
+        if (compressionThreshold != null && compressionThreshold > 0) {
+          p.addFirst(new FrameCompressionEncoder(compressionThreshold));
+        }
+        if (maxBatchEntrySize != null && maxBatchEntrySize > 0) {
+          p.addFirst(new BatchFrameEncoder(maxBatchEntrySize));
+        }
+        ioTransportType.initChannel(ch);
       }
     };
 
@@ -74,10 +89,11 @@ public class BootstrapBuilderImpl extends AbstractBootstrapBuilder {
     int maxRcvBuf = (int) cfg.valueOf(TransferenceOption.MAX_BYTES_ONCE_ALLOCATE);
 
     int connectionTimeout = (int) cfg.valueOf(TransferenceClientOption.IO_CONNECTION_TIMEOUT_MS);
-    bootstrap.group(ioEventGroup).channel(TtSocketChannel.class)
+    bootstrap.group(ioEventGroup).channel(ioTransportType.channelClass())
         .option(ChannelOption.TCP_NODELAY, true)
         .option(ChannelOption.SO_KEEPALIVE, true)
         .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectionTimeout).handler(initializer);
+    ioTransportType.configure(bootstrap);
     bootstrap.option(ChannelOption.ALLOCATOR, allocator);
     bootstrap.option(ChannelOption.RCVBUF_ALLOCATOR,
         new AdaptiveRecvByteBufAllocator(512, 8192, maxRcvBuf));
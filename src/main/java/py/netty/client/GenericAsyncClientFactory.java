@@ -17,14 +17,11 @@ package py.netty.client;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.netty.buffer.ByteBufAllocator;
-import io.netty.util.HashedWheelTimer;
-import io.netty.util.Timeout;
+import io.netty.channel.EventLoopGroup;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -40,10 +37,10 @@ import py.connection.pool.PyConnection;
 import py.connection.pool.PyConnectionPoolImpl;
 import py.netty.core.IoEventThreadsMode;
 import py.netty.core.IoEventUtils;
+import py.netty.core.IoTransportType;
 import py.netty.core.Protocol;
 import py.netty.core.ProtocolFactory;
 import py.netty.core.TransferenceConfiguration;
-import py.netty.core.twothreads.TtEventGroup;
 import py.netty.memory.PooledByteBufAllocatorWrapper;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
@@ -52,7 +49,6 @@ public class GenericAsyncClientFactory<T> {
   private final TransferenceConfiguration cfg;
   private Class<T> service;
   private ProtocolFactory protocolFactory;
-  private HashedWheelTimer hashedWheelTimer;
   private PyConnectionPoolImpl connectionPool;
   private int connectionPoolSize;
 
@@ -60,7 +56,7 @@ public class GenericAsyncClientFactory<T> {
   private ByteBufAllocator allocator = PooledByteBufAllocatorWrapper.INSTANCE;
   private BootstrapBuilder bootstrapBuilder;
 
-  private TtEventGroup ioEventGroup;
+  private EventLoopGroup ioEventGroup;
 
   private ExecutorService executorForProcessingResponses;
 
@@ -80,7 +76,7 @@ public class GenericAsyncClientFactory<T> {
         .calculateThreads((IoEventThreadsMode) cfg
                 .valueOf(TransferenceClientOption.CLIENT_IO_EVENT_GROUP_THREADS_MODE),
             (Float) cfg.valueOf(TransferenceClientOption.CLIENT_IO_EVENT_GROUP_THREADS_PARAMETER));
-    ioEventGroup = new TtEventGroup(ioEventGroupThreads,
+    ioEventGroup = IoTransportType.fromConfiguration(cfg).newEventLoopGroup(ioEventGroupThreads,
         new DefaultThreadFactory("netty-client-io", false, Thread.NORM_PRIORITY));
 
     int numberOfThreadsToProcessResponses = IoEventUtils
@@ -133,10 +129,6 @@ public class GenericAsyncClientFactory<T> {
   }
 
   public void init() {
-    this.hashedWheelTimer = new HashedWheelTimer(
-        new ThreadFactoryBuilder().setNameFormat("nett4-wheel-timer-%s").build(), 100,
-        TimeUnit.MILLISECONDS,
-        512);
     final int ioTimeout = (int) cfg.valueOf(TransferenceClientOption.IO_TIMEOUT_MS);
 
     protocolFactory.setByteBufAllocator(allocator);
@@ -147,7 +139,6 @@ public class GenericAsyncClientFactory<T> {
 
     bootstrapBuilder.setAllocator(allocator);
     bootstrapBuilder.setCfg(cfg);
-    bootstrapBuilder.setHashedWheelTimer(hashedWheelTimer);
     bootstrapBuilder.setProtocolFactory(protocolFactory);
     bootstrapBuilder.setIoEventGroup(ioEventGroup);
 
@@ -210,12 +201,6 @@ public class GenericAsyncClientFactory<T> {
   public void close() {
     connectionPool.close();
 
-    Set<Timeout> timeouts = hashedWheelTimer.stop();
-    logger.warn("stop the timer, but there is timeout: {}", timeouts.size());
-    for (Timeout timeout : timeouts) {
-      timeout.cancel();
-    }
-
     try {
       if (ioEventGroup != null) {
         ioEventGroup.shutdownGracefully(2, 5, TimeUnit.SECONDS);
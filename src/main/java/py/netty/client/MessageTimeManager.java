@@ -14,12 +14,14 @@
 
 package py.netty.client;
 
-import io.netty.util.HashedWheelTimer;
-import io.netty.util.Timeout;
-import java.util.HashSet;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang.Validate;
 import org.slf4j.Logger;
@@ -27,86 +29,188 @@ import org.slf4j.LoggerFactory;
 import py.netty.core.MethodCallback;
 import py.netty.exception.DisconnectionException;
 
+/**
+ * Timeouts of the requests pending on one channel.
+ *
+ * <p>The requests are put into coarse buckets by the tick they were sent in. As all the requests
+ * of a channel share the same io timeout, the buckets expire in order, and a scan scheduled on the
+ * event loop of the channel fails the requests of every expired bucket in a batch. A request which
+ * gets its response is removed from the table and its entry in the bucket drops the callback, the
+ * scan skips such an entry.
+ *
+ * <p>The two threads transport writes and reads a channel in different threads, so the table is
+ * guarded by the monitor of the manager, which is private to the channel and hardly contended.
+ */
 public class MessageTimeManager<T> {
+  public static final int DEFAULT_TICK_MS = 100;
   private static final Logger logger = LoggerFactory.getLogger(MessageTimeManager.class);
+  private static final AttributeKey<MessageTimeManager> MESSAGE_TIME_MANAGER = AttributeKey
+      .valueOf("MESSAGE_TIME_MANAGER");
 
-  private final HashedWheelTimer timer;
-  private final Map<Long, Timeout> messageTable;
+  private final EventExecutor executor;
+  private final Map<Long, MessageTimerTask<T>> messageTable;
+  private final ArrayDeque<Bucket<T>> buckets;
   private final int ioTimeout;
+  private final long tickNanos;
+  private final Runnable expireTask;
+  private boolean expireScheduled;
+  private volatile int pendingCount;
   private volatile boolean broken;
 
-  public MessageTimeManager(HashedWheelTimer timer, int ioTimeout) {
-    this.timer = timer;
-    this.messageTable = new ConcurrentHashMap<>();
+  public MessageTimeManager(EventExecutor executor, int ioTimeout) {
+    this(executor, ioTimeout, DEFAULT_TICK_MS);
+  }
+
+  public MessageTimeManager(EventExecutor executor, int ioTimeout, int tickMs) {
+    Validate.isTrue(tickMs > 0);
+    this.executor = executor;
+    this.messageTable = new HashMap<>();
+    this.buckets = new ArrayDeque<>();
     this.ioTimeout = ioTimeout;
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(tickMs, Math.max(1, ioTimeout)));
+    this.expireTask = this::expire;
     this.broken = false;
   }
 
+  /**
+   * Make the manager of the channel visible to {@link #getPendingMessageCount(Channel)}.
+   */
+  public static void attach(Channel channel, MessageTimeManager manager) {
+    channel.attr(MESSAGE_TIME_MANAGER).set(manager);
+  }
+
+  /**
+   * The count of the requests pending on the channel, 0 if it has no manager attached.
+   */
+  public static int getPendingMessageCount(Channel channel) {
+    MessageTimeManager manager = channel.attr(MESSAGE_TIME_MANAGER).get();
+    return manager == null ? 0 : manager.getPendingMessageCount();
+  }
+
   public int getPendingMessageCount() {
-    return messageTable.size();
+    return pendingCount;
   }
 
   public void addTimer(Long requestId, MethodCallback<T> callback) {
-    MessageTimerTask task = new MessageTimerTask(requestId, callback, this::removeTimer, ioTimeout);
-    if (messageTable.containsKey(requestId)) {
-      logger.warn("already has request:{}, do nothing", requestId);
-      return;
-    }
+    MessageTimerTask<T> task = new MessageTimerTask<>(requestId, callback, ioTimeout);
+    long tick = System.nanoTime() / tickNanos;
+    synchronized (this) {
+      if (messageTable.putIfAbsent(requestId, task) != null) {
+        logger.warn("already has request:{}, do nothing", requestId);
+        return;
+      }
+
+      logger.debug("add timer requestId:{}", requestId);
+      Bucket<T> bucket = buckets.peekLast();
+      if (bucket == null || bucket.tick != tick) {
+        bucket = new Bucket<>(tick);
+        buckets.addLast(bucket);
+      }
+      bucket.tasks.add(task);
+      pendingCount = messageTable.size();
 
-    logger.debug("add timer requestId:{}", requestId);
-    Timeout timeout = timer.newTimeout(task, ioTimeout, TimeUnit.MILLISECONDS);
-    if (messageTable.putIfAbsent(requestId, timeout) != null) {
-      timeout.cancel();
+      if (!expireScheduled) {
+        expireScheduled = true;
+        scheduleExpire();
+      }
     }
   }
 
-  public MethodCallback<T> removeTimer(long requestId) {
-    Timeout timeout = messageTable.remove(requestId);
-    if (timeout == null) {
+  public synchronized MethodCallback<T> removeTimer(long requestId) {
+    MessageTimerTask<T> task = messageTable.remove(requestId);
+    if (task == null) {
       return null;
     }
+    pendingCount = messageTable.size();
 
     logger.debug("remove timer requestId:{}", requestId);
-    timeout.cancel();
-    return ((MessageTimerTask) timeout.task()).getCallback();
+    return task.takeCallback();
   }
 
   public void fireChannelClose() {
     broken = true;
-    Set<Long> keys = new HashSet<>();
-    try {
-      for (Map.Entry<Long, Timeout> entry : messageTable.entrySet()) {
-        keys.add(entry.getKey());
-      }
-    } catch (Exception e) {
-      logger
-          .warn("caught an exception when firing the channel close. messageTable:{}", messageTable,
-              e);
+    List<MessageTimerTask<T>> tasks;
+    synchronized (this) {
+      tasks = new ArrayList<>(messageTable.values());
+      messageTable.clear();
+      buckets.clear();
+      pendingCount = 0;
     }
 
-    for (Long requestId : keys) {
+    for (MessageTimerTask<T> task : tasks) {
       try {
-        MethodCallback<T> callback = removeTimer(requestId);
-        if (callback != null) {
-          logger.warn(
-              "handle pending request on the time manager. notify the request id={} that the "
-                  + "channel has broken",
-              requestId);
-          callback.fail(new DisconnectionException("request: " + requestId));
-        } else {
-          logger
-              .warn("handle pending request on the time manager. request id={} already been notify",
-                  requestId);
-        }
+        logger.warn(
+            "handle pending request on the time manager. notify the request id={} that the "
+                + "channel has broken",
+            task.requestId);
+        task.getCallback().fail(new DisconnectionException("request: " + task.requestId));
       } catch (Throwable e) {
-        logger.error("request id={} caught an exception when calling notifyAllListeners", requestId,
-            e);
+        logger.error("request id={} caught an exception when calling notifyAllListeners",
+            task.requestId, e);
       }
     }
-    Validate.isTrue(messageTable.size() == 0);
+    Validate.isTrue(getPendingMessageCount() == 0);
   }
 
   public boolean isBroken() {
     return broken;
   }
+
+  private void scheduleExpire() {
+    try {
+      executor.schedule(expireTask, tickNanos, TimeUnit.NANOSECONDS);
+    } catch (Exception e) {
+      logger.warn("can not schedule the expiration, the event loop may be shutting down", e);
+      expireScheduled = false;
+    }
+  }
+
+  private void expire() {
+    // a request sent in tick n times out no earlier than the end of tick n plus the io timeout
+    long expiredTick = (System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ioTimeout)) / tickNanos
+        - 1;
+    List<MessageTimerTask<T>> expiredTasks = null;
+    synchronized (this) {
+      Bucket<T> bucket;
+      while ((bucket = buckets.peekFirst()) != null && bucket.tick <= expiredTick) {
+        buckets.pollFirst();
+        for (MessageTimerTask<T> task : bucket.tasks) {
+          if (task.getCallback() == null) {
+            continue;
+          }
+          messageTable.remove(task.requestId);
+          if (expiredTasks == null) {
+            expiredTasks = new ArrayList<>();
+          }
+          expiredTasks.add(task);
+        }
+      }
+
+      pendingCount = messageTable.size();
+      if (buckets.isEmpty()) {
+        expireScheduled = false;
+      } else {
+        scheduleExpire();
+      }
+    }
+
+    if (expiredTasks != null) {
+      for (MessageTimerTask<T> task : expiredTasks) {
+        try {
+          task.timeout();
+        } catch (Throwable t) {
+          logger.error("request id={} caught an exception when timing out", task.requestId, t);
+        }
+      }
+    }
+  }
+
+  private static class Bucket<T> {
+    private final long tick;
+    private final List<MessageTimerTask<T>> tasks = new ArrayList<>();
+
+    private Bucket(long tick) {
+      this.tick = tick;
+    }
+  }
 }
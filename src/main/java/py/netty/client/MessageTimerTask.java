@@ -14,25 +14,21 @@
 
 package py.netty.client;
 
-import io.netty.util.Timeout;
-import io.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import py.netty.core.MethodCallback;
 import py.netty.exception.TimeoutException;
 
-public class MessageTimerTask<T> implements TimerTask {
+public class MessageTimerTask<T> {
   private static final Logger logger = LoggerFactory.getLogger(MessageTimerTask.class);
   public final long requestId;
   private final int ioTimeout;
-  private final MethodCallback<T> callback;
-  private TimerTaskRemover timerTaskRemover;
+  // guarded by the monitor of the manager, cleared once the request is removed from it
+  private MethodCallback<T> callback;
 
-  public MessageTimerTask(Long requestId, MethodCallback<T> callback,
-      TimerTaskRemover timerTaskRemover, int ioTimeout) {
+  public MessageTimerTask(Long requestId, MethodCallback<T> callback, int ioTimeout) {
     this.requestId = requestId;
     this.callback = callback;
-    this.timerTaskRemover = timerTaskRemover;
     this.ioTimeout = ioTimeout;
   }
 
@@ -40,14 +36,22 @@ public class MessageTimerTask<T> implements TimerTask {
     return callback;
   }
 
-  @Override
-  public void run(Timeout timeout) throws Exception {
-    MethodCallback<T> callback = timerTaskRemover.removeTimer(requestId);
-    if (callback != null) {
-      logger.warn("callback is not null. requestId:{}", requestId);
-      callback.fail(new TimeoutException("cost time:" + ioTimeout + ", requestId:" + requestId));
-    } else {
-      logger.warn("callback is null. requestId:{}", requestId);
-    }
+  /**
+   * Get the callback and drop the reference to it, so that the entry left in the bucket of a
+   * removed request holds nothing of the request.
+   */
+  MethodCallback<T> takeCallback() {
+    MethodCallback<T> callback = this.callback;
+    this.callback = null;
+    return callback;
+  }
+
+  /**
+   * Fail the request which has already been removed from its {@link MessageTimeManager}.
+   */
+  void timeout() {
+    logger.warn("request timed out. requestId:{}", requestId);
+    takeCallback()
+        .fail(new TimeoutException("cost time:" + ioTimeout + ", requestId:" + requestId));
   }
 }
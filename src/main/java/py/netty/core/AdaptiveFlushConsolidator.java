@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.netty.core;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelId;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py.netty.core.nio.SingleThreadEventLoop;
+
+/**
+ * Flush callback of an event loop which coalesces the flushes of each channel by its own traffic.
+ *
+ * <p>A channel is flushed as soon as its pending bytes or pending writes reach the thresholds. At
+ * the end of each event loop iteration, a channel is flushed if its writes are small on average,
+ * which are latency sensitive rpc, if it has got no write during the iteration, or if its oldest
+ * pending write has waited for the idle deadline. Other channels, which carry bulk data, keep
+ * coalescing, and a check is scheduled for the deadline in case the event loop goes idle.
+ *
+ * <p>All the methods are called in the event loop.
+ */
+public class AdaptiveFlushConsolidator implements PyTimeToFlush {
+  public static final int DEFAULT_MAX_PENDING_BYTES = 64 * 1024;
+  public static final int DEFAULT_MAX_PENDING_WRITES = 64;
+  public static final long DEFAULT_IDLE_MICROS = 50;
+  public static final int DEFAULT_BULK_WRITE_SIZE = 8 * 1024;
+  private static final Logger logger = LoggerFactory.getLogger(AdaptiveFlushConsolidator.class);
+  // weight of a new write in the average write size
+  private static final double WRITE_SIZE_SMOOTHING = 0.125;
+
+  private final SingleThreadEventLoop eventLoop;
+  private final int maxPendingBytes;
+  private final int maxPendingWrites;
+  private final long idleNanos;
+  private final int bulkWriteSize;
+  private final Map<ChannelId, ChannelState> channelStates;
+  private final Runnable deadlineCheckTask;
+  private boolean deadlineCheckScheduled;
+
+  private long flushCount;
+  private long flushedWriteCount;
+  private long flushedByteCount;
+
+  public AdaptiveFlushConsolidator(SingleThreadEventLoop eventLoop) {
+    this(eventLoop, DEFAULT_MAX_PENDING_BYTES, DEFAULT_MAX_PENDING_WRITES, DEFAULT_IDLE_MICROS,
+        DEFAULT_BULK_WRITE_SIZE);
+  }
+
+  public AdaptiveFlushConsolidator(SingleThreadEventLoop eventLoop, int maxPendingBytes,
+      int maxPendingWrites, long idleMicros, int bulkWriteSize) {
+    this.eventLoop = eventLoop;
+    this.maxPendingBytes = maxPendingBytes;
+    this.maxPendingWrites = maxPendingWrites;
+    this.idleNanos = TimeUnit.MICROSECONDS.toNanos(idleMicros);
+    this.bulkWriteSize = bulkWriteSize;
+    this.channelStates = new HashMap<>();
+    this.deadlineCheckTask = () -> {
+      deadlineCheckScheduled = false;
+      call();
+    };
+  }
+
+  @Override
+  public void written(ChannelHandlerContext ctx, int bytes) {
+    ChannelState state = channelStates.get(ctx.channel().id());
+    if (state == null) {
+      state = new ChannelState(ctx);
+      channelStates.put(ctx.channel().id(), state);
+    }
+
+    if (state.pendingWrites == 0) {
+      state.firstPendingNanos = System.nanoTime();
+    }
+    state.pendingWrites++;
+    state.pendingBytes += bytes;
+    state.writesInIteration++;
+    state.averageWriteSize += (bytes - state.averageWriteSize) * WRITE_SIZE_SMOOTHING;
+
+    if (state.pendingBytes >= maxPendingBytes || state.pendingWrites >= maxPendingWrites) {
+      flush(state);
+    }
+  }
+
+  @Override
+  public void incRequestCount() {
+  }
+
+  @Override
+  public void call() {
+    if (channelStates.isEmpty()) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    long nextDeadline = Long.MAX_VALUE;
+    Iterator<ChannelState> iterator = channelStates.values().iterator();
+    while (iterator.hasNext()) {
+      ChannelState state = iterator.next();
+      if (!state.ctx.channel().isActive()) {
+        iterator.remove();
+        continue;
+      }
+
+      if (state.pendingWrites > 0) {
+        long deadline = state.firstPendingNanos + idleNanos;
+        if (state.averageWriteSize < bulkWriteSize || state.writesInIteration == 0
+            || deadline - now <= 0) {
+          flush(state);
+        } else if (deadline - now < nextDeadline) {
+          nextDeadline = deadline - now;
+        }
+      }
+      state.writesInIteration = 0;
+    }
+
+    if (nextDeadline != Long.MAX_VALUE && !deadlineCheckScheduled) {
+      deadlineCheckScheduled = true;
+      eventLoop.schedule(deadlineCheckTask, nextDeadline, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void flush(ChannelState state) {
+    flushCount++;
+    flushedWriteCount += state.pendingWrites;
+    flushedByteCount += state.pendingBytes;
+    logger.trace("flush {} writes, {} bytes of {}", state.pendingWrites, state.pendingBytes,
+        state.ctx.channel());
+    state.pendingWrites = 0;
+    state.pendingBytes = 0;
+    state.ctx.flush();
+  }
+
+  public long getFlushCount() {
+    return flushCount;
+  }
+
+  public long getFlushedWriteCount() {
+    return flushedWriteCount;
+  }
+
+  public long getFlushedByteCount() {
+    return flushedByteCount;
+  }
+
+  public double getWritesPerFlush() {
+    return flushCount == 0 ? 0 : (double) flushedWriteCount / flushCount;
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptiveFlushConsolidator{" + "channels=" + channelStates.size() + ", flushCount="
+        + flushCount + ", writesPerFlush=" + getWritesPerFlush() + ", bytesPerFlush="
+        + (flushCount == 0 ? 0 : flushedByteCount / flushCount) + '}';
+  }
+
+  private static class ChannelState {
+    private final ChannelHandlerContext ctx;
+    private int pendingWrites;
+    private long pendingBytes;
+    private long firstPendingNanos;
+    private int writesInIteration;
+    private double averageWriteSize;
+
+    private ChannelState(ChannelHandlerContext ctx) {
+      this.ctx = ctx;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.netty.core;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Flushes a channel once after the writes queued in the same pass of its event loop, as the
+ * {@link py.netty.core.twothreads.TtEventLoop} does by itself. The callers only write to the
+ * channels and never flush them.
+ */
+public class AutoFlushHandler extends ChannelOutboundHandlerAdapter {
+  private boolean flushScheduled = false;
+  private Runnable flushTask;
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+    flushTask = () -> {
+      flushScheduled = false;
+      ctx.flush();
+    };
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    ctx.write(msg, promise);
+    if (!flushScheduled) {
+      flushScheduled = true;
+      ctx.executor().execute(flushTask);
+    }
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) throws Exception {
+    flushScheduled = false;
+    ctx.flush();
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.netty.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.AttributeKey;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py.netty.exception.DisconnectionException;
+import py.netty.message.Header;
+
+/**
+ * Packs the small frames written to a channel in the same pass of its event loop into one batch
+ * frame (see {@link Header#FLAG_BATCH}), which is unpacked by {@link ByteToMessageDecoder} on the
+ * other side. A batch costs one header and one decode pass instead of one for each frame.
+ *
+ * <p>Every frame sent through it carries {@link Header#FLAG_ACCEPT_BATCH}, and it only batches the
+ * frames to a connection after it has received that flag on the connection, so a peer which can't
+ * unpack batch frames never gets one.
+ *
+ * <p>It must be the outbound handler right above the transport, where every write is a complete
+ * frame.
+ */
+public class BatchFrameEncoder extends ChannelOutboundHandlerAdapter {
+  private static final Logger logger = LoggerFactory.getLogger(BatchFrameEncoder.class);
+
+  private static final int DEFAULT_MAX_BATCH_SIZE = 64 * 1024;
+  private static final int FLAGS_OFFSET = 3;
+
+  private static final AttributeKey<Boolean> PEER_ACCEPTS_BATCH = AttributeKey
+      .valueOf("PEER_ACCEPTS_BATCH");
+
+  private final int maxEntrySize;
+  private final int maxBatchSize;
+  private final List<ByteBuf> pendingFrames = new ArrayList<>();
+  private final List<ChannelPromise> pendingPromises = new ArrayList<>();
+  private int pendingSize = 0;
+  private boolean emitScheduled = false;
+  private Runnable emitTask;
+
+  public BatchFrameEncoder(int maxEntrySize) {
+    this(maxEntrySize, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  public BatchFrameEncoder(int maxEntrySize, int maxBatchSize) {
+    Validate.isTrue(maxEntrySize > 0 && maxEntrySize <= maxBatchSize,
+        "bad sizes, entry " + maxEntrySize + " batch " + maxBatchSize);
+    this.maxEntrySize = maxEntrySize;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public static void markPeerAcceptsBatch(Channel channel) {
+    channel.attr(PEER_ACCEPTS_BATCH).set(Boolean.TRUE);
+  }
+
+  public static boolean peerAcceptsBatch(Channel channel) {
+    return Boolean.TRUE.equals(channel.attr(PEER_ACCEPTS_BATCH).get());
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+    emitTask = () -> {
+      emitScheduled = false;
+      if (!pendingFrames.isEmpty()) {
+        emit(ctx);
+        ctx.flush();
+      }
+    };
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    if (!(msg instanceof ByteBuf) || ((ByteBuf) msg).readableBytes() < Header.headerLength()) {
+      // keep the order of the frames
+      emit(ctx);
+      ctx.write(msg, promise);
+      return;
+    }
+
+    ByteBuf frame = (ByteBuf) msg;
+    int flagsIndex = frame.readerIndex() + FLAGS_OFFSET;
+    frame.setByte(flagsIndex, frame.getByte(flagsIndex) | Header.FLAG_ACCEPT_BATCH);
+
+    if (frame.readableBytes() > maxEntrySize || !peerAcceptsBatch(ctx.channel())) {
+      emit(ctx);
+      ctx.write(frame, promise);
+      return;
+    }
+
+    if (pendingSize + frame.readableBytes() > maxBatchSize) {
+      emit(ctx);
+    }
+    pendingFrames.add(frame);
+    pendingPromises.add(promise);
+    pendingSize += frame.readableBytes();
+
+    if (!emitScheduled) {
+      emitScheduled = true;
+      ctx.executor().execute(emitTask);
+    }
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) throws Exception {
+    emit(ctx);
+    ctx.flush();
+  }
+
+  @Override
+  public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+    discard(ctx);
+    ctx.close(promise);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+    discard(ctx);
+  }
+
+  private void emit(ChannelHandlerContext ctx) {
+    if (pendingFrames.isEmpty()) {
+      return;
+    }
+
+    if (pendingFrames.size() == 1) {
+      ctx.write(pendingFrames.get(0), pendingPromises.get(0));
+      clearPending();
+      return;
+    }
+
+    Header header = new Header((byte) 0, pendingSize, 0, pendingFrames.size());
+    header.addFlag(Header.FLAG_BATCH);
+    ByteBuf headerBuffer = ctx.alloc().buffer(Header.headerLength());
+    header.toBuffer(headerBuffer);
+
+    CompositeByteBuf batch = ctx.alloc().compositeBuffer(pendingFrames.size() + 1);
+    batch.addComponent(true, headerBuffer);
+    for (ByteBuf frame : pendingFrames) {
+      batch.addComponent(true, frame);
+    }
+
+    List<ChannelPromise> promises = new ArrayList<>(pendingPromises);
+    logger.trace("emit a batch of {} frames, {} bytes", promises.size(), pendingSize);
+    clearPending();
+
+    ctx.write(batch).addListener(future -> {
+      for (ChannelPromise promise : promises) {
+        if (future.isSuccess()) {
+          promise.trySuccess();
+        } else {
+          promise.tryFailure(future.cause());
+        }
+      }
+    });
+  }
+
+  private void discard(ChannelHandlerContext ctx) {
+    for (int i = 0; i < pendingFrames.size(); i++) {
+      pendingFrames.get(i).release();
+      pendingPromises.get(i).tryFailure(
+          new DisconnectionException("channel=" + ctx.channel() + " closed before write"));
+    }
+    clearPending();
+  }
+
+  private void clearPending() {
+    pendingFrames.clear();
+    pendingPromises.clear();
+    pendingSize = 0;
+  }
+}
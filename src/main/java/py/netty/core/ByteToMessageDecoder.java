@@ -19,6 +19,8 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +40,10 @@ public class ByteToMessageDecoder extends ChannelInboundHandlerAdapter {
   private ByteBuf data;
   private Header header;
   private int requestCount;
+  private boolean peerAcceptsCompression = false;
+  private boolean peerAcceptsBatch = false;
+  private Inflater inflater;
+  private FrameCompression.Workspace workspace;
 
   public ByteToMessageDecoder() {
     this(DEFAULT_MAX_FRAME_SIZE, PooledByteBufAllocatorWrapper.INSTANCE);
@@ -64,6 +70,11 @@ public class ByteToMessageDecoder extends ChannelInboundHandlerAdapter {
       cumulation.release();
       cumulation = null;
     }
+    if (inflater != null) {
+      inflater.end();
+      inflater = null;
+      workspace = null;
+    }
     ctx.fireChannelInactive();
   }
 
@@ -147,7 +158,6 @@ public class ByteToMessageDecoder extends ChannelInboundHandlerAdapter {
      
       if (bodyLength == 0) {
         fireChanelRead(ctx, new MessageImpl(header, null));
-        requestCount++;
         continue;
       }
 
@@ -167,7 +177,6 @@ public class ByteToMessageDecoder extends ChannelInboundHandlerAdapter {
         fireChanelRead(ctx, message);
         data.skipBytes(bodyLength);
         processLength += bodyLength;
-        requestCount++;
       }
     }
 
@@ -212,7 +221,6 @@ public class ByteToMessageDecoder extends ChannelInboundHandlerAdapter {
 
         if (header.getLength() == 0) {
           fireChanelRead(ctx, new MessageImpl(header, null));
-          requestCount++;
         }
       }
     } else {
@@ -244,7 +252,6 @@ public class ByteToMessageDecoder extends ChannelInboundHandlerAdapter {
         }
 
         fireChanelRead(ctx, message);
-        requestCount++;
       }
     }
     return processLength;
@@ -261,9 +268,76 @@ public class ByteToMessageDecoder extends ChannelInboundHandlerAdapter {
       ctx.fireExceptionCaught(
           new TooBigFrameException(maxFrameSize, message.getHeader().getLength())
               .setHeader(message.getHeader()));
+    } else if (message.getHeader().isBatch()) {
+      logger.trace("complete batch header:{}", message.getHeader());
+      unpackBatch(ctx, message);
     } else {
       logger.trace("complete header:{}", message.getHeader());
+      deliver(ctx, message);
+    }
+  }
+
+  private void deliver(ChannelHandlerContext ctx, Message message) {
+    requestCount++;
+    Header messageHeader = message.getHeader();
+    if (!peerAcceptsCompression && messageHeader.hasFlag(Header.FLAG_ACCEPT_COMPRESSION)) {
+      FrameCompression.markPeerAcceptsCompression(ctx.channel());
+      peerAcceptsCompression = true;
+    }
+    if (!peerAcceptsBatch && messageHeader.hasFlag(Header.FLAG_ACCEPT_BATCH)) {
+      BatchFrameEncoder.markPeerAcceptsBatch(ctx.channel());
+      peerAcceptsBatch = true;
+    }
+
+    if (!messageHeader.isCompressed()) {
       ctx.fireChannelRead(message);
+      return;
+    }
+
+    Header originalHeader = FrameCompression.originalHeader(messageHeader, message.getBuffer());
+    if (originalHeader.getLength() > maxFrameSize) {
+      logger.error("max frame size:{}, compressed message:{}", maxFrameSize, originalHeader);
+      message.release();
+      ctx.fireExceptionCaught(
+          new TooBigFrameException(maxFrameSize, originalHeader.getLength())
+              .setHeader(originalHeader));
+      return;
+    }
+
+    ByteBuf decompressed;
+    try {
+      if (inflater == null) {
+        inflater = new Inflater();
+        workspace = new FrameCompression.Workspace();
+      }
+      decompressed = FrameCompression
+          .decompress(allocator, inflater, workspace, originalHeader, message.getBuffer());
+    } catch (DataFormatException e) {
+      logger.error("can not decompress message:{}", messageHeader, e);
+      ctx.fireExceptionCaught(e);
+      return;
+    } finally {
+      message.release();
+    }
+    ctx.fireChannelRead(new MessageImpl(originalHeader, decompressed));
+  }
+
+  private void unpackBatch(ChannelHandlerContext ctx, Message batch) {
+    ByteBuf buffer = batch.getBuffer();
+    try {
+      while (buffer != null && buffer.isReadable()) {
+        Header entryHeader = Header.fromBuffer(buffer);
+        Validate.notNull(entryHeader, "bad entry in batch %s", batch.getHeader());
+        int entryLength = entryHeader.getLength();
+        ByteBuf entryBuffer = null;
+        if (entryLength > 0) {
+          entryBuffer = buffer.retainedSlice(buffer.readerIndex(), entryLength);
+          buffer.skipBytes(entryLength);
+        }
+        deliver(ctx, new MessageImpl(entryHeader, entryBuffer));
+      }
+    } finally {
+      batch.release();
     }
   }
 
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.netty.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import py.netty.message.Header;
+
+/**
+ * Compression of the frame bodies between nodes.
+ *
+ * <p>Every frame sent by a node with compression enabled carries
+ * {@link Header#FLAG_ACCEPT_COMPRESSION}. A node only compresses the frames to a connection after
+ * it has received that flag on the connection, so a peer which can't decode compressed frames never
+ * gets one.
+ */
+public class FrameCompression {
+  /**
+   * The original metadata length and data length ahead of the compressed bytes.
+   */
+  public static final int COMPRESSED_PREFIX_LENGTH = 4 + 4;
+
+  private static final AttributeKey<Boolean> PEER_ACCEPTS_COMPRESSION = AttributeKey
+      .valueOf("PEER_ACCEPTS_COMPRESSION");
+
+  private FrameCompression() {
+  }
+
+  public static void markPeerAcceptsCompression(Channel channel) {
+    channel.attr(PEER_ACCEPTS_COMPRESSION).set(Boolean.TRUE);
+  }
+
+  public static boolean peerAcceptsCompression(Channel channel) {
+    return Boolean.TRUE.equals(channel.attr(PEER_ACCEPTS_COMPRESSION).get());
+  }
+
+  /**
+   * Compress the body of the given frame. A body backed by an array is fed to the deflater as is,
+   * otherwise it is copied to the array of the workspace first.
+   *
+   * @return the compressed frame, or null if the body doesn't get smaller
+   */
+  public static ByteBuf compress(ByteBufAllocator allocator, Deflater deflater,
+      Workspace workspace, Header header, ByteBuf body) {
+    int bodyLength = body.readableBytes();
+    deflater.reset();
+    if (body.hasArray()) {
+      deflater.setInput(body.array(), body.arrayOffset() + body.readerIndex(), bodyLength);
+    } else {
+      byte[] input = workspace.input(bodyLength);
+      body.getBytes(body.readerIndex(), input, 0, bodyLength);
+      deflater.setInput(input, 0, bodyLength);
+    }
+    deflater.finish();
+
+    byte[] output = workspace.output(bodyLength);
+    int compressedLength = 0;
+    while (!deflater.finished() && compressedLength < bodyLength) {
+      compressedLength += deflater.deflate(output, compressedLength,
+          bodyLength - compressedLength);
+    }
+    if (!deflater.finished() || compressedLength + COMPRESSED_PREFIX_LENGTH >= bodyLength) {
+      return null;
+    }
+
+    Header compressedHeader = new Header(header.getMethodType(),
+        COMPRESSED_PREFIX_LENGTH + compressedLength, 0, header.getRequestId());
+    compressedHeader.setReserved(header.getReserved());
+    compressedHeader.addFlag(Header.FLAG_COMPRESSED);
+
+    ByteBuf frame = allocator
+        .buffer(Header.headerLength() + COMPRESSED_PREFIX_LENGTH + compressedLength);
+    compressedHeader.toBuffer(frame);
+    frame.writeInt(header.getMetadataLength());
+    frame.writeInt(header.getDataLength());
+    frame.writeBytes(output, 0, compressedLength);
+    return frame;
+  }
+
+  /**
+   * Restore the header of a compressed frame.
+   */
+  public static Header originalHeader(Header header, ByteBuf body) {
+    int metadataLength = body.getInt(body.readerIndex());
+    int dataLength = body.getInt(body.readerIndex() + 4);
+    Header originalHeader = new Header(header.getMethodType(), metadataLength, dataLength,
+        header.getRequestId());
+    originalHeader.setReserved((byte) (header.getReserved() & ~Header.FLAG_COMPRESSED));
+    return originalHeader;
+  }
+
+  /**
+   * Decompress the body of a compressed frame, the body is consumed. The inflater reads the array
+   * backing the body and writes to the array backing the returned buffer where there are such
+   * arrays, and goes through the arrays of the workspace where there are not.
+   */
+  public static ByteBuf decompress(ByteBufAllocator allocator, Inflater inflater,
+      Workspace workspace, Header originalHeader, ByteBuf body) throws DataFormatException {
+    body.skipBytes(COMPRESSED_PREFIX_LENGTH);
+    int inputLength = body.readableBytes();
+    inflater.reset();
+    if (body.hasArray()) {
+      inflater.setInput(body.array(), body.arrayOffset() + body.readerIndex(), inputLength);
+    } else {
+      byte[] input = workspace.input(inputLength);
+      body.getBytes(body.readerIndex(), input, 0, inputLength);
+      inflater.setInput(input, 0, inputLength);
+    }
+    body.skipBytes(inputLength);
+
+    int length = originalHeader.getLength();
+    ByteBuf decompressed = allocator.buffer(length);
+    byte[] output;
+    int outputOffset;
+    if (decompressed.hasArray()) {
+      output = decompressed.array();
+      outputOffset = decompressed.arrayOffset() + decompressed.writerIndex();
+    } else {
+      output = workspace.output(length);
+      outputOffset = 0;
+    }
+
+    int decompressedLength = 0;
+    try {
+      while (decompressedLength < length && !inflater.finished()) {
+        int n = inflater.inflate(output, outputOffset + decompressedLength,
+            length - decompressedLength);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        decompressedLength += n;
+      }
+    } catch (DataFormatException e) {
+      decompressed.release();
+      throw e;
+    }
+    if (decompressedLength != length) {
+      decompressed.release();
+      throw new DataFormatException(
+          "decompressed " + decompressedLength + " bytes, expected " + length);
+    }
+
+    if (decompressed.hasArray()) {
+      decompressed.writerIndex(decompressed.writerIndex() + length);
+    } else {
+      decompressed.writeBytes(output, 0, length);
+    }
+    return decompressed;
+  }
+
+  /**
+   * The arrays a handler passes through its deflater or inflater the frames not backed by an
+   * array, kept across frames so that such a frame costs a copy but no allocation.
+   */
+  public static class Workspace {
+    private byte[] input = new byte[0];
+    private byte[] output = new byte[0];
+
+    byte[] input(int length) {
+      if (input.length < length) {
+        input = new byte[length];
+      }
+      return input;
+    }
+
+    byte[] output(int length) {
+      if (output.length < length) {
+        output = new byte[length];
+      }
+      return output;
+    }
+  }
+}
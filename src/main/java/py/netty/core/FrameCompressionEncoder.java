@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.netty.core;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import java.util.zip.Deflater;
+import org.apache.commons.lang3.Validate;
+import py.netty.message.Header;
+
+/**
+ * Compresses the body of the frames no smaller than a threshold once the peer has told it accepts
+ * compressed frames, see {@link FrameCompression}. Every write must be a complete frame.
+ */
+public class FrameCompressionEncoder extends ChannelOutboundHandlerAdapter {
+  private static final int FLAGS_OFFSET = 3;
+
+  private final int threshold;
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private final FrameCompression.Workspace workspace = new FrameCompression.Workspace();
+
+  public FrameCompressionEncoder(int threshold) {
+    Validate.isTrue(threshold > 0, "threshold must be positive: " + threshold);
+    this.threshold = threshold;
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    if (!(msg instanceof ByteBuf) || ((ByteBuf) msg).readableBytes() < Header.headerLength()) {
+      ctx.write(msg, promise);
+      return;
+    }
+
+    ByteBuf frame = (ByteBuf) msg;
+    int flagsIndex = frame.readerIndex() + FLAGS_OFFSET;
+    frame.setByte(flagsIndex, frame.getByte(flagsIndex) | Header.FLAG_ACCEPT_COMPRESSION);
+
+    if (frame.readableBytes() - Header.headerLength() < threshold
+        || !FrameCompression.peerAcceptsCompression(ctx.channel())) {
+      ctx.write(frame, promise);
+      return;
+    }
+
+    Header header = Header.fromBuffer(frame.duplicate());
+    ByteBuf compressed = header == null || header.isBatch() ? null : FrameCompression
+        .compress(ctx.alloc(), deflater, workspace, header,
+            frame.slice(frame.readerIndex() + Header.headerLength(), header.getLength()));
+    if (compressed == null) {
+      ctx.write(frame, promise);
+    } else {
+      frame.release();
+      ctx.write(compressed, promise);
+    }
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+    deflater.end();
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.netty.core;
+
+import io.netty.bootstrap.AbstractBootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import java.util.concurrent.ThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py.netty.core.twothreads.TtEventGroup;
+import py.netty.core.twothreads.TtServerSocketChannel;
+import py.netty.core.twothreads.TtSocketChannel;
+
+/**
+ * The transports the netty server and client can run on.
+ */
+public enum IoTransportType {
+  /**
+   * The selector based event loop with a separate reader thread in
+   * {@link py.netty.core.twothreads}.
+   */
+  TWO_THREADS(0) {
+    @Override
+    public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+      return new TtEventGroup(threads, threadFactory);
+    }
+
+    @Override
+    public Class<? extends ServerChannel> serverChannelClass() {
+      return TtServerSocketChannel.class;
+    }
+
+    @Override
+    public Class<? extends Channel> channelClass() {
+      return TtSocketChannel.class;
+    }
+  },
+
+  /**
+   * The native edge-triggered epoll transport of netty, which reads and writes on the event loop
+   * thread and needs no hand-off between threads. Linux only.
+   */
+  EPOLL(1) {
+    @Override
+    public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+      return new EpollEventLoopGroup(threads, threadFactory);
+    }
+
+    @Override
+    public Class<? extends ServerChannel> serverChannelClass() {
+      return EpollServerSocketChannel.class;
+    }
+
+    @Override
+    public Class<? extends Channel> channelClass() {
+      return EpollSocketChannel.class;
+    }
+
+    @Override
+    public void initChannel(Channel channel) {
+      channel.pipeline().addFirst(new AutoFlushHandler());
+    }
+
+    @Override
+    public void configure(AbstractBootstrap<?, ?> bootstrap) {
+      bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED);
+      if (bootstrap instanceof ServerBootstrap) {
+        ((ServerBootstrap) bootstrap)
+            .childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED);
+      }
+    }
+  };
+
+  private static final Logger logger = LoggerFactory.getLogger(IoTransportType.class);
+
+  private final int value;
+
+  IoTransportType(int value) {
+    this.value = value;
+  }
+
+  public static IoTransportType findByValue(int value) {
+    switch (value) {
+      case 0:
+        return TWO_THREADS;
+      case 1:
+        return EPOLL;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Get the transport configured by {@link TransferenceOption#IO_TRANSPORT_TYPE}, falling back to
+   * {@link #TWO_THREADS} when it is not set or not available on this platform.
+   */
+  public static IoTransportType fromConfiguration(TransferenceConfiguration configuration) {
+    IoTransportType type = (IoTransportType) configuration
+        .valueOf(TransferenceOption.IO_TRANSPORT_TYPE);
+    if (type == null) {
+      return TWO_THREADS;
+    }
+    if (type == EPOLL && !Epoll.isAvailable()) {
+      logger.warn("epoll transport is not available, use {} instead", TWO_THREADS,
+          Epoll.unavailabilityCause());
+      return TWO_THREADS;
+    }
+    return type;
+  }
+
+  /**
+   * Get the transport the given event loop group belongs to.
+   */
+  public static IoTransportType of(EventLoopGroup eventLoopGroup) {
+    return eventLoopGroup instanceof EpollEventLoopGroup ? EPOLL : TWO_THREADS;
+  }
+
+  public abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+  public abstract Class<? extends ServerChannel> serverChannelClass();
+
+  public abstract Class<? extends Channel> channelClass();
+
+  /**
+   * Add the transport specific handlers to a new channel.
+   */
+  public void initChannel(Channel channel) {
+  }
+
+  /**
+   * Set the transport specific options to the bootstrap.
+   */
+  public void configure(AbstractBootstrap<?, ?> bootstrap) {
+  }
+
+  public int getValue() {
+    return value;
+  }
+}
@@ -14,8 +14,17 @@
 
 package py.netty.core;
 
+import io.netty.channel.ChannelHandlerContext;
+
 public interface PyTimeToFlush {
   public void call();
 
   public void incRequestCount();
+
+  /**
+   * A message of the given size has been written to the channel and waits for a flush.
+   */
+  public default void written(ChannelHandlerContext ctx, int bytes) {
+    incRequestCount();
+  }
 }
@@ -14,6 +14,7 @@
 
 package py.netty.core;
 
+import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import py.netty.core.nio.SingleThreadEventLoop;
@@ -39,4 +40,10 @@ public class PyTimeToFlushImpl implements PyTimeToFlush {
   public void incRequestCount() {
     this.requestCount++;
   }
+
+  @Override
+  public void written(ChannelHandlerContext ctx, int bytes) {
+    this.singleThreadEventLoop.addChannelToFlush(ctx);
+    incRequestCount();
+  }
 }
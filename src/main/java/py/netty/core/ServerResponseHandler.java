@@ -14,20 +14,50 @@
 
 package py.netty.core;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoop;
+import io.netty.channel.FileRegion;
 import java.net.SocketAddress;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import py.netty.core.nio.SingleThreadEventLoop;
 
 public class ServerResponseHandler extends ChannelOutboundHandlerAdapter {
   private static final Logger logger = LoggerFactory.getLogger(ServerResponseHandler.class);
+  private final Function<SingleThreadEventLoop, PyTimeToFlush> timeToFlushFactory;
   private ChannelHandlerContext ctx;
   private PyTimeToFlush ttf;
 
+  public ServerResponseHandler() {
+    this(PyTimeToFlushImpl::new);
+  }
+
+  /**
+   * Use the flush callbacks built by the given factory, e.g. {@link AdaptiveFlushConsolidator},
+   * one for each event loop.
+   */
+  public ServerResponseHandler(
+      Function<SingleThreadEventLoop, PyTimeToFlush> timeToFlushFactory) {
+    this.timeToFlushFactory = timeToFlushFactory;
+  }
+
+  private static int sizeOf(Object msg) {
+    if (msg instanceof ByteBuf) {
+      return ((ByteBuf) msg).readableBytes();
+    } else if (msg instanceof ByteBufHolder) {
+      return ((ByteBufHolder) msg).content().readableBytes();
+    } else if (msg instanceof FileRegion) {
+      return (int) Math.min(Integer.MAX_VALUE, ((FileRegion) msg).count());
+    } else {
+      return 0;
+    }
+  }
+
   @Override
   public void bind(ChannelHandlerContext ctx, SocketAddress localAddress, ChannelPromise promise)
       throws Exception {
@@ -40,18 +70,17 @@ public class ServerResponseHandler extends ChannelOutboundHandlerAdapter {
     if (this.ctx == null) {
       this.ctx = ctx;
       SingleThreadEventLoop singleThreadEventLoop = getEventLoopFromCtx(ctx);
+      ttf = singleThreadEventLoop.getTimeToFlushCallback();
       if (ttf == null) {
-        ttf = new PyTimeToFlushImpl(singleThreadEventLoop);
+        ttf = timeToFlushFactory.apply(singleThreadEventLoop);
+        singleThreadEventLoop.setTimeToFlushCallback(ttf);
       }
-
-      singleThreadEventLoop.setTimeToFlushCallback(ttf);
       logger.debug("done with initialization");
     }
 
-    SingleThreadEventLoop singleThreadEventLoop = getEventLoopFromCtx(ctx);
-    singleThreadEventLoop.addChannelToFlush(ctx);
-    ttf.incRequestCount();
+    int bytes = sizeOf(msg);
     ctx.write(msg, promise);
+    ttf.written(ctx, bytes);
   }
 
   private SingleThreadEventLoop getEventLoopFromCtx(ChannelHandlerContext ctx) {
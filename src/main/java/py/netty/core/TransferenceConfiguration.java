@@ -36,6 +36,7 @@ public class TransferenceConfiguration {
         .option(TransferenceClientOption.MAX_LAST_TIME_FOR_CONNECTION_MS, 60 * 1000 * 15);
 
     clientConfiguartion.option(TransferenceOption.MAX_BYTES_ONCE_ALLOCATE, 16 * 1024);
+    clientConfiguartion.option(TransferenceOption.IO_TRANSPORT_TYPE, IoTransportType.TWO_THREADS);
 
     clientConfiguartion.option(TransferenceClientOption.CLIENT_IO_EVENT_GROUP_THREADS_MODE,
         IoEventThreadsMode.Fix_Threads_Mode);
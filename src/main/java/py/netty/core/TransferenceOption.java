@@ -24,6 +24,18 @@ public class TransferenceOption<T> {
       "MAX_MESSAGE_LENGTH");
   public static final TransferenceOption<Integer> MAX_BYTES_ONCE_ALLOCATE = valueOf(
       "MAX_BYTES_ONCE_ALLOCATE");
+  public static final TransferenceOption<IoTransportType> IO_TRANSPORT_TYPE = valueOf(
+      "IO_TRANSPORT_TYPE");
+  /**
+   * Frames no larger than this are packed into batch frames, 0 turns batching off.
+   */
+  public static final TransferenceOption<Integer> BATCH_FRAME_MAX_ENTRY_SIZE = valueOf(
+      "BATCH_FRAME_MAX_ENTRY_SIZE");
+  /**
+   * Frame bodies no smaller than this are compressed, 0 turns compression off.
+   */
+  public static final TransferenceOption<Integer> FRAME_COMPRESSION_THRESHOLD = valueOf(
+      "FRAME_COMPRESSION_THRESHOLD");
 
   private String name;
 
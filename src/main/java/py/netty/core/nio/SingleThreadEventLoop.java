@@ -159,6 +159,10 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
     this.ttf = ttf;
   }
 
+  public PyTimeToFlush getTimeToFlushCallback() {
+    return ttf;
+  }
+
   public void addChannelToFlush(ChannelHandlerContext channelHandlerContext) {
     this.channelHandlerContextMap.put(channelHandlerContext.channel().id(), channelHandlerContext);
   }
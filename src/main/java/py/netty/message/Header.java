@@ -21,6 +21,24 @@ import org.slf4j.LoggerFactory;
 
 public class Header {
   public static final byte INVALID_METHOD_TYPE = -1;
+  /**
+   * The flags in the reserved byte. A batch frame carries a sequence of complete frames (each with
+   * its own header) as its metadata, and the request id of a batch frame is its entry count.
+   */
+  public static final byte FLAG_BATCH = 0x01;
+  /**
+   * The body of a compressed frame is the original metadata length, the original data length and
+   * then the compressed metadata and data, see {@link py.netty.core.FrameCompression}.
+   */
+  public static final byte FLAG_COMPRESSED = 0x02;
+  /**
+   * Set by a sender which is able to decode compressed frames.
+   */
+  public static final byte FLAG_ACCEPT_COMPRESSION = 0x04;
+  /**
+   * Set by a sender which is able to unpack batch frames.
+   */
+  public static final byte FLAG_ACCEPT_BATCH = 0x08;
   private static final Logger logger = LoggerFactory.getLogger(Header.class);
   private static final int NETWORK_MAIN_VERSION = 2;
   private static final int NETWORK_SUB_VERSION = 1;
@@ -82,6 +100,22 @@ public class Header {
     this.reserved = reserved;
   }
 
+  public boolean hasFlag(byte flag) {
+    return (reserved & flag) != 0;
+  }
+
+  public void addFlag(byte flag) {
+    this.reserved |= flag;
+  }
+
+  public boolean isBatch() {
+    return hasFlag(FLAG_BATCH);
+  }
+
+  public boolean isCompressed() {
+    return hasFlag(FLAG_COMPRESSED);
+  }
+
   public int getLength() {
     return dataLength + metadataLength;
   }
@@ -20,6 +20,10 @@ import com.google.protobuf.CodedOutputStream;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import java.io.IOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -43,7 +47,8 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
 
   protected Method[] parseFromOfResponses;
   protected Method[] parseFromOfRequests;
-  protected ThreadLocal<byte[]> threadLocal = new ThreadLocal<>();
+  protected MetadataParser[] responseParsers;
+  protected MetadataParser[] requestParsers;
 
   protected ProtocolBufProtocolFactory(Class<?> serviceInterface,
       MethodTypeInterface[] methodTypeInterface,
@@ -55,6 +60,8 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
     requestClazz = new Class<?>[Byte.MAX_VALUE];
     parseFromOfResponses = new Method[Byte.MAX_VALUE];
     parseFromOfRequests = new Method[Byte.MAX_VALUE];
+    responseParsers = new MetadataParser[Byte.MAX_VALUE];
+    requestParsers = new MetadataParser[Byte.MAX_VALUE];
 
     for (MethodTypeInterface typeInterface : methodTypeInterface) {
       if (!typeInterface.hasDefineMethod()) {
@@ -72,9 +79,11 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
       responseClazz[type] = getResponseClass(method);
       if (typeInterface.hasDefineDecodeMethod()) {
         parseFromOfResponses[type] = getParseFromMethod(responseClazz[type]);
+        responseParsers[type] = createParser(parseFromOfResponses[type]);
 
         requestClazz[type] = getRequestClass(method);
         parseFromOfRequests[type] = getParseFromMethod(requestClazz[type]);
+        requestParsers[type] = createParser(parseFromOfRequests[type]);
       }
     }
   }
@@ -141,19 +150,73 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
     }
   }
 
-  public byte[] getBufferFromLocalCache(int expectedSize) {
-    byte[] data = threadLocal.get();
-    if (data == null) {
-      data = new byte[expectedSize];
-      threadLocal.set(data);
-    } else {
-      if (data.length < expectedSize) {
-        data = new byte[expectedSize];
-        threadLocal.set(data);
+  /**
+   * Bind the given parseFrom method to a generated class, so parsing is a direct call instead of a
+   * reflective one.
+   */
+  public static MetadataParser createParser(Method parseFrom) throws InvalidProtocolException {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      MethodHandle target = lookup.unreflect(parseFrom);
+      if (parseFrom.getParameterCount() == 2) {
+        java.lang.invoke.MethodType parseType = java.lang.invoke.MethodType
+            .methodType(Object.class, Message.class, CodedInputStream.class);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "parse",
+            java.lang.invoke.MethodType.methodType(MetadataParser.class), parseType, target,
+            target.type());
+        return (MetadataParser) site.getTarget().invokeExact();
+      } else {
+        java.lang.invoke.MethodType parseType = java.lang.invoke.MethodType
+            .methodType(Object.class, CodedInputStream.class);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "parse",
+            java.lang.invoke.MethodType.methodType(StreamParser.class), parseType, target,
+            target.type());
+        StreamParser streamParser = (StreamParser) site.getTarget().invokeExact();
+        return (msg, inputStream) -> streamParser.parse(inputStream);
       }
+    } catch (Throwable t) {
+      logger.error("can't bind parse from method {}", parseFrom, t);
+      throw new InvalidProtocolException("cause: " + t);
+    }
+  }
+
+  /**
+   * Create a stream over the metadata at the reader index of the given buffer, and skip the
+   * metadata. The stream reads the memory of the buffer directly when the buffer is backed by a
+   * single byte array or direct buffer.
+   */
+  public static CodedInputStream newMetadataStream(ByteBuf buffer, int metadataLength) {
+    int readerIndex = buffer.readerIndex();
+    CodedInputStream inputStream;
+    if (buffer.hasArray()) {
+      inputStream = CodedInputStream.newInstance(buffer.array(),
+          buffer.arrayOffset() + readerIndex, metadataLength);
+    } else {
+      inputStream = CodedInputStream.newInstance(buffer.nioBuffer(readerIndex, metadataLength));
     }
+    buffer.skipBytes(metadataLength);
+    return inputStream;
+  }
 
-    return data;
+  /**
+   * Serialize the metadata at the writer index of the given buffer, and advance the writer index
+   * over it. The metadata is written to the memory of the buffer directly, see
+   * {@link #newMetadataStream(ByteBuf, int)}.
+   */
+  public static void writeMetadata(AbstractMessageLite msg, ByteBuf buffer, int metadataLength)
+      throws IOException {
+    buffer.ensureWritable(metadataLength);
+    int writerIndex = buffer.writerIndex();
+    CodedOutputStream outputStream;
+    if (buffer.hasArray()) {
+      outputStream = CodedOutputStream.newInstance(buffer.array(),
+          buffer.arrayOffset() + writerIndex, metadataLength);
+    } else {
+      outputStream = CodedOutputStream.newInstance(buffer.nioBuffer(writerIndex, metadataLength));
+    }
+    msg.writeTo(outputStream);
+    outputStream.flush();
+    buffer.writerIndex(writerIndex + metadataLength);
   }
 
   @Override
@@ -161,6 +224,19 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
     return new DefaultProtocolBufProtocol();
   }
 
+  /**
+   * Parses the metadata of a message, the message is ignored by the types carrying no data.
+   */
+  @FunctionalInterface
+  public interface MetadataParser {
+    Object parse(Message msg, CodedInputStream inputStream) throws IOException;
+  }
+
+  @FunctionalInterface
+  interface StreamParser {
+    Object parse(CodedInputStream inputStream) throws IOException;
+  }
+
   class DefaultProtocolBufProtocol implements Protocol {
     private DefaultProtocolBufProtocol() {
     }
@@ -191,10 +267,8 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
         header.setMetadataLength(metadataLength);
 
         header.toBuffer(metadata);
-        byte[] arrayData = getBufferFromLocalCache(metadataLength);
         try {
-          msg.writeTo(CodedOutputStream.newInstance(arrayData, 0, metadataLength));
-          metadata.writeBytes(arrayData, 0, metadataLength);
+          writeMetadata(msg, metadata, metadataLength);
         } catch (IOException e) {
           metadata.release();
           throw new InvalidProtocolException(
@@ -222,10 +296,8 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
         header.toBuffer(metadata);
 
         if (msg != null) {
-          byte[] arrayData = getBufferFromLocalCache(metadataLength);
           try {
-            msg.writeTo(CodedOutputStream.newInstance(arrayData, 0, metadataLength));
-            metadata.writeBytes(arrayData, 0, metadataLength);
+            writeMetadata(msg, metadata, metadataLength);
           } catch (IOException e) {
             metadata.release();
             throw new InvalidProtocolException("can not write to byte buf: " + e);
@@ -247,17 +319,9 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
       }
 
       try {
-        byte[] metadata = getBufferFromLocalCache(header.getMetadataLength());
-        msg.getBuffer().readBytes(metadata, 0, header.getMetadataLength());
-        CodedInputStream inputStream = CodedInputStream
-            .newInstance(metadata, 0, header.getMetadataLength());
-        MethodTypeInterface typeInterface = getMethodTypeInterface
-            .apply((int) header.getMethodType());
-        if (typeInterface != null && typeInterface.requestCarryData()) {
-          return parseFromOfRequests[header.getMethodType()].invoke(null, msg, inputStream);
-        } else {
-          return parseFromOfRequests[header.getMethodType()].invoke(null, inputStream);
-        }
+        CodedInputStream inputStream = newMetadataStream(msg.getBuffer(),
+            header.getMetadataLength());
+        return requestParsers[header.getMethodType()].parse(msg, inputStream);
       } catch (Throwable t) {
         logger.error("decode request:{} failed", header.getMethodType(), t);
         throw new InvalidProtocolException(
@@ -276,17 +340,9 @@ public class ProtocolBufProtocolFactory extends ProtocolFactory {
       }
 
       try {
-        byte[] metadata = getBufferFromLocalCache(header.getMetadataLength());
-        msg.getBuffer().readBytes(metadata, 0, header.getMetadataLength());
-        CodedInputStream inputStream = CodedInputStream
-            .newInstance(metadata, 0, header.getMetadataLength());
-        MethodTypeInterface typeInterface = getMethodTypeInterface
-            .apply((int) header.getMethodType());
-        if (typeInterface != null && typeInterface.responseCarryData()) {
-          return parseFromOfResponses[header.getMethodType()].invoke(null, msg, inputStream);
-        } else {
-          return parseFromOfResponses[header.getMethodType()].invoke(null, inputStream);
-        }
+        CodedInputStream inputStream = newMetadataStream(msg.getBuffer(),
+            header.getMetadataLength());
+        return responseParsers[header.getMethodType()].parse(msg, inputStream);
       } catch (Throwable t) {
         logger.error("decode response:{} failed", header.getMethodType(), t);
         throw new InvalidProtocolException(
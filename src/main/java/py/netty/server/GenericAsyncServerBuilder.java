@@ -17,6 +17,7 @@ package py.netty.server;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
@@ -30,15 +31,15 @@ import org.slf4j.LoggerFactory;
 import py.common.struct.EndPoint;
 import py.consumer.ConsumerService;
 import py.consumer.MultiThreadConsumerServiceWithBlockingQueue;
+import py.netty.core.BatchFrameEncoder;
 import py.netty.core.ByteToMessageDecoder;
+import py.netty.core.FrameCompressionEncoder;
 import py.netty.core.IoEventThreadsMode;
 import py.netty.core.IoEventUtils;
+import py.netty.core.IoTransportType;
 import py.netty.core.ProtocolFactory;
 import py.netty.core.TransferenceConfiguration;
 import py.netty.core.TransferenceOption;
-import py.netty.core.twothreads.AbstractChannel;
-import py.netty.core.twothreads.TtEventGroup;
-import py.netty.core.twothreads.TtServerSocketChannel;
 import py.netty.memory.PooledByteBufAllocatorWrapper;
 
 public class GenericAsyncServerBuilder {
@@ -50,6 +51,7 @@ public class GenericAsyncServerBuilder {
   private final EventLoopGroup parentEventGroup;
 
   private final EventLoopGroup ioEventGroup;
+  private final IoTransportType ioTransportType;
   private Object serviceObject;
   private ProtocolFactory protocolFactory;
 
@@ -72,7 +74,8 @@ public class GenericAsyncServerBuilder {
     this.protocolFactory = protocolFactory;
     this.setConfiguration(configuration);
 
-    parentEventGroup = new TtEventGroup(1,
+    ioTransportType = IoTransportType.fromConfiguration(getConfiguration());
+    parentEventGroup = ioTransportType.newEventLoopGroup(1,
         new DefaultThreadFactory("netty-server-boss-" + prefix, false,
             Thread.NORM_PRIORITY));
 
@@ -82,7 +85,7 @@ public class GenericAsyncServerBuilder {
             (Float) getConfiguration()
                 .valueOf(TransferenceServerOption.IO_EVENT_GROUP_THREADS_PARAMETER));
 
-    ioEventGroup = new TtEventGroup(ioThreadCount,
+    ioEventGroup = ioTransportType.newEventLoopGroup(ioThreadCount,
         new DefaultThreadFactory("netty-server-io-worker-" + prefix, false,
             Thread.NORM_PRIORITY));
 
@@ -107,18 +110,22 @@ public class GenericAsyncServerBuilder {
     int backLog = (int) getConfiguration().valueOf(TransferenceServerOption.IO_SERVER_SO_BACKLOG);
     logger.warn(">>>>server back log:{}<<<<", backLog);
     int maxFrameSize = (int) getConfiguration().valueOf(TransferenceOption.MAX_MESSAGE_LENGTH);
+    Integer maxBatchEntrySize = (Integer) getConfiguration()
+        .valueOf(TransferenceOption.BATCH_FRAME_MAX_ENTRY_SIZE);
+    Integer compressionThreshold = (Integer) getConfiguration()
+        .valueOf(TransferenceOption.FRAME_COMPRESSION_THRESHOLD);
 
     protocolFactory.setByteBufAllocator(allocator);
 
     ServerBootstrap bootStrap = new ServerBootstrap();
     final AtomicInteger pendingIoRequests = new AtomicInteger(0);
-    bootStrap.group(parentEventGroup, ioEventGroup).channel(TtServerSocketChannel.class)
+    bootStrap.group(parentEventGroup, ioEventGroup).channel(ioTransportType.serverChannelClass())
         .option(ChannelOption.SO_BACKLOG, backLog).childOption(ChannelOption.TCP_NODELAY, true)
         .childOption(ChannelOption.WRITE_SPIN_COUNT, 50)
         .childOption(ChannelOption.SO_KEEPALIVE, true)
-        .childHandler(new ChannelInitializer<AbstractChannel>() {
+        .childHandler(new ChannelInitializer<Channel>() {
           @Override
-          protected void initChannel(AbstractChannel ch) throws Exception {
+          protected void initChannel(Channel ch) throws Exception {
             ByteToMessageDecoder byteToMessageDecoder = new ByteToMessageDecoder(maxFrameSize,
                 allocator);
 
@@ -130,9 +137,17 @@ public class GenericAsyncServerBuilder {
             asyncRequestHandler.setExecutor(executorForProcessingRequests);
 
             ch.pipeline().addLast(asyncRequestHandler);
+            if (compressionThreshold != null && compressionThreshold > 0) {
+              ch.pipeline().addFirst(new FrameCompressionEncoder(compressionThreshold));
+            }
+            if (maxBatchEntrySize != null && maxBatchEntrySize > 0) {
+              ch.pipeline().addFirst(new BatchFrameEncoder(maxBatchEntrySize));
+            }
+            ioTransportType.initChannel(ch);
           }
         });
 
+    ioTransportType.configure(bootStrap);
     bootStrap.childOption(ChannelOption.ALLOCATOR, allocator);
     int maxRcvBuf = (int) configuration.valueOf(TransferenceOption.MAX_BYTES_ONCE_ALLOCATE);
 
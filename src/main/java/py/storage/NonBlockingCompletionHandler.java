@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage;
+
+import java.nio.channels.CompletionHandler;
+
+/**
+ * A completion handler which promises not to block nor run for long, so a storage may call it
+ * directly on its I/O completion thread instead of handing it to a callback thread.
+ */
+public interface NonBlockingCompletionHandler<V, A> extends CompletionHandler<V, A> {
+}
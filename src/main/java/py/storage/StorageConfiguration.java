@@ -19,6 +19,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import py.storage.impl.IoSchedulerType;
 
 @Configuration
 @PropertySource({"classpath:config/storage.properties"})
@@ -38,6 +39,24 @@ public class StorageConfiguration {
   @Value("${enventdata.output.rootpath:/var/testing}")
   private String outputRootpath = "/var/testing";
 
+  /**
+   * scheduler of the priority storages, DEADLINE unless FAIR_SHARE or MULTI_QUEUE is chosen.
+   */
+  @Value("${io.scheduler.type:DEADLINE}")
+  private String ioSchedulerType = IoSchedulerType.DEADLINE.name();
+
+  /**
+   * schedulers of each storage type, "io.scheduler.type" is used for the blank ones.
+   */
+  @Value("${io.scheduler.type.sata:}")
+  private String sataIoSchedulerType = "";
+
+  @Value("${io.scheduler.type.ssd:}")
+  private String ssdIoSchedulerType = "";
+
+  @Value("${io.scheduler.type.pcie:}")
+  private String pcieIoSchedulerType = "";
+
   @Bean
   public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
     return new PropertySourcesPlaceholderConfigurer();
@@ -83,11 +102,59 @@ public class StorageConfiguration {
     this.fsBlockSizeByte = fsBlockSizeByte;
   }
 
+  public IoSchedulerType getIoSchedulerType() {
+    return IoSchedulerType.valueOf(ioSchedulerType.trim().toUpperCase());
+  }
+
+  public void setIoSchedulerType(IoSchedulerType ioSchedulerType) {
+    this.ioSchedulerType = ioSchedulerType.name();
+  }
+
+  /**
+   * Get the scheduler of the given storage type, falls back to {@link #getIoSchedulerType()}.
+   */
+  public IoSchedulerType getIoSchedulerType(StorageType storageType) {
+    String schedulerType;
+    switch (storageType) {
+      case SSD:
+        schedulerType = ssdIoSchedulerType;
+        break;
+      case PCIE:
+        schedulerType = pcieIoSchedulerType;
+        break;
+      default:
+        schedulerType = sataIoSchedulerType;
+        break;
+    }
+
+    if (schedulerType == null || schedulerType.trim().isEmpty()) {
+      return getIoSchedulerType();
+    }
+    return IoSchedulerType.valueOf(schedulerType.trim().toUpperCase());
+  }
+
+  public void setIoSchedulerType(StorageType storageType, IoSchedulerType ioSchedulerType) {
+    switch (storageType) {
+      case SSD:
+        this.ssdIoSchedulerType = ioSchedulerType.name();
+        break;
+      case PCIE:
+        this.pcieIoSchedulerType = ioSchedulerType.name();
+        break;
+      default:
+        this.sataIoSchedulerType = ioSchedulerType.name();
+        break;
+    }
+  }
+
   @Override
   public String toString() {
     return "StorageConfiguration [segmentSizeByte=" + segmentSizeByte + ", pageDataSizeByte="
         + pageDataSizeByte
-        + ", ioTimeoutMS=" + ioTimeoutMs + ", fsBlockSizeByte=" + fsBlockSizeByte + "]";
+        + ", ioTimeoutMS=" + ioTimeoutMs + ", fsBlockSizeByte=" + fsBlockSizeByte
+        + ", ioSchedulerType=" + ioSchedulerType + ", sataIoSchedulerType=" + sataIoSchedulerType
+        + ", ssdIoSchedulerType=" + ssdIoSchedulerType + ", pcieIoSchedulerType="
+        + pcieIoSchedulerType + "]";
   }
 
   @Bean
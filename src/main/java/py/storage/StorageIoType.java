@@ -15,6 +15,6 @@
 package py.storage;
 
 public enum StorageIoType {
-  SYNCIO, LINUXAIO, SYNCAIO;
+  SYNCIO, LINUXAIO, SYNCAIO, IOURING;
 
 }
@@ -21,14 +21,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import py.exception.StorageException;
 
-class AsyncFileAccessor {
+class AsyncFileAccessor implements NativeFileAccessor {
   static final int ERR_SUCCESS = 0;
   static final int ERR_FAIL = -1;
   private static final Logger logger = LoggerFactory.getLogger(AsyncFileAccessor.class);
 
+  private static final boolean VECTORED_IO_SUPPORTED;
+
   static {
     logger.warn("load path:{}", System.getProperty("java.library.path"));
     System.loadLibrary("linux-async-io");
+
+    // a library built before preadv/pwritev were exported has no such symbol, keep the
+    // per-buffer path in that case instead of failing every vectored request
+    boolean supported;
+    try {
+      supported = vectoredIoSupported();
+    } catch (UnsatisfiedLinkError e) {
+      logger.warn("linux-async-io has no vectored io, fall back to per-buffer requests");
+      supported = false;
+    }
+    VECTORED_IO_SUPPORTED = supported;
   }
 
   private final AtomicInteger readCounter;
@@ -57,7 +70,8 @@ class AsyncFileAccessor {
 
   private static native void close(long pyFd);
 
-  void close() {
+  @Override
+  public void close() {
     if (!isClosed) {
       isClosed = true;
       while (readCounter.get() != 0 || writeCounter.get() != 0) {
@@ -79,7 +93,8 @@ class AsyncFileAccessor {
   private static native void write(long pyFd, long address, long offset, int length,
       Callback callback);
 
-  <A> void write(long address, long offset, int length, A attachment,
+  @Override
+  public <A> void write(long address, long offset, int length, A attachment,
       CompletionHandler<Integer, A> completionHandler) {
     writeCounter.incrementAndGet();
 
@@ -100,7 +115,8 @@ class AsyncFileAccessor {
   private static native void read(long pyFd, long address, long offset, int length,
       Callback callback);
 
-  <A> void read(long address, long offset, int length, A attachment,
+  @Override
+  public <A> void read(long address, long offset, int length, A attachment,
       CompletionHandler<Integer, A> completionHandler) {
     readCounter.incrementAndGet();
     if (isClosed) {
@@ -117,6 +133,55 @@ class AsyncFileAccessor {
     }
   }
 
+  private static native boolean vectoredIoSupported();
+
+  static boolean isVectoredIoSupported() {
+    return VECTORED_IO_SUPPORTED;
+  }
+
+  private static native void writev(long pyFd, long[] addresses, int[] lengths, long offset,
+      Callback callback);
+
+  @Override
+  public <A> void writev(long[] addresses, int[] lengths, long offset, A attachment,
+      CompletionHandler<Integer, A> completionHandler) {
+    writeCounter.incrementAndGet();
+
+    if (isClosed) {
+      writeCounter.decrementAndGet();
+      completionHandler.failed(new StorageException("file accessor has been closed !"), attachment);
+      return;
+    }
+
+    try {
+      writev(pyFd, addresses, lengths, offset,
+          new IoCallback<>(offset, IoUtil.sum(lengths), attachment, completionHandler));
+    } finally {
+      writeCounter.decrementAndGet();
+    }
+  }
+
+  private static native void readv(long pyFd, long[] addresses, int[] lengths, long offset,
+      Callback callback);
+
+  @Override
+  public <A> void readv(long[] addresses, int[] lengths, long offset, A attachment,
+      CompletionHandler<Integer, A> completionHandler) {
+    readCounter.incrementAndGet();
+    if (isClosed) {
+      readCounter.decrementAndGet();
+      completionHandler.failed(new StorageException("file accessor has been closed !"), attachment);
+      return;
+    }
+
+    try {
+      readv(pyFd, addresses, lengths, offset,
+          new IoCallback<>(offset, IoUtil.sum(lengths), attachment, completionHandler));
+    } finally {
+      readCounter.decrementAndGet();
+    }
+  }
+
   private static native void enableDiskCheck(long pyFd, int seqential, int random, double quartile,
       int policy, Callback callback);
 
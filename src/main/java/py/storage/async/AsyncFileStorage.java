@@ -51,6 +51,11 @@ public class AsyncFileStorage extends AsyncStorage {
     isOpen = true;
   }
 
+  @Override
+  public Path getPath() {
+    return path;
+  }
+
   @Override
   public synchronized void close() throws StorageException {
     if (!isOpen) {
@@ -81,15 +86,42 @@ public class AsyncFileStorage extends AsyncStorage {
   @Override
   public <A> void write(ByteBuffer buffer, long pos, A attachment,
       CompletionHandler<Integer, ? super A> handler) {
+    countBouncedIo(buffer);
     IoUtil.write(buffer, pos, accessor, attachment, handler);
   }
 
   @Override
   public <A> void read(ByteBuffer buffer, long pos, A attachment,
       CompletionHandler<Integer, ? super A> handler) {
+    countBouncedIo(buffer);
     IoUtil.read(buffer, pos, accessor, attachment, handler);
   }
 
+  @Override
+  public <A> void write(ByteBuffer[] buffers, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) throws StorageException {
+    if (isVectoredIoSupported() && IoUtil.isAllDirect(buffers)) {
+      IoUtil.writev(buffers, pos, accessor, attachment, handler);
+    } else {
+      super.write(buffers, pos, attachment, handler);
+    }
+  }
+
+  @Override
+  public <A> void read(ByteBuffer[] buffers, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) throws StorageException {
+    if (isVectoredIoSupported() && IoUtil.isAllDirect(buffers)) {
+      IoUtil.readv(buffers, pos, accessor, attachment, handler);
+    } else {
+      super.read(buffers, pos, attachment, handler);
+    }
+  }
+
+  @Override
+  public boolean isVectoredIoSupported() {
+    return AsyncFileAccessor.isVectoredIoSupported();
+  }
+
   @Override
   public long size() {
     return size;
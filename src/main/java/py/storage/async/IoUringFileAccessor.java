@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.async;
+
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py.common.tlsf.bytebuffer.manager.TlsfByteBufferManager;
+import py.common.tlsf.bytebuffer.manager.TlsfByteBufferManagerFactory;
+import py.exception.StorageException;
+
+/**
+ * An accessor based on linux io_uring. Reads and writes are only queued as submission entries,
+ * they are handed to the kernel in one batch either when {@link #flush()} is called or when the
+ * number of queued entries reaches the submit batch size. Completions are reaped by the native
+ * library and reported through {@link Callback} just like {@link AsyncFileAccessor}.
+ *
+ * <p>The direct region of {@link TlsfByteBufferManagerFactory#instance()} is registered as a
+ * fixed buffer when the ring is opened, so that I/O on buffers allocated from it skips the per-I/O
+ * page pinning in kernel.
+ */
+class IoUringFileAccessor implements NativeFileAccessor {
+  static final int NO_FIXED_BUFFER = -1;
+  private static final Logger logger = LoggerFactory.getLogger(IoUringFileAccessor.class);
+  private static final int FIXED_BUFFER_INDEX = 0;
+  private static final boolean libraryLoaded;
+
+  static {
+    boolean loaded;
+    try {
+      System.loadLibrary("linux-io-uring");
+      loaded = true;
+    } catch (UnsatisfiedLinkError e) {
+      logger.warn("can't load io_uring library, load path:{}",
+          System.getProperty("java.library.path"), e);
+      loaded = false;
+    }
+    libraryLoaded = loaded;
+  }
+
+  private final AtomicInteger readCounter;
+  private final AtomicInteger writeCounter;
+  private final long ring;
+  private final Path storagePath;
+  private final int submitBatchSize;
+  private long fixedBufferAddress;
+  private long fixedBufferLength;
+  private int queuedCount;
+  private volatile boolean isClosed;
+
+  private IoUringFileAccessor(long ring, Path storagePath, int submitBatchSize) {
+    this.ring = ring;
+    this.storagePath = storagePath;
+    this.submitBatchSize = submitBatchSize;
+    this.readCounter = new AtomicInteger(0);
+    this.writeCounter = new AtomicInteger(0);
+  }
+
+  static boolean isSupported() {
+    return libraryLoaded && probe() == AsyncFileAccessor.ERR_SUCCESS;
+  }
+
+  static IoUringFileAccessor open(Path path, int queueDepth, int submitBatchSize,
+      boolean pollCompletion) throws StorageException {
+    long ring = open(path.toUri().getPath(), queueDepth, pollCompletion);
+    if (ring < 0) {
+      logger.error("open:{} queueDepth:{}", path.toString(), queueDepth);
+      throw new StorageException("open:" + path.toString() + "queueDepth:" + queueDepth);
+    }
+
+    IoUringFileAccessor accessor = new IoUringFileAccessor(ring, path, submitBatchSize);
+    accessor.registerTlsfBuffer();
+    return accessor;
+  }
+
+  private static native int probe();
+
+  private static native long open(String path, int queueDepth, boolean pollCompletion);
+
+  private static native int registerBuffer(long ring, long address, long length);
+
+  private static native void close(long ring);
+
+  private static native int prepareRead(long ring, long address, long offset, int length,
+      int fixedBufferIndex, Callback callback);
+
+  private static native int prepareWrite(long ring, long address, long offset, int length,
+      int fixedBufferIndex, Callback callback);
+
+  private static native int prepareReadv(long ring, long[] addresses, int[] lengths, long offset,
+      Callback callback);
+
+  private static native int prepareWritev(long ring, long[] addresses, int[] lengths, long offset,
+      Callback callback);
+
+  private static native int submit(long ring);
+
+  private void registerTlsfBuffer() {
+    TlsfByteBufferManager tlsfByteBufferManager = TlsfByteBufferManagerFactory.instance();
+    if (tlsfByteBufferManager == null) {
+      logger.warn("storage path:{} no tlsf buffer to register", storagePath);
+      return;
+    }
+
+    long address = tlsfByteBufferManager.getBaseAddress();
+    long length = tlsfByteBufferManager.getCapacity();
+    if (registerBuffer(ring, address, length) == AsyncFileAccessor.ERR_SUCCESS) {
+      fixedBufferAddress = address;
+      fixedBufferLength = length;
+    } else {
+      logger.warn("storage path:{} can't register tlsf buffer, address:{} length:{}",
+          storagePath, address, length);
+    }
+  }
+
+  private int fixedBufferIndex(long address, int length) {
+    if (fixedBufferLength > 0 && address >= fixedBufferAddress
+        && address + length <= fixedBufferAddress + fixedBufferLength) {
+      return FIXED_BUFFER_INDEX;
+    } else {
+      return NO_FIXED_BUFFER;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (!isClosed) {
+      isClosed = true;
+      while (readCounter.get() != 0 || writeCounter.get() != 0) {
+        logger.warn("storage path:{} read counter:{}  write counter:{} sleep and try again",
+            storagePath, readCounter.get(), writeCounter.get());
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          logger.warn("sleep interrupted exception.", e);
+        }
+      }
+      flush();
+      logger.warn("storage path:{} will be closed", storagePath);
+      close(ring);
+      logger.warn("storage path:{} been closed completely", storagePath);
+    }
+  }
+
+  @Override
+  public <A> void write(long address, long offset, int length, A attachment,
+      CompletionHandler<Integer, A> completionHandler) {
+    writeCounter.incrementAndGet();
+
+    if (isClosed) {
+      writeCounter.decrementAndGet();
+      completionHandler.failed(new StorageException("file accessor has been closed !"), attachment);
+      return;
+    }
+
+    try {
+      IoCallback<A> callback = new IoCallback<>(offset, length, attachment, completionHandler);
+      int errCode;
+      synchronized (this) {
+        errCode = prepareWrite(ring, address, offset, length,
+            fixedBufferIndex(address, length), callback);
+        if (errCode == AsyncFileAccessor.ERR_SUCCESS) {
+          queued();
+        }
+      }
+      if (errCode != AsyncFileAccessor.ERR_SUCCESS) {
+        callback.done(errCode);
+      }
+    } finally {
+      writeCounter.decrementAndGet();
+    }
+  }
+
+  @Override
+  public <A> void read(long address, long offset, int length, A attachment,
+      CompletionHandler<Integer, A> completionHandler) {
+    readCounter.incrementAndGet();
+    if (isClosed) {
+      readCounter.decrementAndGet();
+      completionHandler.failed(new StorageException("file accessor has been closed !"), attachment);
+      return;
+    }
+
+    try {
+      IoCallback<A> callback = new IoCallback<>(offset, length, attachment, completionHandler);
+      int errCode;
+      synchronized (this) {
+        errCode = prepareRead(ring, address, offset, length,
+            fixedBufferIndex(address, length), callback);
+        if (errCode == AsyncFileAccessor.ERR_SUCCESS) {
+          queued();
+        }
+      }
+      if (errCode != AsyncFileAccessor.ERR_SUCCESS) {
+        callback.done(errCode);
+      }
+    } finally {
+      readCounter.decrementAndGet();
+    }
+  }
+
+  @Override
+  public <A> void writev(long[] addresses, int[] lengths, long offset, A attachment,
+      CompletionHandler<Integer, A> completionHandler) {
+    writeCounter.incrementAndGet();
+
+    if (isClosed) {
+      writeCounter.decrementAndGet();
+      completionHandler.failed(new StorageException("file accessor has been closed !"), attachment);
+      return;
+    }
+
+    try {
+      IoCallback<A> callback = new IoCallback<>(offset, IoUtil.sum(lengths), attachment,
+          completionHandler);
+      int errCode;
+      synchronized (this) {
+        errCode = prepareWritev(ring, addresses, lengths, offset, callback);
+        if (errCode == AsyncFileAccessor.ERR_SUCCESS) {
+          queued();
+        }
+      }
+      if (errCode != AsyncFileAccessor.ERR_SUCCESS) {
+        callback.done(errCode);
+      }
+    } finally {
+      writeCounter.decrementAndGet();
+    }
+  }
+
+  @Override
+  public <A> void readv(long[] addresses, int[] lengths, long offset, A attachment,
+      CompletionHandler<Integer, A> completionHandler) {
+    readCounter.incrementAndGet();
+    if (isClosed) {
+      readCounter.decrementAndGet();
+      completionHandler.failed(new StorageException("file accessor has been closed !"), attachment);
+      return;
+    }
+
+    try {
+      IoCallback<A> callback = new IoCallback<>(offset, IoUtil.sum(lengths), attachment,
+          completionHandler);
+      int errCode;
+      synchronized (this) {
+        errCode = prepareReadv(ring, addresses, lengths, offset, callback);
+        if (errCode == AsyncFileAccessor.ERR_SUCCESS) {
+          queued();
+        }
+      }
+      if (errCode != AsyncFileAccessor.ERR_SUCCESS) {
+        callback.done(errCode);
+      }
+    } finally {
+      readCounter.decrementAndGet();
+    }
+  }
+
+  private void queued() {
+    queuedCount++;
+    if (queuedCount >= submitBatchSize) {
+      submitQueued();
+    }
+  }
+
+  private void submitQueued() {
+    if (queuedCount == 0) {
+      return;
+    }
+    int submitted = submit(ring);
+    if (submitted < 0) {
+      logger.error("storage path:{} submit {} queued entries failed, errCode:{}", storagePath,
+          queuedCount, submitted);
+    } else {
+      queuedCount -= submitted;
+    }
+  }
+
+  /**
+   * Hand all queued submission entries to the kernel.
+   */
+  synchronized void flush() {
+    submitQueued();
+  }
+}
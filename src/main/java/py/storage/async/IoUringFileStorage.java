@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.async;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py.exception.StorageException;
+import py.storage.impl.AsyncStorage;
+
+/**
+ * An {@link AsyncStorage} on top of linux io_uring. With a submit batch size larger than one, the
+ * I/O issued by read and write are only handed to kernel once the batch is full, so callers must
+ * call {@link #flush()} when they run out of work.
+ */
+public class IoUringFileStorage extends AsyncStorage {
+  private static final Logger logger = LoggerFactory.getLogger(IoUringFileStorage.class);
+  private static final int DEFAULT_SUBMIT_BATCH_SIZE = 1;
+  private final Path path;
+  private final int sectorSize;
+  private final int submitBatchSize;
+  private final boolean pollCompletion;
+  private boolean isOpen;
+  private IoUringFileAccessor accessor;
+  private long size;
+
+  public IoUringFileStorage(Path path, int ioDepth, int sectorSize) {
+    this(path, ioDepth, sectorSize, DEFAULT_SUBMIT_BATCH_SIZE, false);
+  }
+
+  public IoUringFileStorage(Path path, int ioDepth, int sectorSize, int submitBatchSize,
+      boolean pollCompletion) {
+    super(path.toString());
+    this.path = path;
+    this.ioDepth = ioDepth;
+    this.sectorSize = sectorSize;
+    this.submitBatchSize = Math.max(1, Math.min(submitBatchSize, ioDepth));
+    this.pollCompletion = pollCompletion;
+  }
+
+  /**
+   * Check if both the native library and the running kernel support io_uring.
+   */
+  public static boolean isSupported() {
+    return IoUringFileAccessor.isSupported();
+  }
+
+  @Override
+  public synchronized void open() throws StorageException {
+    if (isOpen) {
+      logger.warn("no need to open again. {}", path);
+      return;
+    }
+
+    accessor = IoUringFileAccessor.open(path, ioDepth, submitBatchSize, pollCompletion);
+    this.size = findUsableStorageSize(sectorSize);
+    isOpen = true;
+  }
+
+  @Override
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public synchronized void close() throws StorageException {
+    if (!isOpen) {
+      logger.warn("no need to close a closed storage. {}", path);
+      return;
+    }
+
+    accessor.close();
+    isOpen = false;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return !isOpen;
+  }
+
+  @Override
+  public <A> void write(ByteBuffer buffer, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) {
+    countBouncedIo(buffer);
+    IoUtil.write(buffer, pos, accessor, attachment, handler);
+  }
+
+  @Override
+  public <A> void read(ByteBuffer buffer, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) {
+    countBouncedIo(buffer);
+    IoUtil.read(buffer, pos, accessor, attachment, handler);
+  }
+
+  @Override
+  public void flush() {
+    accessor.flush();
+  }
+
+  @Override
+  public <A> void write(ByteBuffer[] buffers, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) throws StorageException {
+    if (IoUtil.isAllDirect(buffers)) {
+      IoUtil.writev(buffers, pos, accessor, attachment, handler);
+    } else {
+      super.write(buffers, pos, attachment, handler);
+    }
+  }
+
+  @Override
+  public <A> void read(ByteBuffer[] buffers, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) throws StorageException {
+    if (IoUtil.isAllDirect(buffers)) {
+      IoUtil.readv(buffers, pos, accessor, attachment, handler);
+    } else {
+      super.read(buffers, pos, attachment, handler);
+    }
+  }
+
+  @Override
+  public boolean isVectoredIoSupported() {
+    return true;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+}
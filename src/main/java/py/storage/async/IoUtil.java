@@ -28,7 +28,7 @@ class IoUtil {
   private static final Logger logger = LoggerFactory.getLogger(IoUtil.class);
 
   private static <A> void writeFromNativeBuffer(ByteBuffer buffer, long offset,
-      AsyncFileAccessor accessor,
+      NativeFileAccessor accessor,
       A attachment, CompletionHandler<Integer, A> completionHandler) {
     int length = buffer.remaining();
     int position = buffer.position();
@@ -40,7 +40,7 @@ class IoUtil {
   }
 
   private static <A> void readIntoNativeBuffer(ByteBuffer buffer, long offset,
-      AsyncFileAccessor accessor,
+      NativeFileAccessor accessor,
       A attachment, CompletionHandler<Integer, A> completionHandler) {
     int position = buffer.position();
 
@@ -67,7 +67,78 @@ class IoUtil {
     }
   }
 
-  static <A> void read(ByteBuffer buffer, long offset, AsyncFileAccessor accessor, A attachment,
+  static int sum(int[] lengths) {
+    int sum = 0;
+    for (int length : lengths) {
+      sum += length;
+    }
+    return sum;
+  }
+
+  static boolean isAllDirect(ByteBuffer[] buffers) {
+    for (ByteBuffer buffer : buffers) {
+      if (!(buffer instanceof DirectBuffer)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Scatter read into the given direct buffers, their positions are moved forward by the length
+   * read into each of them.
+   */
+  static <A> void readv(ByteBuffer[] buffers, long offset, NativeFileAccessor accessor,
+      A attachment, CompletionHandler<Integer, A> completionHandler) {
+    Validate.isTrue(buffers.length > 0);
+    long[] addresses = new long[buffers.length];
+    int[] lengths = new int[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      ByteBuffer buffer = buffers[i];
+      if (buffer.isReadOnly()) {
+        throw new IllegalArgumentException("Read-only buffer");
+      }
+      addresses[i] = ((DirectBuffer) buffer).address() + buffer.position();
+      lengths[i] = buffer.remaining();
+    }
+
+    accessor.readv(addresses, lengths, offset, attachment, new CompletionHandler<Integer, A>() {
+      @Override
+      public void completed(Integer result, A attachment) {
+        int rest = result;
+        for (int i = 0; i < buffers.length && rest > 0; i++) {
+          int length = Math.min(rest, lengths[i]);
+          buffers[i].position(buffers[i].position() + length);
+          rest -= length;
+        }
+        completionHandler.completed(result, attachment);
+      }
+
+      @Override
+      public void failed(Throwable exc, A attachment) {
+        completionHandler.failed(exc, attachment);
+      }
+    });
+  }
+
+  /**
+   * Gather write from the given direct buffers, their positions are left untouched.
+   */
+  static <A> void writev(ByteBuffer[] buffers, long offset, NativeFileAccessor accessor,
+      A attachment, CompletionHandler<Integer, A> completionHandler) {
+    Validate.isTrue(buffers.length > 0);
+    long[] addresses = new long[buffers.length];
+    int[] lengths = new int[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      ByteBuffer buffer = buffers[i];
+      addresses[i] = ((DirectBuffer) buffer).address() + buffer.position();
+      lengths[i] = buffer.remaining();
+    }
+
+    accessor.writev(addresses, lengths, offset, attachment, completionHandler);
+  }
+
+  static <A> void read(ByteBuffer buffer, long offset, NativeFileAccessor accessor, A attachment,
       CompletionHandler<Integer, A> completionHandler) {
     if (buffer.isReadOnly()) {
       throw new IllegalArgumentException("Read-only buffer");
@@ -99,7 +170,7 @@ class IoUtil {
     }
   }
 
-  static <A> void write(ByteBuffer buffer, long offset, AsyncFileAccessor accessor, A attachment,
+  static <A> void write(ByteBuffer buffer, long offset, NativeFileAccessor accessor, A attachment,
       CompletionHandler<Integer, A> completionHandler) {
     if (buffer instanceof DirectBuffer) {
       writeFromNativeBuffer(buffer, offset, accessor, attachment, completionHandler);
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.async;
+
+import java.nio.channels.CompletionHandler;
+
+/**
+ * A file accessor which submits I/O on native memory addresses and reports the completion through
+ * a {@link CompletionHandler}.
+ */
+interface NativeFileAccessor {
+  <A> void read(long address, long offset, int length, A attachment,
+      CompletionHandler<Integer, A> completionHandler);
+
+  <A> void write(long address, long offset, int length, A attachment,
+      CompletionHandler<Integer, A> completionHandler);
+
+  /**
+   * Scatter read into the given native memory segments, starting from the given offset.
+   */
+  <A> void readv(long[] addresses, int[] lengths, long offset, A attachment,
+      CompletionHandler<Integer, A> completionHandler);
+
+  /**
+   * Gather write from the given native memory segments, starting from the given offset.
+   */
+  <A> void writev(long[] addresses, int[] lengths, long offset, A attachment,
+      CompletionHandler<Integer, A> completionHandler);
+
+  void close();
+}
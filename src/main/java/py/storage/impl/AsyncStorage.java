@@ -16,18 +16,139 @@ package py.storage.impl;
 
 import java.nio.ByteBuffer;
 import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py.common.Constants;
+import py.common.DirectAlignedBufferAllocator;
+import py.common.tlsf.bytebuffer.manager.TlsfByteBufferManager;
+import py.common.tlsf.bytebuffer.manager.TlsfByteBufferManagerFactory;
 import py.exception.StorageException;
 import py.storage.Storage;
 
 public abstract class AsyncStorage extends Storage {
+  private static final Logger logger = LoggerFactory.getLogger(AsyncStorage.class);
+  private final AtomicLong bouncedIoCount = new AtomicLong(0);
+
   public AsyncStorage(String identifier) {
     super(identifier);
   }
 
+  /**
+   * Lease an aligned direct buffer which can be submitted to the device without being bounced
+   * through a temporary direct buffer. The limit of the buffer is set to the given size. The
+   * buffer must be given back by {@link #returnIoBuffer(ByteBuffer)} after the I/O is done.
+   */
+  public ByteBuffer leaseIoBuffer(int size) {
+    TlsfByteBufferManager tlsfByteBufferManager = TlsfByteBufferManagerFactory.instance();
+    if (tlsfByteBufferManager == null) {
+      return DirectAlignedBufferAllocator.allocateAlignedByteBuffer(size);
+    }
+
+    ByteBuffer buffer = tlsfByteBufferManager.blockingAllocate(size);
+    buffer.limit(size);
+    return buffer;
+  }
+
+  /**
+   * Give back a buffer leased by {@link #leaseIoBuffer(int)}.
+   */
+  public void returnIoBuffer(ByteBuffer buffer) {
+    TlsfByteBufferManager tlsfByteBufferManager = TlsfByteBufferManagerFactory.instance();
+    if (tlsfByteBufferManager != null && tlsfByteBufferManager.owns(buffer)) {
+      tlsfByteBufferManager.release(buffer);
+    }
+  }
+
+  /**
+   * Get the count of I/O submitted with a buffer which is not I/O ready: a heap buffer costs a
+   * temporary direct buffer and a memory copy, and a direct buffer not starting at a sector
+   * boundary can not be handed to a device opened for direct I/O as is.
+   */
+  public long getBouncedIoCount() {
+    return bouncedIoCount.get();
+  }
+
+  protected void countBouncedIo(ByteBuffer buffer) {
+    if (!buffer.isDirect() || (DirectAlignedBufferAllocator.getAddress(buffer) + buffer.position())
+        % Constants.SECTOR_SIZE != 0) {
+      bouncedIoCount.incrementAndGet();
+    }
+  }
+
   public abstract <A> void read(ByteBuffer buffer, long pos, A attachment,
       CompletionHandler<Integer, ? super A> handler) throws StorageException;
 
+  /**
+   * Read into the buffers one after another starting from the given position, the result passed
+   * to the handler is the total length read. This default implementation issues one I/O for each
+   * buffer, storages supporting scatter/gather I/O should override it and return true from
+   * {@link #isVectoredIoSupported()}.
+   */
+  public <A> void read(ByteBuffer[] buffers, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) throws StorageException {
+    submitEach(true, buffers, pos, attachment, handler);
+  }
+
+  /**
+   * Write the buffers one after another starting from the given position, see
+   * {@link #read(ByteBuffer[], long, Object, CompletionHandler)}.
+   */
+  public <A> void write(ByteBuffer[] buffers, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) throws StorageException {
+    submitEach(false, buffers, pos, attachment, handler);
+  }
+
+  /**
+   * Issue one I/O for each buffer. A buffer whose I/O can not even be submitted fails together with
+   * all buffers after it, so that the handler is always completed exactly once.
+   */
+  private <A> void submitEach(boolean isRead, ByteBuffer[] buffers, long pos, A attachment,
+      CompletionHandler<Integer, ? super A> handler) {
+    VectoredCompletionHandler<A> vectoredHandler = new VectoredCompletionHandler<>(buffers.length,
+        handler);
+    long offset = pos;
+    for (int i = 0; i < buffers.length; i++) {
+      int length = buffers[i].remaining();
+      try {
+        if (isRead) {
+          read(buffers[i], offset, attachment, vectoredHandler);
+        } else {
+          write(buffers[i], offset, attachment, vectoredHandler);
+        }
+      } catch (Exception e) {
+        logger.warn("fail to submit buffer {} of {} at offset {}", i, buffers.length, offset, e);
+        for (int j = i; j < buffers.length; j++) {
+          vectoredHandler.failed(e, attachment);
+        }
+        return;
+      }
+      offset += length;
+    }
+  }
+
+  /**
+   * Get the file backing the storage, whose data can be transferred to a socket without being
+   * copied through user space, null if the storage is not backed by a file.
+   */
+  public Path getPath() {
+    return null;
+  }
+
+  public boolean isVectoredIoSupported() {
+    return false;
+  }
+
+  /**
+   * Hand the I/O queued by read and write to the device. Storages submitting every I/O
+   * immediately have nothing to do here.
+   */
+  public void flush() throws StorageException {
+  }
+
   @Override
   public void read(long pos, byte[] dstBuf, int off, int len) throws StorageException {
     read(pos, ByteBuffer.wrap(dstBuf, off, len));
@@ -51,6 +172,7 @@ public abstract class AsyncStorage extends Storage {
         future.complete(exc);
       }
     });
+    flush();
 
     try {
       Throwable exception = future.get();
@@ -84,6 +206,7 @@ public abstract class AsyncStorage extends Storage {
         future.complete(exc);
       }
     });
+    flush();
 
     try {
       Throwable exception = future.get();
@@ -95,4 +218,40 @@ public abstract class AsyncStorage extends Storage {
     }
   }
 
+  private static class VectoredCompletionHandler<A> implements CompletionHandler<Integer, A> {
+    private final AtomicInteger pendingCount;
+    private final AtomicInteger totalResult = new AtomicInteger(0);
+    private final CompletionHandler<Integer, ? super A> handler;
+    private volatile Throwable failure;
+
+    private VectoredCompletionHandler(int count, CompletionHandler<Integer, ? super A> handler) {
+      this.pendingCount = new AtomicInteger(count);
+      this.handler = handler;
+    }
+
+    @Override
+    public void completed(Integer result, A attachment) {
+      if (result > 0) {
+        totalResult.addAndGet(result);
+      }
+      done(attachment);
+    }
+
+    @Override
+    public void failed(Throwable exc, A attachment) {
+      failure = exc;
+      done(attachment);
+    }
+
+    private void done(A attachment) {
+      if (pendingCount.decrementAndGet() == 0) {
+        if (failure != null) {
+          handler.failed(failure, attachment);
+        } else {
+          handler.completed(totalResult.get(), attachment);
+        }
+      }
+    }
+  }
+
 }
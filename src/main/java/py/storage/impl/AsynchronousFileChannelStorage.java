@@ -71,6 +71,11 @@ public class AsynchronousFileChannelStorage extends AsyncStorage {
     }
   }
 
+  @Override
+  public Path getPath() {
+    return path;
+  }
+
   @Override
   public void close() throws StorageException {
     try {
@@ -119,6 +124,7 @@ public class AsynchronousFileChannelStorage extends AsyncStorage {
       CompletionHandler<Integer, ? super A> handler)
       throws StorageException {
     int remaining = buffer.remaining();
+    countBouncedIo(buffer);
     try {
       afc.read(buffer, pos, attachment, handler);
     } catch (NonReadableChannelException e) {
@@ -137,6 +143,7 @@ public class AsynchronousFileChannelStorage extends AsyncStorage {
       CompletionHandler<Integer, ? super A> handler)
       throws StorageException {
     int remaining = buffer.remaining();
+    countBouncedIo(buffer);
     try {
       afc.write(buffer, pos, attachment, handler);
     } catch (NonWritableChannelException e) {
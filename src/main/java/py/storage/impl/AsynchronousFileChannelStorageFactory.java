@@ -36,12 +36,14 @@ import py.storage.PyOsInfo.Os;
 import py.storage.Storage;
 import py.storage.StorageIoType;
 import py.storage.async.AsyncFileStorage;
+import py.storage.async.IoUringFileStorage;
 
 public class AsynchronousFileChannelStorageFactory extends FileStorageFactory {
   private static final Logger logger = LoggerFactory
       .getLogger(AsynchronousFileChannelStorageFactory.class);
   private static final int DEFAULT_MAX_IO_DEPTH_HDD = 64;
   private static final int DEFAULT_MAX_IO_DEPTH_SSD = 64;
+  private static final int DEFAULT_IO_URING_SUBMIT_BATCH_SIZE = 1;
   private static Map<Storage, ExecutorService> mapStorageToExecutor = new ConcurrentHashMap<>();
   private static Map<String, Storage> mapStorageIdentifierToStorage = new ConcurrentHashMap<>();
   private static AsynchronousFileChannelStorageFactory factory
@@ -50,6 +52,8 @@ public class AsynchronousFileChannelStorageFactory extends FileStorageFactory {
   private int maxThreadpoolSizePerSsd = 0;
   private int maxIoDepthHdd = DEFAULT_MAX_IO_DEPTH_HDD;
   private int maxIoDepthSsd = DEFAULT_MAX_IO_DEPTH_SSD;
+  private int ioUringSubmitBatchSize = DEFAULT_IO_URING_SUBMIT_BATCH_SIZE;
+  private boolean ioUringPollCompletion = false;
   private StorageIoType storageIoType = null;
   private AtomicInteger index = new AtomicInteger(0);
 
@@ -114,6 +118,18 @@ public class AsynchronousFileChannelStorageFactory extends FileStorageFactory {
     return this;
   }
 
+  public AsynchronousFileChannelStorageFactory setIoUringSubmitBatchSize(
+      int ioUringSubmitBatchSize) {
+    this.ioUringSubmitBatchSize = ioUringSubmitBatchSize;
+    return this;
+  }
+
+  public AsynchronousFileChannelStorageFactory setIoUringPollCompletion(
+      boolean ioUringPollCompletion) {
+    this.ioUringPollCompletion = ioUringPollCompletion;
+    return this;
+  }
+
   public AsynchronousFileChannelStorageFactory setStorageIoType(StorageIoType storageIoType) {
     this.storageIoType = storageIoType;
     return this;
@@ -211,7 +227,16 @@ public class AsynchronousFileChannelStorageFactory extends FileStorageFactory {
 
       logger.warn("identifier:{} storageIOType:{}", identifier, storageIoType);
       Storage storage;
-      if (storageIoType.equals(StorageIoType.LINUXAIO)) {
+      if (storageIoType.equals(StorageIoType.IOURING)) {
+        if (IoUringFileStorage.isSupported()) {
+          storage = new IoUringFileStorage(Paths.get(identifier), ioDepth, Constants.SECTOR_SIZE,
+              ioUringSubmitBatchSize, ioUringPollCompletion);
+        } else {
+          logger.warn("io_uring is not supported, fall back to linux aio, identifier:{}",
+              identifier);
+          storage = new AsyncFileStorage(Paths.get(identifier), ioDepth, Constants.SECTOR_SIZE);
+        }
+      } else if (storageIoType.equals(StorageIoType.LINUXAIO)) {
         storage = new AsyncFileStorage(Paths.get(identifier), ioDepth, Constants.SECTOR_SIZE);
       } else {
         storage = new AsynchronousFileChannelStorage(Paths.get(identifier), queueSize,
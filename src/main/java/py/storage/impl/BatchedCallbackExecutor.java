@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An executor whose threads drain the pending callbacks in batches. A thread is only woken up when
+ * the queue turns from empty to non-empty, so a burst of callbacks costs one hand-off instead of
+ * one for each callback as in a {@link java.util.concurrent.ThreadPoolExecutor}.
+ */
+public class BatchedCallbackExecutor implements Executor {
+  private static final Logger logger = LoggerFactory.getLogger(BatchedCallbackExecutor.class);
+
+  private static final int MAX_BATCH_SIZE = 64;
+
+  private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+  private final Thread[] threads;
+  private volatile boolean shutdown = false;
+
+  public BatchedCallbackExecutor(String name, int threadCount) {
+    Validate.isTrue(threadCount > 0, "thread count must be positive: " + threadCount);
+    this.threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(this::work, name + "-" + i);
+      threads[i].setDaemon(true);
+      threads[i].setUncaughtExceptionHandler(
+          (t, e) -> logger.error("catch uncaught exception for thread:[{}]", t, e));
+      threads[i].start();
+    }
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (shutdown) {
+      throw new RejectedExecutionException("executor has been shut down");
+    }
+    queue.offer(command);
+  }
+
+  public void shutdownNow() {
+    shutdown = true;
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+  }
+
+  public int getPendingCount() {
+    return queue.size();
+  }
+
+  private void work() {
+    List<Runnable> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    while (!shutdown) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        logger.info("callback thread {} interrupted", Thread.currentThread().getName());
+        break;
+      }
+      queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+      for (Runnable callback : batch) {
+        try {
+          callback.run();
+        } catch (Throwable t) {
+          logger.error("caught an exception when running callback", t);
+        }
+      }
+      batch.clear();
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.impl;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A weighted fair share selector using deficit round robin. Each share owns a FIFO queue and gets
+ * credits of {@code quantum * weight} bytes every round, so a share issuing large or many requests
+ * can't starve the others. Elements offered with no deadline delay are urgent and always selected
+ * first, other deadlines are ignored since every share is served each round anyway.
+ */
+public class FairShareTaskSelector<E> implements DeadlineTaskSelector<E> {
+  public static final int DEFAULT_WEIGHT = 1;
+
+  private final ToLongFunction<E> shareKeyFunction;
+  private final ToIntFunction<E> costFunction;
+  private final int quantum;
+  private final Map<Long, Integer> weights = new ConcurrentHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final ArrayDeque<E> urgentQueue = new ArrayDeque<>();
+  private final Map<Long, Share> shares = new HashMap<>();
+  private final ArrayDeque<Share> activeShares = new ArrayDeque<>();
+  private int size = 0;
+
+  public FairShareTaskSelector(ToLongFunction<E> shareKeyFunction, ToIntFunction<E> costFunction,
+      int quantum) {
+    Validate.isTrue(quantum > 0, "quantum must be positive: " + quantum);
+    this.shareKeyFunction = shareKeyFunction;
+    this.costFunction = costFunction;
+    this.quantum = quantum;
+  }
+
+  public void setWeight(long shareKey, int weight) {
+    Validate.isTrue(weight > 0, "weight must be positive: " + weight);
+    weights.put(shareKey, weight);
+  }
+
+  public int getWeight(long shareKey) {
+    return weights.getOrDefault(shareKey, DEFAULT_WEIGHT);
+  }
+
+  @Override
+  public void offer(E e) {
+    offer(e, Long.MAX_VALUE);
+  }
+
+  @Override
+  public void offer(E e, long deadlineDelayMs) {
+    lock.lock();
+    try {
+      if (deadlineDelayMs == 0) {
+        urgentQueue.offer(e);
+      } else {
+        long shareKey = shareKeyFunction.applyAsLong(e);
+        Share share = shares.get(shareKey);
+        if (share == null) {
+          share = new Share(shareKey);
+          shares.put(shareKey, share);
+          activeShares.offer(share);
+        }
+        share.queue.offer(e);
+      }
+      size++;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E select() {
+    lock.lock();
+    try {
+      return internalSelect();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E select(int time, TimeUnit timeUnit) throws InterruptedException {
+    long nanos = timeUnit.toNanos(time);
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return internalSelect();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private E internalSelect() {
+    E e = urgentQueue.poll();
+    if (e != null) {
+      size--;
+      return e;
+    }
+
+    while (true) {
+      Share share = activeShares.peek();
+      if (share == null) {
+        return null;
+      }
+
+      E head = share.queue.peek();
+      int cost = costFunction.applyAsInt(head);
+      if (share.deficit < cost) {
+        // out of credits, top up and give the others a turn
+        share.deficit += (long) quantum * getWeight(share.shareKey);
+        activeShares.offer(activeShares.poll());
+        continue;
+      }
+
+      share.queue.poll();
+      share.deficit -= cost;
+      if (share.queue.isEmpty()) {
+        activeShares.poll();
+        shares.remove(share.shareKey);
+      }
+      size--;
+      return head;
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public void stop() {
+  }
+
+  private class Share {
+    final long shareKey;
+    final ArrayDeque<E> queue = new ArrayDeque<>();
+    long deficit = 0;
+
+    Share(long shareKey) {
+      this.shareKey = shareKey;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.impl;
+
+import py.storage.StorageType;
+
+/**
+ * The built-in schedulers of {@link PriorityStorageImpl}. {@link #DEADLINE} is the default for all
+ * storage types, the others are opt-in by the "io.scheduler.type" property of
+ * {@link py.storage.StorageConfiguration}, or by "io.scheduler.type.sata", "io.scheduler.type.ssd"
+ * and "io.scheduler.type.pcie" for one storage type only.
+ */
+public enum IoSchedulerType implements TaskSelectorFactory {
+  /**
+   * Sorts the tasks by offset and merges adjacent ones, with a deadline for each task. Suits the
+   * disks which pay for seeking.
+   */
+  DEADLINE {
+    @Override
+    public DeadlineTaskSelector<Task> create(StorageType storageType, int pagePhysicalSize,
+        boolean vectoredIoSupported) {
+      return new MergedDeadlineTaskSelector(Task::compareToWithOffset, storageType,
+          pagePhysicalSize, vectoredIoSupported);
+    }
+  },
+
+  /**
+   * Shares the device among the {@link ShareKeyed} attachments by weight.
+   */
+  FAIR_SHARE {
+    @Override
+    public DeadlineTaskSelector<Task> create(StorageType storageType, int pagePhysicalSize,
+        boolean vectoredIoSupported) {
+      return new FairShareTaskSelector<>(Task::getShareKey, Task::remaining, pagePhysicalSize);
+    }
+  },
+
+  /**
+   * Dispatches the tasks in arrival order from per-submitter queues without sorting. Suits the
+   * devices with no seeking cost and deep hardware queues.
+   */
+  MULTI_QUEUE {
+    @Override
+    public DeadlineTaskSelector<Task> create(StorageType storageType, int pagePhysicalSize,
+        boolean vectoredIoSupported) {
+      return new MultiQueueTaskSelector<>(Runtime.getRuntime().availableProcessors());
+    }
+  };
+}
@@ -33,6 +33,7 @@ public class MergedDeadlineTaskSelector extends DeadlineTaskSelectorImpl<Task> {
   private final BlockingQueue<ByteBuffer> mergeBufferPool = new LinkedBlockingQueue<>(
       MAX_BUFFER_POLL_SIZE);
   private final int pagePhysicalSize;
+  private final boolean vectoredMerge;
   private volatile Task lastTask;
 
   public MergedDeadlineTaskSelector(Comparator<Task> comparator, int pagePhysicalSize) {
@@ -41,10 +42,24 @@ public class MergedDeadlineTaskSelector extends DeadlineTaskSelectorImpl<Task> {
 
   public MergedDeadlineTaskSelector(Comparator<Task> comparator, StorageType storageType,
       int pagePhysicalSize) {
+    this(comparator, storageType, pagePhysicalSize, false);
+  }
+
+  /**
+   * Constructor for this class.
+   *
+   * @param vectoredMerge if true, adjacent tasks are merged into a vectored task submitted as one
+   *                      scatter/gather I/O for every storage type, instead of being copied into
+   *                      a merge buffer on SATA only
+   */
+  public MergedDeadlineTaskSelector(Comparator<Task> comparator, StorageType storageType,
+      int pagePhysicalSize, boolean vectoredMerge) {
     super(comparator);
     this.storageType = storageType;
     this.pagePhysicalSize = pagePhysicalSize;
-    if (this.storageType != StorageType.PCIE && this.storageType != StorageType.SSD) {
+    this.vectoredMerge = vectoredMerge;
+    if (!vectoredMerge && this.storageType != StorageType.PCIE
+        && this.storageType != StorageType.SSD) {
       initPool();
     }
   }
@@ -59,7 +74,8 @@ public class MergedDeadlineTaskSelector extends DeadlineTaskSelectorImpl<Task> {
 
   @Override
   public Task select() {
-    if (this.storageType == StorageType.PCIE || this.storageType == StorageType.SSD) {
+    if (!vectoredMerge && (this.storageType == StorageType.PCIE
+        || this.storageType == StorageType.SSD)) {
       return super.select();
     }
 
@@ -101,6 +117,9 @@ public class MergedDeadlineTaskSelector extends DeadlineTaskSelectorImpl<Task> {
       return null;
     }
 
+    if (vectoredMerge) {
+      return Task.mergeVectored(canBeMergedTasks);
+    }
     return Task.merge(canBeMergedTasks, mergeBufferPool, pagePhysicalSize * MAX_MEGER_COUNT);
 
   }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.impl;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A selector with several unsorted queues for devices with no seeking cost. Each submitting thread
+ * always offers to the queue picked by its thread id, so that concurrent submitters are spread
+ * over the queues instead of contending on a shared sorted one, and the selector drains the queues
+ * round robin. The queues are not bound to any cpu. Elements offered with no deadline delay are urgent and always selected first, other
+ * deadlines are ignored since nothing is reordered.
+ */
+public class MultiQueueTaskSelector<E> implements DeadlineTaskSelector<E> {
+  private final ConcurrentLinkedQueue<E> urgentQueue = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<E>[] queues;
+  // one permit for each element in the queues
+  private final Semaphore available = new Semaphore(0);
+  private final AtomicInteger cursor = new AtomicInteger(0);
+
+  @SuppressWarnings("unchecked")
+  public MultiQueueTaskSelector(int queueCount) {
+    Validate.isTrue(queueCount > 0, "queue count must be positive: " + queueCount);
+    this.queues = new ConcurrentLinkedQueue[queueCount];
+    for (int i = 0; i < queueCount; i++) {
+      queues[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  @Override
+  public void offer(E e) {
+    offer(e, Long.MAX_VALUE);
+  }
+
+  @Override
+  public void offer(E e, long deadlineDelayMs) {
+    if (deadlineDelayMs == 0) {
+      urgentQueue.offer(e);
+    } else {
+      queues[(int) (Thread.currentThread().getId() % queues.length)].offer(e);
+    }
+    available.release();
+  }
+
+  @Override
+  public E select() {
+    if (!available.tryAcquire()) {
+      return null;
+    }
+    return poll();
+  }
+
+  @Override
+  public E select(int time, TimeUnit timeUnit) throws InterruptedException {
+    if (!available.tryAcquire(time, timeUnit)) {
+      return null;
+    }
+    return poll();
+  }
+
+  /**
+   * Take an element after a permit is acquired. The element is offered before its permit is
+   * released, so there must be one in the queues.
+   */
+  private E poll() {
+    E e = urgentQueue.poll();
+    while (e == null) {
+      int index = Math.floorMod(cursor.getAndIncrement(), queues.length);
+      e = queues[index].poll();
+      if (e == null) {
+        e = urgentQueue.poll();
+      }
+    }
+    return e;
+  }
+
+  @Override
+  public int size() {
+    return available.availablePermits();
+  }
+
+  public int getQueueCount() {
+    return queues.length;
+  }
+
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public void stop() {
+  }
+}
@@ -20,35 +20,42 @@ import java.nio.ByteBuffer;
 import java.nio.channels.CompletionHandler;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import py.common.RequestIdBuilder;
 import py.consumer.AbstractMultiThreadConsumerService;
-import py.consumer.ConsumerService;
 import py.datanode.exception.StorageIoException;
 import py.exception.StorageException;
+import py.storage.NonBlockingCompletionHandler;
 import py.storage.PriorityStorage;
 import py.storage.Storage;
+import py.storage.StorageConfiguration;
 import py.storage.StorageExceptionHandlerChain;
 import py.storage.StorageType;
 import py.storage.async.AsyncFileStorage;
 import py.storage.async.Callback;
 import py.storage.async.SlowDiskCallback;
 import py.storage.impl.Task.TaskType;
+import py.storage.impl.scheduling.InFlightSlotTable;
 import py.storage.impl.scheduling.TaskInfo;
+import py.storage.performance.AdaptiveConcurrencyLimiter;
+import py.storage.performance.PerformanceContext;
+import py.storage.performance.PerformanceRecorder;
+import py.storage.performance.PerformanceRecorderImpl;
 import py.storage.performance.PyIoStatImpl;
+import py.storage.performance.Rw;
 import py.storage.performance.SlowDiskChecker;
 import py.storage.performance.SlowDiskCheckerImpl;
 
@@ -62,13 +69,14 @@ public class PriorityStorageImpl extends PriorityStorage {
   private static final int DEFAULT_DEADLINE_MS_FOR_READ = 5;
   private static final int DEFAULT_DEADLINE_MS_FOR_WRITE = 500;
   private static final String CLASS_NAME = "PriorityStorageImpl";
+  private static final int CALLBACK_THREAD_COUNT = 5;
 
   private final Semaphore writeToken;
   private final Semaphore readToken;
 
   private final AsyncStorage delegate;
 
-  private final ConsumerService<Task> taskExecutor;
+  private final TaskExecutor taskExecutor;
 
   private final StorageExceptionHandlerChain handlerChain;
 
@@ -79,12 +87,18 @@ public class PriorityStorageImpl extends PriorityStorage {
   private final SlowDiskChecker slowDiskChecker;
   private final HashedWheelTimer hashedWheelTimer;
   private final int timeoutThreshold;
-  private final Map<Long, TaskInfo> pendingTaskMap = new ConcurrentHashMap<>();
+  private final InFlightSlotTable<InFlightTask> inFlightSlotTable;
+  private final Queue<InFlightTask> overflowInFlightTasks = new ConcurrentLinkedQueue<>();
   private final int pagePhysicalSize;
   private ExecutorService callBackThreadPool = null;
+  // only created for CompletionMode.DIRECT
+  private volatile BatchedCallbackExecutor batchedCallbackExecutor = null;
+  private volatile CompletionMode completionMode = CompletionMode.POOLED;
   private volatile boolean isClosed = true;
   private int deadlineMsForRead = DEFAULT_DEADLINE_MS_FOR_READ;
   private int deadlineMsForWrite = DEFAULT_DEADLINE_MS_FOR_WRITE;
+  private volatile AdaptiveConcurrencyLimiter ioDepthLimiter = null;
+  private volatile PerformanceRecorder performanceRecorder = null;
 
   public PriorityStorageImpl(AsyncStorage delegate, int highPriorityTaskLimit,
       StorageExceptionHandlerChain handlerChain, HashedWheelTimer hashedWheelTimer,
@@ -97,6 +111,34 @@ public class PriorityStorageImpl extends PriorityStorage {
   public PriorityStorageImpl(AsyncStorage delegate, int highPriorityTaskLimit,
       StorageExceptionHandlerChain handlerChain, HashedWheelTimer hashedWheelTimer,
       int timeoutThreshold, StorageType storageType, int pagePhysicalSize) {
+    this(delegate, highPriorityTaskLimit, handlerChain, hashedWheelTimer, timeoutThreshold,
+        storageType, pagePhysicalSize, new StorageConfiguration());
+  }
+
+  /**
+   * Constructor for this class.
+   *
+   * @param storageConfiguration picks the scheduler of the storage type, see {@link
+   *                             StorageConfiguration#getIoSchedulerType(StorageType)}
+   */
+  public PriorityStorageImpl(AsyncStorage delegate, int highPriorityTaskLimit,
+      StorageExceptionHandlerChain handlerChain, HashedWheelTimer hashedWheelTimer,
+      int timeoutThreshold, StorageType storageType, int pagePhysicalSize,
+      StorageConfiguration storageConfiguration) {
+    this(delegate, highPriorityTaskLimit, handlerChain, hashedWheelTimer, timeoutThreshold,
+        storageType, pagePhysicalSize, storageConfiguration.getIoSchedulerType(storageType));
+  }
+
+  /**
+   * Constructor for this class.
+   *
+   * @param taskSelectorFactory decides how the tasks are scheduled, see {@link IoSchedulerType}
+   *                            for the built-in ones
+   */
+  public PriorityStorageImpl(AsyncStorage delegate, int highPriorityTaskLimit,
+      StorageExceptionHandlerChain handlerChain, HashedWheelTimer hashedWheelTimer,
+      int timeoutThreshold, StorageType storageType, int pagePhysicalSize,
+      TaskSelectorFactory taskSelectorFactory) {
     super(delegate.identifier());
     this.delegate = delegate;
     this.pagePhysicalSize = pagePhysicalSize;
@@ -110,8 +152,11 @@ public class PriorityStorageImpl extends PriorityStorage {
     this.hashedWheelTimer = hashedWheelTimer;
     this.timeoutThreshold = timeoutThreshold;
 
+    this.inFlightSlotTable = new InFlightSlotTable<>(
+        Math.max(ioDepth, delegate.getIoDepth()) * 2, InFlightTask::new);
     this.taskExecutor = new TaskExecutor(Storage.getDeviceName(identifier) + "-driver",
-        storageType);
+        taskSelectorFactory.create(storageType, pagePhysicalSize,
+            delegate.isVectoredIoSupported()));
     slowDiskChecker = new SlowDiskCheckerImpl(new PyIoStatImpl());
 
     try {
@@ -129,12 +174,16 @@ public class PriorityStorageImpl extends PriorityStorage {
       isClosed = false;
       delegate.open();
       taskExecutor.start();
-      this.callBackThreadPool = new ThreadPoolExecutor(5, 5, 50,
+      this.callBackThreadPool = new ThreadPoolExecutor(CALLBACK_THREAD_COUNT,
+          CALLBACK_THREAD_COUNT, 50,
           TimeUnit.SECONDS, new LinkedBlockingQueue<>(Integer.MAX_VALUE), new ThreadFactoryBuilder()
           .setNameFormat(Storage.getDeviceName(identifier) + "-callBack")
           .setUncaughtExceptionHandler(
               (t, e) -> logger.error("catch uncaught exception for thread:[{}]", t, e))
           .build());
+      if (completionMode == CompletionMode.DIRECT) {
+        startBatchedCallbackExecutor();
+      }
     } finally {
       openCloseLock.unlock();
     }
@@ -153,17 +202,22 @@ public class PriorityStorageImpl extends PriorityStorage {
       if (this.callBackThreadPool != null) {
         this.callBackThreadPool.shutdownNow();
       }
+      if (this.batchedCallbackExecutor != null) {
+        this.batchedCallbackExecutor.shutdownNow();
+        this.batchedCallbackExecutor = null;
+      }
 
       logger.warn("task executor stop");
 
-      Iterator<TaskInfo> taskInfoIterator = pendingTaskMap.values().iterator();
-      while (taskInfoIterator.hasNext()) {
-        TaskInfo taskInfo = taskInfoIterator.next();
-        Task task = taskInfo.getTask();
+      forEachPendingTask(inFlightTask -> {
+        Task task = inFlightTask.taskInfo.getTask();
+        if (task == null) {
+          return;
+        }
         logger.warn("task over time.  offset:{} size:{} type:{}",
-            task.pos, task.buffer.remaining(), task.type);
-        taskInfo.getStorageCallback().failed(new StorageException(), null);
-      }
+            task.pos, task.remaining(), task.type);
+        inFlightTask.abort(new StorageException());
+      });
       delegate.close();
     } finally {
       openCloseLock.unlock();
@@ -196,9 +250,7 @@ public class PriorityStorageImpl extends PriorityStorage {
             if (priority == Priority.HIGH) {
               releaseToken(TaskType.Read);
             }
-            callBackThreadPool.execute(() -> {
-              handler.completed(result, attachment);
-            });
+            dispatchCallback(handler, () -> handler.completed(result, attachment));
           }
 
           @Override
@@ -207,9 +259,7 @@ public class PriorityStorageImpl extends PriorityStorage {
               releaseToken(TaskType.Read);
             }
 
-            callBackThreadPool.execute(() -> {
-              handler.failed(exc, attachment);
-            });
+            dispatchCallback(handler, () -> handler.failed(exc, attachment));
           }
         });
     if (!taskExecutor.submit(task)) {
@@ -243,9 +293,7 @@ public class PriorityStorageImpl extends PriorityStorage {
               releaseToken(TaskType.Write);
             }
 
-            callBackThreadPool.execute(() -> {
-              handler.completed(result, attachment);
-            });
+            dispatchCallback(handler, () -> handler.completed(result, attachment));
           }
 
           @Override
@@ -254,9 +302,7 @@ public class PriorityStorageImpl extends PriorityStorage {
               releaseToken(TaskType.Write);
             }
 
-            callBackThreadPool.execute(() -> {
-              handler.failed(exc, attachment);
-            });
+            dispatchCallback(handler, () -> handler.failed(exc, attachment));
           }
         });
     if (!taskExecutor.submit(task)) {
@@ -272,8 +318,50 @@ public class PriorityStorageImpl extends PriorityStorage {
     return delegate.size();
   }
 
+  @Override
+  public ByteBuffer leaseIoBuffer(int size) {
+    return delegate.leaseIoBuffer(size);
+  }
+
+  @Override
+  public void returnIoBuffer(ByteBuffer buffer) {
+    delegate.returnIoBuffer(buffer);
+  }
+
+  @Override
+  public long getBouncedIoCount() {
+    return delegate.getBouncedIoCount();
+  }
+
+  @Override
+  public Path getPath() {
+    return delegate.getPath();
+  }
+
   public float getDiskUtility() {
-    return ((float) countSubmittedLength.get()) / ((float) delegate.getIoDepth() + 1);
+    AdaptiveConcurrencyLimiter limiter = ioDepthLimiter;
+    int depth = limiter == null ? delegate.getIoDepth() : limiter.getLimit();
+    return ((float) countSubmittedLength.get()) / ((float) depth + 1);
+  }
+
+  /**
+   * Let the in-flight I/O submitted to the delegate grow or shrink within the given range by the
+   * latency of the done I/O, instead of being bounded by the io depth of the delegate only.
+   */
+  public void enableAdaptiveIoDepth(int minIoDepth, int maxIoDepth) {
+    int initialIoDepth = Math.max(minIoDepth, Math.min(maxIoDepth, delegate.getIoDepth()));
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialIoDepth,
+        minIoDepth, maxIoDepth);
+    this.performanceRecorder = new PerformanceRecorderImpl(PERFORMANCE_WINDOW_SECONDS,
+        pagePhysicalSize, limiter::onSample);
+    this.ioDepthLimiter = limiter;
+    logger.warn("adaptive io depth enabled for {}, initial {} min {} max {}", identifier,
+        initialIoDepth, minIoDepth, maxIoDepth);
+  }
+
+  public int getAdaptiveIoDepth() {
+    AdaptiveConcurrencyLimiter limiter = ioDepthLimiter;
+    return limiter == null ? delegate.getIoDepth() : limiter.getLimit();
   }
 
   private void acquireToken(TaskType type) throws StorageException {
@@ -308,52 +396,113 @@ public class PriorityStorageImpl extends PriorityStorage {
   private void processTask(Task task) {
     slowDiskChecker.incomingIo();
 
-    Long taskKey = RequestIdBuilder.get();
+    AdaptiveConcurrencyLimiter limiter = ioDepthLimiter;
+    if (limiter != null && !limiter.tryAcquire()) {
+      // the in-flight I/O may still be batched in the delegate, hand them to the device first
+      flushDelegate();
+      try {
+        limiter.acquire();
+      } catch (InterruptedException e) {
+        logger.warn("interrupted while waiting for io depth, storage {}", identifier);
+        Thread.currentThread().interrupt();
+        task.failed(new StorageException("storage closed"));
+        return;
+      }
+    }
+    PerformanceRecorder recorder = performanceRecorder;
+    PerformanceContext performanceContext = recorder == null ? null : recorder
+        .startIo(task.type == TaskType.Read ? Rw.Read : Rw.Write, task.pos, task.remaining());
+
+    InFlightTask inFlightTask = acquireInFlightTask();
+    TaskInfo taskInfo = inFlightTask.taskInfo;
+    // the generation goes to the delegate as the attachment, and comes back with the completion
+    Long generation = inFlightTask.start(task, limiter, performanceContext);
 
     try {
       countSubmittedLength.incrementAndGet();
-      CompletionHandler<Integer, Object> storageCallback = new
-          CompletionHandler<Integer, Object>() {
-            @Override
-            public void completed(Integer result, Object attachment) {
-              pendingTaskMap.remove(taskKey);
-              taskDone(task, result);
-            }
-
-            @Override
-            public void failed(Throwable exc, Object attachment) {
-              pendingTaskMap.remove(taskKey);
-              if (exc instanceof StorageException) {
-                taskFailed(task, (StorageException) exc);
-              } else {
-                taskFailed(task, new StorageIoException(task.pos, task.buffer.remaining()));
-              }
-              logger.warn("storage io error. type:{} offset:{} length:{}", task.type,
-                  task.pos,
-                  task.buffer.remaining(), exc);
-            }
-          };
 
-      TaskInfo taskInfo = new TaskInfo(task, storageCallback);
-      pendingTaskMap.put(taskKey, taskInfo);
-
-      if (task.type == TaskType.Read) {
-        delegate.read(task.buffer, task.pos, task.attachment, storageCallback);
+      if (task.isVectored()) {
+        if (task.type == TaskType.Read) {
+          delegate.read(task.buffers, task.pos, generation, inFlightTask);
+        } else if (task.type == TaskType.Write) {
+          delegate.write(task.buffers, task.pos, generation, inFlightTask);
+        }
+      } else if (task.type == TaskType.Read) {
+        delegate.read(task.buffer, task.pos, generation, inFlightTask);
       } else if (task.type == TaskType.Write) {
-        delegate.write(task.buffer, task.pos, task.attachment, storageCallback);
+        delegate.write(task.buffer, task.pos, generation, inFlightTask);
       }
 
       taskInfo.submitDone();
     } catch (StorageException e) {
-      taskFailed(task, e);
+      if (inFlightTask.finish(generation) != null) {
+        taskFailed(task, e);
+      }
+    }
+  }
+
+  private InFlightTask acquireInFlightTask() {
+    int slotId = inFlightSlotTable.acquire();
+    if (slotId >= 0) {
+      return inFlightSlotTable.get(slotId);
+    }
+
+    // more in-flight I/O than slots, track it outside of the table
+    InFlightTask inFlightTask = new InFlightTask(-1);
+    overflowInFlightTasks.add(inFlightTask);
+    return inFlightTask;
+  }
+
+  private void forEachPendingTask(Consumer<InFlightTask> consumer) {
+    inFlightSlotTable.forEachInUse(consumer);
+    for (InFlightTask inFlightTask : overflowInFlightTasks) {
+      consumer.accept(inFlightTask);
+    }
+  }
+
+  private void ioDone(AdaptiveConcurrencyLimiter limiter, PerformanceContext performanceContext) {
+    if (performanceContext != null) {
+      performanceContext.stop();
+    }
+    if (limiter != null) {
+      limiter.release();
+    }
+  }
+
+  private void flushDelegate() {
+    try {
+      delegate.flush();
+    } catch (StorageException e) {
+      logger.error("flush storage {} failed", identifier, e);
     }
   }
 
   private void taskDone(Task task, Integer result) {
     countSubmittedLength.decrementAndGet();
-    callBackThreadPool.execute(() -> {
+    if (completionMode == CompletionMode.DIRECT) {
+      // the handler wrapped in read/write dispatches the callback of the caller by itself
       task.complete(result);
-    });
+    } else {
+      callBackThreadPool.execute(() -> {
+        task.complete(result);
+      });
+    }
+  }
+
+  private void dispatchCallback(CompletionHandler<?, ?> handler, Runnable callback) {
+    if (completionMode != CompletionMode.DIRECT) {
+      callBackThreadPool.execute(callback);
+    } else if (handler instanceof NonBlockingCompletionHandler) {
+      callback.run();
+    } else {
+      // not started yet or already stopped by close
+      BatchedCallbackExecutor executor = batchedCallbackExecutor;
+      if (executor != null) {
+        executor.execute(callback);
+      } else {
+        callBackThreadPool.execute(callback);
+      }
+    }
   }
 
   private void taskFailed(Task task, StorageException exc) {
@@ -382,16 +531,19 @@ public class PriorityStorageImpl extends PriorityStorage {
 
   public void checkPendingTask() {
     long currentTime = System.currentTimeMillis();
-    Iterator<TaskInfo> taskInfoIterator = pendingTaskMap.values().iterator();
-    while (taskInfoIterator.hasNext()) {
-      TaskInfo taskInfo = taskInfoIterator.next();
+    forEachPendingTask(inFlightTask -> {
+      TaskInfo taskInfo = inFlightTask.taskInfo;
       Task task = taskInfo.getTask();
-      long writeTime = currentTime - taskInfo.getSubmitTime();
+      long submitTime = taskInfo.getSubmitTime();
+      if (task == null || submitTime == 0) {
+        return;
+      }
+      long writeTime = currentTime - submitTime;
       if (writeTime > timeoutThreshold) {
         logger.warn("task over time. cost:{} offset:{} size:{} type:{}", writeTime,
-            task.pos, task.buffer.remaining(), task.type);
+            task.pos, task.remaining(), task.type);
       }
-    }
+    });
   }
 
   public void checkSlowDiskByAwait(String diskStatsFile, int awaitThreshold, String archiveName) {
@@ -421,13 +573,171 @@ public class PriorityStorageImpl extends PriorityStorage {
     this.deadlineMsForWrite = deadlineMsForWrite;
   }
 
+  /**
+   * Switch the completion mode. The callback threads of {@link CompletionMode#DIRECT} are started
+   * on the first switch to it, and kept until the storage is closed even if the mode is switched
+   * back, since callbacks may still be pending on them.
+   */
+  public void setCompletionMode(CompletionMode completionMode) {
+    openCloseLock.lock();
+    try {
+      if (completionMode == CompletionMode.DIRECT && !isClosed) {
+        startBatchedCallbackExecutor();
+      }
+      this.completionMode = completionMode;
+    } finally {
+      openCloseLock.unlock();
+    }
+  }
+
+  /**
+   * Start the callback threads of {@link CompletionMode#DIRECT} if not yet, the caller must hold
+   * the open close lock.
+   */
+  private void startBatchedCallbackExecutor() {
+    if (batchedCallbackExecutor == null) {
+      batchedCallbackExecutor = new BatchedCallbackExecutor(
+          Storage.getDeviceName(identifier) + "-batchedCallBack", CALLBACK_THREAD_COUNT);
+    }
+  }
+
+  public CompletionMode getCompletionMode() {
+    return completionMode;
+  }
+
+  /**
+   * How the completion of an I/O is handed back to the caller.
+   */
+  public enum CompletionMode {
+    /**
+     * Every callback runs on the callback thread pool.
+     */
+    POOLED,
+
+    /**
+     * A {@link NonBlockingCompletionHandler} runs directly on the I/O completion thread, the
+     * others are handed to the callback threads in batches.
+     */
+    DIRECT
+  }
+
+  /**
+   * Set the weight of a share when the tasks are scheduled by {@link IoSchedulerType#FAIR_SHARE}.
+   */
+  public void setShareWeight(long shareKey, int weight) {
+    if (taskExecutor.taskSelector instanceof FairShareTaskSelector) {
+      ((FairShareTaskSelector<Task>) taskExecutor.taskSelector).setWeight(shareKey, weight);
+    } else {
+      logger.warn("storage {} is not scheduled by fair share, ignore the weight {} of share {}",
+          identifier, weight, shareKey);
+    }
+  }
+
+  /**
+   * An in-flight I/O slot, which is reused by the following I/O after it is done. It is also the
+   * completion handler of the I/O it holds, so nothing is allocated for each I/O but the boxed
+   * generation. Each I/O started in the slot gets a new generation, which is handed to the delegate
+   * as the attachment, so a late or repeated completion of an earlier I/O is told apart and dropped
+   * instead of finishing the I/O the slot holds now.
+   */
+  private class InFlightTask implements CompletionHandler<Integer, Object> {
+    private static final long IDLE = -1L;
+
+    final TaskInfo taskInfo;
+    // generation of the I/O in flight, IDLE if there is none
+    final AtomicLong inFlightGeneration = new AtomicLong(IDLE);
+    // only touched by the owner of the slot, between acquiring and starting it
+    long lastGeneration = 0;
+    AdaptiveConcurrencyLimiter limiter;
+    PerformanceContext performanceContext;
+
+    InFlightTask(int slotId) {
+      this.taskInfo = new TaskInfo(slotId, this);
+    }
+
+    /**
+     * Hold the given task.
+     *
+     * @return the generation of the I/O, which must be passed to the delegate as the attachment
+     */
+    Long start(Task task, AdaptiveConcurrencyLimiter limiter,
+        PerformanceContext performanceContext) {
+      this.limiter = limiter;
+      this.performanceContext = performanceContext;
+      taskInfo.reset(task);
+      long generation = ++lastGeneration;
+      inFlightGeneration.set(generation);
+      return generation;
+    }
+
+    /**
+     * Give back the slot if it still holds the I/O of the given generation.
+     *
+     * @return the task held, or null if the I/O of the generation has already been finished
+     */
+    Task finish(Object generation) {
+      if (!(generation instanceof Long) || !inFlightGeneration
+          .compareAndSet((Long) generation, IDLE)) {
+        return null;
+      }
+
+      Task task = taskInfo.getTask();
+      ioDone(limiter, performanceContext);
+      limiter = null;
+      performanceContext = null;
+      taskInfo.reset(null);
+      if (taskInfo.getSlotId() >= 0) {
+        inFlightSlotTable.release(taskInfo.getSlotId());
+      } else {
+        overflowInFlightTasks.remove(this);
+      }
+      return task;
+    }
+
+    /**
+     * Fail the I/O in flight, if any, without waiting for its completion.
+     */
+    void abort(StorageException exception) {
+      long generation = inFlightGeneration.get();
+      if (generation != IDLE) {
+        failed(exception, generation);
+      }
+    }
+
+    @Override
+    public void completed(Integer result, Object attachment) {
+      Task task = finish(attachment);
+      if (task == null) {
+        logger.warn("drop the completion of a finished io, generation {}", attachment);
+        return;
+      }
+      taskDone(task, result);
+    }
+
+    @Override
+    public void failed(Throwable exc, Object attachment) {
+      Task task = finish(attachment);
+      if (task == null) {
+        logger.warn("drop the failure of a finished io, generation {}", attachment, exc);
+        return;
+      }
+      if (exc instanceof StorageException) {
+        taskFailed(task, (StorageException) exc);
+      } else {
+        taskFailed(task, new StorageIoException(task.pos, task.remaining()));
+      }
+      logger.warn("storage io error. type:{} offset:{} length:{}", task.type,
+          task.pos,
+          task.remaining(), exc);
+    }
+  }
+
   private class TaskExecutor extends AbstractMultiThreadConsumerService<Task> {
     final DeadlineTaskSelector<Task> taskSelector;
 
-    private TaskExecutor(String name, StorageType storageType) {
+    private TaskExecutor(String name, DeadlineTaskSelector<Task> taskSelector) {
       super(1, PriorityStorageImpl.this::processTask, name);
-      this.taskSelector = new MergedDeadlineTaskSelector(Task::compareToWithOffset, storageType,
-          pagePhysicalSize);
+      this.taskSelector = taskSelector;
     }
 
     @Override
@@ -454,7 +764,11 @@ public class PriorityStorageImpl extends PriorityStorage {
     @Override
     protected Task pollElement() {
       try {
-        return taskSelector.select();
+        Task task = taskSelector.select();
+        if (task == null) {
+          flushDelegate();
+        }
+        return task;
       } finally {
         logger.info("nothing need to do here");
       }
@@ -463,6 +777,12 @@ public class PriorityStorageImpl extends PriorityStorage {
     @Override
     protected Task pollElement(int time, TimeUnit timeUnit) throws InterruptedException {
       try {
+        Task task = taskSelector.select();
+        if (task != null) {
+          return task;
+        }
+        // no more ready task, hand the batched I/O to the device before waiting
+        flushDelegate();
         return taskSelector.select(time, timeUnit);
       } finally {
         logger.info("nothing need to do here");
@@ -12,10 +12,12 @@
  *  this program. If not, see <http://www.gnu.org/licenses/>.
  */
 
-package py.netty.client;
+package py.storage.impl;
 
-import py.netty.core.MethodCallback;
-
-public interface TimerTaskRemover<T> {
-  public MethodCallback<T> removeTimer(long requestId);
+/**
+ * An attachment of a storage request which tells the fair share scheduler which share (e.g. which
+ * volume) the request belongs to.
+ */
+public interface ShareKeyed {
+  long getShareKey();
 }
@@ -23,6 +23,7 @@ import javax.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import py.common.DirectAlignedBufferAllocator;
+import py.exception.StorageException;
 import py.storage.PriorityStorage;
 
 public class Task<A> implements Comparable<Task> {
@@ -30,6 +31,7 @@ public class Task<A> implements Comparable<Task> {
 
   private static final AtomicLong seq = new AtomicLong(0);
   public final ByteBuffer buffer;
+  final ByteBuffer[] buffers;
   final Task.TaskType type;
   final PriorityStorage.Priority priority;
   final long pos;
@@ -40,9 +42,15 @@ public class Task<A> implements Comparable<Task> {
   public Task(TaskType type, PriorityStorage.Priority priority, long pos, A attachment,
       ByteBuffer buffer,
       CompletionHandler<Integer, ? super A> handler) {
+    this(type, priority, pos, attachment, buffer, null, handler);
+  }
+
+  private Task(TaskType type, PriorityStorage.Priority priority, long pos, A attachment,
+      ByteBuffer buffer, ByteBuffer[] buffers, CompletionHandler<Integer, ? super A> handler) {
     this.pos = pos;
     this.attachment = attachment;
     this.buffer = buffer;
+    this.buffers = buffers;
     this.handler = handler;
     this.seqNum = seq.incrementAndGet();
     this.type = type;
@@ -171,6 +179,100 @@ public class Task<A> implements Comparable<Task> {
     }
   }
 
+  /**
+   * Merge adjacent tasks into one vectored task whose buffers are the buffers of the given tasks,
+   * so that they can be submitted as a single scatter/gather I/O without copying any data.
+   */
+  public static Task mergeVectored(LinkedList<Task> canBeMergedTasks) {
+    if (canBeMergedTasks == null || canBeMergedTasks.size() == 0) {
+      throw new IllegalArgumentException("empty tasks " + canBeMergedTasks);
+    }
+
+    if (canBeMergedTasks.size() == 1) {
+      return canBeMergedTasks.get(0);
+    }
+
+    Task firstTask = canBeMergedTasks.get(0);
+    TaskType type = firstTask.type;
+    if (type != TaskType.Read && type != TaskType.Write) {
+      throw new IllegalArgumentException("illegal task type " + type);
+    }
+
+    ByteBuffer[] buffers = new ByteBuffer[canBeMergedTasks.size()];
+    int[] lengthArray = new int[canBeMergedTasks.size()];
+    for (int i = 0; i < canBeMergedTasks.size(); i++) {
+      Task canBeMergedTask = canBeMergedTasks.get(i);
+      buffers[i] = canBeMergedTask.buffer;
+      lengthArray[i] = canBeMergedTask.buffer.remaining();
+    }
+
+    return new Task<>(type, firstTask.priority, firstTask.pos, null, null, buffers,
+        new CompletionHandler<Integer, Object>() {
+          @Override
+          public void completed(Integer result, Object attachment) {
+            // a short transfer covers the leading buffers only, the rest have not been done
+            int left = result == null ? 0 : Math.max(result, 0);
+            for (int i = 0; i < canBeMergedTasks.size(); i++) {
+              Task canBeMergedTask = canBeMergedTasks.get(i);
+              try {
+                if (left >= lengthArray[i]) {
+                  left -= lengthArray[i];
+                  canBeMergedTask.complete(lengthArray[i]);
+                } else {
+                  canBeMergedTask.failed(new StorageException(
+                      "short vectored io, result: " + result + ", task: " + i + " of "
+                          + lengthArray.length + ", left: " + left));
+                  left = 0;
+                }
+              } catch (Throwable t) {
+                logger.error("error", t);
+              }
+            }
+          }
+
+          @Override
+          public void failed(Throwable exc, Object attachment) {
+            for (Task canBeMergedTask : canBeMergedTasks) {
+              try {
+                canBeMergedTask.failed(exc);
+              } catch (Throwable t) {
+                logger.error("error", t);
+              }
+            }
+          }
+        });
+  }
+
+  /**
+   * Get the total length of this task, a vectored task covers all of its buffers.
+   */
+  public int remaining() {
+    if (buffers == null) {
+      return buffer.remaining();
+    }
+
+    int length = 0;
+    for (ByteBuffer byteBuffer : buffers) {
+      length += byteBuffer.remaining();
+    }
+    return length;
+  }
+
+  public boolean isVectored() {
+    return buffers != null;
+  }
+
+  /**
+   * Get the share this task belongs to for fair share scheduling, tasks with no {@link ShareKeyed}
+   * attachment all fall into share 0.
+   */
+  public long getShareKey() {
+    if (attachment instanceof ShareKeyed) {
+      return ((ShareKeyed) attachment).getShareKey();
+    }
+    return 0;
+  }
+
   @Override
   public int compareTo(@Nonnull Task o) {
     int res = Integer.compare(priority.getVal(), o.priority.getVal());
@@ -200,15 +302,17 @@ public class Task<A> implements Comparable<Task> {
   public String toString() {
     return "Task{" + "seqNum=" + seqNum + ", type=" + type + ", priority=" + priority + ", offset="
         + pos
-        + ", attachment=" + attachment + ", buffer=" + buffer + '}';
+        + ", attachment=" + attachment + ", buffer=" + buffer
+        + (buffers == null ? "" : ", vectored buffer count=" + buffers.length) + '}';
   }
 
   boolean canMergeBefore(@Nonnull Task another) {
-    if (type != another.type || priority != another.priority) {
+    if (type != another.type || priority != another.priority || isVectored()
+        || another.isVectored()) {
       return false;
     }
 
-    return pos + buffer.remaining() == another.pos;
+    return pos + remaining() == another.pos;
   }
 
   public enum TaskType {
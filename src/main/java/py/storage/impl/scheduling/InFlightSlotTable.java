@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.impl.scheduling;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A table of preallocated slots for the in-flight I/O, indexed by slot id. The slots are reused by
+ * the following I/O once released, so nothing is allocated or hashed for each I/O.
+ */
+public class InFlightSlotTable<S> {
+  private static final int FREE = 0;
+  private static final int IN_USE = 1;
+
+  private final Object[] slots;
+  private final AtomicIntegerArray states;
+  private final AtomicInteger cursor = new AtomicInteger(0);
+
+  public InFlightSlotTable(int capacity, IntFunction<S> slotFactory) {
+    Validate.isTrue(capacity > 0, "capacity must be positive: " + capacity);
+    this.slots = new Object[capacity];
+    this.states = new AtomicIntegerArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = slotFactory.apply(i);
+    }
+  }
+
+  /**
+   * Take a free slot.
+   *
+   * @return the slot id, or -1 if all the slots are in use
+   */
+  public int acquire() {
+    int start = cursor.getAndIncrement();
+    for (int i = 0; i < slots.length; i++) {
+      int slotId = Math.floorMod(start + i, slots.length);
+      if (states.get(slotId) == FREE && states.compareAndSet(slotId, FREE, IN_USE)) {
+        return slotId;
+      }
+    }
+    return -1;
+  }
+
+  public void release(int slotId) {
+    states.set(slotId, FREE);
+  }
+
+  @SuppressWarnings("unchecked")
+  public S get(int slotId) {
+    return (S) slots[slotId];
+  }
+
+  /**
+   * Walk through the slots in use. A slot may be released or reused while being visited.
+   */
+  public void forEachInUse(Consumer<S> consumer) {
+    for (int i = 0; i < slots.length; i++) {
+      if (states.get(i) == IN_USE) {
+        consumer.accept(get(i));
+      }
+    }
+  }
+
+  public int capacity() {
+    return slots.length;
+  }
+}
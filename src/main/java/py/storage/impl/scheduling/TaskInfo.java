@@ -17,23 +17,45 @@ package py.storage.impl.scheduling;
 import java.nio.channels.CompletionHandler;
 import py.storage.impl.Task;
 
+/**
+ * The information of an in-flight task. It is reusable when it comes from an
+ * {@link InFlightSlotTable}, in which case the task is null while the slot is free.
+ */
 public class TaskInfo {
-  private final Task task;
-  private final long generateTime;
+  private final int slotId;
   private final CompletionHandler<Integer, Object> storageCallback;
+  private volatile Task task;
+  private volatile long generateTime;
   private volatile long submitTime;
 
   public TaskInfo(Task task,
       CompletionHandler<Integer, Object> storageCallback) {
-    this.task = task;
+    this(-1, storageCallback);
+    reset(task);
+  }
+
+  public TaskInfo(int slotId, CompletionHandler<Integer, Object> storageCallback) {
+    this.slotId = slotId;
     this.storageCallback = storageCallback;
+  }
+
+  /**
+   * Hold a new task, or clear the task with null.
+   */
+  public void reset(Task task) {
     generateTime = System.currentTimeMillis();
+    submitTime = 0;
+    this.task = task;
   }
 
   public void submitDone() {
     submitTime = System.currentTimeMillis();
   }
 
+  public int getSlotId() {
+    return slotId;
+  }
+
   public Task getTask() {
     return task;
   }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage.performance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the in-flight I/O of a device, and adjusts the limit from the latency of the completed
+ * I/O in a gradient (TCP Vegas like) way.
+ *
+ * <p>The latency samples are averaged in windows of about {@code limit} samples. The least window
+ * average seen is taken as the latency with no queueing in the device, and each window moves the
+ * limit to {@code limit * leastLatency / latency + sqrt(limit)}: the limit grows while the latency
+ * stays close to the least one and shrinks once requests start to queue in the device. The least
+ * latency is reset every {@link #PROBE_INTERVAL_WINDOWS} windows to follow the changes of the
+ * device.
+ */
+public class AdaptiveConcurrencyLimiter {
+  private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+  private static final int MIN_WINDOW_SAMPLE_COUNT = 16;
+  private static final int PROBE_INTERVAL_WINDOWS = 500;
+  private static final double MIN_GRADIENT = 0.5;
+  private static final double SMOOTHING = 0.2;
+  private static final long MAX_WAIT_MS = 10;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final AtomicInteger inFlight = new AtomicInteger(0);
+  private volatile int limit;
+  private volatile boolean waiting = false;
+
+  // guarded by this
+  private double estimatedLimit;
+  private long windowLatencySum = 0;
+  private int windowSampleCount = 0;
+  private int windowCount = 0;
+  private long leastLatency = Long.MAX_VALUE;
+
+  public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    Validate.isTrue(minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit,
+        "bad limits, initial " + initialLimit + " min " + minLimit + " max " + maxLimit);
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+    this.estimatedLimit = initialLimit;
+  }
+
+  /**
+   * Try to take a slot for a new I/O.
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Wait until a slot for a new I/O is taken.
+   */
+  public void acquire() throws InterruptedException {
+    if (tryAcquire()) {
+      return;
+    }
+
+    synchronized (this) {
+      waiting = true;
+      try {
+        while (!tryAcquire()) {
+          wait(MAX_WAIT_MS);
+        }
+      } finally {
+        waiting = false;
+      }
+    }
+  }
+
+  /**
+   * Give back the slot of a done I/O.
+   */
+  public void release() {
+    inFlight.decrementAndGet();
+    if (waiting) {
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Feed the latency of a done I/O.
+   */
+  public synchronized void onSample(long latencyNanos) {
+    windowLatencySum += latencyNanos;
+    windowSampleCount++;
+    if (windowSampleCount < Math.max(limit, MIN_WINDOW_SAMPLE_COUNT)) {
+      return;
+    }
+
+    long latency = Math.max(1, windowLatencySum / windowSampleCount);
+    windowLatencySum = 0;
+    windowSampleCount = 0;
+
+    if (++windowCount % PROBE_INTERVAL_WINDOWS == 0) {
+      leastLatency = latency;
+    } else {
+      leastLatency = Math.min(leastLatency, latency);
+    }
+
+    double gradient = Math.max(MIN_GRADIENT, (double) leastLatency / latency);
+    double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    estimatedLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+
+    int oldLimit = limit;
+    limit = (int) estimatedLimit;
+    if (limit != oldLimit) {
+      logger.debug("limit {} -> {}, latency {}us, least latency {}us", oldLimit, limit,
+          TimeUnit.NANOSECONDS.toMicros(latency), TimeUnit.NANOSECONDS.toMicros(leastLatency));
+      if (limit > oldLimit) {
+        notifyAll();
+      }
+    }
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+}
@@ -24,6 +24,7 @@ import java.util.LinkedList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import py.common.reservoir.Reservoir;
@@ -47,7 +48,19 @@ public class PerformanceRecorderImpl implements PerformanceRecorder {
   private final AtomicInteger pendingCount;
   private final AtomicLong lastDoneTime = new AtomicLong(0);
 
+  private final LongConsumer latencyListener;
+
   public PerformanceRecorderImpl(int windowSeconds, int pageSize) {
+    this(windowSeconds, pageSize, null);
+  }
+
+  /**
+   * Constructor for this class.
+   *
+   * @param latencyListener if not null, notified with the elapsed nanoseconds of each done I/O
+   */
+  public PerformanceRecorderImpl(int windowSeconds, int pageSize, LongConsumer latencyListener) {
+    this.latencyListener = latencyListener;
     this.latencyReservoir = new SlidingTimeWindowReservoir(windowSeconds, TimeUnit.SECONDS);
     this.offsetReservoir = new SlidingTimeWindowReservoir(windowSeconds, TimeUnit.SECONDS);
     this.pageSize = pageSize;
@@ -147,6 +160,9 @@ public class PerformanceRecorderImpl implements PerformanceRecorder {
       pendingCount.decrementAndGet();
       long doneTime = clock.getTick();
       long lastDone = lastDoneTime.getAndSet(doneTime);
+      if (latencyListener != null) {
+        latencyListener.accept(doneTime - startTime);
+      }
 
       if (lastDone > startTime) {
         long serviceTime = doneTime - lastDone;
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.transfer;
+
+import io.netty.channel.FileRegion;
+
+/**
+ * A message whose body is streamed from a file region instead of a buffer, see
+ * {@link PyIoTcpServer#newFileRegionMessage}.
+ */
+public class PyIoFileRegionMessage extends PyIoMessage {
+  private final FileRegion region;
+
+  public PyIoFileRegionMessage(PyIoMessageHeader header, FileRegion region) {
+    this.region = region;
+    setHeader(header);
+  }
+
+  public FileRegion getRegion() {
+    return region;
+  }
+
+  @Override
+  public void release() {
+    region.release();
+  }
+
+  @Override
+  public String toString() {
+    return "PyIoFileRegionMessage{" + "header=" + getHeader() + ", region=" + region + '}';
+  }
+}
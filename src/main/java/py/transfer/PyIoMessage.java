@@ -39,6 +39,16 @@ public class PyIoMessage {
     this.body = body;
   }
 
+  /**
+   * Release the body, which is a pooled direct buffer when received by a
+   * {@link PyIoTcpServer} with zero copy receive enabled.
+   */
+  public void release() {
+    if (body != null) {
+      body.release();
+    }
+  }
+
   public interface PyIoMessageContent {
     public ByteBuf getData();
 
@@ -28,24 +28,79 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.MessageToMessageEncoder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import py.storage.impl.AsyncStorage;
 
+/**
+ * The server of bulk data transfer.
+ *
+ * <p>Data read from a storage can be sent as a {@link PyIoFileRegionMessage}, which streams the
+ * extent from the storage file to the socket by sendfile. With zero copy receive enabled, the body
+ * of a received message is the pooled direct frame itself instead of a heap copy, and must be
+ * released by {@link PyIoMessage#release()} after being written to the storage.
+ */
 public class PyIoTcpServer {
   public static final int TCP_DATA_SERVER_PORT = 10012;
   private static final Logger logger = LoggerFactory.getLogger(PyIoTcpServer.class);
+  // the request id and the channel id are counted in the length of a message
+  private static final int LENGTH_OF_IDS = Long.BYTES + Integer.BYTES;
   final int serverThreadCount = 1;
+  private final Map<Path, FileChannel> transferChannels;
   private BlockingQueue<PyIoMessage> requestMessageQueue;
   private PyChannelIdManager channelManager;
   private ServerBootstrap bootStrap;
   private EventLoopGroup serverGroup;
+  private volatile boolean zeroCopyReceive;
 
   public PyIoTcpServer(BlockingQueue<PyIoMessage> requestMessageQueue) {
     this.requestMessageQueue = requestMessageQueue;
     this.channelManager = new PyChannelIdManager(PyIoParameters.MAX_CHANNELS);
     this.serverGroup = new NioEventLoopGroup(serverThreadCount);
+    this.transferChannels = new ConcurrentHashMap<>();
+    this.zeroCopyReceive = false;
+  }
+
+  public void setZeroCopyReceive(boolean zeroCopyReceive) {
+    this.zeroCopyReceive = zeroCopyReceive;
+  }
+
+  /**
+   * Build a message whose body is the given extent of the storage, streamed from the storage file
+   * to the socket without being copied through user space. The region of the message is released
+   * once it is written.
+   */
+  public PyIoFileRegionMessage newFileRegionMessage(PyIoMessageHeader header, AsyncStorage storage,
+      long pos, int length) throws IOException {
+    Path path = storage.getPath();
+    if (path == null) {
+      throw new IOException("storage " + storage.identifier() + " is not backed by a file");
+    }
+
+    FileChannel fileChannel;
+    try {
+      fileChannel = transferChannels.computeIfAbsent(path, p -> {
+        try {
+          return FileChannel.open(p, StandardOpenOption.READ);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    header.setLength(LENGTH_OF_IDS + length);
+    return new PyIoFileRegionMessage(header, new StorageFileRegion(fileChannel, pos, length));
   }
 
   public void bind(int port) throws InterruptedException {
@@ -70,6 +125,14 @@ public class PyIoTcpServer {
 
   public void shutdown() {
     serverGroup.shutdownGracefully();
+    for (FileChannel fileChannel : transferChannels.values()) {
+      try {
+        fileChannel.close();
+      } catch (IOException e) {
+        logger.warn("can not close the transfer channel {}", fileChannel, e);
+      }
+    }
+    transferChannels.clear();
   }
 
   public PyChannelIdManager getChannelManager() {
@@ -108,7 +171,7 @@ public class PyIoTcpServer {
     @Override
     protected void encode(ChannelHandlerContext ctx, PyIoMessage msg, List<Object> out)
         throws Exception {
-      ByteBuf buf = ctx.alloc().ioBuffer(msg.getHeader().getLength() + 8);
+      ByteBuf buf = ctx.alloc().ioBuffer(8 + LENGTH_OF_IDS);
 
       buf.writeInt(msg.getHeader().getMagic());
       buf.writeInt(msg.getHeader().getLength());
@@ -117,12 +180,14 @@ public class PyIoTcpServer {
               msg.getHeader().getRequestid(), msg.getHeader().getChannelid());
       buf.writeLong(msg.getHeader().getRequestid());
       buf.writeInt(msg.getHeader().getChannelid());
-
-      ByteBuf body = msg.getBody();
-
-      buf.writeBytes(body, body.readerIndex(), body.readableBytes());
-      logger.warn("a msg is write out {}", buf.readableBytes());
       out.add(buf);
+
+      if (msg instanceof PyIoFileRegionMessage) {
+        out.add(((PyIoFileRegionMessage) msg).getRegion());
+      } else {
+        out.add(msg.getBody().retainedDuplicate());
+      }
+      logger.warn("a msg is write out {}", msg.getHeader().getLength() + 8);
     }
 
   }
@@ -156,7 +221,12 @@ public class PyIoTcpServer {
 
       message.setHeader(header);
 
-      message.setBody(Unpooled.copiedBuffer(packet.slice()));
+      if (zeroCopyReceive) {
+        message.setBody(packet);
+      } else {
+        message.setBody(Unpooled.copiedBuffer(packet.slice()));
+        packet.release();
+      }
 
       logger.info("server decode message:{}", message);
       return message;
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.transfer;
+
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A region of a storage file, which is sent to a socket by {@link FileChannel#transferTo}, that is
+ * sendfile, without being copied through user space.
+ *
+ * <p>Unlike {@link io.netty.channel.DefaultFileRegion}, the file channel is shared by many regions
+ * and is not closed when the region is released.
+ */
+public class StorageFileRegion extends AbstractReferenceCounted implements FileRegion {
+  private final FileChannel file;
+  private final long position;
+  private final long count;
+  private long transferred;
+
+  public StorageFileRegion(FileChannel file, long position, long count) {
+    this.file = file;
+    this.position = position;
+    this.count = count;
+  }
+
+  @Override
+  public long position() {
+    return position;
+  }
+
+  @Override
+  public long count() {
+    return count;
+  }
+
+  @Override
+  @Deprecated
+  public long transfered() {
+    return transferred;
+  }
+
+  @Override
+  public long transferred() {
+    return transferred;
+  }
+
+  @Override
+  public long transferTo(WritableByteChannel target, long position) throws IOException {
+    long remaining = count - position;
+    if (remaining < 0 || position < 0) {
+      throw new IllegalArgumentException(
+          "position out of range: " + position + " (expected: 0 - " + (count - 1) + ')');
+    }
+    if (remaining == 0) {
+      return 0L;
+    }
+
+    long written = file.transferTo(this.position + position, remaining, target);
+    if (written > 0) {
+      transferred += written;
+    }
+    return written;
+  }
+
+  @Override
+  protected void deallocate() {
+  }
+
+  @Override
+  public FileRegion retain() {
+    super.retain();
+    return this;
+  }
+
+  @Override
+  public FileRegion retain(int increment) {
+    super.retain(increment);
+    return this;
+  }
+
+  @Override
+  public FileRegion touch() {
+    return this;
+  }
+
+  @Override
+  public FileRegion touch(Object hint) {
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "StorageFileRegion{" + "position=" + position + ", count=" + count + ", transferred="
+        + transferred + '}';
+  }
+}
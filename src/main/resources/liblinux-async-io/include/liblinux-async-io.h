@@ -7,6 +7,7 @@
 #include <sys/types.h>
 #include <unistd.h>
 #include <sys/syscall.h>
+#include <sys/uio.h>
 #include <linux/aio_abi.h>
 #include <jni.h>
 
@@ -59,6 +60,7 @@ struct user_iocb_list_t {
 	u_int64_t tsc_end;
 	u_int64_t cost_tm;
 	u_int32_t io_len;
+	u_int64_t nbytes;	/* bytes the request transfers, aio_nbytes is a vector count for preadv/pwritev */
 	u_int16_t io_type;
 	u_int16_t contiguous;
     JavaVM     *j_vm;
@@ -189,6 +191,37 @@ static inline void io_prep_pwrite(struct iocb *iocb, int fd, void const *buf, in
 
 }
 
+static inline void io_prep_preadv(struct iocb *iocb, int fd, const struct iovec *iov,
+		      int iovcnt, int64_t offset)
+{
+	memset(iocb, 0, sizeof(*iocb));
+	iocb->aio_fildes = fd;
+	iocb->aio_lio_opcode = IOCB_CMD_PREADV;
+	iocb->aio_reqprio = 0;
+	iocb->aio_buf = (u_int64_t) iov;
+	iocb->aio_nbytes = iovcnt;
+	iocb->aio_offset = offset;
+
+}
+
+static inline void io_prep_pwritev(struct iocb *iocb, int fd, const struct iovec *iov,
+		      int iovcnt, int64_t offset)
+{
+	memset(iocb, 0, sizeof(*iocb));
+	iocb->aio_fildes = fd;
+	iocb->aio_lio_opcode = IOCB_CMD_PWRITEV;
+	iocb->aio_reqprio = 0;
+	iocb->aio_buf = (u_int64_t) iov;
+	iocb->aio_nbytes = iovcnt;
+	iocb->aio_offset = offset;
+
+}
+
+static inline int iocb_is_read(const struct iocb *iocb)
+{
+	return iocb->aio_lio_opcode == IOCB_CMD_PREAD || iocb->aio_lio_opcode == IOCB_CMD_PREADV;
+}
+
 static inline void io_event_setup(struct iocb *iocb, int afd)
 {
        iocb->aio_flags = IOCB_FLAG_RESFD;
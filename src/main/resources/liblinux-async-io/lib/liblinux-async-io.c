@@ -4,6 +4,7 @@
 
 #include <errno.h>
 #include <fcntl.h>
+#include <limits.h>
 #include <jni.h>
 #include <pthread.h>
 #include <stdlib.h>
@@ -338,20 +339,20 @@ static void aio_done_callback(struct datanode_aio_ctx_t *aio_ctx,
 
     PY_LOG_DEBUG(
         "request_type: %s, offset: %llu, length: %lld, res: %ld, res2: %ld\n",
-        (iocbp->aio_lio_opcode == IOCB_CMD_PREAD) ? "READ" : "WRITE",
-        iocbp->aio_offset, iocbp->aio_nbytes, res, res2);
-    aio_ctx->total_nbytes += iocbp->aio_nbytes;
+        iocb_is_read(iocbp) ? "READ" : "WRITE",
+        iocbp->aio_offset, user_iocb_list->nbytes, res, res2);
+    aio_ctx->total_nbytes += user_iocb_list->nbytes;
 
     int error_code = 0;
     JNIEnv *env = user_iocb_list->env;
     jobject obj = user_iocb_list->callback_obj;
 
-    if (res != iocbp->aio_nbytes) {
+    if (res != user_iocb_list->nbytes) {
         error_code = -1;
         PY_LOG_WARNING(
             "storage:%s get error event opcode:%s res:%ld  res2:%ld offset:%llu length:%lld",
-            aio_ctx->file_name, (iocbp->aio_lio_opcode == IOCB_CMD_PREAD) ? "READ" : "WRITE", 
-            res, res2,iocbp->aio_offset, iocbp->aio_nbytes);
+            aio_ctx->file_name, iocb_is_read(iocbp) ? "READ" : "WRITE", 
+            res, res2,iocbp->aio_offset, user_iocb_list->nbytes);
     } else {
         error_code = 0; 
     }
@@ -462,8 +463,14 @@ static int decrea_submit(struct datanode_aio_ctx_t *aio_ctx, int count) {
 
     return 0;
 }
+/*
+ * Submits one request. With iov set the request is a preadv/pwritev of iovcnt segments
+ * totalling size bytes, otherwise a pread/pwrite of size bytes at buf. The kernel copies the
+ * iovec array during io_submit, so it may live on the caller's stack.
+ */
 static long __datanode_aio_operation(JNIEnv *env, jclass clazz,
                                      jobject callback, long ctx_ptr, void *buf,
+                                     const struct iovec *iov, int iovcnt,
                                      long size, long offset, int op) {
     struct datanode_aio_ctx_t *aio_ctx = (struct datanode_aio_ctx_t *)ctx_ptr;
     long ret = 0;
@@ -502,10 +509,18 @@ static long __datanode_aio_operation(JNIEnv *env, jclass clazz,
 
     if (op == AIO_OPERATION_READ) {
         user_iocb_list->index = __sync_add_and_fetch(&aio_ctx->read_total, 1);
-        io_prep_pread(iocb, aio_ctx->fd, buf, size, offset);
+        if (iov != NULL) {
+            io_prep_preadv(iocb, aio_ctx->fd, iov, iovcnt, offset);
+        } else {
+            io_prep_pread(iocb, aio_ctx->fd, buf, size, offset);
+        }
     } else if (op == AIO_OPERATION_WRITE) {
         user_iocb_list->index = __sync_add_and_fetch(&aio_ctx->write_total, 1);
-        io_prep_pwrite(iocb, aio_ctx->fd, buf, size, offset);
+        if (iov != NULL) {
+            io_prep_pwritev(iocb, aio_ctx->fd, iov, iovcnt, offset);
+        } else {
+            io_prep_pwrite(iocb, aio_ctx->fd, buf, size, offset);
+        }
     } else {
         ret = -PY_EINVAL;
         goto release_list;
@@ -521,6 +536,7 @@ static long __datanode_aio_operation(JNIEnv *env, jclass clazz,
     user_iocb_list->contiguous = aio_ctx->io_pattern.contiguous;     
     pthread_mutex_unlock(&aio_ctx->io_pattern.lock); 
 
+    user_iocb_list->nbytes = size;
     user_iocb_list->tsc_start = get_tsc();
     iocb->aio_data = (uint64_t)user_iocb_list;
     int rc = io_submit(aio_ctx->ctx, 1, iocbp);
@@ -560,7 +576,7 @@ JNIEXPORT void JNICALL Java_py_storage_async_AsyncFileAccessor_write(
     PY_LOG_INFO("write length:%d offset:%ld\n", length, offset);
     struct datanode_aio_ctx_t *aio_ctx = (struct datanode_aio_ctx_t *)ctx_ptr;
     void *buf = (void *)buf_ptr;
-    __datanode_aio_operation(env, clasz, callback, ctx_ptr, buf, length, offset,
+    __datanode_aio_operation(env, clasz, callback, ctx_ptr, buf, NULL, 0, length, offset,
                              AIO_OPERATION_WRITE);
     return;
 }
@@ -571,11 +587,61 @@ JNIEXPORT void JNICALL Java_py_storage_async_AsyncFileAccessor_read(
     PY_LOG_INFO("read length:%d offset:%ld\n", length, offset);
     struct datanode_aio_ctx_t *aio_ctx = (struct datanode_aio_ctx_t *)ctx_ptr;
     void *buf = (void *)buf_ptr;
-    __datanode_aio_operation(env, clazz, callback, ctx_ptr, buf, length, offset,
+    __datanode_aio_operation(env, clazz, callback, ctx_ptr, buf, NULL, 0, length, offset,
                              AIO_OPERATION_READ);
     return;
 }
 
+static void __datanode_aio_vector_operation(JNIEnv *env, jclass clazz, jlong ctx_ptr,
+                                            jlongArray addresses, jintArray lengths,
+                                            jlong offset, jobject callback, int op) {
+    jsize iovcnt = (*env)->GetArrayLength(env, addresses);
+    if (iovcnt <= 0 || iovcnt > IOV_MAX || (*env)->GetArrayLength(env, lengths) != iovcnt) {
+        PY_LOG_ERROR("invalid vector count:%d op:%d offset:%ld", iovcnt, op, offset);
+        jclass callback_clazz = (*env)->GetObjectClass(env, callback);
+        jmethodID mid = (*env)->GetMethodID(env, callback_clazz, "done", "(I)V");
+        callback_to_java(((struct datanode_aio_ctx_t *)ctx_ptr)->j_vm, env, mid,
+                         (*env)->NewGlobalRef(env, callback), -1);
+        return;
+    }
+
+    struct iovec iov[iovcnt];
+    jlong *address_array = (*env)->GetLongArrayElements(env, addresses, NULL);
+    jint *length_array = (*env)->GetIntArrayElements(env, lengths, NULL);
+    long size = 0;
+    int i;
+    for (i = 0; i < iovcnt; i++) {
+        iov[i].iov_base = (void *)address_array[i];
+        iov[i].iov_len = length_array[i];
+        size += length_array[i];
+    }
+    (*env)->ReleaseIntArrayElements(env, lengths, length_array, JNI_ABORT);
+    (*env)->ReleaseLongArrayElements(env, addresses, address_array, JNI_ABORT);
+
+    PY_LOG_INFO("vector op:%d count:%d length:%ld offset:%ld\n", op, iovcnt, size, offset);
+    __datanode_aio_operation(env, clazz, callback, ctx_ptr, NULL, iov, iovcnt, size, offset, op);
+}
+
+JNIEXPORT void JNICALL Java_py_storage_async_AsyncFileAccessor_writev(
+    JNIEnv *env, jclass clazz, jlong ctx_ptr, jlongArray addresses, jintArray lengths,
+    jlong offset, jobject callback) {
+    __datanode_aio_vector_operation(env, clazz, ctx_ptr, addresses, lengths, offset, callback,
+                                    AIO_OPERATION_WRITE);
+}
+
+JNIEXPORT void JNICALL Java_py_storage_async_AsyncFileAccessor_readv(
+    JNIEnv *env, jclass clazz, jlong ctx_ptr, jlongArray addresses, jintArray lengths,
+    jlong offset, jobject callback) {
+    __datanode_aio_vector_operation(env, clazz, ctx_ptr, addresses, lengths, offset, callback,
+                                    AIO_OPERATION_READ);
+}
+
+/* lets the java side detect a library built without readv/writev */
+JNIEXPORT jboolean JNICALL Java_py_storage_async_AsyncFileAccessor_vectoredIoSupported(
+    JNIEnv *env, jclass clazz) {
+    return JNI_TRUE;
+}
+
 static void *datanode_aio_callback_handler(void *ctx_ptr) {
     struct datanode_aio_ctx_t *aio_ctx = (struct datanode_aio_ctx_t *)ctx_ptr;
     char thread_name[128];
@@ -135,7 +135,7 @@ static void __store_debug_offset(struct datanode_aio_ctx_t *aio_ctx, struct user
     if(aio_ctx->debug_st->debug_offset_store) {
         struct io_offset_ns io;
         io.offset = user_iocb_list->iocb.aio_offset;
-        io.length = user_iocb_list->iocb.aio_nbytes;
+        io.length = user_iocb_list->nbytes;
         io.op = user_iocb_list->iocb.aio_lio_opcode;
         io.ns = user_iocb_list->cost_tm;
         aio_ctx->debug_st->debug_offset_store(aio_ctx->debug_st->offset_array, index, &io);
@@ -223,10 +223,10 @@ static u_int32_t slow_disk_checker_cost(void *__aio_ctx, struct user_iocb_list_t
         threshold = aio_ctx->slow_disk_random_ns;
     } else if(user_iocb_list->io_type == IO_SEQUENTIAL) {
         opcode = user_iocb_list->iocb.aio_lio_opcode;
-        if (opcode == IOCB_CMD_PREAD) {
+        if (opcode == IOCB_CMD_PREAD || opcode == IOCB_CMD_PREADV) {
             io_ring = &aio_ctx->disk_checker->ring_read;
             threshold = aio_ctx->slow_disk_sequen_ns;
-        } else if(opcode == IOCB_CMD_PWRITE) {
+        } else if(opcode == IOCB_CMD_PWRITE || opcode == IOCB_CMD_PWRITEV) {
             io_ring = &aio_ctx->disk_checker->ring_write;
             threshold = aio_ctx->slow_disk_sequen_ns;
         } else {
@@ -343,7 +343,7 @@ void filter_io_type_await(void *__aio_ctx,
 
     user_iocb_list->cost_tm = (user_iocb_list->tsc_end - user_iocb_list->tsc_start);
 
-    *last_offset = iocbp->aio_offset + iocbp->aio_nbytes;
+    *last_offset = iocbp->aio_offset + user_iocb_list->nbytes;
     *last_op = iocbp->aio_lio_opcode;   
 }
 
@@ -379,7 +379,7 @@ void filter_io_type_cost(void *__aio_ctx,
         start_tm = tm_event_start;
 
     u_int64_t cost_tm = (user_iocb_list->tsc_end - start_tm) / events; 
-    u_int16_t block_count = iocbp->aio_nbytes / BASE_BLOCK_SIZE;
+    u_int16_t block_count = user_iocb_list->nbytes / BASE_BLOCK_SIZE;
     if(block_count > 1) 
         user_iocb_list->cost_tm = cost_tm / block_count;
     else 
@@ -389,7 +389,7 @@ void filter_io_type_cost(void *__aio_ctx,
         user_iocb_list->io_type = IO_X;
     }
 
-    *last_offset = iocbp->aio_offset + iocbp->aio_nbytes;
+    *last_offset = iocbp->aio_offset + user_iocb_list->nbytes;
     *last_op = iocbp->aio_lio_opcode;
 
 }
\ No newline at end of file
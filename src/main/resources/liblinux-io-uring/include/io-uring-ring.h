@@ -0,0 +1,83 @@
+#ifndef __IO_URING_RING__H
+#define __IO_URING_RING__H
+
+#include <pthread.h>
+#include <stdint.h>
+#include <syslog.h>
+#include <sys/types.h>
+#include <sys/uio.h>
+#include <linux/io_uring.h>
+
+#define URING_E_SUC   0
+#define URING_E_FAIL  -1
+
+#define URING_DEBUG(p, t, a, x...)                                                 \
+    do {                                                                           \
+        syslog(p, "[%s] %s:%s:%d: io-uring: "a, t, __FILE__, __func__, __LINE__, ##x); \
+    } while (0)
+
+#define URING_LOG_ERROR(x, ...)   URING_DEBUG(LOG_ERR, "ERROR", x, ##__VA_ARGS__)
+#define URING_LOG_WARNING(x, ...) URING_DEBUG(LOG_WARNING, "WARNING", x, ##__VA_ARGS__)
+#define URING_LOG_NOTICE(x, ...)  URING_DEBUG(LOG_NOTICE, "NOTICE", x, ##__VA_ARGS__)
+
+/*
+ * A thin wrapper of the raw io_uring syscalls. The submission side (get_sqe and submit) must be
+ * driven by one thread at a time, the completion side (peek, wait and advance) by another one,
+ * the two sides can run concurrently.
+ */
+struct uring_sq {
+    unsigned *khead;
+    unsigned *ktail;
+    unsigned *kring_mask;
+    unsigned *kring_entries;
+    unsigned *array;
+    struct io_uring_sqe *sqes;
+    unsigned sqe_head;
+    unsigned sqe_tail;
+    void *ring_ptr;
+    size_t ring_size;
+    size_t sqes_size;
+};
+
+struct uring_cq {
+    unsigned *khead;
+    unsigned *ktail;
+    unsigned *kring_mask;
+    struct io_uring_cqe *cqes;
+    void *ring_ptr;
+    size_t ring_size;
+};
+
+struct uring {
+    int ring_fd;
+    unsigned flags;
+    struct uring_sq sq;
+    struct uring_cq cq;
+};
+
+int uring_init(struct uring *ring, unsigned entries, unsigned flags);
+
+void uring_exit(struct uring *ring);
+
+/* Check that the running kernel supports every opcode this library submits. */
+int uring_probe(void);
+
+int uring_register_buffer(struct uring *ring, void *address, size_t length);
+
+/* Return NULL if the submission queue is full. */
+struct io_uring_sqe *uring_get_sqe(struct uring *ring);
+
+/* Return the number of entries consumed by kernel, or -errno. */
+int uring_submit(struct uring *ring);
+
+struct io_uring_cqe *uring_peek_cqe(struct uring *ring);
+
+/* Block until at least one completion is available, or return -errno. */
+int uring_wait_cqe(struct uring *ring, struct io_uring_cqe **cqe_ptr);
+
+void uring_cqe_seen(struct uring *ring);
+
+void uring_prep_rw(struct io_uring_sqe *sqe, int op, int fd, const void *address,
+                   unsigned length, u_int64_t offset, u_int64_t user_data);
+
+#endif
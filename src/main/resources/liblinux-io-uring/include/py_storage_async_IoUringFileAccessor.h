@@ -0,0 +1,41 @@
+#include <jni.h>
+
+#ifndef _Included_py_storage_async_IoUringFileAccessor
+#define _Included_py_storage_async_IoUringFileAccessor
+#ifdef __cplusplus
+extern "C" {
+#endif
+#undef py_storage_async_IoUringFileAccessor_NO_FIXED_BUFFER
+#define py_storage_async_IoUringFileAccessor_NO_FIXED_BUFFER -1L
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_probe
+  (JNIEnv *, jclass);
+
+JNIEXPORT jlong JNICALL Java_py_storage_async_IoUringFileAccessor_open
+  (JNIEnv *, jclass, jstring, jint, jboolean);
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_registerBuffer
+  (JNIEnv *, jclass, jlong, jlong, jlong);
+
+JNIEXPORT void JNICALL Java_py_storage_async_IoUringFileAccessor_close
+  (JNIEnv *, jclass, jlong);
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_prepareRead
+  (JNIEnv *, jclass, jlong, jlong, jlong, jint, jint, jobject);
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_prepareWrite
+  (JNIEnv *, jclass, jlong, jlong, jlong, jint, jint, jobject);
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_prepareReadv
+  (JNIEnv *, jclass, jlong, jlongArray, jintArray, jlong, jobject);
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_prepareWritev
+  (JNIEnv *, jclass, jlong, jlongArray, jintArray, jlong, jobject);
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_submit
+  (JNIEnv *, jclass, jlong);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
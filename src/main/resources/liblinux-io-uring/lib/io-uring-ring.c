@@ -0,0 +1,238 @@
+#define _GNU_SOURCE
+
+#include <errno.h>
+#include <stdlib.h>
+#include <string.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <sys/syscall.h>
+
+#include "io-uring-ring.h"
+
+#define smp_store_release(p, v) __atomic_store_n(p, v, __ATOMIC_RELEASE)
+#define smp_load_acquire(p) __atomic_load_n(p, __ATOMIC_ACQUIRE)
+
+#define PROBE_OPS_LEN 64
+
+static int io_uring_setup(unsigned entries, struct io_uring_params *p) {
+    return (int)syscall(__NR_io_uring_setup, entries, p);
+}
+
+static int io_uring_enter(int fd, unsigned to_submit, unsigned min_complete, unsigned flags) {
+    return (int)syscall(__NR_io_uring_enter, fd, to_submit, min_complete, flags, NULL, 0);
+}
+
+static int io_uring_register(int fd, unsigned opcode, const void *arg, unsigned nr_args) {
+    return (int)syscall(__NR_io_uring_register, fd, opcode, arg, nr_args);
+}
+
+static void uring_unmap(struct uring *ring) {
+    if (ring->sq.sqes != NULL && ring->sq.sqes != MAP_FAILED) {
+        munmap(ring->sq.sqes, ring->sq.sqes_size);
+    }
+    if (ring->cq.ring_ptr != NULL && ring->cq.ring_ptr != MAP_FAILED
+        && ring->cq.ring_ptr != ring->sq.ring_ptr) {
+        munmap(ring->cq.ring_ptr, ring->cq.ring_size);
+    }
+    if (ring->sq.ring_ptr != NULL && ring->sq.ring_ptr != MAP_FAILED) {
+        munmap(ring->sq.ring_ptr, ring->sq.ring_size);
+    }
+}
+
+int uring_init(struct uring *ring, unsigned entries, unsigned flags) {
+    struct io_uring_params p;
+    struct uring_sq *sq = &ring->sq;
+    struct uring_cq *cq = &ring->cq;
+
+    memset(ring, 0, sizeof(*ring));
+    memset(&p, 0, sizeof(p));
+    p.flags = flags;
+
+    int fd = io_uring_setup(entries, &p);
+    if (fd < 0) {
+        return -errno;
+    }
+
+    sq->ring_size = p.sq_off.array + p.sq_entries * sizeof(unsigned);
+    cq->ring_size = p.cq_off.cqes + p.cq_entries * sizeof(struct io_uring_cqe);
+    if (p.features & IORING_FEAT_SINGLE_MMAP) {
+        if (cq->ring_size > sq->ring_size) {
+            sq->ring_size = cq->ring_size;
+        }
+        cq->ring_size = sq->ring_size;
+    }
+
+    sq->ring_ptr = mmap(NULL, sq->ring_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                        fd, IORING_OFF_SQ_RING);
+    if (sq->ring_ptr == MAP_FAILED) {
+        goto err;
+    }
+
+    if (p.features & IORING_FEAT_SINGLE_MMAP) {
+        cq->ring_ptr = sq->ring_ptr;
+    } else {
+        cq->ring_ptr = mmap(NULL, cq->ring_size, PROT_READ | PROT_WRITE,
+                            MAP_SHARED | MAP_POPULATE, fd, IORING_OFF_CQ_RING);
+        if (cq->ring_ptr == MAP_FAILED) {
+            goto err;
+        }
+    }
+
+    sq->sqes_size = p.sq_entries * sizeof(struct io_uring_sqe);
+    sq->sqes = mmap(NULL, sq->sqes_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                    fd, IORING_OFF_SQES);
+    if (sq->sqes == MAP_FAILED) {
+        goto err;
+    }
+
+    sq->khead = sq->ring_ptr + p.sq_off.head;
+    sq->ktail = sq->ring_ptr + p.sq_off.tail;
+    sq->kring_mask = sq->ring_ptr + p.sq_off.ring_mask;
+    sq->kring_entries = sq->ring_ptr + p.sq_off.ring_entries;
+    sq->array = sq->ring_ptr + p.sq_off.array;
+
+    cq->khead = cq->ring_ptr + p.cq_off.head;
+    cq->ktail = cq->ring_ptr + p.cq_off.tail;
+    cq->kring_mask = cq->ring_ptr + p.cq_off.ring_mask;
+    cq->cqes = cq->ring_ptr + p.cq_off.cqes;
+
+    ring->ring_fd = fd;
+    ring->flags = p.flags;
+    return URING_E_SUC;
+
+err:
+    {
+        int err = errno;
+        uring_unmap(ring);
+        close(fd);
+        memset(ring, 0, sizeof(*ring));
+        return -err;
+    }
+}
+
+void uring_exit(struct uring *ring) {
+    uring_unmap(ring);
+    close(ring->ring_fd);
+    memset(ring, 0, sizeof(*ring));
+}
+
+int uring_probe(void) {
+    static const int ops[] = {
+        IORING_OP_READ, IORING_OP_WRITE, IORING_OP_READV, IORING_OP_WRITEV,
+        IORING_OP_READ_FIXED, IORING_OP_WRITE_FIXED,
+    };
+    struct uring ring;
+    size_t len = sizeof(struct io_uring_probe) + PROBE_OPS_LEN * sizeof(struct io_uring_probe_op);
+    int ret = uring_init(&ring, 2, 0);
+    if (ret != URING_E_SUC) {
+        URING_LOG_WARNING("io_uring setup error. %d:%s", -ret, strerror(-ret));
+        return URING_E_FAIL;
+    }
+
+    struct io_uring_probe *probe = calloc(1, len);
+    if (probe == NULL) {
+        uring_exit(&ring);
+        return URING_E_FAIL;
+    }
+
+    ret = URING_E_SUC;
+    if (io_uring_register(ring.ring_fd, IORING_REGISTER_PROBE, probe, PROBE_OPS_LEN) < 0) {
+        URING_LOG_WARNING("io_uring probe error. %d:%s", errno, strerror(errno));
+        ret = URING_E_FAIL;
+    } else {
+        unsigned i;
+        for (i = 0; i < sizeof(ops) / sizeof(ops[0]); i++) {
+            if (ops[i] > probe->last_op || !(probe->ops[ops[i]].flags & IO_URING_OP_SUPPORTED)) {
+                URING_LOG_WARNING("io_uring opcode:%d is not supported", ops[i]);
+                ret = URING_E_FAIL;
+                break;
+            }
+        }
+    }
+
+    free(probe);
+    uring_exit(&ring);
+    return ret;
+}
+
+int uring_register_buffer(struct uring *ring, void *address, size_t length) {
+    struct iovec iov = {.iov_base = address, .iov_len = length};
+    if (io_uring_register(ring->ring_fd, IORING_REGISTER_BUFFERS, &iov, 1) < 0) {
+        return -errno;
+    }
+    return URING_E_SUC;
+}
+
+struct io_uring_sqe *uring_get_sqe(struct uring *ring) {
+    struct uring_sq *sq = &ring->sq;
+    unsigned head = smp_load_acquire(sq->khead);
+    unsigned next = sq->sqe_tail + 1;
+
+    if (next - head > *sq->kring_entries) {
+        return NULL;
+    }
+
+    struct io_uring_sqe *sqe = &sq->sqes[sq->sqe_tail & *sq->kring_mask];
+    sq->sqe_tail = next;
+    return sqe;
+}
+
+int uring_submit(struct uring *ring) {
+    struct uring_sq *sq = &ring->sq;
+    unsigned mask = *sq->kring_mask;
+    unsigned tail = *sq->ktail;
+
+    while (sq->sqe_head != sq->sqe_tail) {
+        sq->array[tail & mask] = sq->sqe_head & mask;
+        tail++;
+        sq->sqe_head++;
+    }
+    smp_store_release(sq->ktail, tail);
+
+    unsigned to_submit = tail - smp_load_acquire(sq->khead);
+    if (to_submit == 0) {
+        return 0;
+    }
+
+    int ret = io_uring_enter(ring->ring_fd, to_submit, 0, 0);
+    return ret < 0 ? -errno : ret;
+}
+
+struct io_uring_cqe *uring_peek_cqe(struct uring *ring) {
+    struct uring_cq *cq = &ring->cq;
+    unsigned head = *cq->khead;
+
+    if (head == smp_load_acquire(cq->ktail)) {
+        return NULL;
+    }
+    return &cq->cqes[head & *cq->kring_mask];
+}
+
+int uring_wait_cqe(struct uring *ring, struct io_uring_cqe **cqe_ptr) {
+    struct io_uring_cqe *cqe;
+
+    while ((cqe = uring_peek_cqe(ring)) == NULL) {
+        if (io_uring_enter(ring->ring_fd, 0, 1, IORING_ENTER_GETEVENTS) < 0 && errno != EINTR) {
+            return -errno;
+        }
+    }
+
+    *cqe_ptr = cqe;
+    return URING_E_SUC;
+}
+
+void uring_cqe_seen(struct uring *ring) {
+    struct uring_cq *cq = &ring->cq;
+    smp_store_release(cq->khead, *cq->khead + 1);
+}
+
+void uring_prep_rw(struct io_uring_sqe *sqe, int op, int fd, const void *address,
+                   unsigned length, u_int64_t offset, u_int64_t user_data) {
+    memset(sqe, 0, sizeof(*sqe));
+    sqe->opcode = (u_int8_t)op;
+    sqe->fd = fd;
+    sqe->off = offset;
+    sqe->addr = (unsigned long)address;
+    sqe->len = length;
+    sqe->user_data = user_data;
+}
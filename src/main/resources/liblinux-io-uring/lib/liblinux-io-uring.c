@@ -0,0 +1,386 @@
+#define _GNU_SOURCE
+
+#include <errno.h>
+#include <fcntl.h>
+#include <jni.h>
+#include <limits.h>
+#include <pthread.h>
+#include <sched.h>
+#include <stdlib.h>
+#include <string.h>
+#include <unistd.h>
+#include <sys/prctl.h>
+
+#include "io-uring-ring.h"
+#include "py_storage_async_IoUringFileAccessor.h"
+
+#define SUBMIT_RETRY_TIMES 1024
+
+struct uring_ctx_t {
+    struct uring ring;
+    int fd;
+    char file_name[PATH_MAX];
+    JavaVM *j_vm;
+    jmethodID mid_done;
+    pthread_t td_reaper;
+    pthread_mutex_t lock;
+    pthread_cond_t inflight_wait;
+    u_int64_t inflight;
+    int closing;
+};
+
+struct uring_request_t {
+    jobject callback;
+    int op;
+    u_int64_t offset;
+    int64_t nbytes;
+    int iov_count;
+    struct iovec iov[];
+};
+
+static void callback_to_java(JNIEnv *env, jmethodID mid, jobject obj, int error_code) {
+    (*env)->CallVoidMethod(env, obj, mid, error_code);
+    if ((*env)->ExceptionCheck(env)) {
+        (*env)->ExceptionDescribe(env);
+        (*env)->ExceptionClear(env);
+    }
+    (*env)->DeleteGlobalRef(env, obj);
+}
+
+static void complete_request(struct uring_ctx_t *uring_ctx, JNIEnv *env,
+                             struct io_uring_cqe *cqe) {
+    struct uring_request_t *request = (struct uring_request_t *)(uintptr_t)cqe->user_data;
+    int error_code = URING_E_SUC;
+
+    if (cqe->res != request->nbytes) {
+        URING_LOG_ERROR("storage:%s get error event opcode:%d res:%d(%s) offset:%lu length:%ld",
+                        uring_ctx->file_name, request->op, cqe->res,
+                        cqe->res < 0 ? strerror(-cqe->res) : "short", request->offset,
+                        request->nbytes);
+        error_code = URING_E_FAIL;
+    }
+
+    callback_to_java(env, uring_ctx->mid_done, request->callback, error_code);
+    free(request);
+}
+
+/*
+ * Reap completions and call back to java until the context is closing and no request is in
+ * flight any more.
+ */
+static void *uring_reaper(void *ctx_ptr) {
+    struct uring_ctx_t *uring_ctx = (struct uring_ctx_t *)ctx_ptr;
+    JavaVM *jvm = uring_ctx->j_vm;
+    JNIEnv *env;
+    char thread_name[16];
+
+    snprintf(thread_name, sizeof(thread_name), "uring-%d", uring_ctx->fd);
+    prctl(PR_SET_NAME, thread_name);
+
+    if ((*jvm)->AttachCurrentThreadAsDaemon(jvm, (void **)&env, NULL) != 0) {
+        URING_LOG_ERROR("Failed to attach.storage:%s", uring_ctx->file_name);
+        return NULL;
+    }
+
+    while (1) {
+        pthread_mutex_lock(&uring_ctx->lock);
+        while (uring_ctx->inflight == 0 && !uring_ctx->closing) {
+            pthread_cond_wait(&uring_ctx->inflight_wait, &uring_ctx->lock);
+        }
+        if (uring_ctx->inflight == 0) {
+            pthread_mutex_unlock(&uring_ctx->lock);
+            break;
+        }
+        pthread_mutex_unlock(&uring_ctx->lock);
+
+        struct io_uring_cqe *cqe;
+        int ret = uring_wait_cqe(&uring_ctx->ring, &cqe);
+        if (ret != URING_E_SUC) {
+            URING_LOG_ERROR("storage:%s wait completion error. %d:%s", uring_ctx->file_name,
+                            -ret, strerror(-ret));
+            sched_yield();
+            continue;
+        }
+
+        u_int64_t reaped = 0;
+        do {
+            complete_request(uring_ctx, env, cqe);
+            uring_cqe_seen(&uring_ctx->ring);
+            reaped++;
+        } while ((cqe = uring_peek_cqe(&uring_ctx->ring)) != NULL);
+
+        pthread_mutex_lock(&uring_ctx->lock);
+        uring_ctx->inflight -= reaped;
+        pthread_mutex_unlock(&uring_ctx->lock);
+    }
+
+    (*jvm)->DetachCurrentThread(jvm);
+    return NULL;
+}
+
+static int uring_submit_retry(struct uring_ctx_t *uring_ctx) {
+    int i;
+    int ret = 0;
+    for (i = 0; i < SUBMIT_RETRY_TIMES; i++) {
+        ret = uring_submit(&uring_ctx->ring);
+        if (ret != -EAGAIN && ret != -EBUSY && ret != -EINTR) {
+            break;
+        }
+        /* completion queue is full, wait for the reaper to drain it */
+        sched_yield();
+    }
+
+    if (ret < 0) {
+        URING_LOG_ERROR("storage:%s submit error. %d:%s", uring_ctx->file_name, -ret,
+                        strerror(-ret));
+    }
+    return ret;
+}
+
+/*
+ * Queue the request as one submission entry, the request is freed and its callback is released
+ * by the reaper once the entry completes.
+ */
+static int uring_queue_request(struct uring_ctx_t *uring_ctx, struct uring_request_t *request,
+                               void *address, unsigned length, int fixed_buffer_index) {
+    struct io_uring_sqe *sqe = uring_get_sqe(&uring_ctx->ring);
+    if (sqe == NULL) {
+        URING_LOG_ERROR("storage:%s submission queue is full", uring_ctx->file_name);
+        return URING_E_FAIL;
+    }
+
+    uring_prep_rw(sqe, request->op, uring_ctx->fd, address, length, request->offset,
+                  (u_int64_t)(uintptr_t)request);
+    if (fixed_buffer_index != py_storage_async_IoUringFileAccessor_NO_FIXED_BUFFER) {
+        sqe->buf_index = (u_int16_t)fixed_buffer_index;
+    }
+
+    pthread_mutex_lock(&uring_ctx->lock);
+    if (uring_ctx->inflight++ == 0) {
+        pthread_cond_signal(&uring_ctx->inflight_wait);
+    }
+    pthread_mutex_unlock(&uring_ctx->lock);
+    return URING_E_SUC;
+}
+
+static struct uring_request_t *uring_request_alloc(JNIEnv *env, jobject callback, int op,
+                                                   jlong offset, int iov_count) {
+    struct uring_request_t *request =
+        calloc(1, sizeof(struct uring_request_t) + iov_count * sizeof(struct iovec));
+    if (request == NULL) {
+        URING_LOG_ERROR("calloc error. %d:%s", errno, strerror(errno));
+        return NULL;
+    }
+
+    request->callback = (*env)->NewGlobalRef(env, callback);
+    if (request->callback == NULL) {
+        free(request);
+        return NULL;
+    }
+    request->op = op;
+    request->offset = offset;
+    request->iov_count = iov_count;
+    return request;
+}
+
+static void uring_request_free(JNIEnv *env, struct uring_request_t *request) {
+    (*env)->DeleteGlobalRef(env, request->callback);
+    free(request);
+}
+
+static jint prepare_rw(JNIEnv *env, jlong ctx_ptr, int op, int fixed_op, jlong address,
+                       jlong offset, jint length, jint fixed_buffer_index, jobject callback) {
+    struct uring_ctx_t *uring_ctx = (struct uring_ctx_t *)ctx_ptr;
+    int fixed = fixed_buffer_index != py_storage_async_IoUringFileAccessor_NO_FIXED_BUFFER;
+    struct uring_request_t *request =
+        uring_request_alloc(env, callback, fixed ? fixed_op : op, offset, 0);
+    if (request == NULL) {
+        return URING_E_FAIL;
+    }
+    request->nbytes = length;
+
+    if (uring_queue_request(uring_ctx, request, (void *)address, length, fixed_buffer_index)
+        != URING_E_SUC) {
+        uring_request_free(env, request);
+        return URING_E_FAIL;
+    }
+    return URING_E_SUC;
+}
+
+static jint prepare_rwv(JNIEnv *env, jlong ctx_ptr, int op, jlongArray addresses,
+                        jintArray lengths, jlong offset, jobject callback) {
+    struct uring_ctx_t *uring_ctx = (struct uring_ctx_t *)ctx_ptr;
+    jsize count = (*env)->GetArrayLength(env, addresses);
+    if (count <= 0 || count > IOV_MAX || count != (*env)->GetArrayLength(env, lengths)) {
+        URING_LOG_ERROR("storage:%s invalid vector count:%d", uring_ctx->file_name, count);
+        return URING_E_FAIL;
+    }
+
+    struct uring_request_t *request = uring_request_alloc(env, callback, op, offset, count);
+    if (request == NULL) {
+        return URING_E_FAIL;
+    }
+
+    jlong *address_array = (*env)->GetLongArrayElements(env, addresses, NULL);
+    jint *length_array = (*env)->GetIntArrayElements(env, lengths, NULL);
+    if (address_array == NULL || length_array == NULL) {
+        if (address_array != NULL) {
+            (*env)->ReleaseLongArrayElements(env, addresses, address_array, JNI_ABORT);
+        }
+        uring_request_free(env, request);
+        return URING_E_FAIL;
+    }
+
+    jsize i;
+    for (i = 0; i < count; i++) {
+        request->iov[i].iov_base = (void *)address_array[i];
+        request->iov[i].iov_len = length_array[i];
+        request->nbytes += length_array[i];
+    }
+    (*env)->ReleaseIntArrayElements(env, lengths, length_array, JNI_ABORT);
+    (*env)->ReleaseLongArrayElements(env, addresses, address_array, JNI_ABORT);
+
+    if (uring_queue_request(uring_ctx, request, request->iov, count,
+                            py_storage_async_IoUringFileAccessor_NO_FIXED_BUFFER)
+        != URING_E_SUC) {
+        uring_request_free(env, request);
+        return URING_E_FAIL;
+    }
+    return URING_E_SUC;
+}
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_probe(JNIEnv *env,
+                                                                       jclass clazz) {
+    return uring_probe();
+}
+
+JNIEXPORT jlong JNICALL Java_py_storage_async_IoUringFileAccessor_open(
+    JNIEnv *env, jclass clazz, jstring jfile_name, jint queue_depth, jboolean poll_completion) {
+    struct uring_ctx_t *uring_ctx = calloc(1, sizeof(struct uring_ctx_t));
+    if (uring_ctx == NULL) {
+        URING_LOG_ERROR("calloc error. %d:%s", errno, strerror(errno));
+        return URING_E_FAIL;
+    }
+
+    const char *file_name = (*env)->GetStringUTFChars(env, jfile_name, 0);
+    if (file_name == NULL) {
+        URING_LOG_ERROR("file_name is null");
+        free(uring_ctx);
+        return URING_E_FAIL;
+    }
+    strncpy(uring_ctx->file_name, file_name, sizeof(uring_ctx->file_name) - 1);
+    (*env)->ReleaseStringUTFChars(env, jfile_name, file_name);
+
+    jclass callback_clazz = (*env)->FindClass(env, "py/storage/async/Callback");
+    if (callback_clazz == NULL
+        || (*env)->GetJavaVM(env, &uring_ctx->j_vm) != 0) {
+        URING_LOG_ERROR("storage:%s can't resolve the java callback", uring_ctx->file_name);
+        free(uring_ctx);
+        return URING_E_FAIL;
+    }
+    uring_ctx->mid_done = (*env)->GetMethodID(env, callback_clazz, "done", "(I)V");
+    if (uring_ctx->mid_done == NULL) {
+        free(uring_ctx);
+        return URING_E_FAIL;
+    }
+
+    uring_ctx->fd = open(uring_ctx->file_name, O_RDWR | O_CREAT | O_DIRECT, 0644);
+    if (uring_ctx->fd == -1) {
+        URING_LOG_ERROR("open file:%s error. %d:%s", uring_ctx->file_name, errno,
+                        strerror(errno));
+        free(uring_ctx);
+        return URING_E_FAIL;
+    }
+
+    unsigned flags = IORING_SETUP_CLAMP;
+    if (poll_completion) {
+        flags |= IORING_SETUP_IOPOLL;
+    }
+    int ret = uring_init(&uring_ctx->ring, queue_depth, flags);
+    if (ret != URING_E_SUC) {
+        URING_LOG_ERROR("storage:%s io_uring setup error. %d:%s", uring_ctx->file_name, -ret,
+                        strerror(-ret));
+        close(uring_ctx->fd);
+        free(uring_ctx);
+        return URING_E_FAIL;
+    }
+
+    pthread_mutex_init(&uring_ctx->lock, NULL);
+    pthread_cond_init(&uring_ctx->inflight_wait, NULL);
+    if (pthread_create(&uring_ctx->td_reaper, NULL, uring_reaper, uring_ctx) != 0) {
+        URING_LOG_ERROR("storage:%s can't start the reaper thread", uring_ctx->file_name);
+        uring_exit(&uring_ctx->ring);
+        close(uring_ctx->fd);
+        free(uring_ctx);
+        return URING_E_FAIL;
+    }
+
+    URING_LOG_NOTICE("open: file:%s queue depth:%d poll:%d", uring_ctx->file_name, queue_depth,
+                     poll_completion);
+    return (jlong)uring_ctx;
+}
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_registerBuffer(
+    JNIEnv *env, jclass clazz, jlong ctx_ptr, jlong address, jlong length) {
+    struct uring_ctx_t *uring_ctx = (struct uring_ctx_t *)ctx_ptr;
+    int ret = uring_register_buffer(&uring_ctx->ring, (void *)address, length);
+    if (ret != URING_E_SUC) {
+        URING_LOG_WARNING("storage:%s register buffer error. %d:%s", uring_ctx->file_name, -ret,
+                          strerror(-ret));
+        return URING_E_FAIL;
+    }
+    return URING_E_SUC;
+}
+
+JNIEXPORT void JNICALL Java_py_storage_async_IoUringFileAccessor_close(JNIEnv *env,
+                                                                       jclass clazz,
+                                                                       jlong ctx_ptr) {
+    struct uring_ctx_t *uring_ctx = (struct uring_ctx_t *)ctx_ptr;
+
+    uring_submit_retry(uring_ctx);
+
+    pthread_mutex_lock(&uring_ctx->lock);
+    uring_ctx->closing = 1;
+    pthread_cond_signal(&uring_ctx->inflight_wait);
+    pthread_mutex_unlock(&uring_ctx->lock);
+    pthread_join(uring_ctx->td_reaper, NULL);
+
+    URING_LOG_NOTICE("close: file:%s", uring_ctx->file_name);
+    uring_exit(&uring_ctx->ring);
+    close(uring_ctx->fd);
+    pthread_cond_destroy(&uring_ctx->inflight_wait);
+    pthread_mutex_destroy(&uring_ctx->lock);
+    free(uring_ctx);
+}
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_prepareRead(
+    JNIEnv *env, jclass clazz, jlong ctx_ptr, jlong address, jlong offset, jint length,
+    jint fixed_buffer_index, jobject callback) {
+    return prepare_rw(env, ctx_ptr, IORING_OP_READ, IORING_OP_READ_FIXED, address, offset,
+                      length, fixed_buffer_index, callback);
+}
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_prepareWrite(
+    JNIEnv *env, jclass clazz, jlong ctx_ptr, jlong address, jlong offset, jint length,
+    jint fixed_buffer_index, jobject callback) {
+    return prepare_rw(env, ctx_ptr, IORING_OP_WRITE, IORING_OP_WRITE_FIXED, address, offset,
+                      length, fixed_buffer_index, callback);
+}
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_prepareReadv(
+    JNIEnv *env, jclass clazz, jlong ctx_ptr, jlongArray addresses, jintArray lengths,
+    jlong offset, jobject callback) {
+    return prepare_rwv(env, ctx_ptr, IORING_OP_READV, addresses, lengths, offset, callback);
+}
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_prepareWritev(
+    JNIEnv *env, jclass clazz, jlong ctx_ptr, jlongArray addresses, jintArray lengths,
+    jlong offset, jobject callback) {
+    return prepare_rwv(env, ctx_ptr, IORING_OP_WRITEV, addresses, lengths, offset, callback);
+}
+
+JNIEXPORT jint JNICALL Java_py_storage_async_IoUringFileAccessor_submit(JNIEnv *env,
+                                                                        jclass clazz,
+                                                                        jlong ctx_ptr) {
+    return uring_submit_retry((struct uring_ctx_t *)ctx_ptr);
+}
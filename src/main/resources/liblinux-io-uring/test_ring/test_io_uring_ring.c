@@ -0,0 +1,119 @@
+#define _GNU_SOURCE
+
+#include <assert.h>
+#include <fcntl.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <unistd.h>
+
+#include "io-uring-ring.h"
+
+#define IO_BLOCK_SIZE 4096
+#define BLOCK_COUNT 16
+#define QUEUE_DEPTH 8
+
+static char file_name[] = "/tmp/io-uring-ring-test.XXXXXX";
+
+/* Reap count completions and check that each of them transferred expected bytes. */
+static void reap(struct uring *ring, int count, int expected) {
+    int i;
+    for (i = 0; i < count; i++) {
+        struct io_uring_cqe *cqe;
+        int ret = uring_wait_cqe(ring, &cqe);
+        assert(ret == URING_E_SUC);
+        if (cqe->res != expected) {
+            printf("user_data:%llu res:%d expected:%d\n", cqe->user_data, cqe->res, expected);
+        }
+        assert(cqe->res == expected);
+        uring_cqe_seen(ring);
+    }
+    assert(uring_peek_cqe(ring) == NULL);
+}
+
+/*
+ * Queue a batch of fixed buffer writes, nothing reaches kernel until the batch is submitted
+ * with a single call.
+ */
+static void test_batched_fixed_write(struct uring *ring, int fd, char *buffer) {
+    int i;
+    for (i = 0; i < QUEUE_DEPTH; i++) {
+        memset(buffer + i * IO_BLOCK_SIZE, 'a' + i, IO_BLOCK_SIZE);
+        struct io_uring_sqe *sqe = uring_get_sqe(ring);
+        assert(sqe != NULL);
+        uring_prep_rw(sqe, IORING_OP_WRITE_FIXED, fd, buffer + i * IO_BLOCK_SIZE, IO_BLOCK_SIZE,
+                      (u_int64_t)i * IO_BLOCK_SIZE, i);
+        sqe->buf_index = 0;
+    }
+    assert(uring_get_sqe(ring) == NULL);
+    assert(uring_peek_cqe(ring) == NULL);
+
+    assert(uring_submit(ring) == QUEUE_DEPTH);
+    reap(ring, QUEUE_DEPTH, IO_BLOCK_SIZE);
+    printf("batched fixed write passed\n");
+}
+
+static void test_vectored_read(struct uring *ring, int fd, char *buffer) {
+    struct iovec iov[QUEUE_DEPTH];
+    int i;
+
+    memset(buffer, 0, QUEUE_DEPTH * IO_BLOCK_SIZE);
+    for (i = 0; i < QUEUE_DEPTH; i++) {
+        iov[i].iov_base = buffer + (QUEUE_DEPTH - 1 - i) * IO_BLOCK_SIZE;
+        iov[i].iov_len = IO_BLOCK_SIZE;
+    }
+
+    struct io_uring_sqe *sqe = uring_get_sqe(ring);
+    assert(sqe != NULL);
+    uring_prep_rw(sqe, IORING_OP_READV, fd, iov, QUEUE_DEPTH, 0, 0);
+    assert(uring_submit(ring) == 1);
+    reap(ring, 1, QUEUE_DEPTH * IO_BLOCK_SIZE);
+
+    for (i = 0; i < QUEUE_DEPTH; i++) {
+        char *block = iov[i].iov_base;
+        int j;
+        for (j = 0; j < IO_BLOCK_SIZE; j++) {
+            assert(block[j] == 'a' + i);
+        }
+    }
+    printf("vectored read passed\n");
+}
+
+static void test_read_beyond_end(struct uring *ring, int fd, char *buffer) {
+    struct io_uring_sqe *sqe = uring_get_sqe(ring);
+    assert(sqe != NULL);
+    uring_prep_rw(sqe, IORING_OP_READ, fd, buffer, IO_BLOCK_SIZE,
+                  (u_int64_t)BLOCK_COUNT * IO_BLOCK_SIZE, 0);
+    assert(uring_submit(ring) == 1);
+    reap(ring, 1, 0);
+    printf("read beyond end passed\n");
+}
+
+int main(int argc, char *argv[]) {
+    struct uring ring;
+    char *buffer;
+
+    if (uring_probe() != URING_E_SUC) {
+        printf("io_uring is not supported, skip\n");
+        return 0;
+    }
+
+    int fd = mkostemp(file_name, O_DIRECT);
+    assert(fd >= 0);
+    assert(ftruncate(fd, (off_t)BLOCK_COUNT * IO_BLOCK_SIZE) == 0);
+    assert(posix_memalign((void **)&buffer, IO_BLOCK_SIZE, QUEUE_DEPTH * IO_BLOCK_SIZE) == 0);
+
+    assert(uring_init(&ring, QUEUE_DEPTH, 0) == URING_E_SUC);
+    assert(uring_register_buffer(&ring, buffer, QUEUE_DEPTH * IO_BLOCK_SIZE) == URING_E_SUC);
+
+    test_batched_fixed_write(&ring, fd, buffer);
+    test_vectored_read(&ring, fd, buffer);
+    test_read_beyond_end(&ring, fd, buffer);
+
+    uring_exit(&ring);
+    free(buffer);
+    close(fd);
+    unlink(file_name);
+    printf("all passed\n");
+    return 0;
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package netty.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultChannelId;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import py.netty.core.AdaptiveFlushConsolidator;
+import py.netty.core.nio.SingleThreadEventLoop;
+import py.test.TestBase;
+
+public class AdaptiveFlushConsolidatorTest extends TestBase {
+  private SingleThreadEventLoop eventLoop;
+  private ChannelHandlerContext ctx;
+
+  @Before
+  public void beforeMethod() {
+    eventLoop = mock(SingleThreadEventLoop.class);
+    ctx = mock(ChannelHandlerContext.class);
+    Channel channel = mock(Channel.class);
+    when(ctx.channel()).thenReturn(channel);
+    when(channel.id()).thenReturn(DefaultChannelId.newInstance());
+    when(channel.isActive()).thenReturn(true);
+  }
+
+  @Test
+  public void flushSmallWritesAtEndOfIteration() {
+    AdaptiveFlushConsolidator consolidator = new AdaptiveFlushConsolidator(eventLoop);
+    for (int i = 0; i < 3; i++) {
+      consolidator.written(ctx, 100);
+    }
+    verify(ctx, never()).flush();
+
+    consolidator.call();
+    verify(ctx, times(1)).flush();
+    assertEquals(1, consolidator.getFlushCount());
+    assertEquals(3.0, consolidator.getWritesPerFlush(), 0.0001);
+  }
+
+  @Test
+  public void flushOnThresholds() {
+    AdaptiveFlushConsolidator consolidator = new AdaptiveFlushConsolidator(eventLoop, 1000, 4,
+        TimeUnit.SECONDS.toMicros(1), 0);
+    consolidator.written(ctx, 600);
+    verify(ctx, never()).flush();
+    consolidator.written(ctx, 600);
+    verify(ctx, times(1)).flush();
+
+    for (int i = 0; i < 4; i++) {
+      consolidator.written(ctx, 1);
+    }
+    verify(ctx, times(2)).flush();
+    assertEquals(6, consolidator.getFlushedWriteCount());
+    assertEquals(1204, consolidator.getFlushedByteCount());
+  }
+
+  @Test
+  public void coalesceBulkWrites() {
+    AdaptiveFlushConsolidator consolidator = new AdaptiveFlushConsolidator(eventLoop,
+        Integer.MAX_VALUE, Integer.MAX_VALUE, TimeUnit.SECONDS.toMicros(1), 0);
+    consolidator.written(ctx, 64 * 1024);
+    consolidator.call();
+    verify(ctx, never()).flush();
+    verify(eventLoop, times(1)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+    // no more write comes in the next iteration
+    consolidator.call();
+    verify(ctx, times(1)).flush();
+  }
+}
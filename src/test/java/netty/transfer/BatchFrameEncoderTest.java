@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package netty.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+import py.netty.core.BatchFrameEncoder;
+import py.netty.core.ByteToMessageDecoder;
+import py.netty.message.Header;
+import py.netty.message.Message;
+import py.test.TestBase;
+
+public class BatchFrameEncoderTest extends TestBase {
+  private static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+  @Test
+  public void batchOnlyAfterPeerAccepts() {
+    EmbeddedChannel channel = new EmbeddedChannel(
+        new ByteToMessageDecoder(MAX_FRAME_SIZE, UnpooledByteBufAllocator.DEFAULT),
+        new BatchFrameEncoder(1024));
+
+    channel.write(newFrame(1, 10));
+    channel.write(newFrame(2, 20));
+    channel.flush();
+    for (int i = 1; i <= 2; i++) {
+      ByteBuf frame = channel.readOutbound();
+      Header header = Header.fromBuffer(frame);
+      assertFalse(header.isBatch());
+      assertTrue(header.hasFlag(Header.FLAG_ACCEPT_BATCH));
+      assertEquals(i, header.getRequestId());
+      frame.release();
+    }
+    assertNull(channel.readOutbound());
+
+    ByteBuf peerFrame = newFrame(100, 0);
+    peerFrame.setByte(peerFrame.readerIndex() + 3, Header.FLAG_ACCEPT_BATCH);
+    channel.writeInbound(peerFrame);
+    Message received = channel.readInbound();
+    received.release();
+    assertTrue(BatchFrameEncoder.peerAcceptsBatch(channel));
+
+    channel.write(newFrame(3, 10));
+    channel.write(newFrame(4, 20));
+    channel.flush();
+    ByteBuf batch = channel.readOutbound();
+    Header batchHeader = Header.fromBuffer(batch);
+    assertTrue(batchHeader.isBatch());
+    assertEquals(2, batchHeader.getRequestId());
+    for (int i = 3; i <= 4; i++) {
+      Header entryHeader = Header.fromBuffer(batch);
+      assertEquals(i, entryHeader.getRequestId());
+      batch.skipBytes(entryHeader.getLength());
+    }
+    assertFalse(batch.isReadable());
+    batch.release();
+    assertNull(channel.readOutbound());
+
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void frameLargerThanEntrySizeIsNotBatched() {
+    EmbeddedChannel channel = new EmbeddedChannel(new BatchFrameEncoder(64));
+    BatchFrameEncoder.markPeerAcceptsBatch(channel);
+
+    channel.write(newFrame(1, 10));
+    channel.write(newFrame(2, 100));
+    channel.flush();
+    for (int i = 1; i <= 2; i++) {
+      ByteBuf frame = channel.readOutbound();
+      Header header = Header.fromBuffer(frame);
+      assertFalse(header.isBatch());
+      assertEquals(i, header.getRequestId());
+      frame.release();
+    }
+
+    channel.finishAndReleaseAll();
+  }
+
+  private static ByteBuf newFrame(long requestId, int bodySize) {
+    Header header = new Header((byte) 1, bodySize, 0, requestId);
+    ByteBuf buffer = Unpooled.buffer(Header.headerLength() + bodySize);
+    header.toBuffer(buffer);
+    buffer.writeZero(bodySize);
+    return buffer;
+  }
+}
@@ -15,10 +15,13 @@
 package netty.transfer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.netty.buffer.ByteBuf;
@@ -36,6 +39,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 import org.apache.commons.lang3.Validate;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -43,7 +47,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import py.netty.core.ByteToMessageDecoder;
+import py.netty.core.FrameCompression;
 import py.netty.memory.SimplePooledByteBufAllocator;
 import py.netty.message.Header;
 import py.netty.message.Message;
@@ -1359,4 +1365,72 @@ public class ByteToMessageDecoderTest extends TestBase {
       assertEquals(0, bufs[i].refCnt());
     }
   }
+
+  @Test
+  public void decodeBatchFrame() throws Exception {
+    int count = 3;
+    ByteBuf batchBody = Unpooled.buffer();
+    for (int i = 0; i < count; i++) {
+      int bodyLength = i * 10;
+      new Header((byte) 1, bodyLength, 0, i).toBuffer(batchBody);
+      batchBody.writeBytes(new byte[bodyLength]);
+    }
+
+    Header batchHeader = new Header((byte) 0, batchBody.readableBytes(), 0, count);
+    batchHeader.addFlag(Header.FLAG_BATCH);
+    ByteBuf frame = Unpooled.buffer();
+    batchHeader.toBuffer(frame);
+    frame.writeBytes(batchBody);
+    batchBody.release();
+
+    ByteToMessageDecoder decoder = new ByteToMessageDecoder();
+    decoder.channelRead(ctx, frame);
+
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(ctx, times(count)).fireChannelRead(captor.capture());
+    for (int i = 0; i < count; i++) {
+      Message message = (Message) captor.getAllValues().get(i);
+      assertEquals(i, message.getHeader().getRequestId());
+      assertEquals(i * 10, message.getHeader().getLength());
+      if (i == 0) {
+        assertNull(message.getBuffer());
+      } else {
+        assertEquals(i * 10, message.getBuffer().readableBytes());
+        message.release();
+      }
+    }
+    assertEquals(0, frame.refCnt());
+  }
+
+  @Test
+  public void decodeCompressedFrame() throws Exception {
+    int metadataLength = 100;
+    int dataLength = 4096;
+    Header header = new Header((byte) 1, metadataLength, dataLength, 7);
+    ByteBuf body = Unpooled.buffer();
+    for (int i = 0; i < metadataLength + dataLength; i++) {
+      body.writeByte(i % 8);
+    }
+
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    ByteBuf frame = FrameCompression.compress(ByteBufAllocator.DEFAULT, deflater,
+        new FrameCompression.Workspace(), header, body);
+    deflater.end();
+    assertTrue(frame.readableBytes() < Header.headerLength() + metadataLength + dataLength);
+
+    ByteToMessageDecoder decoder = new ByteToMessageDecoder();
+    decoder.channelRead(ctx, frame);
+
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(ctx).fireChannelRead(captor.capture());
+    Message message = (Message) captor.getValue();
+    assertFalse(message.getHeader().isCompressed());
+    assertEquals(7, message.getHeader().getRequestId());
+    assertEquals(metadataLength, message.getHeader().getMetadataLength());
+    assertEquals(dataLength, message.getHeader().getDataLength());
+    assertEquals(body, message.getBuffer());
+    message.release();
+    body.release();
+    assertEquals(0, frame.refCnt());
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package netty.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.junit.Test;
+import py.netty.core.ByteToMessageDecoder;
+import py.netty.core.FrameCompression;
+import py.netty.core.FrameCompressionEncoder;
+import py.netty.message.Header;
+import py.netty.message.Message;
+import py.test.TestBase;
+
+public class FrameCompressionTest extends TestBase {
+  private static final int MAX_FRAME_SIZE = 1024 * 1024;
+  private static final int THRESHOLD = 512;
+
+  @Test
+  public void compressOnlyAfterPeerAccepts() {
+    EmbeddedChannel client = newChannel();
+    EmbeddedChannel server = newChannel();
+
+    // the server has not heard from the client yet
+    server.writeOutbound(newFrame(1, 4096));
+    ByteBuf plain = server.readOutbound();
+    Header plainHeader = Header.fromBuffer(plain.duplicate());
+    assertFalse(plainHeader.isCompressed());
+    assertTrue(plainHeader.hasFlag(Header.FLAG_ACCEPT_COMPRESSION));
+    assertEquals(Header.headerLength() + 4096, plain.readableBytes());
+    checkReceived(client, plain, 1, 4096);
+    assertTrue(FrameCompression.peerAcceptsCompression(client));
+
+    // the client knows the server accepts compressed frames now, and its frames tell the server
+    // the same
+    client.writeOutbound(newFrame(2, 4096));
+    ByteBuf compressed = client.readOutbound();
+    assertTrue(Header.fromBuffer(compressed.duplicate()).isCompressed());
+    assertTrue(compressed.readableBytes() < Header.headerLength() + 4096);
+    checkReceived(server, compressed, 2, 4096);
+    assertTrue(FrameCompression.peerAcceptsCompression(server));
+
+    server.writeOutbound(newFrame(3, 4096));
+    compressed = server.readOutbound();
+    assertTrue(Header.fromBuffer(compressed.duplicate()).isCompressed());
+    checkReceived(client, compressed, 3, 4096);
+
+    // small frames are never compressed
+    server.writeOutbound(newFrame(4, THRESHOLD - 1));
+    plain = server.readOutbound();
+    assertFalse(Header.fromBuffer(plain.duplicate()).isCompressed());
+    checkReceived(client, plain, 4, THRESHOLD - 1);
+
+    assertFalse(client.finishAndReleaseAll());
+    assertFalse(server.finishAndReleaseAll());
+  }
+
+  @Test
+  public void decompressIntoDirectBuffer() throws Exception {
+    // a direct body and a direct destination go through the arrays of the workspace
+    ByteBuf body = Unpooled.directBuffer(4096);
+    fillBody(body, 4096);
+    Header header = new Header((byte) 1, 100, 3996, 5);
+    FrameCompression.Workspace workspace = new FrameCompression.Workspace();
+    Deflater deflater = new Deflater();
+    Inflater inflater = new Inflater();
+
+    ByteBuf frame = FrameCompression.compress(UnpooledByteBufAllocator.DEFAULT, deflater,
+        workspace, header, body);
+    Header compressedHeader = Header.fromBuffer(frame);
+    Header originalHeader = FrameCompression.originalHeader(compressedHeader, frame);
+    ByteBuf directFrame = Unpooled.directBuffer().writeBytes(frame);
+    ByteBuf decompressed = FrameCompression
+        .decompress(new UnpooledByteBufAllocator(true), inflater, workspace, originalHeader,
+            directFrame);
+    assertTrue(decompressed.isDirect());
+    assertEquals(body, decompressed);
+
+    deflater.end();
+    inflater.end();
+    frame.release();
+    directFrame.release();
+    body.release();
+    decompressed.release();
+  }
+
+  private static EmbeddedChannel newChannel() {
+    return new EmbeddedChannel(
+        new ByteToMessageDecoder(MAX_FRAME_SIZE, UnpooledByteBufAllocator.DEFAULT),
+        new FrameCompressionEncoder(THRESHOLD));
+  }
+
+  private static void checkReceived(EmbeddedChannel channel, ByteBuf frame, long requestId,
+      int bodySize) {
+    channel.writeInbound(frame);
+    Message message = channel.readInbound();
+    try {
+      assertFalse(message.getHeader().isCompressed());
+      assertEquals(requestId, message.getRequestId());
+      assertEquals(bodySize, message.getHeader().getLength());
+      ByteBuf expected = Unpooled.buffer(bodySize);
+      fillBody(expected, bodySize);
+      assertEquals(expected, message.getBuffer());
+    } finally {
+      message.release();
+    }
+  }
+
+  private static ByteBuf newFrame(long requestId, int bodySize) {
+    Header header = new Header((byte) 1, bodySize, 0, requestId);
+    ByteBuf buffer = Unpooled.buffer(Header.headerLength() + bodySize);
+    header.toBuffer(buffer);
+    fillBody(buffer, bodySize);
+    return buffer;
+  }
+
+  private static void fillBody(ByteBuf buffer, int bodySize) {
+    for (int i = 0; i < bodySize; i++) {
+      buffer.writeByte(i % 8);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package netty.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+import py.netty.client.MessageTimeManager;
+import py.netty.core.MethodCallback;
+import py.netty.exception.DisconnectionException;
+import py.netty.exception.TimeoutException;
+import py.test.TestBase;
+
+public class MessageTimeManagerTest extends TestBase {
+  private final DefaultEventExecutor executor = new DefaultEventExecutor();
+
+  @After
+  public void afterMethod() {
+    executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void expireInBatch() throws Exception {
+    MessageTimeManager<Object> manager = new MessageTimeManager<>(executor, 50, 10);
+    RecordingCallback[] callbacks = new RecordingCallback[10];
+    for (int i = 0; i < callbacks.length; i++) {
+      callbacks[i] = new RecordingCallback();
+      manager.addTimer((long) i, callbacks[i]);
+    }
+    assertEquals(callbacks.length, manager.getPendingMessageCount());
+
+    // the responses of the even requests arrive in time
+    for (int i = 0; i < callbacks.length; i += 2) {
+      assertSame(callbacks[i], manager.removeTimer(i));
+    }
+
+    for (int i = 1; i < callbacks.length; i += 2) {
+      assertTrue(callbacks[i].latch.await(5, TimeUnit.SECONDS));
+      assertTrue(callbacks[i].exception.get() instanceof TimeoutException);
+    }
+    for (int i = 0; i < callbacks.length; i += 2) {
+      assertNull(callbacks[i].exception.get());
+    }
+    assertEquals(0, manager.getPendingMessageCount());
+    assertNull(manager.removeTimer(1));
+  }
+
+  @Test
+  public void failPendingOnClose() throws Exception {
+    MessageTimeManager<Object> manager = new MessageTimeManager<>(executor, 60000);
+    RecordingCallback callback = new RecordingCallback();
+    manager.addTimer(1L, callback);
+    assertFalse(manager.isBroken());
+
+    manager.fireChannelClose();
+    assertTrue(manager.isBroken());
+    assertEquals(0, manager.getPendingMessageCount());
+    assertTrue(callback.exception.get() instanceof DisconnectionException);
+  }
+
+  @Test
+  public void removedRequestReleasesCallback() throws Exception {
+    MessageTimeManager<Object> manager = new MessageTimeManager<>(executor, 60000);
+    RecordingCallback callback = new RecordingCallback();
+    WeakReference<RecordingCallback> reference = new WeakReference<>(callback);
+    manager.addTimer(1L, callback);
+    assertSame(callback, manager.removeTimer(1L));
+    callback = null;
+
+    // the entry of the request stays in its bucket until the bucket expires, but it must not keep
+    // the callback alive
+    for (int i = 0; i < 10 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    assertNull(reference.get());
+  }
+
+  private static class RecordingCallback implements MethodCallback<Object> {
+    private final AtomicReference<Exception> exception = new AtomicReference<>();
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    @Override
+    public void complete(Object object) {
+      latch.countDown();
+    }
+
+    @Override
+    public void fail(Exception e) {
+      exception.set(e);
+      latch.countDown();
+    }
+
+    @Override
+    public ByteBufAllocator getAllocator() {
+      return null;
+    }
+  }
+}
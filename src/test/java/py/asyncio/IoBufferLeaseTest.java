@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package py.asyncio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import py.common.tlsf.bytebuffer.manager.TlsfByteBufferManager;
+import py.common.tlsf.bytebuffer.manager.TlsfByteBufferManagerFactory;
+import py.exception.StorageException;
+import py.storage.impl.AsyncStorage;
+import py.storage.impl.AsynchronousFileChannelStorage;
+import py.test.TestBase;
+
+public class IoBufferLeaseTest extends TestBase {
+  private static final int BLOCK_SIZE = 4096;
+  private final Path path = Paths.get("/tmp/io-buffer-lease.data");
+  private ExecutorService executor;
+  private AsyncStorage storage;
+
+  @Before
+  public void before() throws StorageException {
+    TlsfByteBufferManagerFactory.init(512, 1024 * 1024, true);
+    executor = Executors.newSingleThreadExecutor();
+    storage = new AsynchronousFileChannelStorage(path, 1, 1, executor);
+  }
+
+  @After
+  public void after() throws IOException, StorageException {
+    storage.close();
+    executor.shutdown();
+    Files.deleteIfExists(path);
+  }
+
+  @Test
+  public void leasedBufferIsNotBounced() throws Exception {
+    ByteBuffer buffer = storage.leaseIoBuffer(BLOCK_SIZE);
+    Assert.assertTrue(buffer.isDirect());
+    Assert.assertEquals(BLOCK_SIZE, buffer.remaining());
+
+    storage.write(0, buffer);
+    buffer.clear();
+    storage.read(0, buffer);
+    storage.returnIoBuffer(buffer);
+
+    Assert.assertEquals(0, storage.getBouncedIoCount());
+  }
+
+  @Test
+  public void heapBufferIsBounced() throws Exception {
+    storage.write(0, ByteBuffer.allocate(BLOCK_SIZE));
+    storage.read(0, ByteBuffer.allocate(BLOCK_SIZE));
+
+    Assert.assertEquals(2, storage.getBouncedIoCount());
+  }
+
+  @Test
+  public void unalignedBufferIsBounced() throws Exception {
+    ByteBuffer buffer = storage.leaseIoBuffer(BLOCK_SIZE);
+    buffer.position(1);
+    storage.write(0, buffer);
+    storage.returnIoBuffer(buffer);
+
+    Assert.assertEquals(1, storage.getBouncedIoCount());
+  }
+
+  @Test
+  public void returnIoBufferToPool() throws Exception {
+    TlsfByteBufferManager manager = TlsfByteBufferManagerFactory.instance();
+    int spaceCanBeUsed = manager.getSpaceCanBeUsed();
+
+    ByteBuffer buffer = storage.leaseIoBuffer(BLOCK_SIZE);
+    Assert.assertTrue(manager.owns(buffer));
+    Assert.assertEquals(spaceCanBeUsed - BLOCK_SIZE, manager.getSpaceCanBeUsed().intValue());
+
+    storage.returnIoBuffer(buffer);
+    Assert.assertEquals(spaceCanBeUsed, manager.getSpaceCanBeUsed().intValue());
+
+    // a buffer not leased from the pool is simply dropped
+    storage.returnIoBuffer(ByteBuffer.allocateDirect(BLOCK_SIZE));
+    Assert.assertEquals(spaceCanBeUsed, manager.getSpaceCanBeUsed().intValue());
+  }
+}
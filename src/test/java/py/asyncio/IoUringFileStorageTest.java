@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.asyncio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import py.common.DirectAlignedBufferAllocator;
+import py.common.tlsf.bytebuffer.manager.TlsfByteBufferManager;
+import py.common.tlsf.bytebuffer.manager.TlsfByteBufferManagerFactory;
+import py.storage.async.IoUringFileStorage;
+import py.test.TestBase;
+
+/**
+ * Runs against the library built from src/main/resources/liblinux-io-uring, and is skipped when
+ * the library or the running kernel does not support io_uring.
+ */
+public class IoUringFileStorageTest extends TestBase {
+  private static final int SECTOR_SIZE = 512;
+  private static final int BLOCK_SIZE = 4096;
+  private static final int IO_DEPTH = 16;
+  private Path path = Paths.get("/tmp/io-uring.data");
+  private IoUringFileStorage storage;
+
+  @Before
+  public void init() throws Exception {
+    addSystemProperty("java.library.path",
+        System.getProperty("user.dir") + "/src/main/resources/liblinux-io-uring");
+    Assume.assumeTrue(IoUringFileStorage.isSupported());
+
+    Files.deleteIfExists(path);
+    FileUtils.writeByteArrayToFile(path.toFile(), new byte[16 * 1024 * 1024]);
+    TlsfByteBufferManagerFactory.init(SECTOR_SIZE, 1024 * 1024, true);
+  }
+
+  @After
+  public void after() throws Exception {
+    if (storage != null) {
+      storage.close();
+    }
+    Files.deleteIfExists(path);
+  }
+
+  private void addSystemProperty(String key, String value) {
+    try {
+      Field field = ClassLoader.class.getDeclaredField("usr_paths");
+      field.setAccessible(true);
+      String[] properties = (String[]) field.get(null);
+      for (String str : properties) {
+        if (value.equals(str)) {
+          return;
+        }
+      }
+      String[] propertiesDest = new String[properties.length + 1];
+      System.arraycopy(properties, 0, propertiesDest, 0, properties.length);
+      propertiesDest[properties.length] = value;
+      field.set(null, propertiesDest);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private IoUringFileStorage open(int submitBatchSize) throws Exception {
+    storage = new IoUringFileStorage(path, IO_DEPTH, SECTOR_SIZE, submitBatchSize, false);
+    storage.open();
+    return storage;
+  }
+
+  private ByteBuffer block(byte value) {
+    ByteBuffer buffer = DirectAlignedBufferAllocator
+        .allocateAlignedByteBuffer(BLOCK_SIZE, SECTOR_SIZE);
+    while (buffer.hasRemaining()) {
+      buffer.put(value);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  private void assertBlock(ByteBuffer buffer, byte value) {
+    buffer.clear();
+    while (buffer.hasRemaining()) {
+      assertEquals(value, buffer.get());
+    }
+  }
+
+  private CompletionHandler<Integer, CountDownLatch> countDown(AtomicInteger failed) {
+    return new CompletionHandler<Integer, CountDownLatch>() {
+      @Override
+      public void completed(Integer result, CountDownLatch latch) {
+        latch.countDown();
+      }
+
+      @Override
+      public void failed(Throwable exc, CountDownLatch latch) {
+        failed.incrementAndGet();
+        latch.countDown();
+      }
+    };
+  }
+
+  @Test
+  public void testSubmitWhenBatchIsFull() throws Exception {
+    int batchSize = 4;
+    open(batchSize);
+    CountDownLatch latch = new CountDownLatch(batchSize);
+    AtomicInteger failed = new AtomicInteger(0);
+
+    for (int i = 0; i < batchSize - 1; i++) {
+      storage.write(block((byte) i), (long) i * BLOCK_SIZE, latch, countDown(failed));
+    }
+    // nothing has been handed to kernel yet
+    assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+    assertEquals(batchSize, latch.getCount());
+
+    storage.write(block((byte) (batchSize - 1)), (long) (batchSize - 1) * BLOCK_SIZE, latch,
+        countDown(failed));
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(0, failed.get());
+
+    for (int i = 0; i < batchSize; i++) {
+      ByteBuffer buffer = block((byte) -1);
+      storage.read((long) i * BLOCK_SIZE, buffer);
+      assertBlock(buffer, (byte) i);
+    }
+  }
+
+  @Test
+  public void testFlushSubmitsQueuedIo() throws Exception {
+    open(IO_DEPTH);
+    CountDownLatch latch = new CountDownLatch(2);
+    AtomicInteger failed = new AtomicInteger(0);
+
+    storage.write(block((byte) 1), 0, latch, countDown(failed));
+    storage.write(block((byte) 2), BLOCK_SIZE, latch, countDown(failed));
+    assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+
+    storage.flush();
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(0, failed.get());
+  }
+
+  @Test
+  public void testFixedBufferAndVectoredIo() throws Exception {
+    open(1);
+    TlsfByteBufferManager tlsfByteBufferManager = TlsfByteBufferManagerFactory.instance();
+    ByteBuffer fixedBuffer = tlsfByteBufferManager.blockingAllocate(2 * BLOCK_SIZE);
+    try {
+      fixedBuffer.limit(2 * BLOCK_SIZE);
+      for (int i = 0; i < 2 * BLOCK_SIZE; i++) {
+        fixedBuffer.put(i, (byte) (i < BLOCK_SIZE ? 3 : 4));
+      }
+      storage.write(BLOCK_SIZE, fixedBuffer);
+    } finally {
+      tlsfByteBufferManager.release(fixedBuffer);
+    }
+
+    ByteBuffer[] buffers = {block((byte) -1), block((byte) -1)};
+    CountDownLatch latch = new CountDownLatch(1);
+    AtomicInteger failed = new AtomicInteger(0);
+    storage.read(buffers, BLOCK_SIZE, latch, countDown(failed));
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(0, failed.get());
+    assertBlock(buffers[0], (byte) 3);
+    assertBlock(buffers[1], (byte) 4);
+  }
+
+  @Test
+  public void testShortReadFails() throws Exception {
+    open(1);
+    CountDownLatch latch = new CountDownLatch(1);
+    AtomicInteger failed = new AtomicInteger(0);
+
+    storage.read(block((byte) 0), storage.size() + BLOCK_SIZE, latch, countDown(failed));
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, failed.get());
+  }
+}
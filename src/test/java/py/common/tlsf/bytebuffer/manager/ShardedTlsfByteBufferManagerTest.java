@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.common.tlsf.bytebuffer.manager;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import py.common.tlsf.OutOfSpaceException;
+import py.test.TestBase;
+
+public class ShardedTlsfByteBufferManagerTest extends TestBase {
+  private static final Logger logger = LoggerFactory
+      .getLogger(ShardedTlsfByteBufferManagerTest.class);
+
+  @Test
+  public void testStealFromOtherShards() throws Exception {
+    final int shardCount = 4;
+    final int shardSize = 1024 * 1024;
+
+    ShardedTlsfByteBufferManager spaceManager = new ShardedTlsfByteBufferManager(512,
+        shardCount * shardSize, true, shardCount);
+
+    List<ByteBuffer> buffers = new ArrayList<>();
+    for (int i = 0; i < shardCount; i++) {
+      ByteBuffer buffer = spaceManager.allocate(shardSize);
+      Assert.assertEquals(shardSize, buffer.capacity());
+      buffers.add(buffer);
+    }
+
+    try {
+      spaceManager.allocate(1);
+      Assert.fail();
+    } catch (OutOfSpaceException e) {
+      logger.debug("caught exception", e);
+    }
+
+    for (ByteBuffer buffer : buffers) {
+      spaceManager.release(buffer);
+    }
+
+    spaceManager.release(spaceManager.allocate(shardSize));
+  }
+
+  @Test
+  public void testBlockingAllocateWakenByOtherShard() throws Exception {
+    final int shardCount = 2;
+    final int shardSize = 1024 * 1024;
+
+    ShardedTlsfByteBufferManager spaceManager = new ShardedTlsfByteBufferManager(512,
+        shardCount * shardSize, true, shardCount);
+    ByteBuffer first = spaceManager.allocate(shardSize);
+    ByteBuffer second = spaceManager.allocate(shardSize);
+
+    new Thread() {
+      public void run() {
+        try {
+          Thread.sleep(1000);
+        } catch (InterruptedException e) {
+          logger.error("caught exception", e);
+        }
+
+        spaceManager.release(second);
+      }
+    }.start();
+
+    spaceManager.release(spaceManager.blockingAllocate(shardSize));
+    spaceManager.release(first);
+    Assert.assertEquals(shardCount * shardSize, spaceManager.getSpaceCanBeUsed().intValue());
+  }
+
+  @Test
+  public void testConcurrentAllocateAndRelease() throws Exception {
+    final int threadCount = 16;
+    final int times = 10000;
+    final int shardCount = 4;
+
+    ShardedTlsfByteBufferManager spaceManager = new ShardedTlsfByteBufferManager(512,
+        16 * 1024 * 1024, true, shardCount);
+    AtomicBoolean hasErr = new AtomicBoolean(false);
+    CountDownLatch latch = new CountDownLatch(threadCount);
+
+    for (int i = 0; i < threadCount; i++) {
+      new Thread(() -> {
+        try {
+          for (int j = 0; j < times; j++) {
+            ByteBuffer buffer = spaceManager.blockingAllocate(4096);
+            if (buffer.remaining() < 4096) {
+              hasErr.set(true);
+            }
+            spaceManager.release(buffer);
+          }
+        } catch (Throwable t) {
+          logger.error("caught exception", t);
+          hasErr.set(true);
+        } finally {
+          latch.countDown();
+        }
+      }).start();
+    }
+
+    latch.await();
+    Assert.assertFalse(hasErr.get());
+    ByteBuffer buffer = spaceManager.allocate(spaceManager.getCapacity() / shardCount);
+    spaceManager.release(buffer);
+  }
+
+  @Test
+  public void testSpaceCanBeUsedCountsEveryAllocation() throws Exception {
+    final int shardCount = 2;
+    final int shardSize = 1024 * 1024;
+
+    ShardedTlsfByteBufferManager spaceManager = new ShardedTlsfByteBufferManager(512,
+        shardCount * shardSize, true, shardCount);
+    ByteBuffer allocated = spaceManager.allocate(4096);
+    ByteBuffer blockingAllocated = spaceManager.blockingAllocate(8192);
+    List<ByteBuffer> tryAllocated = spaceManager.tryAllocate(16384);
+    Assert.assertEquals(shardCount * shardSize - 4096 - 8192 - 16384,
+        spaceManager.getSpaceCanBeUsed().intValue());
+
+    spaceManager.release(allocated);
+    spaceManager.release(blockingAllocated);
+    for (ByteBuffer buffer : tryAllocated) {
+      spaceManager.release(buffer);
+    }
+    Assert.assertEquals(shardCount * shardSize, spaceManager.getSpaceCanBeUsed().intValue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectSizeLargerThanShard() throws Exception {
+    final int shardCount = 2;
+    final int shardSize = 1024 * 1024;
+
+    ShardedTlsfByteBufferManager spaceManager = new ShardedTlsfByteBufferManager(512,
+        shardCount * shardSize, true, shardCount);
+    spaceManager.blockingAllocate(shardSize + 512);
+  }
+}
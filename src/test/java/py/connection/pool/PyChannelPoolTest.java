@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.connection.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import py.common.struct.EndPoint;
+import py.netty.client.MessageTimeManager;
+import py.test.TestBase;
+
+public class PyChannelPoolTest extends TestBase {
+  private final EndPoint endPoint = new EndPoint("localhost", 8000);
+
+  @Test
+  public void buildChannelsInRoundRobin() {
+    List<ConnectionRequest> requests = new ArrayList<>();
+    PyChannelPool pool = new PyChannelPool(3, endPoint, requests::add);
+    for (int i = 0; i < 3; i++) {
+      pool.get(endPoint);
+    }
+
+    assertEquals(3, requests.size());
+    assertEquals(3, pool.getAll().size());
+  }
+
+  @Test
+  public void selectLeastPendingChannel() {
+    PyChannelPool pool = new PyChannelPool(2, endPoint, request -> {
+    });
+    PyChannel busy = pool.get(endPoint);
+    PyChannel idle = pool.get(endPoint);
+    busy.set(newChannel(10));
+    idle.set(newChannel(0));
+
+    for (int i = 0; i < 10; i++) {
+      assertSame(idle, pool.get(endPoint));
+    }
+
+    idle.get().close();
+    for (int i = 0; i < 10; i++) {
+      assertSame(busy, pool.get(endPoint));
+    }
+  }
+
+  private EmbeddedChannel newChannel(int pendingCount) {
+    EmbeddedChannel channel = new EmbeddedChannel();
+    MessageTimeManager<Object> manager = new MessageTimeManager<>(channel.eventLoop(), 60000);
+    MessageTimeManager.attach(channel, manager);
+    for (int i = 0; i < pendingCount; i++) {
+      manager.addTimer((long) i, null);
+    }
+    return channel;
+  }
+}
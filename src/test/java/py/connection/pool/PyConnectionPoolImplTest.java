@@ -19,6 +19,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -34,6 +36,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.apache.commons.lang.math.RandomUtils;
@@ -41,6 +44,7 @@ import org.junit.Before;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -430,6 +434,141 @@ public class PyConnectionPoolImplTest extends TestBase {
 
   }
 
+  @Test
+  public void test7ReconnectAfterChannelClosed() throws Exception {
+    NetworkIoHealthChecker.INSTANCE.setResultForTestsOnly(whatever -> true);
+    PyConnectionPoolImpl connectionPool = new PyConnectionPoolImpl(1, 30000, bootstrapBuilder);
+    try {
+      PyChannel connected = addChannelPool(connectionPool).get(endPoint);
+      GenericFutureListener closeListener = connect(connectionPool, connected);
+      verify(bootstrap, never()).connect(any(String.class), any(Integer.class));
+
+      when(channel.isActive()).thenReturn(false);
+      when(channel.close()).thenReturn(completedFuture());
+      closeListener.operationComplete(channel.closeFuture());
+      verify(bootstrap, timeout(5000)).connect(endPoint.getHostName(), endPoint.getPort());
+    } finally {
+      connectionPool.close();
+    }
+  }
+
+  @Test
+  public void test8ReconnectBackoffDoublesUpToCap() throws Exception {
+    assertEquals(PyConnectionPoolImpl.DEFAULT_CHECK_CONNECTION_INTERVAL_MS,
+        PyConnectionPoolImpl.reconnectDelayMs(0));
+    for (int failures = 1; failures < 64; failures++) {
+      assertEquals(Math.min(2 * PyConnectionPoolImpl.reconnectDelayMs(failures - 1),
+          PyConnectionPoolImpl.MAX_RECONNECT_BACKOFF_MS),
+          PyConnectionPoolImpl.reconnectDelayMs(failures));
+    }
+    assertEquals(PyConnectionPoolImpl.MAX_RECONNECT_BACKOFF_MS,
+        PyConnectionPoolImpl.reconnectDelayMs(Integer.MAX_VALUE));
+
+    // every failed attempt counts
+    NetworkIoHealthChecker.INSTANCE.setResultForTestsOnly(whatever -> true);
+    PyConnectionPoolImpl connectionPool = new PyConnectionPoolImpl(1, 30000, bootstrapBuilder);
+    try {
+      PyChannelPool channelPool = addChannelPool(connectionPool);
+      PyChannel pyChannel = channelPool.get(endPoint);
+      when(channel.isActive()).thenReturn(false);
+      for (int i = 1; i <= 3; i++) {
+        connectionPool.processReconnect(
+            connectionPool.new ConnectionRequestResult(new ConnectionRequest(pyChannel)));
+        assertEquals(i, channelPool.getReconnectFailures());
+      }
+    } finally {
+      connectionPool.close();
+    }
+  }
+
+  @Test
+  public void test9ReachableResetsBackoff() throws Exception {
+    NetworkIoHealthChecker.INSTANCE.setResultForTestsOnly(whatever -> true);
+    PyConnectionPoolImpl connectionPool = new PyConnectionPoolImpl(1, 30000, bootstrapBuilder);
+    try {
+      PyChannelPool channelPool = addChannelPool(connectionPool);
+      channelPool.get(endPoint);
+      for (int i = 0; i < 10; i++) {
+        channelPool.reconnectFailed();
+      }
+      assertEquals(PyConnectionPoolImpl.MAX_RECONNECT_BACKOFF_MS,
+          PyConnectionPoolImpl.reconnectDelayMs(channelPool.getReconnectFailures()));
+
+      connectionPool.reachabilityChanged(channelPool, true);
+      assertEquals(0, channelPool.getReconnectFailures());
+      // the end point is reconnected right away instead of after the backoff
+      verify(bootstrap, timeout(PyConnectionPoolImpl.MAX_RECONNECT_BACKOFF_MS / 2))
+          .connect(endPoint.getHostName(), endPoint.getPort());
+    } finally {
+      connectionPool.close();
+    }
+  }
+
+  @Test
+  public void test10NoReconnectAfterClose() throws Exception {
+    NetworkIoHealthChecker.INSTANCE.setResultForTestsOnly(whatever -> true);
+    PyConnectionPoolImpl connectionPool = new PyConnectionPoolImpl(1, 30000, bootstrapBuilder);
+    PyChannelPool channelPool = addChannelPool(connectionPool);
+    PyChannel connected = channelPool.get(endPoint);
+    GenericFutureListener closeListener = connect(connectionPool, connected);
+
+    connectionPool.close();
+    when(channel.isActive()).thenReturn(false);
+    closeListener.operationComplete(channel.closeFuture());
+    connectionPool.reachabilityChanged(channelPool, true);
+
+    Thread.sleep(PyConnectionPoolImpl.DEFAULT_CHECK_CONNECTION_INTERVAL_MS * 10);
+    verify(bootstrap, never()).connect(any(String.class), any(Integer.class));
+  }
+
+  /**
+   * Put a pool of one channel for the end point into the connection pool, the pool doesn't
+   * connect its channel by itself.
+   */
+  private PyChannelPool addChannelPool(PyConnectionPoolImpl connectionPool) {
+    PyChannelPool channelPool = new PyChannelPool(1, endPoint, request -> {
+    });
+    Map<EndPoint, PyChannelPool> mapEndPointToChannelPool = new ConcurrentHashMap<>();
+    mapEndPointToChannelPool.put(endPoint, channelPool);
+    connectionPool.setMapEndPointToChannelPool(mapEndPointToChannelPool);
+    return channelPool;
+  }
+
+  /**
+   * Complete a connection attempt of the channel successfully, and return the listener the pool
+   * put on the close of the channel.
+   */
+  private GenericFutureListener connect(PyConnectionPoolImpl connectionPool, PyChannel pyChannel)
+      throws Exception {
+    ChannelFuture closeFuture = mock(ChannelFuture.class);
+    when(closeFuture.channel()).thenReturn(channel);
+    when(channel.closeFuture()).thenReturn(closeFuture);
+    when(channel.isActive()).thenReturn(true);
+    pyChannel.set(channel);
+
+    connectionPool.processReconnect(
+        connectionPool.new ConnectionRequestResult(new ConnectionRequest(pyChannel)));
+    ArgumentCaptor<GenericFutureListener> captor = ArgumentCaptor
+        .forClass(GenericFutureListener.class);
+    verify(closeFuture).addListener(captor.capture());
+    return captor.getValue();
+  }
+
+  /**
+   * A future which calls its listeners as soon as they are added.
+   */
+  private ChannelFuture completedFuture() throws Exception {
+    ChannelFuture future = mock(ChannelFuture.class);
+    when(future.channel()).thenReturn(channel);
+    when(future.isSuccess()).thenReturn(true);
+    when(future.addListener(any())).thenAnswer(invocation -> {
+      GenericFutureListener listener = invocation.getArgument(0);
+      listener.operationComplete(future);
+      return future;
+    });
+    return future;
+  }
+
   private class ListenerTask extends DelayedTask {
     private ChannelFuture channelFuture;
     private GenericFutureListener connectionListenerManager;
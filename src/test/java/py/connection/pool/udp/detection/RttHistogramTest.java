@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.connection.pool.udp.detection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import py.test.TestBase;
+
+public class RttHistogramTest extends TestBase {
+  @Test
+  public void percentiles() {
+    RttHistogram histogram = new RttHistogram();
+    assertEquals(-1, histogram.getPercentileMicros(50));
+
+    for (int i = 0; i < 99; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+    }
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(127, histogram.getPercentileMicros(50));
+    assertEquals(127, histogram.getPercentileMicros(99));
+    assertEquals(16383, histogram.getPercentileMicros(100));
+
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+  }
+
+  @Test
+  public void bucketBounds() {
+    assertEquals(0, RttHistogram.bucketOf(0));
+    assertEquals(1, RttHistogram.bucketOf(1));
+    assertEquals(2, RttHistogram.bucketOf(3));
+    assertEquals(3, RttHistogram.bucketOf(4));
+    assertEquals(RttHistogram.BUCKET_COUNT - 1, RttHistogram.bucketOf(Long.MAX_VALUE));
+  }
+}
@@ -18,6 +18,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
@@ -99,6 +100,28 @@ public class UdpDetectorImplTest extends TestBase {
 
   }
 
+  @Test
+  public void recordRoundTripTime() throws Exception {
+    assertTrue(detector.detect(endPoints[0]).get());
+
+    RttHistogram histogram = UdpDetectorImpl.INSTANCE.getRttHistogram(endPoints[0]);
+    assertTrue(histogram.getCount() > 0);
+    assertTrue(histogram.getPercentileMicros(100) >= 0);
+  }
+
+  @Test
+  public void unresolvedEndPointDoesNotStopTheBurst() throws Exception {
+    AtomicInteger receiveCount = new AtomicInteger(0);
+    udpServers[1].setSendBack(false);
+    udpServers[1].setReceiveListener(b -> receiveCount.incrementAndGet());
+
+    UdpDetectClient client = new UdpDetectClient();
+    client.send(Arrays.asList(new EndPoint("unresolved.invalid", DEFAULT_PORT), endPoints[1]),
+        System.nanoTime());
+
+    Utils.waitUntilConditionMatches(1, () -> receiveCount.get() == 1);
+  }
+
   long getTimeout() {
     DetectionTimeoutPolicy policy = new DefaultDetectionTimeoutPolicyFactory(MAX_RETRY_TIMES,
         INIT_TIMEOUT_MS).generate();
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.datanode.storage.cache.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.Test;
+import py.algorithm.policy.ArcCache;
+import py.test.TestBase;
+
+public class ArcCacheTest extends TestBase {
+  @Test
+  public void putThenGet() {
+    ArcCache cache = new ArcCache(1000, 4);
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i * 2);
+    }
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i * 2, cache.get(i));
+    }
+    assertEquals(100, cache.getHitCount());
+    assertEquals(0, cache.getMissCount());
+
+    cache.remove(7);
+    assertEquals(ArcCache.NO_VALUE, cache.get(7));
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void residentSizeIsBounded() {
+    ArcCache cache = new ArcCache(64, 1);
+    for (int i = 0; i < 10000; i++) {
+      cache.put(ThreadLocalRandom.current().nextLong(1000), i);
+      assertTrue(cache.size() <= 64);
+    }
+  }
+
+  @Test
+  public void frequentEntriesSurviveScan() {
+    ArcCache cache = new ArcCache(100, 1);
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < 50; i++) {
+        cache.put(i, i);
+        cache.get(i);
+      }
+    }
+
+    for (int i = 1000; i < 1000 + 1000; i++) {
+      cache.put(i, i);
+    }
+
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, cache.get(i));
+    }
+  }
+
+  @Test
+  public void ghostHit() {
+    ArcCache cache = new ArcCache(10, 1);
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, i);
+    }
+    // moves 0 to t2, so the next insertion demotes 1 from t1 to b1
+    cache.get(0);
+    cache.put(10, 10);
+
+    assertEquals(ArcCache.NO_VALUE, cache.get(1));
+    assertEquals(1, cache.getGhostHitCount());
+    assertEquals(1, cache.getEvictionCount());
+
+    cache.put(1, 100);
+    assertEquals(100, cache.get(1));
+    assertEquals(10, cache.size());
+  }
+
+  @Test
+  public void concurrentAccess() throws Exception {
+    final ArcCache cache = new ArcCache(1024, 16);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      Thread thread = new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 20000; i++) {
+          long key = random.nextLong(4096);
+          int value = cache.get(key);
+          if (value == ArcCache.NO_VALUE) {
+            cache.put(key, (int) key);
+          } else {
+            assertEquals((int) key, value);
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(cache.size() <= 1024);
+    assertEquals(8 * 20000, cache.getHitCount() + cache.getMissCount());
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.datanode.storage.cache.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import py.algorithm.policy.CacheMap;
+import py.algorithm.policy.LongIntHashMap;
+import py.test.TestBase;
+
+public class LongIntHashMapTest extends TestBase {
+  @Test
+  public void randomOperationsOnHeap() {
+    randomOperations(false);
+  }
+
+  @Test
+  public void randomOperationsOffHeap() {
+    randomOperations(true);
+  }
+
+  @Test
+  public void zeroKey() {
+    LongIntHashMap map = new LongIntHashMap(4, 0.5f, false, -1);
+    assertEquals(-1, map.get(0));
+    assertEquals(-1, map.put(0, 3));
+    assertTrue(map.containsKey(0));
+    assertEquals(3, map.get(0));
+    assertEquals(1, map.size());
+
+    PrimitiveIterator.OfLong iterator = map.keyIterator();
+    assertTrue(iterator.hasNext());
+    assertEquals(0, iterator.nextLong());
+    assertFalse(iterator.hasNext());
+
+    assertEquals(3, map.remove(0));
+    assertFalse(map.containsKey(0));
+    assertEquals(0, map.size());
+  }
+
+  @Test
+  public void cacheMapIteratesAllShards() {
+    CacheMap cacheMap = new CacheMap(1000, 256);
+    Set<Long> keys = new HashSet<>();
+    for (long key = -500; key < 500; key++) {
+      cacheMap.put(key, (int) key + 1000);
+      keys.add(key);
+    }
+
+    Iterator<Long> iterator = cacheMap.keySetIterator();
+    while (iterator.hasNext()) {
+      long key = iterator.next();
+      assertTrue(keys.remove(key));
+      assertEquals((int) key + 1000, cacheMap.get(key));
+    }
+    assertTrue(keys.isEmpty());
+  }
+
+  @Test
+  public void concurrentReadersSeeConsistentValues() throws Exception {
+    LongIntHashMap map = new LongIntHashMap(16, 0.5f, true, -1);
+    AtomicBoolean stop = new AtomicBoolean();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    Thread[] readers = new Thread[4];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(() -> {
+        Random random = new Random();
+        while (!stop.get()) {
+          long key = 1 + random.nextInt(100000);
+          int value = map.get(key);
+          if (value != -1 && value != (int) (key * 7)) {
+            failure.set(new AssertionError("key " + key + " value " + value));
+          }
+        }
+      });
+      readers[i].start();
+    }
+
+    // grows the table many times and removes entries behind the readers
+    for (long key = 1; key <= 100000; key++) {
+      map.put(key, (int) (key * 7));
+      if (key % 3 == 0) {
+        map.remove(key / 3);
+      }
+    }
+    stop.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+  }
+
+  private void randomOperations(boolean offHeap) {
+    LongIntHashMap map = new LongIntHashMap(8, 0.5f, offHeap, -1);
+    Map<Long, Integer> reference = new HashMap<>();
+    Random random = new Random(0);
+
+    for (int i = 0; i < 200000; i++) {
+      long key = random.nextInt(5000) - 2500;
+      int operation = random.nextInt(3);
+      if (operation == 0) {
+        Integer expected = reference.put(key, i);
+        assertEquals(expected == null ? -1 : expected, map.put(key, i));
+      } else if (operation == 1) {
+        Integer expected = reference.remove(key);
+        assertEquals(expected == null ? -1 : expected, map.remove(key));
+      } else {
+        Integer expected = reference.get(key);
+        assertEquals(expected == null ? -1 : expected, map.get(key));
+      }
+    }
+
+    assertEquals(reference.size(), map.size());
+    map.forEach((key, value) -> assertEquals(reference.get(key).intValue(), value));
+  }
+}
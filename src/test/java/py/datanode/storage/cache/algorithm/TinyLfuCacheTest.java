@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.datanode.storage.cache.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.Test;
+import py.algorithm.policy.CachePolicy;
+import py.algorithm.policy.FrequencySketch;
+import py.algorithm.policy.TinyLfuCache;
+import py.test.TestBase;
+
+public class TinyLfuCacheTest extends TestBase {
+  private static final int HOT_KEY_COUNT = 200;
+
+  @Test
+  public void putThenGet() {
+    TinyLfuCache cache = new TinyLfuCache(1000, 4);
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i * 2);
+    }
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i * 2, cache.get(i));
+    }
+    cache.put(5, 50);
+    assertEquals(50, cache.get(5));
+
+    cache.remove(7);
+    assertEquals(CachePolicy.NO_VALUE, cache.get(7));
+    assertEquals(101, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void sizeIsBounded() {
+    TinyLfuCache cache = new TinyLfuCache(64, 1);
+    for (int i = 0; i < 10000; i++) {
+      long key = ThreadLocalRandom.current().nextLong(1000);
+      if (cache.get(key) == CachePolicy.NO_VALUE) {
+        cache.put(key, i);
+      }
+      assertTrue(cache.size() <= 64);
+    }
+    assertTrue(cache.getEvictionCount() > 0);
+  }
+
+  @Test
+  public void hotSetSurvivesScan() {
+    TinyLfuCache cache = new TinyLfuCache(1000, 1);
+    warmUpThenScan(cache);
+
+    for (int i = 0; i < HOT_KEY_COUNT; i++) {
+      assertEquals(i, cache.get(i));
+    }
+    assertTrue(cache.getRejectionCount() > 0);
+  }
+
+  @Test
+  public void sketchCountsFrequency() {
+    FrequencySketch sketch = new FrequencySketch(1024);
+    for (int i = 0; i < 5; i++) {
+      sketch.increment(1);
+    }
+    sketch.increment(2);
+
+    assertTrue(sketch.frequency(1) >= 5);
+    assertTrue(sketch.frequency(1) > sketch.frequency(2));
+    for (int i = 0; i < 100; i++) {
+      sketch.increment(1);
+    }
+    assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(1));
+  }
+
+  @Test
+  public void sketchAges() {
+    FrequencySketch sketch = new FrequencySketch(8);
+    for (int i = 0; i < 10; i++) {
+      sketch.increment(1);
+    }
+    int frequency = sketch.frequency(1);
+
+    // enough distinct keys to reach the sample size and halve every counter
+    for (int i = 100; i < 200; i++) {
+      sketch.increment(i);
+    }
+    assertTrue(sketch.frequency(1) < frequency);
+  }
+
+  private static void warmUpThenScan(CachePolicy cache) {
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < HOT_KEY_COUNT; i++) {
+        if (cache.get(i) == CachePolicy.NO_VALUE) {
+          cache.put(i, i);
+        }
+      }
+    }
+
+    for (int i = 10000; i < 13000; i++) {
+      if (cache.get(i) == CachePolicy.NO_VALUE) {
+        cache.put(i, i);
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.datanode.storage.cache.list;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import py.algorithm.list.ArrayLinkedListBase;
+import py.algorithm.list.MemoryAllocator;
+import py.test.TestBase;
+
+public class MemoryAllocatorTest extends TestBase {
+  private static final int NODE_SIZE = Long.BYTES + Integer.BYTES + Byte.BYTES;
+
+  @Test
+  public void releasedNodesAreReused() {
+    MemoryAllocator allocator = new MemoryAllocator(4, NODE_SIZE, true);
+    Set<Integer> indexes = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      indexes.add(allocator.allocate());
+    }
+    assertEquals(4, indexes.size());
+
+    allocator.release(1);
+    allocator.release(3);
+    assertEquals(3, allocator.allocate());
+    assertEquals(1, allocator.allocate());
+  }
+
+  @Test(expected = OutOfMemoryError.class)
+  public void runOutOfNodes() {
+    MemoryAllocator allocator = new MemoryAllocator(2, NODE_SIZE);
+    allocator.allocate();
+    allocator.allocate();
+    allocator.allocate();
+  }
+
+  @Test
+  public void fieldAccessors() {
+    MemoryAllocator allocator = new MemoryAllocator(2, NODE_SIZE, true);
+    int index = allocator.allocate();
+    allocator.putLong(index, 0, -5L);
+    allocator.putInt(index, Long.BYTES, 7);
+    allocator.putByte(index, Long.BYTES + Integer.BYTES, (byte) 3);
+
+    assertEquals(-5L, allocator.getLong(index, 0));
+    assertEquals(7, allocator.getInt(index, Long.BYTES));
+    assertEquals(3, allocator.getByte(index, Long.BYTES + Integer.BYTES));
+
+    ByteBuffer buffer = ByteBuffer.allocate(NODE_SIZE);
+    allocator.getNode(index, buffer);
+    assertEquals(-5L, buffer.getLong());
+    assertEquals(7, buffer.getInt());
+    assertEquals(3, buffer.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fieldOutOfNode() {
+    MemoryAllocator allocator = new MemoryAllocator(2, NODE_SIZE);
+    allocator.getLong(allocator.allocate(), Integer.BYTES + Byte.BYTES + 1);
+  }
+
+  @Test
+  public void moveBetweenLists() {
+    MemoryAllocator allocator = new MemoryAllocator(
+        4 + 2 * ArrayLinkedListBase.EXTRA_NODE_COUNT, NODE_SIZE, true);
+    ArrayLinkedListBase first = new ArrayLinkedListBase(allocator);
+    ArrayLinkedListBase second = new ArrayLinkedListBase(allocator);
+
+    int a = first.addFirst();
+    allocator.putLong(a, 0, 1);
+    int b = first.addLast();
+    allocator.putLong(b, 0, 2);
+    assertEquals(a, first.getFirstIndex());
+    assertEquals(b, first.getLastIndex());
+
+    first.moveToFirst(b, second);
+    assertEquals(1, first.size());
+    assertEquals(1, second.size());
+    assertEquals(b, second.getFirstIndex());
+    assertEquals(2, allocator.getLong(second.getLastIndex(), 0));
+
+    second.remove(b);
+    assertEquals(ArrayLinkedListBase.INVALID_ARRAY_INDEX, second.getFirstIndex());
+    assertEquals(b, second.addFirst());
+  }
+}
@@ -17,6 +17,8 @@ package py.datanode.storage.impl;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 import io.netty.util.HashedWheelTimer;
 import java.nio.ByteBuffer;
@@ -26,6 +28,7 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
@@ -42,6 +45,7 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 import py.common.NamedThreadFactory;
 import py.common.Utils;
 import py.exception.StorageException;
+import py.storage.NonBlockingCompletionHandler;
 import py.storage.PriorityStorage;
 import py.storage.Storage;
 import py.storage.StorageExceptionHandlerChain;
@@ -51,4 +55,155 @@ import py.storage.impl.PriorityStorageImpl;
 import py.test.TestBase;
 
 public class PriorityStorageImplTest extends TestBase {
+  private static final int PAGE_SIZE = 512;
+
+  @Test
+  public void dropStaleCompletionOfReusedSlot() throws Exception {
+    ReplayingStorage delegate = new ReplayingStorage(PAGE_SIZE * 64);
+    PriorityStorageImpl storage = new PriorityStorageImpl(delegate, 2,
+        new StorageExceptionHandlerChain(), new HashedWheelTimer(), 1000, PAGE_SIZE);
+
+    // many more writes than slots, so each slot is reused while the earlier completions held by
+    // it are replayed
+    int count = 32;
+    AtomicInteger[] completedCounts = new AtomicInteger[count];
+    for (int i = 0; i < count; i++) {
+      completedCounts[i] = new AtomicInteger(0);
+      CountDownLatch latch = new CountDownLatch(1);
+      storage.write(ByteBuffer.allocate(PAGE_SIZE), (long) i * PAGE_SIZE, completedCounts[i],
+          new CompletionHandler<Integer, AtomicInteger>() {
+            @Override
+            public void completed(Integer result, AtomicInteger attachment) {
+              // a replayed completion carries -1, count it as a failure
+              attachment.addAndGet(result == PAGE_SIZE ? 1 : count);
+              latch.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, AtomicInteger attachment) {
+              attachment.addAndGet(count);
+              latch.countDown();
+            }
+          }, PriorityStorage.Priority.MIDDLE);
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    storage.close();
+    for (int i = 0; i < count; i++) {
+      assertEquals(1, completedCounts[i].get());
+    }
+  }
+
+  @Test
+  public void directModeRunsNonBlockingHandlerOnCompletionThread() throws Exception {
+    CompletionThreadRecordingStorage delegate = new CompletionThreadRecordingStorage(
+        "direct-non-blocking", PAGE_SIZE * 4);
+    PriorityStorageImpl storage = new PriorityStorageImpl(delegate, 2,
+        new StorageExceptionHandlerChain(), new HashedWheelTimer(), 1000, PAGE_SIZE);
+    storage.setCompletionMode(PriorityStorageImpl.CompletionMode.DIRECT);
+
+    CompletableFuture<Thread> callbackThread = new CompletableFuture<>();
+    storage.write(ByteBuffer.allocate(PAGE_SIZE), 0, null,
+        new NonBlockingCompletionHandler<Integer, Object>() {
+          @Override
+          public void completed(Integer result, Object attachment) {
+            callbackThread.complete(Thread.currentThread());
+          }
+
+          @Override
+          public void failed(Throwable exc, Object attachment) {
+            callbackThread.completeExceptionally(exc);
+          }
+        }, PriorityStorage.Priority.MIDDLE);
+
+    assertEquals(delegate.completionThread, callbackThread.get(10, TimeUnit.SECONDS));
+    storage.close();
+  }
+
+  @Test
+  public void directModeDispatchesOtherHandlers() throws Exception {
+    CompletionThreadRecordingStorage delegate = new CompletionThreadRecordingStorage(
+        "direct-blocking", PAGE_SIZE * 4);
+    PriorityStorageImpl storage = new PriorityStorageImpl(delegate, 2,
+        new StorageExceptionHandlerChain(), new HashedWheelTimer(), 1000, PAGE_SIZE);
+    storage.setCompletionMode(PriorityStorageImpl.CompletionMode.DIRECT);
+
+    CompletableFuture<Thread> callbackThread = new CompletableFuture<>();
+    storage.write(ByteBuffer.allocate(PAGE_SIZE), 0, null,
+        new CompletionHandler<Integer, Object>() {
+          @Override
+          public void completed(Integer result, Object attachment) {
+            callbackThread.complete(Thread.currentThread());
+          }
+
+          @Override
+          public void failed(Throwable exc, Object attachment) {
+            callbackThread.completeExceptionally(exc);
+          }
+        }, PriorityStorage.Priority.MIDDLE);
+
+    Thread thread = callbackThread.get(10, TimeUnit.SECONDS);
+    assertNotSame(delegate.completionThread, thread);
+    assertTrue(thread.getName().startsWith("direct-blocking-batchedCallBack"));
+    storage.close();
+  }
+
+  @Test
+  public void pooledModeStartsNoBatchedCallbackThread() throws Exception {
+    PriorityStorageImpl storage = new PriorityStorageImpl(
+        new DummyStorage("pooled-only", PAGE_SIZE * 4), 2, new StorageExceptionHandlerChain(),
+        new HashedWheelTimer(), 1000, PAGE_SIZE);
+    assertEquals(0, countThreads("pooled-only-batchedCallBack"));
+
+    storage.setCompletionMode(PriorityStorageImpl.CompletionMode.DIRECT);
+    assertTrue(countThreads("pooled-only-batchedCallBack") > 0);
+    storage.close();
+  }
+
+  private static long countThreads(String namePrefix) {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> thread.isAlive() && thread.getName().startsWith(namePrefix)).count();
+  }
+
+  /**
+   * Records the thread completing the I/O.
+   */
+  private static class CompletionThreadRecordingStorage extends DummyStorage {
+    private volatile Thread completionThread;
+
+    CompletionThreadRecordingStorage(String identifier, int size) {
+      super(identifier, size);
+    }
+
+    @Override
+    public <A> void write(ByteBuffer buffer, long pos, A attachment,
+        CompletionHandler<Integer, ? super A> handler) throws StorageException {
+      completionThread = Thread.currentThread();
+      super.write(buffer, pos, attachment, handler);
+    }
+  }
+
+  /**
+   * Completes again all the I/O it has completed before while holding a new one, as a misbehaving
+   * device may do, and then completes the new one.
+   */
+  private static class ReplayingStorage extends DummyStorage {
+    private final Deque<Runnable> completedIo = new ConcurrentLinkedDeque<>();
+
+    ReplayingStorage(int size) {
+      super("replaying", size);
+    }
+
+    @Override
+    public <A> void write(ByteBuffer buffer, long pos, A attachment,
+        CompletionHandler<Integer, ? super A> handler) throws StorageException {
+      int remaining = buffer.remaining();
+      write(pos, buffer);
+      for (Runnable replay : completedIo) {
+        replay.run();
+      }
+      handler.completed(remaining, attachment);
+      completedIo.add(() -> handler.completed(-1, attachment));
+    }
+  }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import py.test.TestBase;
+
+public class WorkStealingTaskEngineTest extends TestBase {
+  @Test
+  public void runTasksOnAllWorkers() throws Exception {
+    WorkStealingTaskEngine engine = new WorkStealingTaskEngine(4);
+    engine.start();
+
+    int taskCount = 1000;
+    CountDownLatch latch = new CountDownLatch(taskCount);
+    Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    for (int i = 0; i < taskCount; i++) {
+      assertTrue(engine.drive(generateTask(() -> {
+        threads.add(Thread.currentThread().getName());
+        sleep(1);
+        latch.countDown();
+      })));
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(4, threads.size());
+    engine.stop();
+  }
+
+  @Test
+  public void idleWorkersStealFromBusyOne() throws Exception {
+    WorkStealingTaskEngine engine = new WorkStealingTaskEngine(4);
+    engine.start();
+
+    int taskCount = 100;
+    CountDownLatch latch = new CountDownLatch(taskCount);
+    // tasks driven from a worker are queued on that worker
+    engine.drive(generateTask(() -> {
+      for (int i = 0; i < taskCount; i++) {
+        engine.drive(generateTask(() -> {
+          sleep(5);
+          latch.countDown();
+        }));
+      }
+    }));
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertTrue(engine.getStolenTaskCount() > 0);
+    engine.stop();
+  }
+
+  @Test
+  public void affinityTasksRunInOrder() throws Exception {
+    WorkStealingTaskEngine engine = new WorkStealingTaskEngine(4);
+    engine.start();
+
+    int keyCount = 8;
+    int tasksPerKey = 200;
+    CountDownLatch latch = new CountDownLatch(keyCount * tasksPerKey);
+    AtomicInteger[] lastSequence = new AtomicInteger[keyCount];
+    AtomicBoolean[] running = new AtomicBoolean[keyCount];
+    AtomicBoolean failed = new AtomicBoolean();
+    for (int key = 0; key < keyCount; key++) {
+      lastSequence[key] = new AtomicInteger(-1);
+      running[key] = new AtomicBoolean();
+    }
+
+    for (int sequence = 0; sequence < tasksPerKey; sequence++) {
+      for (int key = 0; key < keyCount; key++) {
+        final int finalKey = key;
+        final int finalSequence = sequence;
+        engine.drive(generateAffinityTask(key, () -> {
+          if (!running[finalKey].compareAndSet(false, true)
+              || lastSequence[finalKey].getAndSet(finalSequence) != finalSequence - 1) {
+            failed.set(true);
+          }
+          running[finalKey].set(false);
+          latch.countDown();
+        }));
+      }
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertTrue(!failed.get());
+    engine.stop();
+  }
+
+  @Test
+  public void skipCancelledTasks() throws Exception {
+    WorkStealingTaskEngine engine = new WorkStealingTaskEngine(2);
+    AtomicInteger count = new AtomicInteger();
+    Task cancelled = generateTask(count::incrementAndGet);
+    cancelled.cancel();
+    engine.drive(cancelled);
+    engine.drive(generateTask(count::incrementAndGet));
+
+    engine.start();
+    engine.stop();
+    assertEquals(1, count.get());
+  }
+
+  @Test
+  public void stopRunsQueuedTasks() throws Exception {
+    WorkStealingTaskEngine engine = new WorkStealingTaskEngine(2);
+    AtomicInteger count = new AtomicInteger();
+    for (int i = 0; i < 100; i++) {
+      engine.drive(generateTask(count::incrementAndGet));
+      engine.drive(generateAffinityTask(i, count::incrementAndGet));
+    }
+
+    engine.start();
+    engine.stop();
+    assertEquals(200, count.get());
+    assertEquals(0, engine.getPendingTask());
+
+    engine.drive(generateTask(count::incrementAndGet));
+    Thread.sleep(100);
+    assertEquals(1, engine.getPendingTask());
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Task generateTask(Runnable runnable) {
+    return new AbstractTask() {
+      @Override
+      public Result work() {
+        runnable.run();
+        return ResultImpl.DEFAULT;
+      }
+    };
+  }
+
+  private static Task generateAffinityTask(long key, Runnable runnable) {
+    return new AffinityTaskImpl(key, runnable);
+  }
+
+  private static class AffinityTaskImpl extends AbstractTask implements AffinityTask {
+    private final long key;
+    private final Runnable runnable;
+
+    AffinityTaskImpl(long key, Runnable runnable) {
+      this.key = key;
+      this.runnable = runnable;
+    }
+
+    @Override
+    public long getAffinityKey() {
+      return key;
+    }
+
+    @Override
+    public Result work() {
+      runnable.run();
+      return ResultImpl.DEFAULT;
+    }
+  }
+}
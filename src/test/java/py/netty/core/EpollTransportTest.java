@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package py.netty.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import py.netty.message.Header;
+import py.netty.message.Message;
+import py.test.TestBase;
+
+public class EpollTransportTest extends TestBase {
+  private static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+  private final IoTransportType transportType = IoTransportType.EPOLL;
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup serverGroup;
+  private EventLoopGroup clientGroup;
+
+  @Before
+  public void beforeMethod() {
+    Assume.assumeTrue("epoll is not available", Epoll.isAvailable());
+    bossGroup = transportType.newEventLoopGroup(1,
+        new DefaultThreadFactory("epoll-test-boss", false, Thread.NORM_PRIORITY));
+    serverGroup = transportType.newEventLoopGroup(2,
+        new DefaultThreadFactory("epoll-test-server-io", false, Thread.NORM_PRIORITY));
+    clientGroup = transportType.newEventLoopGroup(1,
+        new DefaultThreadFactory("epoll-test-client-io", false, Thread.NORM_PRIORITY));
+  }
+
+  @After
+  public void afterMethod() throws Exception {
+    for (EventLoopGroup group : new EventLoopGroup[]{clientGroup, serverGroup, bossGroup}) {
+      if (group != null) {
+        group.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+        group.awaitTermination(5, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  /**
+   * Neither side flushes its writes, the {@link AutoFlushHandler} installed by the transport has
+   * to.
+   */
+  @Test
+  public void requestAndResponseRoundTrip() throws Exception {
+    ServerBootstrap serverBootstrap = new ServerBootstrap();
+    serverBootstrap.group(bossGroup, serverGroup).channel(transportType.serverChannelClass())
+        .childOption(ChannelOption.TCP_NODELAY, true)
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .childHandler(new ChannelInitializer<Channel>() {
+          @Override
+          protected void initChannel(Channel ch) throws Exception {
+            ch.pipeline().addLast(
+                new ByteToMessageDecoder(MAX_FRAME_SIZE, PooledByteBufAllocator.DEFAULT));
+            ch.pipeline().addLast(new EchoHandler());
+            transportType.initChannel(ch);
+          }
+        });
+    transportType.configure(serverBootstrap);
+    Channel serverChannel = serverBootstrap.bind("127.0.0.1", 0).sync().channel();
+    int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+
+    BlockingQueue<Message> responses = new LinkedBlockingQueue<>();
+    Bootstrap bootstrap = new Bootstrap();
+    bootstrap.group(clientGroup).channel(transportType.channelClass())
+        .option(ChannelOption.TCP_NODELAY, true)
+        .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .handler(new ChannelInitializer<Channel>() {
+          @Override
+          protected void initChannel(Channel ch) throws Exception {
+            ch.pipeline().addLast(
+                new ByteToMessageDecoder(MAX_FRAME_SIZE, PooledByteBufAllocator.DEFAULT));
+            ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+              @Override
+              public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                responses.offer((Message) msg);
+              }
+            });
+            transportType.initChannel(ch);
+          }
+        });
+    transportType.configure(bootstrap);
+    Channel channel = bootstrap.connect("127.0.0.1", port).sync().channel();
+    assertTrue(channel instanceof EpollSocketChannel);
+
+    final int requestCount = 10;
+    for (int i = 0; i < requestCount; i++) {
+      channel.write(newFrame((byte) 1, i, 100 * i));
+    }
+
+    for (int i = 0; i < requestCount; i++) {
+      Message response = responses.poll(10, TimeUnit.SECONDS);
+      assertTrue("no response for request " + i, response != null);
+      try {
+        assertEquals(i, response.getRequestId());
+        assertEquals(100 * i, response.getHeader().getLength());
+        ByteBuf body = response.getBuffer();
+        for (int j = 0; j < 100 * i; j++) {
+          assertEquals((byte) j, body.readByte());
+        }
+      } finally {
+        response.release();
+      }
+    }
+
+    channel.close().sync();
+    serverChannel.close().sync();
+  }
+
+  private static ByteBuf newFrame(byte methodType, long requestId, int bodySize) {
+    Header header = new Header(methodType, 0, bodySize, requestId);
+    ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer(Header.headerLength() + bodySize);
+    header.toBuffer(buffer);
+    for (int i = 0; i < bodySize; i++) {
+      buffer.writeByte((byte) i);
+    }
+    return buffer;
+  }
+
+  private static class EchoHandler extends ChannelInboundHandlerAdapter {
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      Message request = (Message) msg;
+      try {
+        Header header = request.getHeader();
+        ByteBuf response = ctx.alloc().buffer(Header.headerLength() + header.getLength());
+        new Header(header.getMethodType(), 0, header.getLength(), header.getRequestId())
+            .toBuffer(response);
+        if (request.getBuffer() != null) {
+          response.writeBytes(request.getBuffer());
+        }
+        ctx.write(response);
+      } finally {
+        request.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package py.netty.message;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import org.junit.Test;
+import py.netty.message.ProtocolBufProtocolFactory.MetadataParser;
+import py.test.TestBase;
+
+/**
+ * The parsers bound by {@link ProtocolBufProtocolFactory#createParser(Method)} read the metadata
+ * in place, they must decode the same as the reflective parseFrom over a copy of it did.
+ */
+public class ProtocolBufProtocolFactoryTest extends TestBase {
+  private static final int PREFIX_LENGTH = 7;
+  private static final int SUFFIX_LENGTH = 5;
+
+  @Test
+  public void parseHeapBufferWithArrayOffsetAndReaderIndex() throws Exception {
+    byte[] metadata = encode(new Metadata(12345L, "heap"));
+    byte[] array = new byte[3 + PREFIX_LENGTH + metadata.length + SUFFIX_LENGTH];
+    System.arraycopy(metadata, 0, array, 3 + PREFIX_LENGTH, metadata.length);
+    // a slice of the array, whose array offset is 3
+    ByteBuf buffer = Unpooled.wrappedBuffer(array, 3, array.length - 3);
+    buffer.readerIndex(PREFIX_LENGTH);
+
+    assertEquals(3, buffer.arrayOffset());
+    checkSameAsReflectiveParse(buffer, metadata);
+  }
+
+  @Test
+  public void parseDirectBufferWithReaderIndex() throws Exception {
+    byte[] metadata = encode(new Metadata(-1L, "direct"));
+    ByteBuf buffer = Unpooled.directBuffer(PREFIX_LENGTH + metadata.length + SUFFIX_LENGTH);
+    buffer.writeZero(PREFIX_LENGTH);
+    buffer.writeBytes(metadata);
+    buffer.writeZero(SUFFIX_LENGTH);
+    buffer.readerIndex(PREFIX_LENGTH);
+
+    checkSameAsReflectiveParse(buffer, metadata);
+    buffer.release();
+  }
+
+  @Test
+  public void parseWithMessage() throws Exception {
+    byte[] metadata = encode(new Metadata(7L, "carry data"));
+    MetadataParser parser = ProtocolBufProtocolFactory
+        .createParser(Metadata.class.getMethod("parseFrom", Message.class,
+            CodedInputStream.class));
+    ByteBuf buffer = Unpooled.directBuffer(metadata.length);
+    buffer.writeBytes(metadata);
+
+    Object parsed = parser.parse(null,
+        ProtocolBufProtocolFactory.newMetadataStream(buffer, metadata.length));
+    assertEquals(new Metadata(7L, "carry data"), parsed);
+    buffer.release();
+  }
+
+  private void checkSameAsReflectiveParse(ByteBuf buffer, byte[] metadata) throws Exception {
+    Method parseFrom = Metadata.class.getMethod("parseFrom", CodedInputStream.class);
+    Object expected = parseFrom.invoke(null, CodedInputStream.newInstance(metadata));
+
+    int readerIndex = buffer.readerIndex();
+    Object parsed = ProtocolBufProtocolFactory.createParser(parseFrom)
+        .parse(null, ProtocolBufProtocolFactory.newMetadataStream(buffer, metadata.length));
+
+    assertEquals(expected, parsed);
+    assertEquals(readerIndex + metadata.length, buffer.readerIndex());
+    assertEquals(SUFFIX_LENGTH, buffer.readableBytes());
+  }
+
+  private static byte[] encode(Metadata metadata) throws IOException {
+    byte[] bytes = new byte[CodedOutputStream.computeInt64Size(1, metadata.id)
+        + CodedOutputStream.computeStringSize(2, metadata.name)];
+    CodedOutputStream outputStream = CodedOutputStream.newInstance(bytes);
+    outputStream.writeInt64(1, metadata.id);
+    outputStream.writeString(2, metadata.name);
+    outputStream.checkNoSpaceLeft();
+    return bytes;
+  }
+
+  /**
+   * Decoded like a generated protobuf message with an int64 field 1 and a string field 2.
+   */
+  public static class Metadata {
+    private final long id;
+    private final String name;
+
+    Metadata(long id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public static Metadata parseFrom(CodedInputStream inputStream) throws IOException {
+      long id = 0;
+      String name = "";
+      int tag;
+      while ((tag = inputStream.readTag()) != 0) {
+        switch (tag >>> 3) {
+          case 1:
+            id = inputStream.readInt64();
+            break;
+          case 2:
+            name = inputStream.readString();
+            break;
+          default:
+            inputStream.skipField(tag);
+        }
+      }
+      return new Metadata(id, name);
+    }
+
+    public static Metadata parseFrom(Message msg, CodedInputStream inputStream)
+        throws IOException {
+      return parseFrom(inputStream);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Metadata)) {
+        return false;
+      }
+      Metadata that = (Metadata) o;
+      return id == that.id && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, name);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import py.storage.impl.IoSchedulerType;
+import py.test.TestBase;
+
+public class StorageConfigurationTest extends TestBase {
+  private static StorageConfiguration load(Map<String, Object> properties) {
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().getPropertySources()
+        .addFirst(new MapPropertySource("test", properties));
+    context.register(StorageConfiguration.class);
+    context.refresh();
+    try {
+      return context.getBean(StorageConfiguration.class);
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test
+  public void allStorageTypesUseDeadlineByDefault() {
+    StorageConfiguration configuration = load(new HashMap<>());
+    for (StorageType storageType : StorageType.values()) {
+      assertEquals(IoSchedulerType.DEADLINE, configuration.getIoSchedulerType(storageType));
+    }
+  }
+
+  @Test
+  public void solidStateStoragesSelectMultiQueue() {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("io.scheduler.type.ssd", "MULTI_QUEUE");
+    properties.put("io.scheduler.type.pcie", "multi_queue");
+    StorageConfiguration configuration = load(properties);
+
+    assertEquals(IoSchedulerType.MULTI_QUEUE, configuration.getIoSchedulerType(StorageType.SSD));
+    assertEquals(IoSchedulerType.MULTI_QUEUE, configuration.getIoSchedulerType(StorageType.PCIE));
+    assertEquals(IoSchedulerType.DEADLINE, configuration.getIoSchedulerType(StorageType.SATA));
+  }
+
+  @Test
+  public void storageTypeOverridesTheCommonScheduler() {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("io.scheduler.type", "FAIR_SHARE");
+    properties.put("io.scheduler.type.pcie", "MULTI_QUEUE");
+    StorageConfiguration configuration = load(properties);
+
+    assertEquals(IoSchedulerType.FAIR_SHARE, configuration.getIoSchedulerType(StorageType.SATA));
+    assertEquals(IoSchedulerType.FAIR_SHARE, configuration.getIoSchedulerType(StorageType.SSD));
+    assertEquals(IoSchedulerType.MULTI_QUEUE, configuration.getIoSchedulerType(StorageType.PCIE));
+  }
+
+  @Test
+  public void setSchedulerOfOneStorageType() {
+    StorageConfiguration configuration = new StorageConfiguration();
+    configuration.setIoSchedulerType(StorageType.SSD, IoSchedulerType.MULTI_QUEUE);
+
+    assertEquals(IoSchedulerType.MULTI_QUEUE, configuration.getIoSchedulerType(StorageType.SSD));
+    assertEquals(IoSchedulerType.DEADLINE, configuration.getIoSchedulerType(StorageType.SATA));
+    assertEquals(IoSchedulerType.DEADLINE, configuration.getIoSchedulerType(StorageType.PCIE));
+  }
+}
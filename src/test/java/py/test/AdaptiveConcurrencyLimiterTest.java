@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import py.storage.performance.AdaptiveConcurrencyLimiter;
+
+public class AdaptiveConcurrencyLimiterTest extends TestBase {
+  @Test
+  public void growWhileLatencyIsStable() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 256);
+    for (int i = 0; i < 100000; i++) {
+      limiter.onSample(100_000);
+    }
+    Assert.assertEquals(256, limiter.getLimit());
+  }
+
+  @Test
+  public void shrinkWhenRequestsQueueInDevice() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(128, 1, 256);
+    for (int i = 0; i < 1000; i++) {
+      limiter.onSample(100_000);
+    }
+    int limitBefore = limiter.getLimit();
+
+    // the device serves 8 requests in parallel, the others wait in its queue
+    for (int i = 0; i < 100000; i++) {
+      long latency = 100_000L * Math.max(1, limiter.getLimit() / 8);
+      limiter.onSample(latency);
+    }
+    Assert.assertTrue(limiter.getLimit() < limitBefore);
+    Assert.assertTrue(limiter.getLimit() < 64);
+  }
+
+  @Test
+  public void acquireAndRelease() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 2);
+    Assert.assertTrue(limiter.tryAcquire());
+    Assert.assertTrue(limiter.tryAcquire());
+    Assert.assertFalse(limiter.tryAcquire());
+
+    Thread releaser = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        logger.error("caught exception", e);
+      }
+      limiter.release();
+    });
+    releaser.start();
+    limiter.acquire();
+    releaser.join();
+    Assert.assertEquals(2, limiter.getInFlight());
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package py.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import py.storage.impl.BatchedCallbackExecutor;
+
+public class BatchedCallbackExecutorTest extends TestBase {
+  @Test
+  public void drainBatchesAndSurviveThrowingCallback() throws Exception {
+    BatchedCallbackExecutor executor = new BatchedCallbackExecutor("batched-test", 1);
+    int count = 1000;
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(count);
+    AtomicInteger ranCount = new AtomicInteger(0);
+
+    // hold the only thread so that the following callbacks pile up into batches
+    executor.execute(() -> {
+      blocked.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+    for (int i = 0; i < count; i++) {
+      int index = i;
+      executor.execute(() -> {
+        ranCount.incrementAndGet();
+        done.countDown();
+        if (index % 10 == 0) {
+          throw new IllegalStateException("callback " + index + " failed");
+        }
+      });
+    }
+    Assert.assertEquals(count, executor.getPendingCount());
+
+    release.countDown();
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(count, ranCount.get());
+    Assert.assertEquals(0, executor.getPendingCount());
+    executor.shutdownNow();
+  }
+}
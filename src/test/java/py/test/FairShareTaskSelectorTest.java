@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.test;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import py.storage.impl.FairShareTaskSelector;
+
+public class FairShareTaskSelectorTest extends TestBase {
+  /**
+   * Elements are encoded as shareKey * 1000 + index, and each of them costs 1.
+   */
+  private FairShareTaskSelector<Integer> newSelector() {
+    return new FairShareTaskSelector<>(e -> e / 1000, e -> 1, 1);
+  }
+
+  @Test
+  public void sharesAreServedByWeight() throws Exception {
+    FairShareTaskSelector<Integer> selector = newSelector();
+    selector.setWeight(2, 3);
+    for (int i = 0; i < 100; i++) {
+      selector.offer(1000 + i, 500);
+      selector.offer(2000 + i, 500);
+    }
+
+    int countOfShare1 = 0;
+    int countOfShare2 = 0;
+    for (int i = 0; i < 40; i++) {
+      int e = selector.select();
+      if (e / 1000 == 1) {
+        countOfShare1++;
+      } else {
+        countOfShare2++;
+      }
+    }
+    Assert.assertEquals(10, countOfShare1);
+    Assert.assertEquals(30, countOfShare2);
+    Assert.assertEquals(160, selector.size());
+  }
+
+  @Test
+  public void elementsOfOneShareKeepOrder() throws Exception {
+    FairShareTaskSelector<Integer> selector = newSelector();
+    for (int i = 0; i < 10; i++) {
+      selector.offer(1000 + i, 500);
+    }
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(1000 + i, selector.select().intValue());
+    }
+    Assert.assertNull(selector.select());
+    Assert.assertNull(selector.select(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void urgentElementFirst() throws Exception {
+    FairShareTaskSelector<Integer> selector = newSelector();
+    selector.offer(1000, 500);
+    selector.offer(2000, 0);
+    Assert.assertEquals(2000, selector.select().intValue());
+    Assert.assertEquals(1000, selector.select().intValue());
+  }
+}
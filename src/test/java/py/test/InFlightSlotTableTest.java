@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import py.storage.impl.scheduling.InFlightSlotTable;
+
+public class InFlightSlotTableTest extends TestBase {
+  @Test
+  public void acquireUntilFullAndReuse() throws Exception {
+    InFlightSlotTable<int[]> table = new InFlightSlotTable<>(4, slotId -> new int[]{slotId});
+    Set<Integer> slotIds = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      int slotId = table.acquire();
+      Assert.assertTrue(slotId >= 0);
+      Assert.assertEquals(slotId, table.get(slotId)[0]);
+      Assert.assertTrue(slotIds.add(slotId));
+    }
+    Assert.assertEquals(-1, table.acquire());
+
+    table.release(2);
+    Assert.assertEquals(2, table.acquire());
+  }
+
+  @Test
+  public void walkThroughSlotsInUse() throws Exception {
+    InFlightSlotTable<int[]> table = new InFlightSlotTable<>(8, slotId -> new int[]{slotId});
+    int first = table.acquire();
+    int second = table.acquire();
+    table.acquire();
+    table.release(second);
+
+    List<Integer> inUse = new ArrayList<>();
+    table.forEachInUse(slot -> inUse.add(slot[0]));
+    Assert.assertEquals(2, inUse.size());
+    Assert.assertTrue(inUse.contains(first));
+    Assert.assertFalse(inUse.contains(second));
+  }
+}
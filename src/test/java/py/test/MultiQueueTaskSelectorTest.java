@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import py.storage.impl.MultiQueueTaskSelector;
+
+public class MultiQueueTaskSelectorTest extends TestBase {
+  @Test
+  public void selectFromConcurrentSubmitters() throws Exception {
+    MultiQueueTaskSelector<Integer> selector = new MultiQueueTaskSelector<>(4);
+    int threadCount = 8;
+    int countPerThread = 1000;
+    CountDownLatch latch = new CountDownLatch(threadCount);
+    for (int t = 0; t < threadCount; t++) {
+      int base = t * countPerThread;
+      new Thread(() -> {
+        for (int i = 0; i < countPerThread; i++) {
+          selector.offer(base + i, 500);
+        }
+        latch.countDown();
+      }).start();
+    }
+
+    Set<Integer> selected = new HashSet<>();
+    while (selected.size() < threadCount * countPerThread) {
+      Integer e = selector.select(1, TimeUnit.SECONDS);
+      Assert.assertNotNull(e);
+      Assert.assertTrue(selected.add(e));
+    }
+    latch.await();
+    Assert.assertEquals(0, selector.size());
+    Assert.assertNull(selector.select());
+  }
+
+  @Test
+  public void urgentElementFirst() throws Exception {
+    MultiQueueTaskSelector<Integer> selector = new MultiQueueTaskSelector<>(2);
+    selector.offer(1, 500);
+    selector.offer(2, 0);
+    Assert.assertEquals(2, selector.select().intValue());
+    Assert.assertEquals(1, selector.select().intValue());
+  }
+}
@@ -14,12 +14,16 @@
 
 package py.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.nio.ByteBuffer;
 import java.nio.channels.CompletionHandler;
 import java.util.LinkedList;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -77,4 +81,74 @@ public class TaskTest extends TestBase {
     latch.await();
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testMergeVectoredWrite() throws InterruptedException {
+    int count = 64;
+    int step = 512;
+    LinkedList<Task> taskList = new LinkedList<>();
+    CountDownLatch latch = new CountDownLatch(count);
+    AtomicInteger completedLength = new AtomicInteger(0);
+
+    for (int i = 0; i < count; i++) {
+      taskList.add(new Task<>(Task.TaskType.Write, PriorityStorage.Priority.MIDDLE, i * step, null,
+          ByteBuffer.allocateDirect(step),
+          new CompletionHandler<Integer, Object>() {
+            @Override
+            public void completed(Integer result, Object attachment) {
+              completedLength.addAndGet(result);
+              latch.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, Object attachment) {
+              latch.countDown();
+            }
+          }));
+    }
+
+    Task task = Task.mergeVectored(taskList);
+    assertTrue(task.isVectored());
+    assertEquals(count * step, task.remaining());
+    task.complete(count * step);
+
+    latch.await();
+    assertEquals(count * step, completedLength.get());
+  }
+
+  @Test
+  public void testMergeVectoredShortResult() throws InterruptedException {
+    int count = 4;
+    int step = 512;
+    LinkedList<Task> taskList = new LinkedList<>();
+    CountDownLatch latch = new CountDownLatch(count);
+    AtomicInteger completedCount = new AtomicInteger(0);
+    AtomicInteger failedCount = new AtomicInteger(0);
+
+    for (int i = 0; i < count; i++) {
+      taskList.add(new Task<>(Task.TaskType.Read, PriorityStorage.Priority.MIDDLE, i * step, null,
+          ByteBuffer.allocateDirect(step),
+          new CompletionHandler<Integer, Object>() {
+            @Override
+            public void completed(Integer result, Object attachment) {
+              assertEquals(step, result.intValue());
+              completedCount.incrementAndGet();
+              latch.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, Object attachment) {
+              failedCount.incrementAndGet();
+              latch.countDown();
+            }
+          }));
+    }
+
+    // one and a half buffers transferred
+    Task.mergeVectored(taskList).complete(step + step / 2);
+
+    latch.await();
+    assertEquals(1, completedCount.get());
+    assertEquals(count - 1, failedCount.get());
+  }
+
+}
@@ -552,6 +552,78 @@ public class TlsfFastBufferManagerTest extends TestBase {
     fastBufferManager.releaseBuffer(buffer);
   }
 
+  @Test
+  public void reclaimBuffersCachedInMagazines() throws Exception {
+    final int pageSize = 4096;
+    final int pageCount = 8;
+    final long totalSize = pageCount * (pageSize + METADATA_SIZE_BYTES);
+    TlsfFastBufferManager fastBufferManager = new TlsfFastBufferManager(pageSize, totalSize, 10,
+        TlsfFastBufferManager.class.getSimpleName(), 16);
+
+    List<FastBuffer> fastBufferList = new ArrayList<>();
+    while (true) {
+      try {
+        fastBufferList.add(fastBufferManager.allocateBuffer(pageSize));
+      } catch (NoAvailableBufferException e) {
+        break;
+      }
+    }
+    Assert.assertTrue(fastBufferList.size() >= 4);
+
+    // all released pages are cached by another thread's magazine
+    Thread releaser = new Thread(() -> {
+      for (FastBuffer buffer : fastBufferList) {
+        fastBufferManager.releaseBuffer(buffer);
+      }
+    });
+    releaser.start();
+    releaser.join();
+
+    // allocating a buffer larger than a page needs the cached pages to be merged back
+    FastBuffer buffer = fastBufferManager.allocateBuffer(pageSize * 4);
+    Assert.assertEquals(pageSize * 4, buffer.size());
+    fastBufferManager.releaseBuffer(buffer);
+  }
+
+  @Test
+  public void reuseBufferObjectOnMagazineHit() throws Exception {
+    final int pageSize = 4096;
+    final long totalSize = 8 * (pageSize + METADATA_SIZE_BYTES);
+    TlsfFastBufferManager fastBufferManager = new TlsfFastBufferManager(pageSize, totalSize, 10,
+        TlsfFastBufferManager.class.getSimpleName(), 16);
+
+    FastBuffer buffer = fastBufferManager.allocateBuffer(pageSize);
+    fastBufferManager.releaseBuffer(buffer);
+    Assert.assertSame(buffer, fastBufferManager.allocateBuffer(pageSize));
+    Assert.assertEquals(pageSize, buffer.size());
+    fastBufferManager.releaseBuffer(buffer);
+  }
+
+  @Test
+  public void flushMagazinesOfDeadThreads() throws Exception {
+    final int pageSize = 4096;
+    final int pageCount = 8;
+    final long totalSize = pageCount * (pageSize + METADATA_SIZE_BYTES);
+    TlsfFastBufferManager fastBufferManager = new TlsfFastBufferManager(pageSize, totalSize, 10,
+        TlsfFastBufferManager.class.getSimpleName(), 16);
+
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          fastBufferManager.releaseBuffer(fastBufferManager.allocateBuffer(pageSize));
+        } catch (NoAvailableBufferException e) {
+          logger.error("caught exception", e);
+        }
+      });
+      thread.start();
+      thread.join();
+    }
+
+    // creating the magazine of this thread drops the magazines of all the dead threads above
+    fastBufferManager.releaseBuffer(fastBufferManager.allocateBuffer(pageSize));
+    Assert.assertEquals(1, fastBufferManager.getMagazineCount());
+  }
+
   @Test
   public void checkIfByteBufferFromFileChannel() throws Exception {
     File file = new File("/tmp/tlsffastbuffer");
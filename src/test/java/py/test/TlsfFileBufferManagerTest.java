@@ -29,6 +29,7 @@ import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
@@ -576,6 +577,54 @@ public class TlsfFileBufferManagerTest extends TestBase {
     bufferManager.releaseBuffer(buffer);
   }
 
+  @Test
+  public void putAndGetInMemoryMappedMode() throws Exception {
+    final int bufferSize = 4096;
+    final int threadCount = 8;
+    bufferManager = new TlsfFileBufferManager(4, "/tmp/fastBufferTest",
+        threadCount * (bufferSize + METADATA_SIZE_BYTES) + METADATA_SIZE_BYTES, 0, false, true,
+        TlsfFileBufferManager.ForcePolicy.ON_CLOSE);
+
+    List<FastBuffer> buffers = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      buffers.add(bufferManager.allocateBuffer(bufferSize));
+    }
+
+    AtomicInteger failedCount = new AtomicInteger(0);
+    CountDownLatch latch = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      final FastBuffer buffer = buffers.get(i);
+      final byte value = (byte) i;
+      new Thread(() -> {
+        try {
+          byte[] src = new byte[bufferSize];
+          Arrays.fill(src, value);
+          for (int times = 0; times < 1000; times++) {
+            buffer.put(src);
+            byte[] dst = new byte[bufferSize];
+            buffer.get(dst);
+            ByteBuffer directDst = ByteBuffer.allocateDirect(bufferSize);
+            buffer.get(directDst);
+            if (!Arrays.equals(src, dst) || directDst.get(bufferSize - 1) != value) {
+              failedCount.incrementAndGet();
+            }
+          }
+        } catch (Exception e) {
+          logger.error("caught exception", e);
+          failedCount.incrementAndGet();
+        } finally {
+          latch.countDown();
+        }
+      }).start();
+    }
+
+    latch.await();
+    Assert.assertEquals(0, failedCount.get());
+    for (FastBuffer buffer : buffers) {
+      bufferManager.releaseBuffer(buffer);
+    }
+  }
+
   @Test
   public void checkIfByteBufferFromFileChannel() throws Exception {
     File file = new File("/tmp/tlsffastbuffer");
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2022-2022. PengYunNetWork
+ *
+ * This program is free software: you can use, redistribute, and/or modify it
+ * under the terms of the GNU Affero General Public License, version 3 or later ("AGPL"),
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ *  You should have received a copy of the GNU Affero General Public License along with
+ *  this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package py.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.junit.Test;
+import py.test.TestBase;
+
+public class StorageFileRegionTest extends TestBase {
+  @Test
+  public void transferRegionWithoutClosingFile() throws Exception {
+    File file = File.createTempFile("storage-file-region", null);
+    file.deleteOnExit();
+    byte[] data = new byte[4096];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    Files.write(file.toPath(), data);
+
+    try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      StorageFileRegion region = new StorageFileRegion(fileChannel, 512, 1024);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      WritableByteChannel target = Channels.newChannel(out);
+      while (region.transferred() < region.count()) {
+        region.transferTo(target, region.transferred());
+      }
+
+      assertEquals(1024, region.transferred());
+      assertArrayEquals(Arrays.copyOfRange(data, 512, 512 + 1024), out.toByteArray());
+
+      assertTrue(region.release());
+      assertTrue(fileChannel.isOpen());
+    }
+  }
+}